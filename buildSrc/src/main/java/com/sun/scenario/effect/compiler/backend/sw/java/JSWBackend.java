@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2008, 2014, Oracle and/or its affiliates. All rights reserved.
+ * Copyright (c) 2008, 2017, Oracle and/or its affiliates. All rights reserved.
  * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
  *
  * This code is free software; you can redistribute it and/or modify it
@@ -76,7 +76,6 @@ public class JSWBackend extends TreeScanner {
         StringBuilder posDecls = new StringBuilder();
         StringBuilder pixInitY = new StringBuilder();
         StringBuilder pixInitX = new StringBuilder();
-        StringBuilder posIncrY = new StringBuilder();
         StringBuilder posInitY = new StringBuilder();
         StringBuilder posIncrX = new StringBuilder();
         StringBuilder posInitX = new StringBuilder();
@@ -146,7 +145,6 @@ public class JSWBackend extends TreeScanner {
                     samplers.append("int src" + i + "h = src" + i + ".getHeight();\n");
                     samplers.append("int src" + i + "scan = src" + i + ".getWidth();\n");
                     samplers.append("float[] " + v.getName() + " = src" + i + ".getData();\n");
-                    samplers.append("float " + v.getName() + "_vals[] = new float[4];\n");
 
                     // TODO: for now, assume [0,0,1,1]
                     srcRects.append("float[] src" + i + "Rect = new float[] {0,0,1,1};\n");
@@ -180,10 +178,6 @@ public class JSWBackend extends TreeScanner {
                     samplers.append("setInputBounds(" + i + ", src" + i + "InputBounds);\n");
                     samplers.append("setInputNativeBounds(" + i + ", src" + i + "Bounds);\n");
 
-                    if (t == Type.LSAMPLER) {
-                        samplers.append("float " + v.getName() + "_vals[] = new float[4];\n");
-                    }
-
                     // the source rect decls need to come after all calls to
                     // setInput[Native]Bounds() for all inputs (since the
                     // getSourceRegion() impl may need to query the bounds of
@@ -204,10 +198,11 @@ public class JSWBackend extends TreeScanner {
                 posDecls.append("float inc" + i + "_x = (src" + i + "Rect[2] - src" + i + "Rect[0]) / dstw;\n");
                 posDecls.append("float inc" + i + "_y = (src" + i + "Rect[3] - src" + i + "Rect[1]) / dsth;\n");
 
-                posInitY.append("float pos" + i + "_y = src" + i + "Rect[1] + inc" + i + "_y*0.5f;\n");
+                // each row position is computed from the row index, rather
+                // than accumulated, so that rows can be filtered in any order
+                posInitY.append("float pos" + i + "_y = src" + i + "Rect[1] + inc" + i + "_y*(dy - dsty + 0.5f);\n");
                 posInitX.append("float pos" + i + "_x = src" + i + "Rect[0] + inc" + i + "_x*0.5f;\n");
                 posIncrX.append("pos" + i + "_x += inc" + i + "_x;\n");
-                posIncrY.append("pos" + i + "_y += inc" + i + "_y;\n");
             }
         }
 
@@ -234,7 +229,6 @@ public class JSWBackend extends TreeScanner {
         glue.setAttribute("posDecls", posDecls.toString());
         glue.setAttribute("pixInitY", pixInitY.toString());
         glue.setAttribute("pixInitX", pixInitX.toString());
-        glue.setAttribute("posIncrY", posIncrY.toString());
         glue.setAttribute("posInitY", posInitY.toString());
         glue.setAttribute("posIncrX", posIncrX.toString());
         glue.setAttribute("posInitX", posInitX.toString());
@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2008, 2013, Oracle and/or its affiliates. All rights reserved.
+ * Copyright (c) 2008, 2017, Oracle and/or its affiliates. All rights reserved.
  * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
  *
  * This code is free software; you can redistribute it and/or modify it
@@ -153,16 +153,8 @@ class JSWFuncImpls {
                 String s = getSamplerName(params);
                 // TODO: this bounds checking is way too costly...
                 String p = getPosName(params);
-                if (type == LSAMPLER) {
-                    return
-                        "lsample(" + s + ", loc_tmp_x, loc_tmp_y,\n" +
-                        "        " + p + "w, " + p + "h, " + p + "scan,\n" +
-                        "        " + s + "_vals);\n";
-                } else if (type == FSAMPLER) {
-                    return
-                        "fsample(" + s + ", loc_tmp_x, loc_tmp_y,\n" +
-                        "        " + p + "w, " + p + "h, " + p + "scan,\n" +
-                        "        " + s + "_vals);\n";
+                if (type == LSAMPLER || type == FSAMPLER) {
+                    return getLinearSample(s, p, type == FSAMPLER);
                 } else {
                     return
                         "int " + s + "_tmp;\n" +
@@ -182,7 +174,7 @@ class JSWFuncImpls {
             public String toString(int i, List<Expr> params) {
                 String s = getSamplerName(params);
                 if (type == LSAMPLER || type == FSAMPLER) {
-                    return (i < 0 || i > 3) ? null : s + "_vals[" + i + "]";
+                    return (i < 0 || i > 3) ? null : s + "_vals_" + i;
                 } else {
                     switch (i) {
                     case 0:
@@ -210,6 +202,79 @@ class JSWFuncImpls {
         declareFunction(fimpl, "sample", type, FLOAT2);
     }
 
+    /**
+     * Returns the code for a bilinear sample of the given sampler at
+     * (loc_tmp_x, loc_tmp_y), which leaves the four components in the locals
+     * s_vals_0 to s_vals_3. The code is that of lsample() and fsample() in
+     * JSWEffectPeer, written out so that the per-pixel loop of a peer does
+     * not make any calls.
+     */
+    private static String getLinearSample(String s, String p, boolean floatMap) {
+        // If we subtract 0.5 then floc_xy could go negative and the
+        // integer cast will not perform a true floor operation so
+        // instead we add 0.5 and then iloc_xy will be off by 1.
+        // Note we test floc against 0 because iloc may have rounded the
+        // wrong way for some numbers.  But, iloc values are valid for
+        // testing against w,h
+        String scan = floatMap ? p + "scan*4" : p + "scan";
+        String left = floatMap ? "4" : "1";
+        return
+            "float " + s + "_vals_0 = 0f, " + s + "_vals_1 = 0f, " + s + "_vals_2 = 0f, " + s + "_vals_3 = 0f;\n" +
+            "{\n" +
+            "    float floc_tmp_x = loc_tmp_x*" + p + "w + 0.5f;\n" +
+            "    float floc_tmp_y = loc_tmp_y*" + p + "h + 0.5f;\n" +
+            "    int iloc_tmp_x = (int)floc_tmp_x;\n" +
+            "    int iloc_tmp_y = (int)floc_tmp_y;\n" +
+            "    if (floc_tmp_x > 0 && floc_tmp_y > 0 && iloc_tmp_x <= " + p + "w && iloc_tmp_y <= " + p + "h) {\n" +
+            "        float fract_tmp_x = floc_tmp_x - iloc_tmp_x;\n" +
+            "        float fract_tmp_y = floc_tmp_y - iloc_tmp_y;\n" +
+            "        float fract_tmp = fract_tmp_x * fract_tmp_y;\n" +
+            "        int offset_tmp = " + (floatMap ? "4*(" : "(") + "iloc_tmp_y*" + p + "scan + iloc_tmp_x);\n" +
+            "        if (iloc_tmp_y < " + p + "h) {\n" +
+            "            if (iloc_tmp_x < " + p + "w) {\n" +
+            getLinearAccum(s, "offset_tmp", "fract_tmp", floatMap) +
+            "            }\n" +
+            "            if (iloc_tmp_x > 0) {\n" +
+            getLinearAccum(s, "offset_tmp-" + left, "fract_tmp_y - fract_tmp", floatMap) +
+            "            }\n" +
+            "        }\n" +
+            "        if (iloc_tmp_y > 0) {\n" +
+            "            if (iloc_tmp_x < " + p + "w) {\n" +
+            getLinearAccum(s, "offset_tmp-" + scan, "fract_tmp_x - fract_tmp", floatMap) +
+            "            }\n" +
+            "            if (iloc_tmp_x > 0) {\n" +
+            getLinearAccum(s, "offset_tmp-" + scan + "-" + left, "1f - fract_tmp_x - fract_tmp_y + fract_tmp", floatMap) +
+            "            }\n" +
+            "        }\n" +
+            "    }\n" +
+            "}\n";
+    }
+
+    /**
+     * Returns the code that adds the weighted components of one texel to the
+     * locals s_vals_0 to s_vals_3, as laccum() and faccum() in JSWEffectPeer.
+     */
+    private static String getLinearAccum(String s, String offset, String weight, boolean floatMap) {
+        String indent = "                ";
+        if (floatMap) {
+            return
+                indent + "float mul_tmp = " + weight + ";\n" +
+                indent + "int off_tmp = " + offset + ";\n" +
+                indent + s + "_vals_0 += " + s + "[off_tmp  ] * mul_tmp;\n" +
+                indent + s + "_vals_1 += " + s + "[off_tmp+1] * mul_tmp;\n" +
+                indent + s + "_vals_2 += " + s + "[off_tmp+2] * mul_tmp;\n" +
+                indent + s + "_vals_3 += " + s + "[off_tmp+3] * mul_tmp;\n";
+        } else {
+            return
+                indent + "float mul_tmp = (" + weight + ") / 255f;\n" +
+                indent + "int pixel_tmp = " + s + "[" + offset + "];\n" +
+                indent + s + "_vals_0 += ((pixel_tmp >>  16) & 0xff) * mul_tmp;\n" +
+                indent + s + "_vals_1 += ((pixel_tmp >>   8) & 0xff) * mul_tmp;\n" +
+                indent + s + "_vals_2 += ((pixel_tmp       ) & 0xff) * mul_tmp;\n" +
+                indent + s + "_vals_3 += ((pixel_tmp >>> 24)       ) * mul_tmp;\n";
+        }
+    }
+
     /**
      * Used to declare intcast function:
      *   int intcast(float x)
@@ -0,0 +1,112 @@
+/*
+ * Copyright (c) 2017, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package com.sun.scenario.effect.compiler.backend.sw.java;
+
+import com.sun.scenario.effect.compiler.JSLC;
+import com.sun.scenario.effect.compiler.JSLC.ParserInfo;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks the row loop that the JSWGlue template generates for Java software
+ * peers, which is split into bands that may be filtered concurrently.
+ */
+public class JSWBackendTest {
+
+    private static final String BRIGHTPASS =
+        "param sampler baseImg;\n" +
+        "param float threshold;\n" +
+        "void main()\n" +
+        "{\n" +
+        "    float3 luminanceVector = float3(0.2125, 0.7154, 0.0721);\n" +
+        "    float4 val = sample(baseImg, pos0);\n" +
+        "    float luminance = dot(luminanceVector, val.rgb);\n" +
+        "    luminance = max(0.0, luminance - val.a * threshold);\n" +
+        "    color = val * sign(luminance);\n" +
+        "}\n";
+
+    private String code;
+
+    @Before
+    public void setUp() throws Exception {
+        ParserInfo pinfo = JSLC.getParserInfo(BRIGHTPASS);
+        JSWBackend backend = new JSWBackend(pinfo.parser, pinfo.program);
+        code = backend.getGenCode("Brightpass", "Brightpass", null, null);
+    }
+
+    private int indexOf(String text) {
+        int index = code.indexOf(text);
+        assertTrue("generated code does not contain: " + text, index >= 0);
+        return index;
+    }
+
+    @Test
+    public void rowLoopRunsInsideFilterBands() {
+        int bands = indexOf("filterBands(dsth, dstw, (band_y0, band_y1) -> {");
+        int loop = indexOf("for (int dy = dsty+band_y0; dy < dsty+band_y1; dy++)");
+        assertTrue(bands < loop);
+    }
+
+    @Test
+    public void outputColorIsLocalToEachBand() {
+        int bands = indexOf("filterBands(");
+        int color = indexOf("float color_x, color_y, color_z, color_w;");
+        assertTrue(bands < color);
+    }
+
+    @Test
+    public void linearSamplesAreWrittenOut() throws Exception {
+        ParserInfo pinfo = JSLC.getParserInfo(
+            "param lsampler baseImg;\n" +
+            "void main()\n" +
+            "{\n" +
+            "    color = sample(baseImg, pos0);\n" +
+            "}\n");
+        code = new JSWBackend(pinfo.parser, pinfo.program).getGenCode("Linear", "Linear", null, null);
+        int loop = indexOf("for (int dx = ");
+        int vals = indexOf("float baseImg_vals_0 = 0f,");
+        assertTrue(loop < vals);
+        indexOf("baseImg_vals_3 += ((pixel_tmp >>> 24)       ) * mul_tmp;");
+        assertFalse(code.contains("lsample("));
+        assertFalse(code.contains("_vals["));
+    }
+
+    @Test
+    public void rowPositionIsComputedFromRowIndex() {
+        int loop = indexOf("for (int dy = ");
+        int posY = indexOf("float pos0_y = src0Rect[1] + inc0_y*(dy - dsty + 0.5f);");
+        assertTrue(loop < posY);
+        assertFalse(code.contains("pos0_y += "));
+    }
+
+    @Test
+    public void outputIsClampedWithoutBranches() {
+        indexOf("color_w = Math.min(Math.max(color_w, 0f), 1f);");
+        indexOf("color_x = Math.min(Math.max(color_x, 0f), color_w);");
+    }
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2010, 2014, Oracle and/or its affiliates. All rights reserved.
+ * Copyright (c) 2010, 2017, Oracle and/or its affiliates. All rights reserved.
  * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
  *
  * This code is free software; you can redistribute it and/or modify it
@@ -226,6 +226,38 @@ public class ObservableListWrapper<E> extends ModifiableObservableListBase<E> im
         fireChange(new SimplePermutationChange<E>(0, size(), perm, this));
     }
 
+    /**
+     * Reorders the list so that the element at index {@code i} moves to index
+     * {@code perm[i]}, firing a single permutation change.
+     * @param perm the permutation, which must have one entry per element
+     * @throws IllegalArgumentException if perm has the wrong length, or is not
+     *      a permutation of the indices of the list
+     */
+    @SuppressWarnings("unchecked")
+    public void permute(int[] perm) {
+        if (perm.length != size()) {
+            throw new IllegalArgumentException("Permutation length " + perm.length
+                    + " does not match list size " + size());
+        }
+        boolean[] used = new boolean[perm.length];
+        for (int i = 0; i < perm.length; i++) {
+            int index = perm[i];
+            if (index < 0 || index >= perm.length || used[index]) {
+                throw new IllegalArgumentException("Not a permutation: index " + index
+                        + " at position " + i);
+            }
+            used[index] = true;
+        }
+        if (backingList.isEmpty()) {
+            return;
+        }
+        Object[] elements = backingList.toArray();
+        for (int i = 0; i < elements.length; i++) {
+            backingList.set(perm[i], (E) elements[i]);
+        }
+        fireChange(new SimplePermutationChange<E>(0, size(), perm, this));
+    }
+
     private SortHelper getSortHelper() {
         if (helper == null) {
             helper = new SortHelper();
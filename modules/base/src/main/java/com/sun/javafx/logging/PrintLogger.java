@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2014, Oracle and/or its affiliates. All rights reserved.
+ * Copyright (c) 2014, 2017, Oracle and/or its affiliates. All rights reserved.
  * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
  *
  * This code is free software; you can redistribute it and/or modify it
@@ -291,6 +291,16 @@ class PrintLogger extends Logger {
      */
     @Override
     public void incrementCounter(String counter) {
+        incrementCounter(counter, 1);
+    }
+
+    /**
+     * Adds the given amount to the given named per-pulse counter.
+     * @param counter The name for the counter.
+     * @param amount The amount to add.
+     */
+    @Override
+    public void incrementCounter(String counter, long amount) {
         PulseData pulseData;
         if (fxThread == null || Thread.currentThread() == fxThread) {
             if (fxData == null) {
@@ -310,7 +320,7 @@ class PrintLogger extends Logger {
             cval = new Counter();
             counters.put(counter, cval);
         }
-        cval.value += 1;
+        cval.value += amount;
     }
 
     @Override
@@ -335,10 +345,10 @@ class PrintLogger extends Logger {
     }
 
     /**
-     *  A mutable integer to be used in the counter map
+     *  A mutable long to be used in the counter map
      */
     private static class Counter {
-        int     value;
+        long    value;
     }
 
     /**
@@ -0,0 +1,358 @@
+/*
+ * Copyright (c) 2017, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package com.sun.javafx.logging;
+
+import java.security.AccessController;
+import java.security.PrivilegedAction;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Collects pulse statistics in memory, so they can be watched in production
+ * without printing anything. The duration of every pulse phase is recorded in
+ * a {@link LatencyHistogram} (in microseconds), as well as the duration of the
+ * whole pulse on the FX thread and of the rendering on the render thread.
+ * Counters incremented on the FX thread while a scene is being pulsed are
+ * accumulated per scene, all other counters are accumulated globally. Scenes
+ * are named after their class and the order in which they were first pulsed,
+ * for example "Scene 1".
+ * <p>
+ * The profiler is enabled with the {@code javafx.pulseProfiler} system
+ * property. Its statistics are exposed through the JMX {@code SGMXBean}.
+ */
+public final class ProfilingLogger extends Logger {
+
+    /**
+     * The name of the histogram of the time spent in a pulse on the FX thread.
+     */
+    public static final String PULSE = "Pulse";
+
+    /**
+     * The name of the histogram of the time spent rendering a pulse.
+     */
+    public static final String RENDER = "Render";
+
+    private static ProfilingLogger profilingLogger;
+
+    private final Map<String, LatencyHistogram> histograms = new ConcurrentHashMap<>();
+    private final Map<String, AtomicLong> counters = new ConcurrentHashMap<>();
+    private final Map<Object, SceneStatistics> sceneStatistics = new WeakHashMap<>();
+
+    private Thread fxThread;
+    private long pulseStartTime;
+    private volatile long renderStartTime;
+
+    /**
+     * The render thread, known once the first rendering has ended. Counters
+     * incremented on it are kept in renderCounters, which only the render
+     * thread touches, and are added to the global counters at the end of
+     * every rendering, so that counting the nodes of a scene as they are
+     * rendered does not go through the concurrent counters once per node.
+     */
+    private volatile Thread renderThread;
+    private final Map<String, long[]> renderCounters = new HashMap<>();
+
+    /**
+     * The number of scenes named so far, only accessed under the lock of
+     * sceneStatistics.
+     */
+    private int sceneCount;
+
+    /**
+     * The statistics of the scene being pulsed, only accessed on the FX thread.
+     */
+    private SceneStatistics currentScene;
+
+    private static class ThreadLocalData {
+        String  phaseName;
+        long    phaseStart;
+    }
+
+    private final ThreadLocal<ThreadLocalData> phaseData =
+        new ThreadLocal<ThreadLocalData>() {
+            @Override
+            public ThreadLocalData initialValue() {
+                return new ThreadLocalData();
+            }
+        };
+
+    /**
+     * Disallow instantiation.
+     */
+    private ProfilingLogger() {
+    }
+
+    /**
+     * Returns the profiler, or null if profiling is not enabled.
+     */
+    public static ProfilingLogger getInstance() {
+        if (profilingLogger == null) {
+            boolean enabled = AccessController.doPrivileged((PrivilegedAction<Boolean>) () -> Boolean.getBoolean("javafx.pulseProfiler"));
+            if (enabled) {
+                profilingLogger = new ProfilingLogger();
+            }
+        }
+        return profilingLogger;
+    }
+
+    private LatencyHistogram histogram(String name) {
+        // get() first, as computeIfAbsent may lock even when the key is present
+        LatencyHistogram histogram = histograms.get(name);
+        if (histogram == null) {
+            histogram = histograms.computeIfAbsent(name, key -> new LatencyHistogram());
+        }
+        return histogram;
+    }
+
+    @Override
+    public void pulseStart() {
+        if (fxThread == null) {
+            fxThread = Thread.currentThread();
+        }
+        pulseStartTime = System.nanoTime();
+    }
+
+    @Override
+    public void pulseEnd() {
+        newPhase(null); // finish the current phase on the FX thread
+        histogram(PULSE).record((System.nanoTime() - pulseStartTime) / 1000L);
+    }
+
+    @Override
+    public void renderStart() {
+        newPhase(null); // finish the current phase on the FX thread
+        renderStartTime = System.nanoTime();
+    }
+
+    @Override
+    public void renderEnd() {
+        newPhase(null); // finish the current phase on the render thread
+        histogram(RENDER).record((System.nanoTime() - renderStartTime) / 1000L);
+
+        if (renderThread == null) {
+            renderThread = Thread.currentThread();
+        }
+        if (Thread.currentThread() == renderThread) {
+            for (Map.Entry<String, long[]> entry : renderCounters.entrySet()) {
+                final long count = entry.getValue()[0];
+                if (count != 0) {
+                    addToCounter(entry.getKey(), count);
+                    entry.getValue()[0] = 0;
+                }
+            }
+        }
+    }
+
+    @Override
+    public void newPhase(String name) {
+        long curTime = System.nanoTime();
+
+        ThreadLocalData curPhase = phaseData.get();
+        if (curPhase.phaseName != null) {
+            histogram(curPhase.phaseName).record((curTime - curPhase.phaseStart) / 1000L);
+        }
+        curPhase.phaseName = name;
+        curPhase.phaseStart = curTime;
+    }
+
+    @Override
+    public void newScene(Object scene) {
+        if (currentScene != null) {
+            currentScene.pulseEnd();
+        }
+        if (scene == null) {
+            currentScene = null;
+            return;
+        }
+        synchronized (sceneStatistics) {
+            currentScene = sceneStatistics.get(scene);
+            if (currentScene == null) {
+                currentScene = new SceneStatistics(scene.getClass().getSimpleName() + " " + (++sceneCount));
+                sceneStatistics.put(scene, currentScene);
+            }
+        }
+    }
+
+    @Override
+    public void incrementCounter(String counter) {
+        incrementCounter(counter, 1);
+    }
+
+    @Override
+    public void incrementCounter(String counter, long amount) {
+        final Thread thread = Thread.currentThread();
+        if (thread == renderThread) {
+            add(renderCounters, counter, amount);
+        } else if (currentScene != null && thread == fxThread) {
+            currentScene.increment(counter, amount);
+        } else {
+            addToCounter(counter, amount);
+        }
+    }
+
+    private void addToCounter(String counter, long amount) {
+        AtomicLong value = counters.get(counter);
+        if (value == null) {
+            value = counters.computeIfAbsent(counter, key -> new AtomicLong());
+        }
+        value.addAndGet(amount);
+    }
+
+    /**
+     * Adds to a counter in a map only accessed by the calling thread.
+     */
+    private static void add(Map<String, long[]> counters, String counter, long amount) {
+        long[] value = counters.get(counter);
+        if (value == null) {
+            value = new long[1];
+            counters.put(counter, value);
+        }
+        value[0] += amount;
+    }
+
+    /**
+     * Returns a snapshot of the phase histograms, sorted by phase name.
+     */
+    public Map<String, LatencyHistogram> getHistograms() {
+        return Collections.unmodifiableMap(new TreeMap<>(histograms));
+    }
+
+    /**
+     * Returns the totals of the counters not attributed to a scene.
+     */
+    public Map<String, Long> getCounters() {
+        Map<String, Long> result = new TreeMap<>();
+        for (Map.Entry<String, AtomicLong> entry : counters.entrySet()) {
+            result.put(entry.getKey(), entry.getValue().get());
+        }
+        return result;
+    }
+
+    /**
+     * Returns the counters of the live scenes, keyed by scene name.
+     * For every counter the total and the maximum within a single pulse
+     * are reported, in this order.
+     */
+    public Map<String, Map<String, long[]>> getSceneCounters() {
+        Map<String, Map<String, long[]>> result = new TreeMap<>();
+        synchronized (sceneStatistics) {
+            for (SceneStatistics stats : sceneStatistics.values()) {
+                result.put(stats.name, stats.snapshot());
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the number of pulses of the live scenes, keyed by scene name.
+     */
+    public Map<String, Long> getScenePulses() {
+        Map<String, Long> result = new TreeMap<>();
+        synchronized (sceneStatistics) {
+            for (SceneStatistics stats : sceneStatistics.values()) {
+                result.put(stats.name, stats.getPulses());
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Clears all collected statistics.
+     */
+    public void reset() {
+        for (LatencyHistogram histogram : histograms.values()) {
+            histogram.reset();
+        }
+        for (AtomicLong counter : counters.values()) {
+            counter.set(0);
+        }
+        synchronized (sceneStatistics) {
+            for (SceneStatistics stats : sceneStatistics.values()) {
+                stats.reset();
+            }
+        }
+    }
+
+    /**
+     * The counters of a single scene. The counts of the current pulse are
+     * only touched on the FX thread and are folded into the totals, under
+     * the lock, once the scene pulse ends.
+     */
+    private static final class SceneStatistics {
+        final String name;
+        private final Map<String, long[]> current = new HashMap<>();
+        private final Map<String, long[]> totals = new HashMap<>();
+        private long pulses;
+
+        SceneStatistics(String name) {
+            this.name = name;
+        }
+
+        void increment(String counter, long amount) {
+            add(current, counter, amount);
+        }
+
+        synchronized void pulseEnd() {
+            pulses++;
+            for (Map.Entry<String, long[]> entry : current.entrySet()) {
+                final long count = entry.getValue()[0];
+                if (count == 0) {
+                    continue;
+                }
+                long[] total = totals.get(entry.getKey());
+                if (total == null) {
+                    total = new long[2];
+                    totals.put(entry.getKey(), total);
+                }
+                total[0] += count;
+                total[1] = Math.max(total[1], count);
+                entry.getValue()[0] = 0;
+            }
+        }
+
+        synchronized long getPulses() {
+            return pulses;
+        }
+
+        synchronized Map<String, long[]> snapshot() {
+            Map<String, long[]> result = new TreeMap<>();
+            for (Map.Entry<String, long[]> entry : totals.entrySet()) {
+                result.put(entry.getKey(), entry.getValue().clone());
+            }
+            return result;
+        }
+
+        synchronized void reset() {
+            pulses = 0;
+            totals.clear();
+        }
+    }
+}
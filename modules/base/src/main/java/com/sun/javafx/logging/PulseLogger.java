@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2009, 2014, Oracle and/or its affiliates. All rights reserved.
+ * Copyright (c) 2009, 2017, Oracle and/or its affiliates. All rights reserved.
  * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
  *
  * This code is free software; you can redistribute it and/or modify it
@@ -34,6 +34,13 @@ public class PulseLogger {
 
     public static final boolean PULSE_LOGGING_ENABLED;
 
+    /**
+     * True if a logger which records messages is active. The profiler does
+     * not use messages, so building them can be skipped when it is the only
+     * active logger.
+     */
+    public static final boolean PULSE_MESSAGES_ENABLED;
+
     private static final Logger[] loggers;
 
     static {
@@ -55,6 +62,11 @@ public class PulseLogger {
         catch (NoClassDefFoundError | ClassNotFoundException | NoSuchMethodException | IllegalAccessException | InvocationTargetException e) {
             // Ignore
         }
+        PULSE_MESSAGES_ENABLED = !list.isEmpty();
+        logger = ProfilingLogger.getInstance();
+        if (logger != null) {
+            list.add(logger);
+        }
 
         loggers = list.toArray(new Logger[list.size()]);
         PULSE_LOGGING_ENABLED = loggers.length > 0;
@@ -96,6 +108,12 @@ public class PulseLogger {
         }
     }
 
+    public static void incrementCounter(String counter, long amount) {
+        for (Logger logger: loggers) {
+            logger.incrementCounter(counter, amount);
+        }
+    }
+
     public static void newPhase(String name) {
         for (Logger logger: loggers) {
             logger.newPhase(name);
@@ -107,4 +125,14 @@ public class PulseLogger {
             logger.newInput(name);
         }
     }
+
+    /**
+     * Marks the start of the pulse of the given scene, or the end of the
+     * current scene pulse if {@code scene} is null.
+     */
+    public static void newScene(Object scene) {
+        for (Logger logger: loggers) {
+            logger.newScene(scene);
+        }
+    }
 }
@@ -0,0 +1,173 @@
+/*
+ * Copyright (c) 2017, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package com.sun.javafx.property;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javafx.beans.property.ReadOnlyObjectWrapper;
+import javafx.beans.value.ObservableValue;
+
+/**
+ * A compiled, read-only accessor for a named property of a class, used to pull
+ * values out of row items (see PropertyValueFactory). The getter and property
+ * getter are found once, in the same way as {@link PropertyReference}, and
+ * invoked through method handles rather than reflection.
+ * <p>
+ * When a security manager is installed the methods are instead invoked
+ * through the {@code PropertyReference}, which calls them through the
+ * {@code MethodUtil} trampoline, so that application code cannot use the
+ * accessor to call methods with the privileges of the toolkit.
+ * <p>
+ * Accessors are cached per (class, property name) for the life of the class,
+ * so all callers asking for the same property of the same class share one
+ * accessor.
+ */
+public final class PropertyAccessor {
+
+    private static final MethodType GETTER_TYPE =
+            MethodType.methodType(Object.class, Object.class);
+
+    private static final ClassValue<Map<String, PropertyAccessor>> ACCESSORS =
+            new ClassValue<Map<String, PropertyAccessor>>() {
+                @Override protected Map<String, PropertyAccessor> computeValue(Class<?> type) {
+                    return new ConcurrentHashMap<>();
+                }
+            };
+
+    /**
+     * Returns the accessor for the given property of the given class.
+     *
+     * @throws NullPointerException if {@code clazz} or {@code name} are null
+     * @throws IllegalArgumentException if {@code name} is empty
+     */
+    public static PropertyAccessor get(Class<?> clazz, String name) {
+        if (clazz == null) throw new NullPointerException("Class must be specified");
+        if (name == null) throw new NullPointerException("Name must be specified");
+        return ACCESSORS.get(clazz).computeIfAbsent(name, n -> new PropertyAccessor(clazz, n));
+    }
+
+    private final Class<?> clazz;
+    private final String name;
+    private final PropertyReference<?> reference;
+    // null if the method cannot be called through a handle, in which case
+    // the reference is used
+    private final MethodHandle getter;
+    private final MethodHandle propertyGetter;
+
+    private PropertyAccessor(Class<?> clazz, String name) {
+        this.clazz = clazz;
+        this.name = name;
+        this.reference = new PropertyReference<>(clazz, name);
+        this.getter = toHandle(reference.getGetter());
+        this.propertyGetter = toHandle(reference.getPropertyGetter());
+    }
+
+    private static MethodHandle toHandle(Method method) {
+        if (method == null) return null;
+        try {
+            return MethodHandles.publicLookup().unreflect(method).asType(GETTER_TYPE);
+        } catch (IllegalAccessException e) {
+            // the method is public but its declaring class is not, so go
+            // through the (reflective) property reference instead
+            return null;
+        }
+    }
+
+    // Method handles are only used when there is no security manager, as
+    // they would bypass the trampoline used by PropertyReference. This is
+    // checked on every call, as a security manager can be installed after
+    // the accessor has been cached.
+    private static boolean useHandles() {
+        return System.getSecurityManager() == null;
+    }
+
+    public Class<?> getContainingClass() {
+        return clazz;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public boolean isReadable() {
+        return reference.isReadable();
+    }
+
+    public boolean hasProperty() {
+        return reference.hasProperty();
+    }
+
+    /**
+     * Returns the value of the property of the given bean.
+     *
+     * @throws IllegalStateException if the property has no getter
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object bean) {
+        if (getter != null && useHandles()) {
+            return (T) invoke(getter, bean);
+        }
+        return (T) reference.get(bean);
+    }
+
+    /**
+     * Returns the property of the given bean as an observable value. If the
+     * class has no {@code xxxProperty} method, the value returned by the
+     * getter is wrapped in a read-only property.
+     *
+     * @throws IllegalStateException if the property has neither a property
+     *      getter nor a getter
+     */
+    @SuppressWarnings("unchecked")
+    public <T> ObservableValue<T> getObservableValue(Object bean) {
+        if (propertyGetter != null && useHandles()) {
+            return (ObservableValue<T>) invoke(propertyGetter, bean);
+        }
+        if (reference.hasProperty()) {
+            return (ObservableValue<T>) reference.getProperty(bean);
+        }
+        return new ReadOnlyObjectWrapper<T>(get(bean));
+    }
+
+    private static Object invoke(MethodHandle handle, Object bean) {
+        try {
+            return (Object) handle.invokeExact(bean);
+        } catch (RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable t) {
+            throw new RuntimeException(t);
+        }
+    }
+
+    @Override public String toString() {
+        return name;
+    }
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2010, 2013, Oracle and/or its affiliates. All rights reserved.
+ * Copyright (c) 2010, 2017, Oracle and/or its affiliates. All rights reserved.
  * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
  *
  * This code is free software; you can redistribute it and/or modify it
@@ -201,6 +201,24 @@ public final class PropertyReference<T> {
         }
     }
 
+    /**
+     * Returns the reflected {@code getXXX} or {@code isXXX} method, or null
+     * if there is none.
+     */
+    Method getGetter() {
+        reflect();
+        return getter;
+    }
+
+    /**
+     * Returns the reflected {@code xxxProperty} method, or null if there is
+     * none.
+     */
+    Method getPropertyGetter() {
+        reflect();
+        return propertyGetter;
+    }
+
     /**
      * {@inheritDoc}
      */
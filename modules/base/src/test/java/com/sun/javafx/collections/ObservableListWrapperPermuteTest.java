@@ -0,0 +1,87 @@
+/*
+ * Copyright (c) 2017, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package com.sun.javafx.collections;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import javafx.collections.ListChangeListener.Change;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class ObservableListWrapperPermuteTest {
+
+    ObservableListWrapper<String> list;
+    List<Change<? extends String>> changes;
+
+    @Before
+    public void setUp() {
+        list = new ObservableListWrapper<>(new ArrayList<>(Arrays.asList("a", "b", "c", "d")));
+        changes = new ArrayList<>();
+        list.addListener((Change<? extends String> c) -> changes.add(c));
+    }
+
+    @Test
+    public void testPermuteMovesElements() {
+        list.permute(new int[] {2, 0, 3, 1});
+
+        assertEquals(Arrays.asList("b", "d", "a", "c"), list);
+        assertEquals(1, changes.size());
+        Change<? extends String> c = changes.get(0);
+        assertTrue(c.next());
+        assertTrue(c.wasPermutated());
+        assertEquals(2, c.getPermutation(0));
+        assertEquals(1, c.getPermutation(3));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testPermuteRejectsWrongLength() {
+        list.permute(new int[] {0, 1, 2});
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testPermuteRejectsIndexOutOfRange() {
+        list.permute(new int[] {0, 1, 2, 4});
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testPermuteRejectsDuplicateIndex() {
+        list.permute(new int[] {0, 1, 1, 3});
+    }
+
+    @Test
+    public void testRejectedPermutationLeavesListUnchanged() {
+        try {
+            list.permute(new int[] {3, 2, 3, 0});
+            fail();
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+        assertEquals(Arrays.asList("a", "b", "c", "d"), list);
+        assertTrue(changes.isEmpty());
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright (c) 2017, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package javafx.beans.property;
+
+import static org.junit.Assert.*;
+import javafx.beans.Person;
+import javafx.beans.value.ObservableValue;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.sun.javafx.property.PropertyAccessor;
+
+public class PropertyAccessorTest {
+
+    private Person person;
+
+    @Before
+    public void setUp() {
+        person = new Person();
+    }
+
+    @Test
+    public void testAccessorsAreShared() {
+        assertSame(PropertyAccessor.get(Person.class, "age"), PropertyAccessor.get(Person.class, "age"));
+        assertNotSame(PropertyAccessor.get(Person.class, "age"), PropertyAccessor.get(Person.class, "name"));
+    }
+
+    @Test
+    public void testProperty() {
+        final PropertyAccessor accessor = PropertyAccessor.get(Person.class, "age");
+        assertTrue(accessor.isReadable());
+        assertTrue(accessor.hasProperty());
+        assertSame(person.ageProperty(), accessor.getObservableValue(person));
+        person.setAge(42);
+        assertEquals(Integer.valueOf(42), accessor.get(person));
+    }
+
+    @Test
+    public void testGetterOnly() {
+        final PropertyAccessor accessor = PropertyAccessor.get(GetterOnly.class, "value");
+        assertTrue(accessor.isReadable());
+        assertFalse(accessor.hasProperty());
+        ObservableValue<String> value = accessor.getObservableValue(new GetterOnly());
+        assertEquals("foo", value.getValue());
+    }
+
+    @Test(expected=IllegalStateException.class)
+    public void testNoRead() {
+        PropertyAccessor.get(Person.class, "noRead").getObservableValue(person);
+    }
+
+    @Test(expected=NullPointerException.class)
+    public void testNullName() {
+        PropertyAccessor.get(Person.class, null);
+    }
+
+    @Test(expected=IllegalArgumentException.class)
+    public void testEmptyName() {
+        PropertyAccessor.get(Person.class, " ");
+    }
+
+    public static class GetterOnly {
+        public String getValue() { return "foo"; }
+    }
+}
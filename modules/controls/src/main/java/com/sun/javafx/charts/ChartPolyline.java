@@ -0,0 +1,331 @@
+/*
+ * Copyright (c) 2017, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package com.sun.javafx.charts;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import javafx.collections.ObservableList;
+import javafx.geometry.BoundingBox;
+import javafx.geometry.Bounds;
+import javafx.scene.shape.ClosePath;
+import javafx.scene.shape.FillRule;
+import javafx.scene.shape.LineTo;
+import javafx.scene.shape.MoveTo;
+import javafx.scene.shape.Path;
+import javafx.scene.shape.PathElement;
+
+import com.sun.javafx.geom.BaseBounds;
+import com.sun.javafx.geom.Path2D;
+import com.sun.javafx.geom.RectBounds;
+import com.sun.javafx.geom.transform.BaseTransform;
+import com.sun.javafx.scene.DirtyBits;
+
+/**
+ * A path made of a single polyline whose points are kept in a primitive
+ * coordinate buffer, used by the charts to draw series without allocating a
+ * {@code PathElement} per data item. It extends {@link Path} so that it is
+ * styled the same way and existing code testing for a {@code Path} keeps
+ * working.
+ *
+ * <p>A chart sets the points on every layout between {@link #beginPoints()}
+ * and {@link #endPoints()}. Points set to the coordinates they already had do
+ * not change the geometry, so when data is only appended, the new points are
+ * appended to the cached geometry instead of it being rebuilt.</p>
+ *
+ * <p>The {@link #getElements() elements} of the path follow the points: a
+ * {@code MoveTo} for the first point, a {@code LineTo} for each further point
+ * and a {@code ClosePath} if the polyline is closed. They are brought up to
+ * date by {@link #endPoints()} and {@link #clear()}, reusing the existing
+ * elements, so that only appended points create new elements. The geometry
+ * and the bounds are computed from the coordinate buffer, never from the
+ * elements.</p>
+ */
+public class ChartPolyline extends Path {
+
+    private float[] coords = new float[32];
+    private float[] scratch;
+    private int pointCount;
+    private boolean closed;
+
+    /** The geometry and the number of points it contains, null if it needs to be rebuilt */
+    private Path2D path2d;
+    private int pathPointCount;
+
+    /**
+     * Whether the change of the geometry has been notified and the geometry
+     * has not been computed since, so that further changes need no notification
+     */
+    private boolean geometryInvalid;
+
+    /** The number of points and whether a ClosePath is reflected in the elements */
+    private int elementPointCount;
+    private boolean elementsClosed;
+
+    /**
+     * Removes all points.
+     */
+    public final void clear() {
+        pointCount = 0;
+        closed = false;
+        invalidatePath();
+        updateElements();
+    }
+
+    /**
+     * Starts setting the points again from the first one. The geometry is
+     * kept for as long as the points added next match the existing ones.
+     */
+    public final void beginPoints() {
+        pointCount = 0;
+    }
+
+    /**
+     * Drops the points that were not set again since {@link #beginPoints()}
+     * and updates the elements of the path to the current points.
+     */
+    public final void endPoints() {
+        if (path2d != null && pointCount < pathPointCount) {
+            invalidatePath();
+        }
+        updateElements();
+    }
+
+    private void updateElements() {
+        final ObservableList<PathElement> elements = getElements();
+        final int n = pointCount;
+        final int kept = Math.min(n, elementPointCount);
+        for (int i = 0; i < kept; i++) {
+            final float x = coords[i * 2];
+            final float y = coords[i * 2 + 1];
+            final PathElement element = elements.get(i);
+            if (i == 0) {
+                final MoveTo moveTo = (MoveTo) element;
+                if (moveTo.getX() != x) moveTo.setX(x);
+                if (moveTo.getY() != y) moveTo.setY(y);
+            } else {
+                final LineTo lineTo = (LineTo) element;
+                if (lineTo.getX() != x) lineTo.setX(x);
+                if (lineTo.getY() != y) lineTo.setY(y);
+            }
+        }
+        if (n < elementPointCount) {
+            elements.remove(n, elementPointCount);
+        } else if (n > elementPointCount) {
+            final List<PathElement> added = new ArrayList<>(n - elementPointCount);
+            for (int i = elementPointCount; i < n; i++) {
+                final float x = coords[i * 2];
+                final float y = coords[i * 2 + 1];
+                added.add(i == 0 ? new MoveTo(x, y) : new LineTo(x, y));
+            }
+            elements.addAll(elementPointCount, added);
+        }
+        elementPointCount = n;
+
+        final boolean closeElement = closed && n > 0;
+        if (elementsClosed != closeElement) {
+            if (closeElement) {
+                elements.add(new ClosePath());
+            } else {
+                elements.remove(elements.size() - 1);
+            }
+            elementsClosed = closeElement;
+        }
+    }
+
+    /**
+     * Appends a point to the polyline. The first point starts the polyline,
+     * every further point adds a line segment.
+     */
+    public final void addPoint(double x, double y) {
+        if (pointCount * 2 >= coords.length) {
+            coords = Arrays.copyOf(coords, coords.length * 2);
+        }
+        final int i = pointCount * 2;
+        final float fx = (float) x;
+        final float fy = (float) y;
+        pointCount++;
+        if (path2d != null && pointCount <= pathPointCount) {
+            if (Float.compare(coords[i], fx) == 0 && Float.compare(coords[i + 1], fy) == 0) {
+                // the geometry already has this point
+                return;
+            }
+            coords[i] = fx;
+            coords[i + 1] = fy;
+            invalidatePath();
+        } else {
+            coords[i] = fx;
+            coords[i + 1] = fy;
+            geometryChanged();
+        }
+    }
+
+    /**
+     * Sets whether the polyline is closed by a segment from the last point
+     * back to the first one.
+     */
+    public final void setClosed(boolean value) {
+        if (closed != value) {
+            closed = value;
+            invalidatePath();
+        }
+    }
+
+    public final boolean isClosed() {
+        return closed;
+    }
+
+    public final int getPointCount() {
+        return pointCount;
+    }
+
+    public final double getX(int index) {
+        return coords[index * 2];
+    }
+
+    public final double getY(int index) {
+        return coords[index * 2 + 1];
+    }
+
+    /**
+     * Sorts the points by their x coordinates, keeping the order of points
+     * with equal coordinates.
+     */
+    public final void sortByX() {
+        sort(0);
+    }
+
+    /**
+     * Sorts the points by their y coordinates, keeping the order of points
+     * with equal coordinates.
+     */
+    public final void sortByY() {
+        sort(1);
+    }
+
+    private void sort(final int offset) {
+        final int n = pointCount;
+        boolean sorted = true;
+        for (int i = 1; i < n && sorted; i++) {
+            sorted = Float.compare(coords[(i - 1) * 2 + offset], coords[i * 2 + offset]) <= 0;
+        }
+        if (sorted) {
+            return;
+        }
+
+        // bottom-up merge sort of the coordinate pairs, alternating between
+        // the coordinate buffer and a scratch buffer of the same size that
+        // is kept for the next sort
+        if (scratch == null || scratch.length != coords.length) {
+            scratch = new float[coords.length];
+        }
+        float[] src = coords;
+        float[] dst = scratch;
+        for (int width = 1; width < n; width *= 2) {
+            for (int lo = 0; lo < n; lo += 2 * width) {
+                final int mid = Math.min(lo + width, n);
+                final int hi = Math.min(lo + 2 * width, n);
+                int i = lo, j = mid, k = lo * 2;
+                while (i < mid && j < hi) {
+                    // take from the right run only if strictly smaller, so
+                    // that the sort is stable
+                    final int from = Float.compare(src[j * 2 + offset], src[i * 2 + offset]) < 0 ? j++ : i++;
+                    dst[k++] = src[from * 2];
+                    dst[k++] = src[from * 2 + 1];
+                }
+                System.arraycopy(src, i * 2, dst, k, (mid - i) * 2);
+                k += (mid - i) * 2;
+                System.arraycopy(src, j * 2, dst, k, (hi - j) * 2);
+            }
+            final float[] tmp = src;
+            src = dst;
+            dst = tmp;
+        }
+        coords = src;
+        scratch = dst;
+        invalidatePath();
+    }
+
+    private void invalidatePath() {
+        path2d = null;
+        pathPointCount = 0;
+        geometryChanged();
+    }
+
+    private void geometryChanged() {
+        if (!geometryInvalid) {
+            geometryInvalid = true;
+            impl_markDirty(DirtyBits.NODE_CONTENTS);
+            impl_geomChanged();
+        }
+    }
+
+    /**
+     * @treatAsPrivate implementation detail
+     * @deprecated This is an internal API that is not intended for use and will be removed in the next version
+     */
+    @Deprecated
+    @Override
+    protected Bounds impl_computeLayoutBounds() {
+        // Path uses empty bounds until its first element is a MoveTo, which
+        // is only true once the elements were updated
+        final BaseBounds bounds = impl_computeGeomBounds(new RectBounds(),
+                                                         BaseTransform.IDENTITY_TRANSFORM);
+        return new BoundingBox(bounds.getMinX(), bounds.getMinY(),
+                               bounds.getWidth(), bounds.getHeight());
+    }
+
+    /**
+     * @treatAsPrivate implementation detail
+     * @deprecated This is an internal API that is not intended for use and will be removed in the next version
+     */
+    @Deprecated
+    @Override
+    public Path2D impl_configShape() {
+        geometryInvalid = false;
+        if (path2d == null || (closed && pathPointCount != pointCount)) {
+            path2d = new Path2D(Path2D.WIND_NON_ZERO, pointCount + 1);
+            pathPointCount = 0;
+        }
+        if (pathPointCount < pointCount) {
+            for (int i = pathPointCount; i < pointCount; i++) {
+                if (i == 0) {
+                    path2d.moveTo(coords[0], coords[1]);
+                } else {
+                    path2d.lineTo(coords[i * 2], coords[i * 2 + 1]);
+                }
+            }
+            pathPointCount = pointCount;
+            if (closed && pointCount > 0) {
+                path2d.closePath();
+            }
+        }
+        path2d.setWindingRule(getFillRule() == FillRule.NON_ZERO ?
+                              Path2D.WIND_NON_ZERO : Path2D.WIND_EVEN_ODD);
+        return path2d;
+    }
+}
@@ -0,0 +1,192 @@
+/*
+ * Copyright (c) 2017, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package com.sun.javafx.charts;
+
+/**
+ * Fixed-capacity ring buffer of numeric x/y points used by streaming chart
+ * series. Once full, every appended point replaces the oldest one. The
+ * minimum and maximum coordinates of the points in the buffer are maintained
+ * incrementally, in amortized constant time per appended point, so that axis
+ * ranges can be computed without scanning the buffer. NaN coordinates are
+ * ignored for the minimum and maximum.
+ */
+public final class DataRingBuffer {
+
+    private final double[] xs;
+    private final double[] ys;
+
+    /** The number of points appended since the buffer was created or cleared */
+    private long appended;
+    private int size;
+
+    private final WindowExtreme minX;
+    private final WindowExtreme maxX;
+    private final WindowExtreme minY;
+    private final WindowExtreme maxY;
+
+    public DataRingBuffer(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive: " + capacity);
+        }
+        xs = new double[capacity];
+        ys = new double[capacity];
+        minX = new WindowExtreme(xs, true);
+        maxX = new WindowExtreme(xs, false);
+        minY = new WindowExtreme(ys, true);
+        maxY = new WindowExtreme(ys, false);
+    }
+
+    public int getCapacity() {
+        return xs.length;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Appends a point, discarding the oldest one if the buffer is full.
+     */
+    public void add(double x, double y) {
+        final long sequence = appended++;
+        final int slot = (int) (sequence % xs.length);
+        xs[slot] = x;
+        ys[slot] = y;
+        if (size < xs.length) {
+            size++;
+        }
+        final long oldest = appended - size;
+        minX.add(sequence, oldest);
+        maxX.add(sequence, oldest);
+        minY.add(sequence, oldest);
+        maxY.add(sequence, oldest);
+    }
+
+    public void clear() {
+        appended = 0;
+        size = 0;
+        minX.clear();
+        maxX.clear();
+        minY.clear();
+        maxY.clear();
+    }
+
+    /**
+     * Returns the x coordinate of the point at the given index, the oldest
+     * point being at index 0.
+     */
+    public double getX(int index) {
+        return xs[slot(index)];
+    }
+
+    /**
+     * Returns the y coordinate of the point at the given index, the oldest
+     * point being at index 0.
+     */
+    public double getY(int index) {
+        return ys[slot(index)];
+    }
+
+    private int slot(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+        return (int) ((appended - size + index) % xs.length);
+    }
+
+    /** Returns the smallest x coordinate in the buffer, or NaN if there is none */
+    public double getMinX() {
+        return minX.get();
+    }
+
+    /** Returns the largest x coordinate in the buffer, or NaN if there is none */
+    public double getMaxX() {
+        return maxX.get();
+    }
+
+    /** Returns the smallest y coordinate in the buffer, or NaN if there is none */
+    public double getMinY() {
+        return minY.get();
+    }
+
+    /** Returns the largest y coordinate in the buffer, or NaN if there is none */
+    public double getMaxY() {
+        return maxY.get();
+    }
+
+    /**
+     * Monotonic deque of the sequence numbers of the points which may still
+     * become the extreme of the window; the front is the current extreme.
+     */
+    private static final class WindowExtreme {
+        private final double[] values;
+        private final boolean minimum;
+        private final long[] sequences;
+        private int head;
+        private int count;
+
+        WindowExtreme(double[] values, boolean minimum) {
+            this.values = values;
+            this.minimum = minimum;
+            this.sequences = new long[values.length];
+        }
+
+        private double value(long sequence) {
+            return values[(int) (sequence % values.length)];
+        }
+
+        void add(long sequence, long oldest) {
+            // drop the points which have left the window
+            while (count > 0 && sequences[head] < oldest) {
+                head = (head + 1) % sequences.length;
+                count--;
+            }
+            final double v = value(sequence);
+            if (Double.isNaN(v)) {
+                return;
+            }
+            // drop the points which can no longer become the extreme
+            while (count > 0) {
+                final double last = value(sequences[(head + count - 1) % sequences.length]);
+                if (minimum ? last < v : last > v) {
+                    break;
+                }
+                count--;
+            }
+            sequences[(head + count) % sequences.length] = sequence;
+            count++;
+        }
+
+        double get() {
+            return count == 0 ? Double.NaN : value(sequences[head]);
+        }
+
+        void clear() {
+            head = 0;
+            count = 0;
+        }
+    }
+}
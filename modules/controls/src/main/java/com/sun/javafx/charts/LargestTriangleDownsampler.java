@@ -0,0 +1,99 @@
+/*
+ * Copyright (c) 2017, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package com.sun.javafx.charts;
+
+import javafx.scene.chart.Downsampler;
+
+/**
+ * Implementation of the Largest-Triangle-Three-Buckets downsampling algorithm
+ * described by Sveinn Steinarsson in "Downsampling Time Series for Visual
+ * Representation". The points are split into equally sized buckets and from
+ * every bucket the point forming the largest triangle with the point selected
+ * from the previous bucket and the average of the next bucket is kept.
+ */
+public final class LargestTriangleDownsampler implements Downsampler {
+
+    /** The number of points kept per pixel column of the plot */
+    private static final int POINTS_PER_PIXEL = 2;
+
+    @Override public int downsample(double[] x, double[] y, int count, double plotWidth, int[] selected) {
+        final int threshold = (int) Math.max(3, Math.ceil(plotWidth * POINTS_PER_PIXEL));
+        if (count <= threshold) {
+            for (int i = 0; i < count; i++) {
+                selected[i] = i;
+            }
+            return count;
+        }
+
+        // the first and last points are always kept, the others are split into buckets
+        final double bucketSize = (double) (count - 2) / (threshold - 2);
+        int n = 0;
+        int a = 0;
+        selected[n++] = a;
+        for (int bucket = 0; bucket < threshold - 2; bucket++) {
+            // average of the next bucket, or the last point for the last bucket
+            final int nextStart = (int) ((bucket + 1) * bucketSize) + 1;
+            final int nextEnd = Math.min((int) ((bucket + 2) * bucketSize) + 1, count);
+            double avgX = 0;
+            double avgY = 0;
+            for (int i = nextStart; i < nextEnd; i++) {
+                avgX += x[i];
+                avgY += y[i];
+            }
+            final int nextCount = nextEnd - nextStart;
+            if (nextCount > 0) {
+                avgX /= nextCount;
+                avgY /= nextCount;
+            } else {
+                avgX = x[count - 1];
+                avgY = y[count - 1];
+            }
+
+            // the point of this bucket forming the largest triangle
+            final int start = (int) (bucket * bucketSize) + 1;
+            final int end = Math.min((int) ((bucket + 1) * bucketSize) + 1, count - 1);
+            final double ax = x[a];
+            final double ay = y[a];
+            double maxArea = -1;
+            int maxIndex = start;
+            for (int i = start; i < end; i++) {
+                final double area = Math.abs((ax - avgX) * (y[i] - ay) - (ax - x[i]) * (avgY - ay));
+                if (area > maxArea) {
+                    maxArea = area;
+                    maxIndex = i;
+                }
+            }
+            selected[n++] = maxIndex;
+            a = maxIndex;
+        }
+        selected[n++] = count - 1;
+        return n;
+    }
+
+    @Override public String toString() {
+        return "Downsampler.LARGEST_TRIANGLE_THREE_BUCKETS";
+    }
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright (c) 2017, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package com.sun.javafx.charts;
+
+import javafx.scene.chart.Downsampler;
+
+/**
+ * Downsampler keeping the first, minimum, maximum and last point of every run
+ * of consecutive points falling into the same pixel column. Since only points
+ * which do not change the rasterized line are dropped, the result does not
+ * depend on the points being sorted along the x axis.
+ */
+public final class MinMaxDownsampler implements Downsampler {
+
+    @Override public int downsample(double[] x, double[] y, int count, double plotWidth, int[] selected) {
+        int n = 0;
+        int i = 0;
+        while (i < count) {
+            final double column = Math.floor(x[i]);
+            final int first = i;
+            int min = i;
+            int max = i;
+            i++;
+            while (i < count && Math.floor(x[i]) == column) {
+                if (y[i] < y[min]) min = i;
+                if (y[i] > y[max]) max = i;
+                i++;
+            }
+            final int last = i - 1;
+            final int lo = Math.min(min, max);
+            final int hi = Math.max(min, max);
+            selected[n++] = first;
+            if (lo != first) selected[n++] = lo;
+            if (hi != lo && hi != first) selected[n++] = hi;
+            if (last != hi && last != first) selected[n++] = last;
+        }
+        return n;
+    }
+
+    @Override public String toString() {
+        return "Downsampler.MIN_MAX";
+    }
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2013, 2014, Oracle and/or its affiliates. All rights reserved.
+ * Copyright (c) 2013, 2017, Oracle and/or its affiliates. All rights reserved.
  * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
  *
  * This code is free software; you can redistribute it and/or modify it
@@ -24,201 +24,775 @@
  */
 package com.sun.javafx.scene.control;
 
-import javafx.collections.FXCollections;
 import javafx.collections.ListChangeListener;
 import javafx.collections.ObservableList;
-import javafx.collections.transformation.SortedList;
+import javafx.scene.control.TableColumnBase;
 import javafx.scene.control.TablePositionBase;
 
 import java.util.*;
 
+import com.sun.javafx.collections.NonIterableChange;
+
 /**
  * Implementation code used by the TableSelectionModel implementations. In short
  * this code exists to speed up some common use cases which were incredibly
  * slow in the old approach. The old approach essentially required a lot of
- * iterating through the selectedCells list. The new approach is to keep this
- * list for what it is good for (representing selection order primarily), and
- * introduce a Map<Integer, BitSet> to speed up the slow parts - namely looking
- * up whether a given row/column intersection is selected or not.
+ * iterating through the selectedCells list, and kept one TablePosition per
+ * selected cell, so selecting all cells of a large table created millions of
+ * them.
+ *
+ * The selection is instead stored as a sorted list of runs, where each run is
+ * a range of consecutive rows that all have the same columns selected. Selecting
+ * a rectangular range (or everything) therefore only touches the runs that
+ * intersect it, looking up whether a given row/column intersection is selected
+ * is a binary search, and the TablePosition instances returned from
+ * {@link #get(int)} and {@link #getSelectedCells()} are created on demand. The
+ * selected cells are ordered by row, and then by the column index that each
+ * cell had when it was selected.
  *
- * Note that a map that contains an empty bitset is used to represent that the
- * row is selected.
+ * Changes are reported to the listener as ranges of the (sorted) selected
+ * cells list, and removed cells are reported using a lazy snapshot of the
+ * runs, so clearing a large selection does not create a TablePosition per
+ * cell either. The snapshot records the item of each of its rows, so that the
+ * positions it creates refer to the items that were removed from the
+ * selection, even if the rows have changed since.
  *
  * Refer to RT-33442 for more information on this issue.
  */
 // T == TablePosition<S,?>
 public abstract class SelectedCellsMap<T extends TablePositionBase> {
-    private final ObservableList<T> selectedCells;
-    private final ObservableList<T> sortedSelectedCells;
+    private final ListChangeListener<T> listener;
 
-    private final Map<Integer, BitSet> selectedCellBitSetMap;
+    // the runs of selected rows, sorted by row and never overlapping
+    private final List<Run> runs = new ArrayList<>();
 
-    public SelectedCellsMap(final ListChangeListener<T> listener) {
-        selectedCells = FXCollections.<T>observableArrayList();
-        sortedSelectedCells = new SortedList<>(selectedCells, (T o1, T o2) -> {
-            int result = o1.getRow() - o2.getRow();
-            return result == 0 ? (o1.getColumn() - o2.getColumn()) : result;
-        });
-        sortedSelectedCells.addListener(listener);
+    // offsets[i] is the number of selected cells before runs.get(i), or null
+    // if the runs changed since the offsets were last computed
+    private int[] offsets;
+    private int size;
+
+    private final ObservableList<T> selectedCells = new ReadOnlyUnbackedObservableList<T>() {
+        @Override public T get(int i) {
+            return SelectedCellsMap.this.get(i);
+        }
+
+        @Override public int size() {
+            return SelectedCellsMap.this.size();
+        }
+    };
 
-        selectedCellBitSetMap = new TreeMap<>((o1, o2) -> o1.compareTo(o2));
+    public SelectedCellsMap(final ListChangeListener<T> listener) {
+        this.listener = listener;
     }
 
     public abstract boolean isCellSelectionEnabled();
 
+    /**
+     * Returns the item currently shown in the given row, as it is to be
+     * referred to by the TablePositions created for that row.
+     */
+    protected abstract Object getRowItem(int row);
+
+    /**
+     * Creates the TablePosition representing the given row and column, referring
+     * to the given row item, used to materialize the selected cells on demand.
+     */
+    protected abstract T createPosition(int row, TableColumnBase<?,?> column, Object rowItem);
+
     public int size() {
-        return selectedCells.size();
+        getOffsets();
+        return size;
     }
 
     public T get(int i) {
         if (i < 0) {
             return null;
         }
-        return sortedSelectedCells.get(i);
+        if (i >= size()) {
+            throw new IndexOutOfBoundsException("Index: " + i + ", Size: " + size);
+        }
+        return getCell(runs, getOffsets(), null, null, i);
     }
 
     public void add(T tp) {
         final int row = tp.getRow();
-        final int columnIndex = tp.getColumn();
+        final TableColumnBase<?,?> column = tp.getTableColumn();
+        if (! addQuietly(tp)) return;
 
-        // update the bitset map
-        boolean isNewBitSet = false;
-        BitSet bitset;
-        if (! selectedCellBitSetMap.containsKey(row)) {
-            bitset = new BitSet();
-            selectedCellBitSetMap.put(row, bitset);
-            isNewBitSet = true;
-        } else {
-            bitset = selectedCellBitSetMap.get(row);
+        final int index = indexOf(row, column);
+        fireChange(new NonIterableChange.SimpleAddChange<>(index, index + 1, selectedCells));
+    }
+
+    public void addAll(Collection<T> cells) {
+        List<T> added = new ArrayList<>();
+        for (T tp : cells) {
+            if (addQuietly(tp)) {
+                added.add(tp);
+            }
         }
+        if (added.isEmpty()) return;
 
-        final boolean cellSelectionModeEnabled = isCellSelectionEnabled();
+        int[] indices = new int[added.size()];
+        for (int i = 0; i < indices.length; i++) {
+            T tp = added.get(i);
+            indices[i] = indexOf(tp.getRow(), tp.getTableColumn());
+        }
+        Arrays.sort(indices);
 
-        if (cellSelectionModeEnabled) {
-            if (columnIndex >= 0) {
-                boolean isAlreadySet = bitset.get(columnIndex);
+        RangeAddChange<T> change = new RangeAddChange<>(selectedCells);
+        for (int index : indices) {
+            change.addRange(index, index + 1);
+        }
+        fireChange(change);
+    }
 
-                if (!isAlreadySet) {
-                    bitset.set(columnIndex);
+    /**
+     * Selects the given columns in all rows from fromRow (inclusive) to toRow
+     * (exclusive), without creating a TablePosition for each cell. When cell
+     * selection is disabled only the first column is used, and rows that are
+     * already selected are left unchanged.
+     */
+    public void addRange(int fromRow, int toRow, List<? extends TableColumnBase<?,?>> columns, int[] columnIndices) {
+        RangeAddChange<T> change = addRangeQuietly(fromRow, toRow, columns, columnIndices);
+        if (change != null) {
+            fireChange(change);
+        }
+    }
 
-                    // add into the list
-                    selectedCells.add(tp);
-                }
-            } else {
-                // FIXME slow path (for now)
-                if (!selectedCells.contains(tp)) {
-                    selectedCells.add(tp);
-                }
-            }
+    public void setAll(Collection<T> cells) {
+        final List<T> removed = getSnapshot();
+        clearQuietly();
+        for (T tp : cells) {
+            addQuietly(tp);
+        }
+        fireReplaceChange(removed);
+    }
+
+    /**
+     * Replaces the selection with the given columns in all rows from fromRow
+     * (inclusive) to toRow (exclusive), as a single change.
+     */
+    public void setRange(int fromRow, int toRow, List<? extends TableColumnBase<?,?>> columns, int[] columnIndices) {
+        final List<T> removed = getSnapshot();
+        clearQuietly();
+        addRangeQuietly(fromRow, toRow, columns, columnIndices);
+        fireReplaceChange(removed);
+    }
+
+    public void remove(T tp) {
+        final int row = tp.getRow();
+        final int r = findRun(row);
+        if (r < 0) return;
+
+        final Run run = runs.get(r);
+        final int k = run.indexOfColumn(tp.getTableColumn());
+        if (k < 0) return;
+
+        final int index = getOffsets()[r] + (row - run.start) * run.cellsPerRow() + k;
+        if (run.rowMode || run.columns.length == 1) {
+            setRows(row, row + 1, null);
         } else {
-            if (isNewBitSet) {
-                if (columnIndex >= 0) {
-                    bitset.set(columnIndex);
-                }
-                selectedCells.add(tp);
-            }
+            setRows(row, row + 1, run.copy(row, row + 1).without(k));
         }
+        fireChange(new NonIterableChange.SimpleRemovedChange<>(index, index, tp, selectedCells));
     }
 
-    public void addAll(Collection<T> cells) {
-        // update bitset
-        for (T tp : cells) {
-            final int row = tp.getRow();
-            final int columnIndex = tp.getColumn();
-
-            // update the bitset map
-            BitSet bitset;
-            if (! selectedCellBitSetMap.containsKey(row)) {
-                bitset = new BitSet();
-                selectedCellBitSetMap.put(row, bitset);
-            } else {
-                bitset = selectedCellBitSetMap.get(row);
-            }
+    public void clear() {
+        if (isEmpty()) {
+            clearQuietly();
+            return;
+        }
 
-            if (columnIndex < 0) {
-                continue;
+        final List<T> removed = getSnapshot();
+        clearQuietly();
+        fireChange(new NonIterableChange.GenericAddRemoveChange<>(0, 0, removed, selectedCells));
+    }
+
+    public boolean isSelected(int row, int columnIndex) {
+        final int r = findRun(row);
+        if (r < 0) {
+            return false;
+        }
+        return columnIndex < 0 || runs.get(r).isSelected(columnIndex);
+    }
+
+    public int indexOf(T tp) {
+        return indexOf(tp.getRow(), tp.getTableColumn());
+    }
+
+    /**
+     * Returns the index of the first selected cell in the given row, or -1 if
+     * no cell in the row is selected.
+     */
+    public int indexOfRow(int row) {
+        final int r = findRun(row);
+        return r < 0 ? -1 : getRowOffset(getOffsets(), row);
+    }
+
+    public boolean isEmpty() {
+        return runs.isEmpty();
+    }
+
+    public ObservableList<T> getSelectedCells() {
+        return selectedCells;
+    }
+
+    /**
+     * Returns an unmodifiable copy of the selected cells, whose TablePositions
+     * are only created as they are accessed, but refer to the items the rows
+     * had when the snapshot was taken.
+     */
+    public List<T> getSnapshot() {
+        return getSnapshot(-1);
+    }
+
+    /**
+     * Returns an unmodifiable copy of the selected cells, excluding the cell at
+     * the given index (if it is not -1).
+     */
+    public List<T> getSnapshot(int excludedIndex) {
+        if (isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<Run> copy = new ArrayList<>(runs.size());
+        int[] rowOffsets = new int[runs.size()];
+        int rowCount = 0;
+        for (int r = 0; r < runs.size(); r++) {
+            final Run run = runs.get(r);
+            copy.add(run.copy(run.start, run.end));
+            rowOffsets[r] = rowCount;
+            rowCount += run.end - run.start;
+        }
+
+        // one item per selected row, rather than one TablePosition per cell
+        Object[] rowItems = new Object[rowCount];
+        for (int r = 0, i = 0; r < copy.size(); r++) {
+            final Run run = copy.get(r);
+            for (int row = run.start; row < run.end; row++) {
+                rowItems[i++] = getRowItem(row);
             }
+        }
+        return new Snapshot(copy, getOffsets().clone(), rowOffsets, rowItems, size(), excludedIndex);
+    }
+
+    /**
+     * Returns the rows of the selected cells in the range [from, to) of the
+     * selected cells list.
+     */
+    public BitSet getRows(int from, int to) {
+        BitSet rows = new BitSet();
+        collectRows(runs, getOffsets(), from, to, rows);
+        return rows;
+    }
 
-            bitset.set(columnIndex);
+    /**
+     * Returns the rows of the given cells, which is cheap if the cells were
+     * reported as removed by this map.
+     */
+    public BitSet getRows(List<? extends T> cells) {
+        final Object list = cells;
+        if (list instanceof SelectedCellsMap.Snapshot) {
+            return ((SelectedCellsMap<?>.Snapshot) list).getRows();
         }
 
-        // add into the list
-        selectedCells.addAll(cells);
+        BitSet rows = new BitSet();
+        for (int i = 0, max = cells.size(); i < max; i++) {
+            rows.set(cells.get(i).getRow());
+        }
+        return rows;
     }
 
-    public void setAll(Collection<T> cells) {
-        // update bitset
-        selectedCellBitSetMap.clear();
-        for (T tp : cells) {
-            final int row = tp.getRow();
-            final int columnIndex = tp.getColumn();
-
-            // update the bitset map
-            BitSet bitset;
-            if (! selectedCellBitSetMap.containsKey(row)) {
-                bitset = new BitSet();
-                selectedCellBitSetMap.put(row, bitset);
-            } else {
-                bitset = selectedCellBitSetMap.get(row);
+
+
+    /***************************************************************************
+     *                                                                         *
+     * Private implementation                                                  *
+     *                                                                         *
+     **************************************************************************/
+
+    // Adds a single cell, returning false if it was already selected. The
+    // given position is kept, so that it is returned as is by get(int).
+    private boolean addQuietly(T tp) {
+        final int row = tp.getRow();
+        final TableColumnBase<?,?> column = tp.getTableColumn();
+        final int columnIndex = tp.getColumn();
+        final boolean cellSelectionEnabled = isCellSelectionEnabled();
+        final int r = findRun(row);
+
+        if (r < 0) {
+            Run run = new Run(row, row + 1, ! cellSelectionEnabled,
+                    new TableColumnBase<?,?>[] { column }, new int[] { columnIndex });
+            run.positions = new Object[] { tp };
+            setRows(row, row + 1, run);
+            return true;
+        }
+
+        // when cell selection is disabled, each row is only selected once
+        if (! cellSelectionEnabled) return false;
+
+        final Run run = runs.get(r);
+        if (columnIndex >= 0 ? run.isSelected(columnIndex) : run.indexOfColumn(column) >= 0) {
+            return false;
+        }
+        setRows(row, row + 1, run.copy(row, row + 1).with(column, columnIndex, tp));
+        return true;
+    }
+
+    private RangeAddChange<T> addRangeQuietly(int fromRow, int toRow, List<? extends TableColumnBase<?,?>> columns, int[] columnIndices) {
+        if (fromRow >= toRow || columns.isEmpty()) return null;
+
+        final boolean cellSelectionEnabled = isCellSelectionEnabled();
+        final Run added = cellSelectionEnabled ?
+                new Run(0, 0, false, columns.toArray(new TableColumnBase<?,?>[columns.size()]), columnIndices.clone()) :
+                new Run(0, 0, true, new TableColumnBase<?,?>[] { columns.get(0) }, new int[] { columnIndices[0] });
+
+        // work out the new contents of each part of the range, before changing
+        // anything: either a gap that is newly selected, or a part of an
+        // existing run that has the added columns merged into it
+        final List<Run> segments = new ArrayList<>();
+        final List<Run> previous = new ArrayList<>();
+        int row = fromRow;
+        int r = findRun(row);
+        if (r < 0) r = -r - 1;
+        while (row < toRow) {
+            Run run = r < runs.size() ? runs.get(r) : null;
+            if (run == null || run.start >= toRow) {
+                segments.add(added.copy(row, toRow));
+                previous.add(null);
+                break;
             }
+            if (run.start > row) {
+                segments.add(added.copy(row, run.start));
+                previous.add(null);
+                row = run.start;
+            }
+            int end = Math.min(run.end, toRow);
+            if (cellSelectionEnabled) {
+                segments.add(run.merge(added, row, end));
+                previous.add(run);
+            }
+            row = end;
+            r++;
+        }
 
-            if (columnIndex < 0) {
+        for (Run segment : segments) {
+            setRows(segment.start, segment.end, segment);
+        }
+
+        // report the added cells, which are contiguous unless columns were
+        // merged into rows that already had cells selected
+        final int[] offsets = getOffsets();
+        final RangeAddChange<T> change = new RangeAddChange<>(selectedCells);
+        for (int i = 0; i < segments.size(); i++) {
+            final Run segment = segments.get(i);
+            final Run old = previous.get(i);
+            final int first = getRowOffset(offsets, segment.start);
+            final int perRow = segment.cellsPerRow();
+
+            if (old == null) {
+                change.addRange(first, first + (segment.end - segment.start) * perRow);
                 continue;
             }
+            if (perRow == old.cellsPerRow()) continue;
+
+            for (int rowIndex = 0; rowIndex < segment.end - segment.start; rowIndex++) {
+                final int rowOffset = first + rowIndex * perRow;
+                for (int k = 0; k < perRow; k++) {
+                    if (old.indexOfColumn(segment.columns[k]) < 0) {
+                        change.addRange(rowOffset + k, rowOffset + k + 1);
+                    }
+                }
+            }
+        }
+        return change.isEmpty() ? null : change;
+    }
 
-            bitset.set(columnIndex);
+    private void clearQuietly() {
+        runs.clear();
+        offsets = null;
+        size = 0;
+    }
+
+    private void fireChange(ListChangeListener.Change<T> change) {
+        if (listener != null) {
+            listener.onChanged(change);
         }
+    }
 
-        // add into the list
-        selectedCells.setAll(cells);
+    private void fireReplaceChange(List<T> removed) {
+        if (removed.isEmpty() && isEmpty()) return;
+        fireChange(new NonIterableChange.GenericAddRemoveChange<>(0, size(), removed, selectedCells));
     }
 
-    public void remove(T tp) {
-        final int row = tp.getRow();
-        final int columnIndex = tp.getColumn();
+    private int indexOf(int row, TableColumnBase<?,?> column) {
+        final int r = findRun(row);
+        if (r < 0) return -1;
 
-        // update the bitset map
-        if (selectedCellBitSetMap.containsKey(row)) {
-            BitSet bitset = selectedCellBitSetMap.get(row);
+        final Run run = runs.get(r);
+        final int k = run.indexOfColumn(column);
+        if (k < 0) return -1;
 
-            if (columnIndex >= 0) {
-                bitset.clear(columnIndex);
+        return getOffsets()[r] + (row - run.start) * run.cellsPerRow() + k;
+    }
+
+    // Returns the index of the run containing the given row, or
+    // (-(insertion point) - 1) if no run contains it.
+    private int findRun(int row) {
+        return findRun(runs, row);
+    }
+
+    private static int findRun(List<Run> runs, int row) {
+        int low = 0;
+        int high = runs.size() - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            Run run = runs.get(mid);
+            if (run.end <= row) {
+                low = mid + 1;
+            } else if (run.start > row) {
+                high = mid - 1;
+            } else {
+                return mid;
             }
+        }
+        return -(low + 1);
+    }
 
-            if (bitset.isEmpty()) {
-                selectedCellBitSetMap.remove(row);
+    // Replaces the contents of rows [from, to) with the given run (which must
+    // cover exactly those rows), or removes them if it is null
+    private void setRows(int from, int to, Run replacement) {
+        split(from);
+        split(to);
+
+        int r = findRun(from);
+        if (r < 0) r = -r - 1;
+        int end = r;
+        while (end < runs.size() && runs.get(end).start < to) {
+            end++;
+        }
+        runs.subList(r, end).clear();
+
+        if (replacement != null) {
+            runs.add(r, replacement);
+            // merge with the following run first, so r remains valid
+            mergeWithNext(r);
+            if (r > 0) mergeWithNext(r - 1);
+        } else if (r > 0) {
+            mergeWithNext(r - 1);
+        }
+
+        offsets = null;
+    }
+
+    // Makes sure that a run starts at the given row, if it lies within a run
+    private void split(int row) {
+        final int r = findRun(row);
+        if (r < 0) return;
+
+        final Run run = runs.get(r);
+        if (run.start == row) return;
+
+        runs.add(r + 1, run.copy(row, run.end));
+        run.end = row;
+    }
+
+    private void mergeWithNext(int r) {
+        if (r + 1 >= runs.size()) return;
+
+        final Run run = runs.get(r);
+        final Run next = runs.get(r + 1);
+        if (run.end == next.start && run.hasSameCells(next)) {
+            run.end = next.end;
+            runs.remove(r + 1);
+        }
+    }
+
+    private int[] getOffsets() {
+        if (offsets == null) {
+            offsets = new int[runs.size()];
+            int total = 0;
+            for (int i = 0; i < offsets.length; i++) {
+                offsets[i] = total;
+                total += runs.get(i).size();
             }
+            size = total;
         }
+        return offsets;
+    }
 
-        // update list
-        selectedCells.remove(tp);
+    // the index in the selected cells list of the first cell of the given row
+    private int getRowOffset(int[] offsets, int row) {
+        final int r = findRun(row);
+        final Run run = runs.get(r);
+        return offsets[r] + (row - run.start) * run.cellsPerRow();
     }
 
-    public void clear() {
-        // update bitset
-        selectedCellBitSetMap.clear();
+    // the run containing the cell at the given index in the selected cells list
+    // (runs are never empty, so the offsets are strictly increasing)
+    private static int findRunAt(int[] offsets, int index) {
+        int r = Arrays.binarySearch(offsets, index);
+        return r < 0 ? -r - 2 : r;
+    }
 
-        // update list
-        selectedCells.clear();
+    // the cell at the given index, with the row items of a snapshot if they
+    // are given, or the current row items otherwise
+    @SuppressWarnings("unchecked")
+    private T getCell(List<Run> runs, int[] offsets, int[] rowOffsets, Object[] rowItems, int index) {
+        final int r = findRunAt(offsets, index);
+        final Run run = runs.get(r);
+        final int offset = index - offsets[r];
+        if (run.positions != null && run.positions[offset] != null) {
+            return (T) run.positions[offset];
+        }
+        final int perRow = run.cellsPerRow();
+        final int rowIndex = offset / perRow;
+        final int row = run.start + rowIndex;
+        final Object rowItem = rowItems != null ? rowItems[rowOffsets[r] + rowIndex] : getRowItem(row);
+        return createPosition(row, run.columns[offset % perRow], rowItem);
     }
 
-    public boolean isSelected(int row, int columnIndex) {
-        if (columnIndex < 0) {
-            return selectedCellBitSetMap.containsKey(row);
-        } else {
-            return selectedCellBitSetMap.containsKey(row) ? selectedCellBitSetMap.get(row).get(columnIndex) : false;
+    private static void collectRows(List<Run> runs, int[] offsets, int from, int to, BitSet rows) {
+        if (from >= to) return;
+
+        for (int r = findRunAt(offsets, from); r < runs.size() && offsets[r] < to; r++) {
+            final Run run = runs.get(r);
+            final int perRow = run.cellsPerRow();
+            final int first = Math.max(from, offsets[r]) - offsets[r];
+            final int last = Math.min(to, offsets[r] + run.size()) - offsets[r] - 1;
+            if (last < first) continue;
+            rows.set(run.start + first / perRow, run.start + last / perRow + 1);
         }
     }
 
-    public int indexOf(T tp) {
-        return sortedSelectedCells.indexOf(tp);
+    // A range of rows that all have the same columns selected
+    private static final class Run {
+        int start;
+        int end;
+
+        // true if the rows were selected with cell selection disabled, in
+        // which case each row is a single cell using the first column
+        final boolean rowMode;
+
+        // the selected columns, ordered by the column index they had when
+        // they were selected, and those column indices (-1 for none)
+        final TableColumnBase<?,?>[] columns;
+        final int[] columnIndices;
+
+        // the positions that were explicitly selected, if this run is a single
+        // row that was not selected as part of a range (null where unknown)
+        Object[] positions;
+
+        Run(int start, int end, boolean rowMode, TableColumnBase<?,?>[] columns, int[] columnIndices) {
+            this.start = start;
+            this.end = end;
+            this.rowMode = rowMode;
+            this.columns = columns;
+            this.columnIndices = columnIndices;
+        }
+
+        int cellsPerRow() {
+            return rowMode ? 1 : columns.length;
+        }
+
+        int size() {
+            return (end - start) * cellsPerRow();
+        }
+
+        boolean isSelected(int columnIndex) {
+            for (int i = 0; i < columnIndices.length; i++) {
+                if (columnIndices[i] == columnIndex) return true;
+            }
+            return false;
+        }
+
+        int indexOfColumn(TableColumnBase<?,?> column) {
+            for (int i = 0; i < cellsPerRow(); i++) {
+                if (Objects.equals(columns[i], column)) return i;
+            }
+            return -1;
+        }
+
+        boolean hasSameCells(Run other) {
+            return rowMode == other.rowMode && Arrays.equals(columns, other.columns)
+                    && positions == null && other.positions == null;
+        }
+
+        Run copy(int start, int end) {
+            Run run = new Run(start, end, rowMode, columns, columnIndices);
+            if (end - start == 1) {
+                run.positions = positions;
+            }
+            return run;
+        }
+
+        // this run with the given column (and position, if not null) added in order
+        Run with(TableColumnBase<?,?> column, int columnIndex, Object position) {
+            final int count = columns.length;
+            int k = 0;
+            while (k < count && columnIndices[k] <= columnIndex) k++;
+
+            TableColumnBase<?,?>[] newColumns = new TableColumnBase<?,?>[count + 1];
+            int[] newIndices = new int[count + 1];
+            System.arraycopy(columns, 0, newColumns, 0, k);
+            System.arraycopy(columnIndices, 0, newIndices, 0, k);
+            newColumns[k] = column;
+            newIndices[k] = columnIndex;
+            System.arraycopy(columns, k, newColumns, k + 1, count - k);
+            System.arraycopy(columnIndices, k, newIndices, k + 1, count - k);
+            Run run = new Run(start, end, false, newColumns, newIndices);
+            if (positions != null || position != null) {
+                run.positions = new Object[count + 1];
+                if (positions != null) {
+                    System.arraycopy(positions, 0, run.positions, 0, k);
+                    System.arraycopy(positions, k, run.positions, k + 1, count - k);
+                }
+                run.positions[k] = position;
+            }
+            return run;
+        }
+
+        // this run without the column at index k
+        Run without(int k) {
+            final int count = columns.length;
+            TableColumnBase<?,?>[] newColumns = new TableColumnBase<?,?>[count - 1];
+            int[] newIndices = new int[count - 1];
+            System.arraycopy(columns, 0, newColumns, 0, k);
+            System.arraycopy(columnIndices, 0, newIndices, 0, k);
+            System.arraycopy(columns, k + 1, newColumns, k, count - k - 1);
+            System.arraycopy(columnIndices, k + 1, newIndices, k, count - k - 1);
+            Run run = new Run(start, end, rowMode, newColumns, newIndices);
+            if (positions != null) {
+                run.positions = new Object[count - 1];
+                System.arraycopy(positions, 0, run.positions, 0, k);
+                System.arraycopy(positions, k + 1, run.positions, k, count - k - 1);
+            }
+            return run;
+        }
+
+        // rows [from, to) of this run, with the columns of the other run merged in
+        Run merge(Run other, int from, int to) {
+            Run result = new Run(from, to, false, columns, columnIndices);
+            for (int i = 0; i < other.columns.length; i++) {
+                if (result.indexOfColumn(other.columns[i]) < 0) {
+                    result = result.with(other.columns[i], other.columnIndices[i], null);
+                    result.start = from;
+                    result.end = to;
+                }
+            }
+            return result;
+        }
     }
 
-    public boolean isEmpty() {
-        return selectedCells.isEmpty();
+    // The cells that were selected at some point in time, created on demand
+    // from the runs and the items their rows had at that time
+    private final class Snapshot extends AbstractList<T> {
+        private final List<Run> runs;
+        private final int[] offsets;
+        // rowOffsets[i] is the index in rowItems of the first row of runs.get(i)
+        private final int[] rowOffsets;
+        private final Object[] rowItems;
+        private final int cellCount;
+        private final int excludedIndex;
+
+        Snapshot(List<Run> runs, int[] offsets, int[] rowOffsets, Object[] rowItems, int cellCount, int excludedIndex) {
+            this.runs = runs;
+            this.offsets = offsets;
+            this.rowOffsets = rowOffsets;
+            this.rowItems = rowItems;
+            this.cellCount = cellCount;
+            this.excludedIndex = excludedIndex >= 0 && excludedIndex < cellCount ? excludedIndex : -1;
+        }
+
+        @Override public T get(int index) {
+            if (index < 0 || index >= size()) {
+                throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size());
+            }
+            return getCell(runs, offsets, rowOffsets, rowItems, excludedIndex >= 0 && index >= excludedIndex ? index + 1 : index);
+        }
+
+        @Override public int size() {
+            return excludedIndex >= 0 ? cellCount - 1 : cellCount;
+        }
+
+        BitSet getRows() {
+            BitSet rows = new BitSet();
+            collectRows(runs, offsets, 0, cellCount, rows);
+            if (excludedIndex >= 0) {
+                // the row of the excluded cell only remains if it has other cells
+                final int r = findRunAt(offsets, excludedIndex);
+                final Run run = runs.get(r);
+                if (run.cellsPerRow() == 1) {
+                    rows.clear(run.start + (excludedIndex - offsets[r]));
+                }
+            }
+            return rows;
+        }
     }
 
-    public ObservableList<T> getSelectedCells() {
-        return selectedCells;
+    // A change made up of one or more ranges of added cells
+    private static final class RangeAddChange<E> extends ListChangeListener.Change<E> {
+        private int[] ranges = new int[8];
+        private int count = 0;
+        // the index of the current range
+        private int cursor = -1;
+
+        RangeAddChange(ObservableList<E> list) {
+            super(list);
+        }
+
+        // ranges must be added in increasing order
+        void addRange(int from, int to) {
+            if (count > 0 && ranges[count - 1] == from) {
+                ranges[count - 1] = to;
+                return;
+            }
+            if (count == ranges.length) {
+                ranges = Arrays.copyOf(ranges, count * 2);
+            }
+            ranges[count++] = from;
+            ranges[count++] = to;
+        }
+
+        boolean isEmpty() {
+            return count == 0;
+        }
+
+        @Override public boolean next() {
+            if ((cursor + 1) * 2 < count) {
+                cursor++;
+                return true;
+            }
+            return false;
+        }
+
+        @Override public void reset() {
+            cursor = -1;
+        }
+
+        @Override public int getFrom() {
+            checkState();
+            return ranges[cursor * 2];
+        }
+
+        @Override public int getTo() {
+            checkState();
+            return ranges[cursor * 2 + 1];
+        }
+
+        @Override public List<E> getRemoved() {
+            checkState();
+            return Collections.emptyList();
+        }
+
+        @Override protected int[] getPermutation() {
+            checkState();
+            return new int[0];
+        }
+
+        private void checkState() {
+            if (cursor == -1) {
+                throw new IllegalStateException("Invalid Change state: next() must be called before inspecting the Change.");
+            }
+        }
     }
-}
\ No newline at end of file
+}
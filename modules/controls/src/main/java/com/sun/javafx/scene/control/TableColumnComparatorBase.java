@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2011, 2013, Oracle and/or its affiliates. All rights reserved.
+ * Copyright (c) 2011, 2017, Oracle and/or its affiliates. All rights reserved.
  * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
  *
  * This code is free software; you can redistribute it and/or modify it
@@ -96,6 +96,18 @@ public abstract class TableColumnComparatorBase<S,T> implements Comparator<S> {
     public abstract boolean isSortable(final TableColumnBase<S,T> tcb);
     public abstract int doCompare(final TableColumnBase<S,T> tcb, final T value1, final T value2);
 
+    /**
+     * Returns a comparator that compares cell values of the given column in
+     * the same way as {@link #doCompare}. The default implementation calls
+     * doCompare, so it reads the column on every comparison; subclasses
+     * override it to capture the comparator and sort type the column has at
+     * the time of this call, so that cell values can be compared without going
+     * back to the column, e.g. on a background thread.
+     */
+    public Comparator<T> getCellValueComparator(final TableColumnBase<S,T> tcb) {
+        return (value1, value2) -> doCompare(tcb, value1, value2);
+    }
+
 
 
 
@@ -124,6 +136,16 @@ public abstract class TableColumnComparatorBase<S,T> implements Comparator<S> {
             }
             return 0;
         }
+
+        @Override public Comparator<T> getCellValueComparator(final TableColumnBase<S,T> tcb) {
+            TableColumn<S, T> tc = (TableColumn<S,T>)tcb;
+            final Comparator<T> c = tc.getComparator();
+            switch (tc.getSortType()) {
+                case ASCENDING: return c;
+                case DESCENDING: return (value1, value2) -> c.compare(value2, value1);
+            }
+            return (value1, value2) -> 0;
+        }
     }
 
 
@@ -151,6 +173,16 @@ public abstract class TableColumnComparatorBase<S,T> implements Comparator<S> {
             }
             return 0;
         }
+
+        @Override public Comparator<T> getCellValueComparator(final TableColumnBase<S,T> tcb) {
+            TreeTableColumn<S, T> tc = (TreeTableColumn<S,T>)tcb;
+            final Comparator<T> c = tc.getComparator();
+            switch (tc.getSortType()) {
+                case ASCENDING: return c;
+                case DESCENDING: return (value1, value2) -> c.compare(value2, value1);
+            }
+            return (value1, value2) -> 0;
+        }
     }
 
 }
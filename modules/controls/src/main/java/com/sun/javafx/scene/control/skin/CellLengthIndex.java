@@ -0,0 +1,321 @@
+/*
+ * Copyright (c) 2017, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package com.sun.javafx.scene.control.skin;
+
+import java.util.Arrays;
+
+/**
+ * A prefix-sum index (Fenwick tree) over the lengths of the cells in a
+ * {@link VirtualFlow}. Lengths are recorded as cells are measured; rows that
+ * have never been measured are assumed to have the average measured length
+ * (or the default length if nothing has been measured yet), so the estimate
+ * is refined as more of the flow is seen.
+ *
+ * Point updates, prefix sums and offset-to-index searches are all O(log n),
+ * which lets VirtualFlow move across many rows without creating and laying
+ * out a cell for each of them.
+ */
+final class CellLengthIndex {
+
+    // measured lengths, NaN for rows that have not been measured. Entries
+    // past size are always NaN, so that the index can grow into them.
+    private double[] lengths = new double[0];
+
+    // Fenwick trees (1-based) of measured lengths and of measured row counts,
+    // built over the whole capacity of the lengths array
+    private double[] sumTree = new double[1];
+    private int[] countTree = new int[1];
+
+    private int size;
+    private int measuredCount;
+    private double measuredSum;
+
+    // a lower bound for the measured lengths, which is made exact again
+    // lazily once the row that held the minimum has grown or gone away
+    private double minLength = Double.MAX_VALUE;
+    private boolean minStale;
+    private double defaultLength;
+
+    /**
+     * Discards all recorded lengths and sizes the index for the given number
+     * of rows.
+     */
+    void reset(int size) {
+        this.size = Math.max(0, size);
+        if (lengths.length < this.size) {
+            allocate(this.size);
+        } else {
+            Arrays.fill(lengths, Double.NaN);
+            Arrays.fill(sumTree, 0);
+            Arrays.fill(countTree, 0);
+        }
+        measuredCount = 0;
+        measuredSum = 0;
+        minLength = Double.MAX_VALUE;
+        minStale = false;
+    }
+
+    /**
+     * Changes the number of rows, keeping the lengths measured for the rows
+     * that remain. Rows are added or removed at the end.
+     */
+    void setSize(int size) {
+        size = Math.max(0, size);
+        if (size > this.size) {
+            if (size > lengths.length) {
+                grow(size);
+            }
+            this.size = size;
+        } else if (size < this.size) {
+            for (int i = size; i < this.size; i++) {
+                unset(i);
+            }
+            this.size = size;
+        }
+    }
+
+    /**
+     * Inserts count unmeasured rows before the given row, moving the lengths
+     * measured for the rows after it.
+     */
+    void insert(int index, int count) {
+        if (count <= 0 || index < 0 || index > size) return;
+        if (index == size) {
+            setSize(size + count);
+            return;
+        }
+        if (size + count > lengths.length) {
+            lengths = Arrays.copyOf(lengths, capacityFor(size + count));
+        }
+        System.arraycopy(lengths, index, lengths, index + count, size - index);
+        Arrays.fill(lengths, index, index + count, Double.NaN);
+        Arrays.fill(lengths, size + count, lengths.length, Double.NaN);
+        size += count;
+        rebuild();
+    }
+
+    /**
+     * Removes count rows starting at the given row, moving the lengths
+     * measured for the rows after them.
+     */
+    void remove(int index, int count) {
+        if (index < 0 || index >= size) return;
+        count = Math.min(count, size - index);
+        if (count <= 0) return;
+        if (index + count == size) {
+            setSize(index);
+            return;
+        }
+        System.arraycopy(lengths, index + count, lengths, index, size - index - count);
+        size -= count;
+        Arrays.fill(lengths, size, size + count, Double.NaN);
+        rebuild();
+    }
+
+    private static int capacityFor(int size) {
+        // grow geometrically, so that rows appended one at a time cost
+        // amortized constant time
+        return Math.max(size, Math.max(16, size + (size >> 1)));
+    }
+
+    private void allocate(int capacity) {
+        lengths = new double[capacity];
+        Arrays.fill(lengths, Double.NaN);
+        sumTree = new double[capacity + 1];
+        countTree = new int[capacity + 1];
+    }
+
+    private void grow(int size) {
+        lengths = Arrays.copyOf(lengths, capacityFor(size));
+        Arrays.fill(lengths, this.size, lengths.length, Double.NaN);
+        rebuild();
+    }
+
+    /**
+     * Rebuilds the trees and totals from the lengths array in linear time.
+     */
+    private void rebuild() {
+        final int capacity = lengths.length;
+        if (sumTree.length != capacity + 1) {
+            sumTree = new double[capacity + 1];
+            countTree = new int[capacity + 1];
+        } else {
+            Arrays.fill(sumTree, 0);
+            Arrays.fill(countTree, 0);
+        }
+        measuredCount = 0;
+        measuredSum = 0;
+        minLength = Double.MAX_VALUE;
+        minStale = false;
+        for (int i = 1; i <= capacity; i++) {
+            double length = lengths[i - 1];
+            if (! Double.isNaN(length)) {
+                sumTree[i] += length;
+                countTree[i]++;
+                measuredCount++;
+                measuredSum += length;
+                if (length < minLength) minLength = length;
+            }
+            int parent = i + (i & -i);
+            if (parent <= capacity) {
+                sumTree[parent] += sumTree[i];
+                countTree[parent] += countTree[i];
+            }
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * The length assumed for unmeasured rows when no row has been measured.
+     */
+    void setDefaultLength(double length) {
+        this.defaultLength = length;
+    }
+
+    int getMeasuredCount() {
+        return measuredCount;
+    }
+
+    boolean isMeasured(int index) {
+        return index >= 0 && index < size && ! Double.isNaN(lengths[index]);
+    }
+
+    /**
+     * Returns the measured length of the given row, or the current estimate
+     * if it has not been measured.
+     */
+    double get(int index) {
+        return isMeasured(index) ? lengths[index] : getEstimate();
+    }
+
+    /**
+     * The length assumed for rows that have not been measured.
+     */
+    double getEstimate() {
+        return measuredCount == 0 ? defaultLength : measuredSum / measuredCount;
+    }
+
+    /**
+     * A lower bound for every row length in the index, measured or estimated.
+     */
+    double getMinLength() {
+        if (measuredCount == 0) return defaultLength;
+        if (minStale) {
+            minStale = false;
+            minLength = Double.MAX_VALUE;
+            for (int i = 0; i < size; i++) {
+                if (lengths[i] < minLength) minLength = lengths[i];
+            }
+        }
+        return minLength;
+    }
+
+    void set(int index, double length) {
+        if (index < 0 || index >= size || Double.isNaN(length)) return;
+
+        double old = lengths[index];
+        boolean wasMeasured = ! Double.isNaN(old);
+        if (wasMeasured && old == length) return;
+
+        if (length < minLength) {
+            minLength = length;
+        } else if (wasMeasured && old == minLength) {
+            // the minimum may have grown; until it is rescanned, the old
+            // value is still a lower bound
+            minStale = true;
+        }
+        update(index, wasMeasured ? length - old : length, wasMeasured ? 0 : 1);
+        lengths[index] = length;
+    }
+
+    /**
+     * Forgets the length measured for the given row.
+     */
+    void unset(int index) {
+        if (! isMeasured(index)) return;
+
+        double old = lengths[index];
+        if (old == minLength) minStale = true;
+        update(index, -old, -1);
+        lengths[index] = Double.NaN;
+    }
+
+    private void update(int index, double delta, int countDelta) {
+        measuredSum += delta;
+        measuredCount += countDelta;
+        for (int i = index + 1; i < sumTree.length; i += i & -i) {
+            sumTree[i] += delta;
+            countTree[i] += countDelta;
+        }
+    }
+
+    /**
+     * Returns the sum of the lengths of the rows in [0, index), each reduced
+     * by the given bias.
+     */
+    double sum(int index, double bias) {
+        int end = Math.max(0, Math.min(index, size));
+        double sum = 0;
+        int count = 0;
+        for (int i = end; i > 0; i -= i & -i) {
+            sum += sumTree[i];
+            count += countTree[i];
+        }
+        return sum + (end - count) * getEstimate() - end * bias;
+    }
+
+    double sum(int index) {
+        return sum(index, 0);
+    }
+
+    /**
+     * Returns the largest row index m in [0, size] such that
+     * {@code sum(m, bias) <= target}. Every row length must be at least
+     * {@code bias} (see {@link #getMinLength()}) for the result to be
+     * meaningful.
+     */
+    int find(double target, double bias) {
+        if (target < 0) return 0;
+
+        final double estimate = getEstimate();
+        int pos = 0;
+        double remaining = target;
+        for (int step = Integer.highestOneBit(Math.max(1, size)); step > 0; step >>= 1) {
+            int next = pos + step;
+            if (next > size) continue;
+
+            double w = sumTree[next] + (step - countTree[next]) * estimate - step * bias;
+            if (w <= remaining) {
+                pos = next;
+                remaining -= w;
+            }
+        }
+        return pos;
+    }
+}
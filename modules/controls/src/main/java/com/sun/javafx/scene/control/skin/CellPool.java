@@ -0,0 +1,359 @@
+/*
+ * Copyright (c) 2017, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package com.sun.javafx.scene.control.skin;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import javafx.scene.control.IndexedCell;
+
+/**
+ * The pile of cells that a {@link VirtualFlow} is not currently showing but
+ * may reuse. Cells are grouped by an optional cell type, so that a row is only
+ * ever given a cell that was previously used for a row of the same type, and
+ * within each type by whether their index is even or odd, so that reusing a
+ * cell does not flip its even/odd pseudo class. Piled cells can also be looked
+ * up by their index. All lookups, additions and removals are O(1).
+ *
+ * The number of cells kept for a type can be limited with
+ * {@link #setMaxCells(Object, int)}; cells beyond the limit are rejected by
+ * {@link #add(IndexedCell)} and should be discarded by the caller.
+ */
+// the bound matches the raw cell type of VirtualFlow
+@SuppressWarnings("rawtypes")
+final class CellPool<T extends IndexedCell> implements Iterable<T> {
+
+    // the key under which the type of a cell is stored in its properties
+    static final String CELL_TYPE = "virtualFlow.cellType";
+
+    // type -> the cells of that type, in insertion order
+    private final Map<Object, Bucket<T>> buckets = new LinkedHashMap<>();
+    private final Map<Integer, T> byIndex = new HashMap<>();
+    // cell -> the index it was filed under, which may differ from its current
+    // index if the cell was given another index while it was piled
+    private final Map<T, Integer> filedIndex = new IdentityHashMap<>();
+    private final Map<Object, Integer> maxCells = new HashMap<>();
+    private int size;
+
+    private int indexHits;
+    private int typeHits;
+    private int misses;
+    private int rejected;
+
+    static Object getCellType(IndexedCell<?> cell) {
+        return cell.getProperties().get(CELL_TYPE);
+    }
+
+    static void setCellType(IndexedCell<?> cell, Object type) {
+        if (type == null) {
+            cell.getProperties().remove(CELL_TYPE);
+        } else {
+            cell.getProperties().put(CELL_TYPE, type);
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    void setMaxCells(Object type, int max) {
+        if (max < 0) {
+            maxCells.remove(type);
+        } else {
+            maxCells.put(type, max);
+        }
+    }
+
+    /**
+     * Returns the maximum number of cells of the given type the pool keeps,
+     * or -1 if there is no limit.
+     */
+    int getMaxCells(Object type) {
+        Integer max = maxCells.get(type);
+        return max == null ? -1 : max;
+    }
+
+    int getCellCount(Object type) {
+        Bucket<T> bucket = buckets.get(type);
+        return bucket == null ? 0 : bucket.size();
+    }
+
+    /**
+     * Adds the cell to the pool, unless the pool already holds as many cells
+     * of its type as it is allowed to, in which case false is returned.
+     */
+    boolean add(T cell) {
+        final Object type = getCellType(cell);
+        final int max = getMaxCells(type);
+        if (max >= 0 && getCellCount(type) >= max) {
+            rejected++;
+            return false;
+        }
+
+        if (! contains(cell)) {
+            file(cell, type);
+            size++;
+        }
+        return true;
+    }
+
+    private void file(T cell, Object type) {
+        final int index = cell.getIndex();
+        bucket(type).get(index).add(cell);
+        filedIndex.put(cell, index);
+        if (index >= 0 && get(index) == null) {
+            byIndex.put(index, cell);
+        }
+    }
+
+    private void unfile(T cell, Object type) {
+        final int index = filedIndex.remove(cell);
+        buckets.get(type).get(index).remove(cell);
+        byIndex.remove(index, cell);
+    }
+
+    /**
+     * Files the cell again under its current index, if it has been given
+     * another index since it was piled.
+     */
+    void indexChanged(T cell) {
+        Integer index = filedIndex.get(cell);
+        if (index != null && index != cell.getIndex()) {
+            final Object type = getCellType(cell);
+            unfile(cell, type);
+            file(cell, type);
+        }
+    }
+
+    /**
+     * Changes the type of the cell, filing it again under the new type if it
+     * is piled.
+     */
+    void setType(T cell, Object type) {
+        final Object oldType = getCellType(cell);
+        if (Objects.equals(type, oldType)) return;
+
+        final boolean piled = contains(cell);
+        if (piled) unfile(cell, oldType);
+        setCellType(cell, type);
+        if (piled) file(cell, type);
+    }
+
+    /**
+     * Returns the piled cell with the given index, without removing it.
+     */
+    T get(int index) {
+        T cell = byIndex.get(index);
+        if (cell != null && cell.getIndex() != index) {
+            // the cell has been given another index since it was piled
+            indexChanged(cell);
+            cell = byIndex.get(index);
+        }
+        return cell;
+    }
+
+    /**
+     * Returns, without removing it, the cell that {@link #take(int, Object)}
+     * would return for the given index and type, or null if there is no cell
+     * of that type.
+     */
+    T peek(int index, Object type) {
+        T cell = get(index);
+        if (cell != null && Objects.equals(type, getCellType(cell))) {
+            return cell;
+        }
+
+        Bucket<T> bucket = buckets.get(type);
+        if (bucket != null) {
+            LinkedHashSet<T> cells = bucket.get(index).isEmpty() ? bucket.get(index + 1) : bucket.get(index);
+            if (! cells.isEmpty()) {
+                return cells.iterator().next();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Removes and returns a cell of the given type whose index is outside of
+     * [from, to], or returns null if there is none.
+     */
+    T takeOutside(Object type, int from, int to) {
+        Bucket<T> bucket = buckets.get(type);
+        if (bucket == null) return null;
+
+        for (int parity = 0; parity < 2; parity++) {
+            for (T cell : bucket.get(parity)) {
+                int index = cell.getIndex();
+                if (index < from || index > to) {
+                    remove(cell);
+                    return cell;
+                }
+            }
+        }
+        return null;
+    }
+
+    T getFirst() {
+        for (Bucket<T> bucket : buckets.values()) {
+            if (! bucket.even.isEmpty()) return bucket.even.iterator().next();
+            if (! bucket.odd.isEmpty()) return bucket.odd.iterator().next();
+        }
+        return null;
+    }
+
+    /**
+     * Removes and returns the most suitable cell for showing the given index:
+     * the cell that last showed that index, otherwise a cell of the same type
+     * with the same even/odd parity, otherwise any cell of the same type.
+     * Returns null if there is no cell of the given type.
+     */
+    T take(int index, Object type) {
+        T cell = peek(index, type);
+        if (cell == null) {
+            misses++;
+            return null;
+        }
+
+        if (cell.getIndex() == index) {
+            indexHits++;
+        } else {
+            typeHits++;
+        }
+        remove(cell);
+        return cell;
+    }
+
+    boolean contains(T cell) {
+        return filedIndex.containsKey(cell);
+    }
+
+    boolean remove(T cell) {
+        if (! contains(cell)) {
+            return false;
+        }
+        unfile(cell, getCellType(cell));
+        size--;
+        return true;
+    }
+
+    T removeFirst() {
+        T cell = getFirst();
+        if (cell != null) remove(cell);
+        return cell;
+    }
+
+    void clear() {
+        buckets.clear();
+        byIndex.clear();
+        filedIndex.clear();
+        size = 0;
+    }
+
+    /**
+     * Returns an iterator over the piled cells. The pool must not be modified
+     * while it is iterated.
+     */
+    @Override public Iterator<T> iterator() {
+        return new Iterator<T>() {
+            private final Iterator<Bucket<T>> bucketIterator = buckets.values().iterator();
+            // the bucket whose odd cells are to be iterated next, if any
+            private Bucket<T> pendingOdd;
+            private Iterator<T> cells = Collections.emptyIterator();
+
+            @Override public boolean hasNext() {
+                while (! cells.hasNext()) {
+                    if (pendingOdd != null) {
+                        cells = pendingOdd.odd.iterator();
+                        pendingOdd = null;
+                    } else if (bucketIterator.hasNext()) {
+                        pendingOdd = bucketIterator.next();
+                        cells = pendingOdd.even.iterator();
+                    } else {
+                        return false;
+                    }
+                }
+                return true;
+            }
+
+            @Override public T next() {
+                if (! hasNext()) throw new NoSuchElementException();
+                return cells.next();
+            }
+        };
+    }
+
+    /** The number of cells that were reused for the index they last showed. */
+    int getIndexHits() { return indexHits; }
+
+    /** The number of cells that were reused for a different index of the same type. */
+    int getTypeHits() { return typeHits; }
+
+    /** The number of requests that found no cell of the requested type. */
+    int getMisses() { return misses; }
+
+    /** The number of cells that were not pooled because of a type limit. */
+    int getRejected() { return rejected; }
+
+    void resetStatistics() {
+        indexHits = typeHits = misses = rejected = 0;
+    }
+
+    private Bucket<T> bucket(Object type) {
+        Bucket<T> bucket = buckets.get(type);
+        if (bucket == null) {
+            bucket = new Bucket<>();
+            buckets.put(type, bucket);
+        }
+        return bucket;
+    }
+
+    /**
+     * The piled cells of one type, split by whether their index is even or
+     * odd.
+     */
+    private static final class Bucket<T> {
+        final LinkedHashSet<T> even = new LinkedHashSet<>();
+        final LinkedHashSet<T> odd = new LinkedHashSet<>();
+
+        LinkedHashSet<T> get(int index) {
+            return (index & 1) == 0 ? even : odd;
+        }
+
+        int size() {
+            return even.size() + odd.size();
+        }
+    }
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2010, 2015, Oracle and/or its affiliates. All rights reserved.
+ * Copyright (c) 2010, 2017, Oracle and/or its affiliates. All rights reserved.
  * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
  *
  * This code is free software; you can redistribute it and/or modify it
@@ -177,6 +177,26 @@ public class ListViewSkin<T> extends VirtualContainerBase<ListView<T>, ListViewB
 
     private final ListChangeListener<T> listViewItemsListener = new ListChangeListener<T>() {
         @Override public void onChanged(Change<? extends T> c) {
+            // move the cell lengths measured by the flow along with the rows
+            // they belong to, so that adding or removing a few rows does not
+            // throw all of them away
+            while (c.next()) {
+                if (c.wasPermutated()) {
+                    flow.resetCellLengths();
+                    continue;
+                } else if (c.wasUpdated()) {
+                    continue;
+                }
+                int replaced = Math.min(c.getAddedSize(), c.getRemovedSize());
+                int from = c.getFrom() + replaced;
+                if (c.getRemovedSize() > replaced) {
+                    flow.cellsRemoved(from, c.getRemovedSize() - replaced);
+                } else if (c.getAddedSize() > replaced) {
+                    flow.cellsInserted(from, c.getAddedSize() - replaced);
+                }
+            }
+            c.reset();
+
             while (c.next()) {
                 if (c.wasReplaced()) {
                     // RT-28397: Support for when an item is replaced with itself (but
@@ -196,6 +216,7 @@ public class ListViewSkin<T> extends VirtualContainerBase<ListView<T>, ListViewB
                     // differently) still displays as expected (i.e. with the
                     // updated display, not the old display).
                     itemCount = 0;
+                    flow.resetCellLengths();
                     break;
                 }
             }
@@ -222,6 +243,8 @@ public class ListViewSkin<T> extends VirtualContainerBase<ListView<T>, ListViewB
             listViewItems.addListener(weakListViewItemsListener);
         }
 
+        // the measured cell lengths belong to the old items
+        flow.resetCellLengths();
         rowCountDirty = true;
         getSkinnable().requestLayout();
     }
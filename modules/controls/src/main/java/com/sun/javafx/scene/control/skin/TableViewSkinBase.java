@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2012, 2015, Oracle and/or its affiliates. All rights reserved.
+ * Copyright (c) 2012, 2017, Oracle and/or its affiliates. All rights reserved.
  * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
  *
  * This code is free software; you can redistribute it and/or modify it
@@ -260,6 +260,23 @@ public abstract class TableViewSkinBase<M, S, C extends Control, B extends Behav
     };
 
     private ListChangeListener<S> rowCountListener = c -> {
+        // move the cell lengths measured by the flow along with the rows they
+        // belong to. The TreeTableView backing list does not report where rows
+        // changed, so TreeTableViewSkin resets the lengths itself.
+        if (getSkinnable() instanceof TableView) {
+            while (c.next()) {
+                if (c.wasPermutated()) {
+                    flow.resetCellLengths();
+                } else if (! c.wasUpdated()) {
+                    // replaced rows are removed and inserted again, so that
+                    // their lengths are measured again
+                    flow.cellsRemoved(c.getFrom(), c.getRemovedSize());
+                    flow.cellsInserted(c.getFrom(), c.getAddedSize());
+                }
+            }
+            c.reset();
+        }
+
         while (c.next()) {
             if (c.wasReplaced()) {
                 // RT-28397: Support for when an item is replaced with itself (but
@@ -636,6 +653,8 @@ public abstract class TableViewSkinBase<M, S, C extends Control, B extends Behav
             newList.addListener(weakRowCountListener);
         }
 
+        // the measured cell lengths belong to the old items
+        flow.resetCellLengths();
         rowCountDirty = true;
         getSkinnable().requestLayout();
     }
@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2012, 2014, Oracle and/or its affiliates. All rights reserved.
+ * Copyright (c) 2012, 2017, Oracle and/or its affiliates. All rights reserved.
  * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
  *
  * This code is free software; you can redistribute it and/or modify it
@@ -123,7 +123,9 @@ public class TreeTableViewSkin<S> extends TableViewSkinBase<S, TreeItem<S>, Tree
             if (! getSkinnable().isShowRoot() && getRoot() != null) {
                  getRoot().setExpanded(true);
             }
-            // update the item count in the flow and behavior instances
+            // update the item count in the flow and behavior instances, all
+            // rows of which move by one
+            flow.resetCellLengths();
             updateRowCount();
         } else if ("ROW_FACTORY".equals(p)) {
             flow.recreateCells();
@@ -160,6 +162,7 @@ public class TreeTableViewSkin<S> extends TableViewSkinBase<S, TreeItem<S>, Tree
             // no event being fired to the skin to be informed that the items
             // had changed. So, here we just watch for the case where the number
             // of items being added is equal to the number of items being removed.
+            flow.resetCellLengths();
             rowCountDirty = true;
             getSkinnable().requestLayout();
         } else if (e.getEventType().equals(TreeItem.valueChangedEvent())) {
@@ -172,6 +175,9 @@ public class TreeTableViewSkin<S> extends TableViewSkinBase<S, TreeItem<S>, Tree
             EventType<?> eventType = e.getEventType();
             while (eventType != null) {
                 if (eventType.equals(TreeItem.<S>expandedItemCountChangeEvent())) {
+                    // rows may have been inserted or removed anywhere in the
+                    // tree, so the measured cell lengths no longer line up
+                    flow.resetCellLengths();
                     rowCountDirty = true;
                     getSkinnable().requestLayout();
                     break;
@@ -201,6 +207,7 @@ public class TreeTableViewSkin<S> extends TableViewSkinBase<S, TreeItem<S>, Tree
             getRoot().addEventHandler(TreeItem.<S>treeNotificationEvent(), weakRootListener);
         }
 
+        flow.resetCellLengths();
         updateRowCount();
     }
 
@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2010, 2015, Oracle and/or its affiliates. All rights reserved.
+ * Copyright (c) 2010, 2017, Oracle and/or its affiliates. All rights reserved.
  * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
  *
  * This code is free software; you can redistribute it and/or modify it
@@ -129,7 +129,9 @@ public class TreeViewSkin<T> extends VirtualContainerBase<TreeView<T>, TreeViewB
             if (! getSkinnable().isShowRoot() && getRoot() != null) {
                  getRoot().setExpanded(true);
             }
-            // update the item count in the flow and behavior instances
+            // update the item count in the flow and behavior instances, all
+            // rows of which move by one
+            flow.resetCellLengths();
             updateRowCount();
         } else if ("CELL_FACTORY".equals(p)) {
             flow.recreateCells();
@@ -158,6 +160,7 @@ public class TreeViewSkin<T> extends VirtualContainerBase<TreeView<T>, TreeViewB
             // no event being fired to the skin to be informed that the items
             // had changed. So, here we just watch for the case where the number
             // of items being added is equal to the number of items being removed.
+            flow.resetCellLengths();
             rowCountDirty = true;
             getSkinnable().requestLayout();
         } else if (e.getEventType().equals(TreeItem.valueChangedEvent())) {
@@ -170,6 +173,9 @@ public class TreeViewSkin<T> extends VirtualContainerBase<TreeView<T>, TreeViewB
             EventType<?> eventType = e.getEventType();
             while (eventType != null) {
                 if (eventType.equals(TreeItem.<T>expandedItemCountChangeEvent())) {
+                    // rows may have been inserted or removed anywhere in the
+                    // tree, so the measured cell lengths no longer line up
+                    flow.resetCellLengths();
                     rowCountDirty = true;
                     getSkinnable().requestLayout();
                     break;
@@ -199,6 +205,7 @@ public class TreeViewSkin<T> extends VirtualContainerBase<TreeView<T>, TreeViewB
             getRoot().addEventHandler(TreeItem.<T>treeNotificationEvent(), weakRootListener);
         }
 
+        flow.resetCellLengths();
         updateRowCount();
     }
 
@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2010, 2015, Oracle and/or its affiliates. All rights reserved.
+ * Copyright (c) 2010, 2017, Oracle and/or its affiliates. All rights reserved.
  * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
  *
  * This code is free software; you can redistribute it and/or modify it
@@ -30,6 +30,8 @@ import com.sun.javafx.scene.traversal.Algorithm;
 import com.sun.javafx.scene.traversal.Direction;
 import com.sun.javafx.scene.traversal.ParentTraversalEngine;
 import com.sun.javafx.scene.traversal.TraversalContext;
+import com.sun.javafx.tk.TKPulseListener;
+import com.sun.javafx.tk.Toolkit;
 import javafx.animation.KeyFrame;
 import javafx.animation.Timeline;
 import javafx.beans.InvalidationListener;
@@ -60,7 +62,9 @@ import sun.util.logging.PlatformLogger;
 import java.util.AbstractList;
 import java.util.ArrayList;
 import java.util.BitSet;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Implementation of a virtualized container using a cell based mechanism.
@@ -163,6 +167,7 @@ public class VirtualFlow<T extends IndexedCell> extends Region {
                     hbar.setValue(0);
                     vbar.setValue(0);
                     setPosition(0.0f);
+                    resetCellLengths();
                     setNeedsLayout(true);
                     requestLayout();
                 }
@@ -189,6 +194,23 @@ public class VirtualFlow<T extends IndexedCell> extends Region {
     public boolean isPannable() { return pannable; }
     public void setPannable(boolean value) { this.pannable = value; }
 
+    /**
+     * The number of cells to keep prepared before the first and after the
+     * last visible cell. These cells are created, styled and laid out in the
+     * pulse following a layout of the flow, and kept hidden in the pile until
+     * they are scrolled into view, at which point they are reused without
+     * having to run updateItem, CSS or layout again. The default is 0, which
+     * disables prefetching.
+     */
+    private int overscan = 0;
+    public int getOverscan() { return overscan; }
+    public void setOverscan(int value) {
+        this.overscan = Math.max(0, value);
+        if (overscan > 0) {
+            schedulePrefetch();
+        }
+    }
+
     /**
      * Indicates the number of cells that should be in the flow. The user of
      * the VirtualFlow must set this appropriately. When the cell count changes
@@ -205,8 +227,11 @@ public class VirtualFlow<T extends IndexedCell> extends Region {
         boolean countChanged = oldCount != cellCount;
 
         // ensure that the virtual scrollbar adjusts in size based on the current
-        // cell count.
+        // cell count. Lengths measured for the rows that remain are kept; use
+        // cellsInserted / cellsRemoved to move them when rows are not added or
+        // removed at the end.
         if (countChanged) {
+            cellLengths.setSize(cellCount);
             VirtualScrollBar lengthBar = isVertical() ? vbar : hbar;
             lengthBar.setMax(i);
         }
@@ -274,6 +299,7 @@ public class VirtualFlow<T extends IndexedCell> extends Region {
     public void setFixedCellSize(final double value) {
         this.fixedCellSize = value;
         this.fixedCellSizeEnabled = fixedCellSize > 0;
+        resetCellLengths();
         needsCellsLayout = true;
         layoutChildren();
     }
@@ -290,12 +316,74 @@ public class VirtualFlow<T extends IndexedCell> extends Region {
 
         if (createCell != null) {
             accumCell = null;
+            accumCells.clear();
+            accumCellParent.getChildren().clear();
             setNeedsLayout(true);
             recreateCells();
             if (getParent() != null) getParent().requestLayout();
         }
     }
 
+    /**
+     * Callback which returns the type of cell needed to show a given index,
+     * or null if all cells are alike. When set, a cell is only reused for
+     * indices of the type it was first used for, so that lists with different
+     * kinds of rows do not have to rebuild the graphic of a cell every time it
+     * is reused for a row of another kind. Types are compared using equals.
+     */
+    private Callback<Integer, Object> cellTypeFactory;
+    public Callback<Integer, Object> getCellTypeFactory() { return cellTypeFactory; }
+    public void setCellTypeFactory(Callback<Integer, Object> value) {
+        this.cellTypeFactory = value;
+        recreateCells();
+    }
+
+    private Object getCellType(int index) {
+        return cellTypeFactory == null || index < 0 || index >= cellCount ?
+                null : cellTypeFactory.call(index);
+    }
+
+    /**
+     * Limits the number of unused cells of the given type (null for untyped
+     * cells) that are kept for reuse. Cells beyond the limit are discarded when
+     * they scroll out of view. A negative value, the default, means no limit.
+     */
+    public void setMaxPooledCells(Object type, int max) {
+        pile.setMaxCells(type, max);
+    }
+
+    public int getMaxPooledCells(Object type) {
+        return pile.getMaxCells(type);
+    }
+
+    /**
+     * Returns the number of times a cell was reused from the pool, either for
+     * the same index it showed before or for another index of the same type.
+     */
+    public int getReusedCellCount() {
+        return pile.getIndexHits() + pile.getTypeHits();
+    }
+
+    /**
+     * Returns the number of times a new cell had to be created because the
+     * pool had no cell of the right type.
+     */
+    public int getCreatedCellCount() {
+        return pile.getMisses();
+    }
+
+    /**
+     * Returns the number of cells that were discarded rather than pooled
+     * because of a {@link #setMaxPooledCells(Object, int) limit}.
+     */
+    public int getDiscardedCellCount() {
+        return pile.getRejected();
+    }
+
+    public void resetCellPoolStatistics() {
+        pile.resetStatistics();
+    }
+
     /**
      * The maximum preferred size in the non-virtual direction. For example,
      * if vertical, then this is the max pref width of all cells encountered.
@@ -408,7 +496,7 @@ public class VirtualFlow<T extends IndexedCell> extends Region {
      * <p>
      * This is package private ONLY FOR TESTING
      */
-    final ArrayLinkedList<T> pile = new ArrayLinkedList<T>();
+    final CellPool<T> pile = new CellPool<T>();
 
     /**
      * A special cell used to accumulate bounds, such that we reduce object
@@ -417,6 +505,10 @@ public class VirtualFlow<T extends IndexedCell> extends Region {
      */
     T accumCell;
 
+    // the accum cells for each cell type, of which accumCell is the one that
+    // was used last
+    private final Map<Object, T> accumCells = new HashMap<>();
+
     /**
      * This group is used for holding the 'accumCell'. 'accumCell' must
      * be added to the skin for it to be styled. Otherwise, it doesn't
@@ -921,7 +1013,7 @@ public class VirtualFlow<T extends IndexedCell> extends Region {
         if (needsRecreateCells) {
             lastWidth = -1;
             lastHeight = -1;
-            releaseCell(accumCell);
+            releaseAccumCells();
 //            accumCell = null;
 //            accumCellParent.getChildren().clear();
             sheet.getChildren().clear();
@@ -934,7 +1026,7 @@ public class VirtualFlow<T extends IndexedCell> extends Region {
         } else if (needsRebuildCells) {
             lastWidth = -1;
             lastHeight = -1;
-            releaseCell(accumCell);
+            releaseAccumCells();
             for (int i=0; i<cells.size(); i++) {
                 cells.get(i).updateIndex(-1);
             }
@@ -946,7 +1038,8 @@ public class VirtualFlow<T extends IndexedCell> extends Region {
             lastHeight = -1;
         }
 
-        if (! dirtyCells.isEmpty()) {
+        final boolean hasDirtyCells = ! dirtyCells.isEmpty();
+        if (hasDirtyCells) {
             int index;
             final int cellsSize = cells.size();
             while ((index = dirtyCells.nextSetBit(0)) != -1 && index < cellsSize) {
@@ -968,10 +1061,18 @@ public class VirtualFlow<T extends IndexedCell> extends Region {
         final boolean hasSizeChange = sizeChanged;
         boolean recreatedOrRebuilt = needsRebuildCells || needsRecreateCells || sizeChanged;
 
+        // new cells, reconfigured items or a new breadth may change the length
+        // of cells that are not currently shown, so the measured lengths can
+        // no longer be trusted. Rebuilding after a count change keeps them.
+        if (needsRecreateCells || needsReconfigureCells || breadthChanged) {
+            resetCellLengths();
+        }
+
         needsRecreateCells = false;
         needsReconfigureCells = false;
         needsRebuildCells = false;
         sizeChanged = false;
+        breadthChanged = false;
 
         if (needsCellsLayout) {
             for (int i = 0, max = cells.size(); i < max; i++) {
@@ -1209,6 +1310,72 @@ public class VirtualFlow<T extends IndexedCell> extends Region {
         lastPosition = getPosition();
 
         cleanPile();
+
+        if (overscan > 0) {
+            schedulePrefetch();
+        }
+    }
+
+    private TKPulseListener prefetchPulseListener;
+
+    /**
+     * Prepares the overscan cells in the next pulse, after the scene has been
+     * laid out and synchronized, so that the cost is not added to the pulse
+     * that scrolled the flow.
+     */
+    private void schedulePrefetch() {
+        if (prefetchPulseListener != null || getScene() == null) return;
+
+        prefetchPulseListener = () -> {
+            Toolkit.getToolkit().removePostSceneTkPulseListener(prefetchPulseListener);
+            prefetchPulseListener = null;
+            prefetchCells();
+        };
+        Toolkit.getToolkit().addPostSceneTkPulseListener(prefetchPulseListener);
+        Toolkit.getToolkit().requestNextPulse();
+    }
+
+    /**
+     * Makes sure that the pile holds a configured and laid out cell for each
+     * of the {@link #getOverscan() overscan} indices either side of the cells
+     * currently in the viewport.
+     */
+    void prefetchCells() {
+        if (overscan <= 0 || cells.isEmpty() || getCreateCell() == null) return;
+
+        final int first = getCellIndex(cells.getFirst());
+        final int last = getCellIndex(cells.getLast());
+        final int from = Math.max(0, first - overscan);
+        final int to = Math.min(cellCount - 1, last + overscan);
+
+        for (int i = first - 1; i >= from; i--) {
+            prefetchCell(i, from, to);
+        }
+        for (int i = last + 1; i <= to; i++) {
+            prefetchCell(i, from, to);
+        }
+    }
+
+    private void prefetchCell(int index, int from, int to) {
+        // already prepared
+        if (pile.get(index) != null) return;
+
+        // look for a cell of the right type that is no longer needed for the
+        // overscan, and otherwise create one
+        final Object type = getCellType(index);
+        T cell = pile.takeOutside(type, from, to);
+        if (cell == null) {
+            cell = createCell(type);
+        }
+        if (cell.getParent() == null) {
+            sheetChildren.add(cell);
+        }
+
+        setCellIndex(cell, index);
+        resizeCellSize(cell);
+        cell.layout();
+        cell.setVisible(false);
+        addToPile(cell);
     }
 
     /**
@@ -1497,6 +1664,7 @@ public class VirtualFlow<T extends IndexedCell> extends Region {
         if (value != lastWidth) {
             super.setWidth(value);
             sizeChanged = true;
+            if (isVertical()) breadthChanged = true;
             setNeedsLayout(true);
             requestLayout();
         }
@@ -1506,6 +1674,7 @@ public class VirtualFlow<T extends IndexedCell> extends Region {
         if (value != lastHeight) {
             super.setHeight(value);
             sizeChanged = true;
+            if (! isVertical()) breadthChanged = true;
             setNeedsLayout(true);
             requestLayout();
         }
@@ -1754,29 +1923,26 @@ public class VirtualFlow<T extends IndexedCell> extends Region {
             if (cell != null) return cell;
         }
 
-        // check the pile
-        for (int i = 0; i < pile.size(); i++) {
-            T cell = pile.get(i);
-            if (getCellIndex(cell) == index) {
-                // Note that we don't remove from the pile: if we do it leads
-                // to a severe performance decrease. This seems to be OK, as
-                // getCell() is only used for cell measurement purposes.
-                // pile.remove(i);
-                return cell;
-            }
-        }
-
-        if (pile.size() > 0) {
-            return pile.get(0);
+        // check the pile, which only offers cells of the type needed for the
+        // index
+        final Object type = getCellType(index);
+        T piledCell = pile.peek(index, type);
+        if (piledCell != null) {
+            // Note that we don't remove from the pile: if we do it leads
+            // to a severe performance decrease. This seems to be OK, as
+            // getCell() is only used for cell measurement purposes.
+            return piledCell;
         }
 
-        // We need to use the accumCell and return that
+        // We need to use the accumCell for the type and return that
+        accumCell = accumCells.get(type);
         if (accumCell == null) {
             Callback<VirtualFlow,T> createCell = getCreateCell();
             if (createCell != null) {
-                accumCell = createCell.call(this);
-                accumCell.getProperties().put(NEW_CELL, null);
-                accumCellParent.getChildren().setAll(accumCell);
+                final T accumCell = createCell(type);
+                this.accumCell = accumCell;
+                accumCells.put(type, accumCell);
+                accumCellParent.getChildren().add(accumCell);
 
                 // Note the screen reader will attempt to find all
                 // the items inside the view to calculate the item count.
@@ -1803,8 +1969,14 @@ public class VirtualFlow<T extends IndexedCell> extends Region {
      * After using the accum cell, it needs to be released!
      */
     private void releaseCell(T cell) {
-        if (accumCell != null && cell == accumCell) {
-            accumCell.updateIndex(-1);
+        if (cell != null && accumCells.get(CellPool.getCellType(cell)) == cell) {
+            cell.updateIndex(-1);
+        }
+    }
+
+    private void releaseAccumCells() {
+        for (T cell : accumCells.values()) {
+            cell.updateIndex(-1);
         }
     }
 
@@ -1875,13 +2047,27 @@ public class VirtualFlow<T extends IndexedCell> extends Region {
      */
     protected double getCellLength(int index) {
         if (fixedCellSizeEnabled) return fixedCellSize;
+        if (cellLengths.isMeasured(index)) return cellLengths.get(index);
 
         T cell = getCell(index);
         double length = getCellLength(cell);
+        // getCell may hand back a piled cell for some other index, whose
+        // length must not be recorded against this one
+        if (cell != null && getCellIndex(cell) == index) {
+            cellLengths.set(index, length);
+        }
         releaseCell(cell);
         return length;
     }
 
+    /**
+     * The lengths of the cells measured so far, with estimates for the cells
+     * that have not been measured. This lets the flow move across many cells
+     * (for example when jumping with the scrollbar) in O(log n) time rather
+     * than creating and laying out a cell for each index it passes.
+     */
+    private final CellLengthIndex cellLengths = new CellLengthIndex();
+
     /**
      */
     protected double getCellBreadth(int index) {
@@ -1949,12 +2135,25 @@ public class VirtualFlow<T extends IndexedCell> extends Region {
             double height = Math.max(getMaxPrefBreadth(), getViewportBreadth());
             cell.resize(fixedCellSizeEnabled ? fixedCellSize : Utils.boundedSize(cell.prefWidth(height), cell.minWidth(height), cell.maxWidth(height)), height);
         }
+
+        // remember the length so that it need not be measured again when the
+        // cell is off screen
+        if (! fixedCellSizeEnabled) {
+            cellLengths.set(cell.getIndex(), getCellLength(cell));
+        }
     }
 
     protected void setCellIndex(T cell, int index) {
         assert cell != null;
 
         cell.updateIndex(index);
+        if (cellTypeFactory != null && index >= 0 && index < cellCount && ! accumCells.containsValue(cell)) {
+            // the row at this index may have become of another type since the
+            // cell was last given it, in which case the cell is now of that
+            // type, so that it is only reused for rows like it
+            pile.setType(cell, getCellType(index));
+        }
+        pile.indexChanged(cell);
 
         // make sure the cell is sized correctly. This is important for both
         // general layout of cells in a VirtualFlow, but also in cases such as
@@ -1986,51 +2185,16 @@ public class VirtualFlow<T extends IndexedCell> extends Region {
      * necessary.
      */
     protected T getAvailableCell(int prefIndex) {
-        T cell = null;
-
         // Fix for RT-12822. We try to retrieve the cell from the pile rather
         // than just grab a random cell from the pile (or create another cell).
-        for (int i = 0, max = pile.size(); i < max; i++) {
-            T _cell = pile.get(i);
-            assert _cell != null;
-
-            if (getCellIndex(_cell) == prefIndex) {
-                cell = _cell;
-                pile.remove(i);
-                break;
-            }
-            cell = null;
-        }
-
+        // Failing that, we try to get a cell with an index that is the same
+        // even/odd as the prefIndex. This saves us from having to run so much
+        // css on the cell as it will not change from even to odd, or vice
+        // versa. Only cells of the same type are considered.
+        final Object type = getCellType(prefIndex);
+        T cell = pile.take(prefIndex, type);
         if (cell == null) {
-            if (pile.size() > 0) {
-                // we try to get a cell with an index that is the same even/odd
-                // as the prefIndex. This saves us from having to run so much
-                // css on the cell as it will not change from even to odd, or
-                // vice versa
-                final boolean prefIndexIsEven = (prefIndex & 1) == 0;
-                for (int i = 0, max = pile.size(); i < max; i++) {
-                    final T c = pile.get(i);
-                    final int cellIndex = getCellIndex(c);
-
-                    if ((cellIndex & 1) == 0 && prefIndexIsEven) {
-                        cell = c;
-                        pile.remove(i);
-                        break;
-                    } else if ((cellIndex & 1) == 1 && ! prefIndexIsEven) {
-                        cell = c;
-                        pile.remove(i);
-                        break;
-                    }
-                }
-
-                if (cell == null) {
-                    cell = pile.removeFirst();
-                }
-            } else {
-                cell = getCreateCell().call(this);
-                cell.getProperties().put(NEW_CELL, null);
-            }
+            cell = createCell(type);
         }
 
         if (cell.getParent() == null) {
@@ -2040,6 +2204,13 @@ public class VirtualFlow<T extends IndexedCell> extends Region {
         return cell;
     }
 
+    private T createCell(Object type) {
+        T cell = getCreateCell().call(this);
+        cell.getProperties().put(NEW_CELL, null);
+        CellPool.setCellType(cell, type);
+        return cell;
+    }
+
     // protected to allow subclasses to clean up
     protected void addAllToPile() {
         for (int i = 0, max = cells.size(); i < max; i++) {
@@ -2053,14 +2224,17 @@ public class VirtualFlow<T extends IndexedCell> extends Region {
      */
     private void addToPile(T cell) {
         assert cell != null;
-        pile.addLast(cell);
+        if (! pile.add(cell)) {
+            // the pool is full for this type of cell
+            cell.updateIndex(-1);
+            sheetChildren.remove(cell);
+        }
     }
 
     private void cleanPile() {
         boolean wasFocusOwner = false;
 
-        for (int i = 0, max = pile.size(); i < max; i++) {
-            T cell = pile.get(i);
+        for (T cell : pile) {
             wasFocusOwner = wasFocusOwner || doesCellContainFocus(cell);
             cell.setVisible(false);
         }
@@ -2436,6 +2610,7 @@ public class VirtualFlow<T extends IndexedCell> extends Region {
     private boolean needsRebuildCells = false; // when cell contents have changed
     private boolean needsCellsLayout = false;
     private boolean sizeChanged = false;
+    private boolean breadthChanged = false;
     private final BitSet dirtyCells = new BitSet();
 
     public void reconfigureCells() {
@@ -2460,9 +2635,37 @@ public class VirtualFlow<T extends IndexedCell> extends Region {
 
     public void setCellDirty(int index) {
         dirtyCells.set(index);
+        cellLengths.unset(index);
         requestLayout();
     }
 
+    /**
+     * Moves the cell lengths measured so far to account for count rows
+     * inserted at the given index. This should be called before
+     * {@link #setCellCount(int)} is updated for the new rows.
+     */
+    public void cellsInserted(int index, int count) {
+        cellLengths.insert(index, count);
+    }
+
+    /**
+     * Moves the cell lengths measured so far to account for count rows
+     * removed at the given index. This should be called before
+     * {@link #setCellCount(int)} is updated for the removed rows.
+     */
+    public void cellsRemoved(int index, int count) {
+        cellLengths.remove(index, count);
+    }
+
+    /**
+     * Forgets all cell lengths measured so far, for example because all of
+     * the items backing the cells have been replaced.
+     */
+    public void resetCellLengths() {
+        cellLengths.reset(getCellCount());
+        cellLengths.setDefaultLength(fixedCellSizeEnabled ? fixedCellSize : 0);
+    }
+
     private static final double GOLDEN_RATIO_MULTIPLIER = 0.618033987;
 
     private double getPrefBreadth(double oppDimension) {
@@ -2592,6 +2795,32 @@ public class VirtualFlow<T extends IndexedCell> extends Region {
         // value of Position.
         double p = cellPercent * cellIndex;
 
+        // When moving by more than a viewport, use the cell length index to
+        // jump (close) to the final cell rather than measuring every cell in
+        // between. Each cell moves the position line by its length less
+        // viewportLength / cellCount, so this is only possible when no cell is
+        // shorter than that amount.
+        final double bias = getViewportLength() / cellCount;
+        if (n > remaining && Math.abs(numPixels) > getViewportLength()
+                && cellLengths.size() == cellCount && cellLengths.getMinLength() >= bias) {
+            if (forward) {
+                double base = cellLengths.sum(cellIndex, bias);
+                int index = Math.min(cellLengths.find(base + n, bias), cellCount - 1);
+                n -= cellLengths.sum(index, bias) - base;
+                cellIndex = index;
+            } else {
+                double top = cellLengths.sum(cellIndex + 1, bias);
+                int index = Math.min(cellLengths.find(top - n, bias), cellIndex);
+                n -= top - cellLengths.sum(index + 1, bias);
+                cellIndex = index;
+            }
+            cellSize = getCellLength(cellIndex);
+            start = computeOffsetForCell(cellIndex);
+            end = cellSize + computeOffsetForCell(cellIndex + 1);
+            remaining = end - start;
+            p = cellPercent * cellIndex;
+        }
+
         // Loop over the cells one at a time until either we reach the end of
         // the cells, or we find that the "n" will fall within the cell we're on
         while (n > remaining && ((forward && cellIndex < cellCount - 1) || (! forward && cellIndex > 0))) {
@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2010, 2015, Oracle and/or its affiliates. All rights reserved.
+ * Copyright (c) 2010, 2017, Oracle and/or its affiliates. All rights reserved.
  * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
  *
  * This code is free software; you can redistribute it and/or modify it
@@ -43,14 +43,11 @@ import javafx.scene.AccessibleRole;
 import javafx.scene.Group;
 import javafx.scene.Node;
 import javafx.scene.layout.StackPane;
-import javafx.scene.shape.ClosePath;
-import javafx.scene.shape.LineTo;
-import javafx.scene.shape.MoveTo;
 import javafx.scene.shape.Path;
-import javafx.scene.shape.PathElement;
 import javafx.scene.shape.StrokeLineJoin;
 import javafx.util.Duration;
 
+import com.sun.javafx.charts.ChartPolyline;
 import com.sun.javafx.charts.Legend;
 import com.sun.javafx.charts.Legend.LegendItem;
 import com.sun.javafx.css.converters.BooleanConverter;
@@ -172,6 +169,7 @@ public class AreaChart<X,Y> extends XYChart<X,Y> {
                     if(yData != null) yData.add(data.getYValue());
                 }
             }
+            addStreamDataRange(xData, yData);
             if(xData != null && !(xData.size() == 1 && getXAxis().toNumericValue(xData.get(0)) == 0)) {
                 xa.invalidateRange(xData);
             }
@@ -355,8 +353,8 @@ public class AreaChart<X,Y> extends XYChart<X,Y> {
 
     @Override protected  void seriesAdded(Series<X,Y> series, int seriesIndex) {
         // create new paths for series
-        Path seriesLine = new Path();
-        Path fillPath = new Path();
+        Path seriesLine = new ChartPolyline();
+        Path fillPath = new ChartPolyline();
         seriesLine.setStrokeLineJoin(StrokeLineJoin.BEVEL);
         Group areaGroup = new Group(fillPath,seriesLine);
         series.setNode(areaGroup);
@@ -436,23 +434,25 @@ public class AreaChart<X,Y> extends XYChart<X,Y> {
 
     /** @inheritDoc */
     @Override protected void layoutPlotChildren() {
-        List<LineTo> constructedPath = new ArrayList<>(getDataSize());
         for (int seriesIndex=0; seriesIndex < getDataSize(); seriesIndex++) {
             Series<X, Y> series = getData().get(seriesIndex);
             DoubleProperty seriesYAnimMultiplier = seriesYMultiplierMap.get(series);
             double lastX = 0;
             final ObservableList<Node> children = ((Group) series.getNode()).getChildren();
-            ObservableList<PathElement> seriesLine = ((Path) children.get(1)).getElements();
-            ObservableList<PathElement> fillPath = ((Path) children.get(0)).getElements();
-            seriesLine.clear();
-            fillPath.clear();
-            constructedPath.clear();
-            for (Iterator<Data<X, Y>> it = getDisplayedDataIterator(series); it.hasNext(); ) {
-                Data<X, Y> item = it.next();
+            ChartPolyline seriesLine = (ChartPolyline) children.get(1);
+            ChartPolyline fillPath = (ChartPolyline) children.get(0);
+            // points that have not moved keep the current geometry, so
+            // appended data only appends to the line
+            seriesLine.beginPoints();
+            fillPath.beginPoints();
+            final int[] sampledIndices = getSampledDataIndices(series, seriesYAnimMultiplier.getValue());
+            final int itemCount = sampledIndices != null ? sampledIndices.length : series.getDataSize();
+            for (int i = 0; i < itemCount; i++) {
+                Data<X, Y> item = series.getItem(sampledIndices != null ? sampledIndices[i] : i);
                 double x = getXAxis().getDisplayPosition(item.getCurrentX());
                 double y = getYAxis().getDisplayPosition(
                         getYAxis().toRealValue(getYAxis().toNumericValue(item.getCurrentY()) * seriesYAnimMultiplier.getValue()));
-                constructedPath.add(new LineTo(x, y));
+                seriesLine.addPoint(x, y);
                 if (Double.isNaN(x) || Double.isNaN(y)) {
                     continue;
                 }
@@ -465,11 +465,21 @@ public class AreaChart<X,Y> extends XYChart<X,Y> {
                 }
             }
 
-            if (!constructedPath.isEmpty()) {
-                Collections.sort(constructedPath, (e1, e2) -> Double.compare(e1.getX(), e2.getX()));
-                LineTo first = constructedPath.get(0);
+            if (series.stream != null) {
+                final int itemPointCount = seriesLine.getPointCount();
+                addStreamPoints(series, seriesLine, seriesYAnimMultiplier.getValue());
+                if (seriesLine.getPointCount() > itemPointCount) {
+                    lastX = seriesLine.getX(seriesLine.getPointCount() - 1);
+                }
+            }
+
+            seriesLine.sortByX();
+            seriesLine.endPoints();
+            final int pointCount = seriesLine.getPointCount();
+            if (pointCount > 0) {
+                final double firstX = seriesLine.getX(0);
 
-                final double displayYPos = first.getY();
+                final double displayYPos = seriesLine.getY(0);
                 final double numericYPos = getYAxis().toNumericValue(getYAxis().getValueForDisplay(displayYPos));
 
                 // RT-34626: We can't always use getZeroPosition(), as it may be the case
@@ -481,14 +491,14 @@ public class AreaChart<X,Y> extends XYChart<X,Y> {
                 final double yFillPos = isYAxisZeroPosVisible ? yAxisZeroPos :
                                         numericYPos < 0 ? numericYPos - yAxisHeight : yAxisHeight;
 
-                seriesLine.add(new MoveTo(first.getX(), displayYPos));
-                fillPath.add(new MoveTo(first.getX(), yFillPos));
-
-                seriesLine.addAll(constructedPath);
-                fillPath.addAll(constructedPath);
-                fillPath.add(new LineTo(lastX, yFillPos));
-                fillPath.add(new ClosePath());
+                fillPath.addPoint(firstX, yFillPos);
+                for (int i = 0; i < pointCount; i++) {
+                    fillPath.addPoint(seriesLine.getX(i), seriesLine.getY(i));
+                }
+                fillPath.addPoint(lastX, yFillPos);
+                fillPath.setClosed(true);
             }
+            fillPath.endPoints();
         }
     }
 
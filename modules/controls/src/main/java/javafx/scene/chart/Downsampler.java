@@ -0,0 +1,76 @@
+/*
+ * Copyright (c) 2017, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package javafx.scene.chart;
+
+import com.sun.javafx.charts.LargestTriangleDownsampler;
+import com.sun.javafx.charts.MinMaxDownsampler;
+
+/**
+ * Reduces the number of points of an {@link XYChart} series which are drawn,
+ * without visibly changing the plot. A downsampler is installed on a chart
+ * with {@link XYChart#setDownsampler(Downsampler)} and is applied by
+ * {@link LineChart}, {@link AreaChart} and {@link ScatterChart} to every
+ * series which has more points than the plot area can show.
+ *
+ * <p>The points are passed in display coordinates, in the order in which
+ * they are displayed. The result of the downsampler is cached by the chart
+ * until the data of the series, the displayed values of its items, the axis
+ * ranges or the plot size change.</p>
+ *
+ * @since JavaFX 8u151
+ */
+@FunctionalInterface
+public interface Downsampler {
+
+    /**
+     * Keeps, for every pixel column of the plot, the first, the last, the
+     * lowest and the highest point. A line drawn through the remaining points
+     * is indistinguishable from a line drawn through all of them.
+     */
+    public static final Downsampler MIN_MAX = new MinMaxDownsampler();
+
+    /**
+     * Keeps two points per pixel column of the plot, selected with the
+     * Largest-Triangle-Three-Buckets algorithm, which preserves the visual
+     * shape of the series while giving a more even distribution of points
+     * than {@link #MIN_MAX}.
+     */
+    public static final Downsampler LARGEST_TRIANGLE_THREE_BUCKETS = new LargestTriangleDownsampler();
+
+    /**
+     * Selects the points to draw.
+     *
+     * @param x the x display positions of the points
+     * @param y the y display positions of the points
+     * @param count the number of points, which may be less than the length
+     *        of the arrays
+     * @param plotWidth the width of the plot area in pixels
+     * @param selected the array receiving the indices of the points to draw,
+     *        in increasing order; its length is at least {@code count}
+     * @return the number of indices stored in {@code selected}
+     */
+    public int downsample(double[] x, double[] y, int count, double plotWidth, int[] selected);
+}
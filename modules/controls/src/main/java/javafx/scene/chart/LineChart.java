@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2010, 2015, Oracle and/or its affiliates. All rights reserved.
+ * Copyright (c) 2010, 2017, Oracle and/or its affiliates. All rights reserved.
  * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
  *
  * This code is free software; you can redistribute it and/or modify it
@@ -50,13 +50,10 @@ import javafx.collections.ObservableList;
 import javafx.scene.AccessibleRole;
 import javafx.scene.Node;
 import javafx.scene.layout.StackPane;
-import javafx.scene.shape.LineTo;
-import javafx.scene.shape.MoveTo;
-import javafx.scene.shape.Path;
-import javafx.scene.shape.PathElement;
 import javafx.scene.shape.StrokeLineJoin;
 import javafx.util.Duration;
 
+import com.sun.javafx.charts.ChartPolyline;
 import com.sun.javafx.charts.Legend;
 import com.sun.javafx.charts.Legend.LegendItem;
 
@@ -205,6 +202,7 @@ public class LineChart<X,Y> extends XYChart<X,Y> {
                     if(yData != null) yData.add(data.getYValue());
                 }
             }
+            addStreamDataRange(xData, yData);
             // RT-32838 No need to invalidate range if there is one data item - whose value is zero.
             if(xData != null && !(xData.size() == 1 && getXAxis().toNumericValue(xData.get(0)) == 0)) {
                 xa.invalidateRange(xData);
@@ -385,7 +383,7 @@ public class LineChart<X,Y> extends XYChart<X,Y> {
 
     @Override protected  void seriesAdded(Series<X,Y> series, int seriesIndex) {
         // create new path for series
-        Path seriesLine = new Path();
+        ChartPolyline seriesLine = new ChartPolyline();
         seriesLine.setStrokeLineJoin(StrokeLineJoin.BEVEL);
         series.setNode(seriesLine);
         // create series Y multiplier
@@ -456,23 +454,25 @@ public class LineChart<X,Y> extends XYChart<X,Y> {
 
     /** @inheritDoc */
     @Override protected void layoutPlotChildren() {
-        List<LineTo> constructedPath = new ArrayList<>(getDataSize());
         for (int seriesIndex=0; seriesIndex < getDataSize(); seriesIndex++) {
             Series<X,Y> series = getData().get(seriesIndex);
             final DoubleProperty seriesYAnimMultiplier = seriesYMultiplierMap.get(series);
-            if(series.getNode() instanceof  Path) {
-                final ObservableList<PathElement> seriesLine = ((Path)series.getNode()).getElements();
-                seriesLine.clear();
-                constructedPath.clear();
-                for (Iterator<Data<X, Y>> it = getDisplayedDataIterator(series); it.hasNext(); ) {
-                    Data<X, Y> item = it.next();
+            if(series.getNode() instanceof ChartPolyline) {
+                final ChartPolyline seriesLine = (ChartPolyline)series.getNode();
+                // points that have not moved keep the current geometry, so
+                // appended data only appends to it
+                seriesLine.beginPoints();
+                final int[] sampledIndices = getSampledDataIndices(series, seriesYAnimMultiplier.getValue());
+                final int itemCount = sampledIndices != null ? sampledIndices.length : series.getDataSize();
+                for (int i = 0; i < itemCount; i++) {
+                    Data<X, Y> item = series.getItem(sampledIndices != null ? sampledIndices[i] : i);
                     double x = getXAxis().getDisplayPosition(item.getCurrentX());
                     double y = getYAxis().getDisplayPosition(
                             getYAxis().toRealValue(getYAxis().toNumericValue(item.getCurrentY()) * seriesYAnimMultiplier.getValue()));
                     if (Double.isNaN(x) || Double.isNaN(y)) {
                         continue;
                     }
-                    constructedPath.add(new LineTo(x, y));
+                    seriesLine.addPoint(x, y);
 
                     Node symbol = item.getNode();
                     if (symbol != null) {
@@ -481,20 +481,18 @@ public class LineChart<X,Y> extends XYChart<X,Y> {
                         symbol.resizeRelocate(x-(w/2), y-(h/2),w,h);
                     }
                 }
+                if (series.stream != null) {
+                    addStreamPoints(series, seriesLine, seriesYAnimMultiplier.getValue());
+                }
                 switch (getAxisSortingPolicy()) {
                     case X_AXIS:
-                        Collections.sort(constructedPath, (e1, e2) -> Double.compare(e1.getX(), e2.getX()));
+                        seriesLine.sortByX();
                         break;
                     case Y_AXIS:
-                        Collections.sort(constructedPath, (e1, e2) -> Double.compare(e1.getY(), e2.getY()));
+                        seriesLine.sortByY();
                         break;
                 }
-
-                if (!constructedPath.isEmpty()) {
-                    LineTo first = constructedPath.get(0);
-                    seriesLine.add(new MoveTo(first.getX(), first.getY()));
-                    seriesLine.addAll(constructedPath);
-                }
+                seriesLine.endPoints();
             }
         }
     }
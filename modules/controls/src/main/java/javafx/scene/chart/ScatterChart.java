@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2010, 2015, Oracle and/or its affiliates. All rights reserved.
+ * Copyright (c) 2010, 2017, Oracle and/or its affiliates. All rights reserved.
  * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
  *
  * This code is free software; you can redistribute it and/or modify it
@@ -39,7 +39,6 @@ import javafx.util.Duration;
 import com.sun.javafx.charts.Legend;
 import com.sun.javafx.charts.Legend.LegendItem;
 
-import java.util.Iterator;
 
 /**
  * Chart type that plots symbols for the data points in a series.
@@ -174,8 +173,10 @@ public class ScatterChart<X,Y> extends XYChart<X,Y> {
         // update symbol positions
         for (int seriesIndex=0; seriesIndex < getDataSize(); seriesIndex++) {
             Series<X,Y> series = getData().get(seriesIndex);
-            for (Iterator<Data<X, Y>> it = getDisplayedDataIterator(series); it.hasNext(); ) {
-                Data<X, Y> item = it.next();
+            final int[] sampledIndices = getSampledDataIndices(series, 1);
+            final int itemCount = sampledIndices != null ? sampledIndices.length : series.getDataSize();
+            for (int i = 0; i < itemCount; i++) {
+                Data<X, Y> item = series.getItem(sampledIndices != null ? sampledIndices[i] : i);
                 double x = getXAxis().getDisplayPosition(item.getCurrentX());
                 double y = getYAxis().getDisplayPosition(item.getCurrentY());
                 if (Double.isNaN(x) || Double.isNaN(y)) {
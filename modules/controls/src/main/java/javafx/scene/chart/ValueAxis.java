@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2010, 2015, Oracle and/or its affiliates. All rights reserved.
+ * Copyright (c) 2010, 2017, Oracle and/or its affiliates. All rights reserved.
  * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
  *
  * This code is free software; you can redistribute it and/or modify it
@@ -461,6 +461,13 @@ public abstract class ValueAxis<T extends Number> extends Axis<T> {
         return offset + ((value.doubleValue() - currentLowerBound.get()) * getScale());
     }
 
+    /**
+     * Same as getDisplayPosition() for a primitive value, used by the charts to plot streamed data without boxing.
+     */
+    final double getDisplayPositionOfNumber(double value) {
+        return offset + ((value - currentLowerBound.get()) * getScale());
+    }
+
     /**
      * Get the data value for the given display position on this axis. If the axis
      * is a CategoryAxis this will be the nearest value.
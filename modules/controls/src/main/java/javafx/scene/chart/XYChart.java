@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2010, 2015, Oracle and/or its affiliates. All rights reserved.
+ * Copyright (c) 2010, 2017, Oracle and/or its affiliates. All rights reserved.
  * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
  *
  * This code is free software; you can redistribute it and/or modify it
@@ -27,6 +27,7 @@ package javafx.scene.chart;
 
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.BitSet;
 import java.util.Collections;
 import java.util.HashMap;
@@ -70,6 +71,8 @@ import javafx.scene.shape.Path;
 import javafx.scene.shape.Rectangle;
 import javafx.util.Duration;
 
+import com.sun.javafx.charts.ChartPolyline;
+import com.sun.javafx.charts.DataRingBuffer;
 import com.sun.javafx.collections.NonIterableChange;
 import com.sun.javafx.css.converters.BooleanConverter;
 
@@ -114,6 +117,13 @@ public abstract class XYChart<X,Y> extends Chart {
 
     private final List<Series<X, Y>> displayedSeries = new ArrayList<>();
 
+    // set when streamed data has been appended and a layout has been requested for it
+    private boolean streamLayoutRequested = false;
+    // scratch buffers for plotting streamed data
+    private double[] streamX = new double[0];
+    private double[] streamY = new double[0];
+    private int[] streamSelected = new int[0];
+
     /** This is called when a series is added or removed from the chart */
     private final ListChangeListener<Series<X,Y>> seriesChanged = c -> {
         ObservableList<? extends Series<X, Y>> series = c.getList();
@@ -404,6 +414,35 @@ public abstract class XYChart<X,Y> extends Chart {
     public final void setHorizontalZeroLineVisible(boolean value) { horizontalZeroLineVisible.set(value); }
     public final BooleanProperty horizontalZeroLineVisibleProperty() { return horizontalZeroLineVisible; }
 
+    /**
+     * The downsampler which reduces the data items of every series to the ones
+     * visible at the current axis ranges and plot size, or null if all data
+     * items are plotted. Downsampling is applied by {@link LineChart},
+     * {@link AreaChart} and {@link ScatterChart} to series with more than
+     * four data items per pixel column; the symbols of the data items which
+     * are dropped are hidden.
+     *
+     * @since JavaFX 8u151
+     */
+    private ObjectProperty<Downsampler> downsampler = new ObjectPropertyBase<Downsampler>() {
+        @Override protected void invalidated() {
+            requestChartLayout();
+        }
+
+        @Override
+        public Object getBean() {
+            return XYChart.this;
+        }
+
+        @Override
+        public String getName() {
+            return "downsampler";
+        }
+    };
+    public final Downsampler getDownsampler() { return downsampler.get(); }
+    public final void setDownsampler(Downsampler value) { downsampler.set(value); }
+    public final ObjectProperty<Downsampler> downsamplerProperty() { return downsampler; }
+
     // -------------- PROTECTED PROPERTIES -----------------------------------------------------------------------------
 
     /**
@@ -506,6 +545,7 @@ public abstract class XYChart<X,Y> extends Chart {
 
     private void dataXValueChanged(Data<X,Y> item) {
         if(item.getCurrentX() != item.getXValue()) invalidateRange();
+        item.series.sampledIndices = null;
         dataItemChanged(item);
         if (shouldAnimate()) {
             animate(
@@ -520,6 +560,7 @@ public abstract class XYChart<X,Y> extends Chart {
 
     private void dataYValueChanged(Data<X,Y> item) {
         if(item.getCurrentY() != item.getYValue()) invalidateRange();
+        item.series.sampledIndices = null;
         dataItemChanged(item);
         if (shouldAnimate()) {
             animate(
@@ -654,6 +695,7 @@ public abstract class XYChart<X,Y> extends Chart {
 
     /** @inheritDoc */
     @Override protected final void layoutChartChildren(double top, double left, double width, double height) {
+        streamLayoutRequested = false;
         if(getData() == null) return;
         if (!rangeValid) {
             rangeValid = true;
@@ -1049,6 +1091,172 @@ public abstract class XYChart<X,Y> extends Chart {
         series.removeDataItemRef(item);
     }
 
+    /** Called when streamed data of a series has changed, requests a single layout per pulse */
+    void streamDataChanged() {
+        invalidateRange();
+        if (!streamLayoutRequested) {
+            streamLayoutRequested = true;
+            requestChartLayout();
+        }
+    }
+
+    /**
+     * Adds the smallest and largest streamed values of every series to the given lists of axis data, either of which
+     * may be null. The extremes are maintained by the series while streaming, so this does not depend on the number
+     * of streamed points. Streamed data is ignored unless both axes are value axes.
+     */
+    final void addStreamDataRange(List<X> xData, List<Y> yData) {
+        if (!hasStreamAxes()) return;
+        for (Series<X,Y> series : getData()) {
+            final DataRingBuffer stream = series.stream;
+            if (stream == null || stream.size() == 0) continue;
+            if (xData != null && !Double.isNaN(stream.getMinX())) {
+                xData.add(getXAxis().toRealValue(stream.getMinX()));
+                xData.add(getXAxis().toRealValue(stream.getMaxX()));
+            }
+            if (yData != null && !Double.isNaN(stream.getMinY())) {
+                yData.add(getYAxis().toRealValue(stream.getMinY()));
+                yData.add(getYAxis().toRealValue(stream.getMaxY()));
+            }
+        }
+    }
+
+    /**
+     * Appends the display positions of the streamed points of the series to the given polyline, applying the
+     * downsampler if one is set. Points which can not be displayed are skipped, as are all points unless both axes
+     * are value axes.
+     *
+     * @param series The series whose streamed points to plot
+     * @param line The polyline to append to
+     * @param yMultiplier The factor the y values are multiplied with, for animating the series
+     */
+    final void addStreamPoints(Series<X,Y> series, ChartPolyline line, double yMultiplier) {
+        if (!hasStreamAxes()) return;
+        final DataRingBuffer stream = series.stream;
+        final int count = stream.size();
+        if (streamX.length < count) {
+            streamX = new double[count];
+            streamY = new double[count];
+        }
+        int n = 0;
+        for (int i = 0; i < count; i++) {
+            final double x = getDisplayPosition(getXAxis(), stream.getX(i));
+            final double y = getDisplayPosition(getYAxis(), stream.getY(i) * yMultiplier);
+            if (Double.isNaN(x) || Double.isNaN(y)) {
+                continue;
+            }
+            streamX[n] = x;
+            streamY[n++] = y;
+        }
+        final Downsampler sampler = getDownsampler();
+        final double plotWidth = getXAxis().getWidth();
+        if (sampler != null && n > MAX_ITEMS_PER_PIXEL * Math.max(1, plotWidth)) {
+            if (streamSelected.length < n) {
+                streamSelected = new int[n];
+            }
+            final int selectedCount = sampler.downsample(streamX, streamY, n, plotWidth, streamSelected);
+            for (int i = 0; i < selectedCount; i++) {
+                line.addPoint(streamX[streamSelected[i]], streamY[streamSelected[i]]);
+            }
+        } else {
+            for (int i = 0; i < n; i++) {
+                line.addPoint(streamX[i], streamY[i]);
+            }
+        }
+    }
+
+    /** Streamed points are plain numbers, so they can only be plotted against value axes */
+    private boolean hasStreamAxes() {
+        return getXAxis() instanceof ValueAxis && getYAxis() instanceof ValueAxis;
+    }
+
+    private static <T> double getDisplayPosition(Axis<T> axis, double value) {
+        // only use the unboxed fast path if getDisplayPosition() is known not to be overridden
+        if (axis.getClass() == NumberAxis.class) {
+            return ((NumberAxis) axis).getDisplayPositionOfNumber(value);
+        }
+        return axis.getDisplayPosition(axis.toRealValue(value));
+    }
+
+    /** Series with at most this many displayed items per pixel column are not downsampled */
+    private static final int MAX_ITEMS_PER_PIXEL = 4;
+
+    /**
+     * Returns the indices, into the displayed data of the given series, of the items which remain after applying
+     * the downsampler, or null if all displayed items are to be plotted. The result is cached in the series until its
+     * data, the current values of its items, the Y multiplier, the axis ranges, the plot size or the downsampler
+     * change. The symbols of the items which are not kept are hidden.
+     *
+     * @param series The series to downsample
+     * @param yMultiplier The multiplier applied to the current Y values of the items, as used by charts which
+     *                    animate series in and out
+     * @return the indices of the displayed items to plot, in increasing order, or null
+     */
+    final int[] getSampledDataIndices(Series<X,Y> series, double yMultiplier) {
+        final Downsampler sampler = getDownsampler();
+        final double plotWidth = getXAxis().getWidth();
+        final int count = series.getDataSize();
+        if (sampler == null || count <= MAX_ITEMS_PER_PIXEL * Math.max(1, plotWidth)) {
+            if (series.samplingKey != null) {
+                // the series was downsampled before, show all symbols again
+                series.sampledIndices = null;
+                series.samplingKey = null;
+                updateSampledSymbols(series, null);
+            }
+            return null;
+        }
+        final Object[] key = { sampler, getXAxis().getRange(), getYAxis().getRange(), plotWidth, getYAxis().getHeight(),
+                yMultiplier };
+        if (series.sampledIndices != null && Arrays.deepEquals(key, series.samplingKey)) {
+            return series.sampledIndices;
+        }
+
+        // downsample the points in display coordinates, skipping the ones which are not plotted
+        final double[] x = new double[count];
+        final double[] y = new double[count];
+        final int[] itemIndices = new int[count];
+        int n = 0;
+        for (int i = 0; i < count; i++) {
+            final Data<X,Y> item = series.getItem(i);
+            final double displayX = getXAxis().getDisplayPosition(item.getCurrentX());
+            final double displayY = yMultiplier == 1 ? getYAxis().getDisplayPosition(item.getCurrentY()) :
+                    getYAxis().getDisplayPosition(
+                            getYAxis().toRealValue(getYAxis().toNumericValue(item.getCurrentY()) * yMultiplier));
+            if (Double.isNaN(displayX) || Double.isNaN(displayY)) {
+                continue;
+            }
+            x[n] = displayX;
+            y[n] = displayY;
+            itemIndices[n++] = i;
+        }
+        final int[] selected = new int[n];
+        final int selectedCount = sampler.downsample(x, y, n, plotWidth, selected);
+        final int[] sampledIndices = new int[selectedCount];
+        for (int i = 0; i < selectedCount; i++) {
+            sampledIndices[i] = itemIndices[selected[i]];
+        }
+
+        series.sampledIndices = sampledIndices;
+        series.samplingKey = key;
+        updateSampledSymbols(series, sampledIndices);
+        return sampledIndices;
+    }
+
+    /**
+     * Shows the symbols of the sampled items of the series and hides all others, or shows all symbols if the series
+     * is not downsampled.
+     */
+    private void updateSampledSymbols(Series<X,Y> series, int[] sampledIndices) {
+        int next = 0;
+        for (int i = 0, count = series.getDataSize(); i < count; i++) {
+            final boolean sampled = sampledIndices == null ||
+                    (next < sampledIndices.length && sampledIndices[next] == i);
+            if (sampled && sampledIndices != null) next++;
+            final Node symbol = series.getItem(i).getNode();
+            if (symbol != null) symbol.setVisible(sampled);
+        }
+    }
+
     // -------------- STYLESHEET HANDLING ------------------------------------------------------------------------------
 
     private static class StyleableProperties {
@@ -1352,7 +1560,12 @@ public abstract class XYChart<X,Y> extends Chart {
          * in any custom XYChart implementations. Some XYChart chart implementations such as LineChart also use this
          * to animate when data is added or removed.
          */
-        private ObjectProperty<X> currentX = new SimpleObjectProperty<X>(this, "currentX");
+        private ObjectProperty<X> currentX = new SimpleObjectProperty<X>(this, "currentX") {
+            @Override protected void invalidated() {
+                // the displayed position moved, so the downsampled indices of the series are stale
+                if (series != null) series.sampledIndices = null;
+            }
+        };
         final X getCurrentX() { return currentX.get(); }
         final void setCurrentX(X value) { currentX.set(value); }
         final ObjectProperty<X> currentXProperty() { return currentX; }
@@ -1363,7 +1576,11 @@ public abstract class XYChart<X,Y> extends Chart {
          * in any custom XYChart implementations. Some XYChart chart implementations such as LineChart also use this
          * to animate when data is added or removed.
          */
-        private ObjectProperty<Y> currentY = new SimpleObjectProperty<Y>(this, "currentY");
+        private ObjectProperty<Y> currentY = new SimpleObjectProperty<Y>(this, "currentY") {
+            @Override protected void invalidated() {
+                if (series != null) series.sampledIndices = null;
+            }
+        };
         final Y getCurrentY() { return currentY.get(); }
         final void setCurrentY(Y value) { currentY.set(value); }
         final ObjectProperty<Y> currentYProperty() { return currentY; }
@@ -1442,10 +1659,15 @@ public abstract class XYChart<X,Y> extends Chart {
 
         private List<Data<X, Y>> displayedData = new ArrayList<>();
 
+        /** The displayed items kept by the chart's downsampler and the state they were computed for */
+        int[] sampledIndices;
+        Object[] samplingKey;
+
         private final ListChangeListener<Data<X,Y>> dataChangeListener = new ListChangeListener<Data<X, Y>>() {
             @Override public void onChanged(Change<? extends Data<X, Y>> c) {
                 ObservableList<? extends Data<X, Y>> data = c.getList();
                 final XYChart<X, Y> chart = getChart();
+                sampledIndices = null;
                 while (c.next()) {
                     if (chart != null) {
                         // RT-25187 Probably a sort happened, just reorder the pointers and return.
@@ -1510,6 +1732,7 @@ public abstract class XYChart<X,Y> extends Chart {
         private final ReadOnlyObjectWrapper<XYChart<X,Y>> chart = new ReadOnlyObjectWrapper<XYChart<X,Y>>(this, "chart") {
             @Override
             protected void invalidated() {
+                sampledIndices = null;
                 if (get() == null) {
                     displayedData.clear();
                 } else {
@@ -1630,6 +1853,104 @@ public abstract class XYChart<X,Y> extends Chart {
             setName(name);
         }
 
+        // -------------- STREAMED DATA -----------------------------------------------
+
+        /** The streamed points, or null if this series is not streaming */
+        DataRingBuffer stream;
+
+        /**
+         * Sets the number of most recently appended points this series keeps for streaming, or 0 to stop
+         * streaming. Streamed points are appended with {@link #appendStreamData(double, double)} and are plotted
+         * by {@link LineChart} and {@link AreaChart} after the data items of this series, without creating
+         * {@link Data} items, symbols or animations. Streamed points are ignored by all other charts and by charts
+         * whose axes are not both {@link ValueAxis value axes}. Once the capacity is reached,
+         * every appended point replaces the oldest one. Setting the capacity discards all streamed points.
+         *
+         * @param capacity the maximum number of streamed points, or 0
+         * @throws IllegalArgumentException if capacity is negative
+         * @since JavaFX 8u151
+         */
+        public final void setStreamCapacity(int capacity) {
+            if (capacity < 0) {
+                throw new IllegalArgumentException("Stream capacity must not be negative: " + capacity);
+            }
+            stream = capacity == 0 ? null : new DataRingBuffer(capacity);
+            streamDataChanged();
+        }
+
+        /**
+         * Returns the maximum number of streamed points kept by this series, or 0 if it is not streaming.
+         *
+         * @since JavaFX 8u151
+         */
+        public final int getStreamCapacity() {
+            return stream == null ? 0 : stream.getCapacity();
+        }
+
+        /**
+         * Returns the number of streamed points currently kept by this series.
+         *
+         * @since JavaFX 8u151
+         */
+        public final int getStreamSize() {
+            return stream == null ? 0 : stream.size();
+        }
+
+        /**
+         * Appends a point to the streamed data of this series. Any number of points may be appended within a
+         * pulse; the chart is laid out once for all of them. This method must be called on the JavaFX
+         * Application Thread.
+         *
+         * @param x the value on the X axis
+         * @param y the value on the Y axis
+         * @throws IllegalStateException if the series is not streaming
+         * @since JavaFX 8u151
+         */
+        public final void appendStreamData(double x, double y) {
+            if (stream == null) {
+                throw new IllegalStateException("Series is not streaming, set a stream capacity first");
+            }
+            stream.add(x, y);
+            streamDataChanged();
+        }
+
+        /**
+         * Appends points to the streamed data of this series.
+         *
+         * @param x the values on the X axis
+         * @param y the values on the Y axis
+         * @param count the number of points to append from the start of the arrays
+         * @throws IllegalStateException if the series is not streaming
+         * @see #appendStreamData(double, double)
+         * @since JavaFX 8u151
+         */
+        public final void appendStreamData(double[] x, double[] y, int count) {
+            if (stream == null) {
+                throw new IllegalStateException("Series is not streaming, set a stream capacity first");
+            }
+            for (int i = 0; i < count; i++) {
+                stream.add(x[i], y[i]);
+            }
+            streamDataChanged();
+        }
+
+        /**
+         * Removes all streamed points from this series.
+         *
+         * @since JavaFX 8u151
+         */
+        public final void clearStreamData() {
+            if (stream != null) {
+                stream.clear();
+                streamDataChanged();
+            }
+        }
+
+        private void streamDataChanged() {
+            final XYChart<X, Y> chart = getChart();
+            if (chart != null) chart.streamDataChanged();
+        }
+
         // -------------- PUBLIC METHODS ----------------------------------------------
 
         /**
@@ -1649,6 +1970,7 @@ public abstract class XYChart<X,Y> extends Chart {
         private void removeDataItemRef(Data<X,Y> item) {
             if (item != null) item.setToRemove = false;
             displayedData.remove(item);
+            sampledIndices = null;
         }
 
         int getItemIndex(Data<X,Y> item) {
@@ -0,0 +1,427 @@
+/*
+ * Copyright (c) 2017, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package javafx.scene.control;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import javafx.application.Platform;
+import javafx.beans.InvalidationListener;
+import javafx.collections.ObservableList;
+
+import com.sun.javafx.collections.ObservableListWrapper;
+import com.sun.javafx.scene.control.Logging;
+import com.sun.javafx.scene.control.TableColumnComparatorBase;
+
+/**
+ * A package protected class used by the asynchronous sort policies of
+ * TableView and TreeTableView to sort one or more lists off the FX thread.
+ * <p>
+ * Each list is snapshotted on the FX thread. The cell values of every sort
+ * column are then extracted from the snapshot on a worker thread, as
+ * primitive keys where the column uses the default comparator on numbers,
+ * and the row indices are sorted by those keys with a stable, parallel merge
+ * sort. The resulting permutation is applied back to each list on the FX
+ * thread as a single permutation change. A sort that is cancelled stops at
+ * its next check and is never applied, and a list that changed while it was
+ * being sorted is left alone.
+ */
+final class BackgroundSort {
+
+    // package-private so that tests can run sorts synchronously
+    static Executor executor = Executors.newCachedThreadPool(r -> {
+        Thread thread = new Thread(r, "JavaFX Table Sort Thread");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // ranges of at most this many rows are sorted without forking
+    private static final int SEQUENTIAL_THRESHOLD = 1 << 13;
+
+    // ranges of at most this many rows are insertion sorted
+    private static final int INSERTION_THRESHOLD = 32;
+
+    private final List<Job<?>> jobs = new ArrayList<>();
+    private final Runnable beforeApply;
+    private final Runnable afterApply;
+    private volatile boolean cancelled;
+
+    BackgroundSort(Runnable beforeApply, Runnable afterApply) {
+        this.beforeApply = beforeApply;
+        this.afterApply = afterApply;
+    }
+
+    /**
+     * Adds a list to be sorted using the given comparator. Must be called on
+     * the FX thread, before {@link #start()}.
+     */
+    <S> void add(ObservableList<S> list, TableColumnComparatorBase<S,?> comparator) {
+        jobs.add(new Job<>(list, comparator));
+    }
+
+    void start() {
+        executor.execute(this::sort);
+    }
+
+    /**
+     * Cancels the sort. Must be called on the FX thread.
+     */
+    void cancel() {
+        cancelled = true;
+        dispose();
+    }
+
+    boolean isCancelled() {
+        return cancelled;
+    }
+
+    private void checkCancelled() {
+        if (cancelled) throw new CancellationException();
+    }
+
+    private void sort() {
+        try {
+            for (Job<?> job : jobs) {
+                job.sort();
+            }
+        } catch (CancellationException e) {
+            return;
+        } catch (RuntimeException e) {
+            // there is no UI state to back out of at this point, so all we
+            // can do is report the failure
+            Logging.getControlsLogger().warning("Background sort failed", e);
+            Platform.runLater(this::dispose);
+            return;
+        }
+        Platform.runLater(this::apply);
+    }
+
+    private void apply() {
+        if (cancelled) return;
+
+        dispose();
+        if (beforeApply != null) beforeApply.run();
+        for (Job<?> job : jobs) {
+            job.apply();
+        }
+        if (afterApply != null) afterApply.run();
+    }
+
+    private void dispose() {
+        for (Job<?> job : jobs) {
+            job.dispose();
+        }
+    }
+
+    private final class Job<S> {
+        private final ObservableList<S> list;
+        private final Object[] snapshot;
+        private final List<TableColumnBase<S,?>> columns = new ArrayList<>();
+        private final List<Comparator<Object>> comparators = new ArrayList<>();
+        private final int[] signs;
+        private int[] perm;
+
+        // set when the list changes after the snapshot was taken, so that
+        // checking whether the result still applies takes constant time
+        private boolean modified;
+        private final InvalidationListener modificationListener = o -> modified = true;
+
+        Job(ObservableList<S> list, TableColumnComparatorBase<S,?> comparator) {
+            this.list = list;
+            this.snapshot = list.toArray();
+            list.addListener(modificationListener);
+
+            addSortColumns(comparator);
+            this.signs = new int[columns.size()];
+            for (int c = 0; c < signs.length; c++) {
+                signs[c] = getDefaultComparatorSign(columns.get(c));
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        private <T> void addSortColumns(TableColumnComparatorBase<S,T> comparator) {
+            for (TableColumnBase<?,?> column : comparator.getColumns()) {
+                // the comparator only holds columns of its own row and cell
+                // value types, and the values it compares are only ever the
+                // cell values of the column
+                final TableColumnBase<S,T> tc = (TableColumnBase<S,T>) column;
+                if (! comparator.isSortable(tc)) continue;
+                columns.add(tc);
+                comparators.add((Comparator<Object>) comparator.getCellValueComparator(tc));
+            }
+        }
+
+        void sort() {
+            final int size = snapshot.length;
+            final Key[] keys = new Key[signs.length];
+            for (int c = 0; c < keys.length; c++) {
+                keys[c] = extractKey(columns.get(c), comparators.get(c), signs[c]);
+            }
+
+            final int[] order = new int[size];
+            for (int i = 0; i < size; i++) {
+                order[i] = i;
+            }
+            final int[] work = order.clone();
+            ForkJoinPool.commonPool().invoke(new SortTask(keys, work, order, 0, size));
+
+            perm = new int[size];
+            for (int i = 0; i < size; i++) {
+                perm[order[i]] = i;
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        private Key extractKey(TableColumnBase<S,?> column, Comparator<Object> comparator, int sign) {
+            final Object[] values = new Object[snapshot.length];
+            for (int i = 0; i < values.length; i++) {
+                if ((i & 0xFFF) == 0) checkCancelled();
+                values[i] = column.getCellData((S) snapshot[i]);
+            }
+
+            if (sign != 0) {
+                Key key = PrimitiveKey.of(values, sign);
+                if (key != null) return key;
+            }
+            return new ObjectKey(values, comparator);
+        }
+
+        @SuppressWarnings("unchecked")
+        void apply() {
+            // the list was modified while it was being sorted, so the result
+            // no longer applies to it
+            if (modified || list.size() != snapshot.length) return;
+
+            if (list instanceof ObservableListWrapper) {
+                ((ObservableListWrapper<S>) list).permute(perm);
+            } else {
+                Object[] sorted = new Object[snapshot.length];
+                for (int i = 0; i < snapshot.length; i++) {
+                    sorted[perm[i]] = snapshot[i];
+                }
+                list.setAll((List<S>) Arrays.asList(sorted));
+            }
+        }
+
+        void dispose() {
+            list.removeListener(modificationListener);
+        }
+    }
+
+    /**
+     * Returns 1 or -1 if the column sorts ascending or descending using the
+     * default comparator, whose ordering of numbers can be reproduced with
+     * primitive keys, and 0 otherwise.
+     */
+    private static int getDefaultComparatorSign(TableColumnBase<?,?> column) {
+        if (column.getComparator() != TableColumnBase.DEFAULT_COMPARATOR) return 0;
+
+        Object sortType = column instanceof TableColumn ? ((TableColumn<?,?>) column).getSortType() :
+                          column instanceof TreeTableColumn ? ((TreeTableColumn<?,?>) column).getSortType() :
+                          null;
+        if (sortType == TableColumn.SortType.ASCENDING || sortType == TreeTableColumn.SortType.ASCENDING) {
+            return 1;
+        } else if (sortType == TableColumn.SortType.DESCENDING || sortType == TreeTableColumn.SortType.DESCENDING) {
+            return -1;
+        }
+        return 0;
+    }
+
+    /**
+     * The extracted values of one sort column, compared by row index.
+     */
+    private static abstract class Key {
+        abstract int compare(int row1, int row2);
+    }
+
+    private static final class ObjectKey extends Key {
+        private final Object[] values;
+        private final Comparator<Object> comparator;
+
+        ObjectKey(Object[] values, Comparator<Object> comparator) {
+            this.values = values;
+            this.comparator = comparator;
+        }
+
+        @Override int compare(int row1, int row2) {
+            return comparator.compare(values[row1], values[row2]);
+        }
+    }
+
+    /**
+     * Keys for a column whose values are all integers of one type, or all
+     * floating point numbers of one type, compared as the default comparator
+     * compares them: nulls first, then by value.
+     */
+    private static final class PrimitiveKey extends Key {
+        private final long[] longs;
+        private final double[] doubles;
+        private final boolean[] nulls;
+        private final int sign;
+
+        private PrimitiveKey(long[] longs, double[] doubles, boolean[] nulls, int sign) {
+            this.longs = longs;
+            this.doubles = doubles;
+            this.nulls = nulls;
+            this.sign = sign;
+        }
+
+        static PrimitiveKey of(Object[] values, int sign) {
+            Class<?> type = null;
+            boolean hasNulls = false;
+            for (Object value : values) {
+                if (value == null) {
+                    hasNulls = true;
+                } else if (type == null) {
+                    type = value.getClass();
+                } else if (type != value.getClass()) {
+                    // the default comparator compares numbers of different
+                    // types as strings
+                    return null;
+                }
+            }
+
+            final boolean integral = type == Integer.class || type == Long.class
+                    || type == Short.class || type == Byte.class;
+            final boolean floating = type == Double.class || type == Float.class;
+            if (! integral && ! floating) return null;
+
+            final int n = values.length;
+            final long[] longs = integral ? new long[n] : null;
+            final double[] doubles = floating ? new double[n] : null;
+            final boolean[] nulls = hasNulls ? new boolean[n] : null;
+            for (int i = 0; i < n; i++) {
+                final Number value = (Number) values[i];
+                if (value == null) {
+                    nulls[i] = true;
+                } else if (integral) {
+                    longs[i] = value.longValue();
+                } else {
+                    doubles[i] = value.doubleValue();
+                }
+            }
+            return new PrimitiveKey(longs, doubles, nulls, sign);
+        }
+
+        @Override int compare(int row1, int row2) {
+            int result;
+            if (nulls != null && (nulls[row1] || nulls[row2])) {
+                result = nulls[row1] == nulls[row2] ? 0 : nulls[row1] ? -1 : 1;
+            } else if (longs != null) {
+                result = Long.compare(longs[row1], longs[row2]);
+            } else {
+                result = Double.compare(doubles[row1], doubles[row2]);
+            }
+            return sign * result;
+        }
+    }
+
+    /**
+     * A stable merge sort of row indices by their keys, which forks for
+     * large ranges. The sorted range ends up in dst; src must hold the same
+     * indices as dst on entry and is used as scratch space.
+     */
+    private final class SortTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final Key[] keys;
+        private final int[] src;
+        private final int[] dst;
+        private final int from;
+        private final int to;
+
+        SortTask(Key[] keys, int[] src, int[] dst, int from, int to) {
+            this.keys = keys;
+            this.src = src;
+            this.dst = dst;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override protected void compute() {
+            checkCancelled();
+            if (to - from <= SEQUENTIAL_THRESHOLD) {
+                mergeSort(src, dst, from, to);
+                return;
+            }
+            final int mid = (from + to) >>> 1;
+            // sort each half into src, then merge them into dst
+            invokeAll(new SortTask(keys, dst, src, from, mid),
+                      new SortTask(keys, dst, src, mid, to));
+            merge(src, dst, from, mid, to);
+        }
+
+        private void mergeSort(int[] src, int[] dst, int from, int to) {
+            if (to - from <= INSERTION_THRESHOLD) {
+                for (int i = from + 1; i < to; i++) {
+                    final int row = dst[i];
+                    int j = i - 1;
+                    while (j >= from && compare(dst[j], row) > 0) {
+                        dst[j + 1] = dst[j];
+                        j--;
+                    }
+                    dst[j + 1] = row;
+                }
+                return;
+            }
+            final int mid = (from + to) >>> 1;
+            mergeSort(dst, src, from, mid);
+            mergeSort(dst, src, mid, to);
+            merge(src, dst, from, mid, to);
+        }
+
+        private void merge(int[] src, int[] dst, int from, int mid, int to) {
+            if (compare(src[mid - 1], src[mid]) <= 0) {
+                System.arraycopy(src, from, dst, from, to - from);
+                return;
+            }
+            int i = from, j = mid;
+            for (int k = from; k < to; k++) {
+                // take from the right half only if strictly smaller, so that
+                // rows with equal keys keep their order
+                if (j >= to || (i < mid && compare(src[i], src[j]) <= 0)) {
+                    dst[k] = src[i++];
+                } else {
+                    dst[k] = src[j++];
+                }
+            }
+        }
+
+        private int compare(int row1, int row2) {
+            for (Key key : keys) {
+                int result = key.compare(row1, row2);
+                if (result != 0) return result;
+            }
+            return 0;
+        }
+    }
+}
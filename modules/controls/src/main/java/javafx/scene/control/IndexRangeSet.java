@@ -0,0 +1,371 @@
+/*
+ * Copyright (c) 2017, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package javafx.scene.control;
+
+import java.util.Arrays;
+
+/**
+ * A package protected set of non-negative indices, stored as sorted ranges
+ * that never overlap or touch. It is used in place of a BitSet for the
+ * selected indices of {@link MultipleSelectionModelBase}, as a selection is
+ * usually made of a few long ranges (after a shift-click or selectAll), which
+ * can then be counted, searched and shifted in time proportional to the number
+ * of ranges rather than the number of selected indices.
+ *
+ * <p>The methods are named after their {@link java.util.BitSet} equivalents.
+ */
+final class IndexRangeSet implements Cloneable {
+
+    // range i covers the indices from starts[i] (inclusive) to ends[i] (exclusive)
+    private int[] starts = new int[4];
+    private int[] ends = new int[4];
+    private int count;
+
+    private int cardinality;
+
+    // counts[i] is the number of indices in the ranges before range i, or
+    // null if the ranges changed since it was last computed
+    private int[] counts;
+
+    /**
+     * Returns the number of ranges in this set.
+     */
+    int getRangeCount() {
+        return count;
+    }
+
+    boolean get(int index) {
+        if (index < 0) {
+            throw new IndexOutOfBoundsException("index < 0: " + index);
+        }
+        final int r = lastRangeStartingBefore(index + 1);
+        return r >= 0 && index < ends[r];
+    }
+
+    void set(int index) {
+        set(index, index + 1);
+    }
+
+    void set(int index, boolean value) {
+        if (value) {
+            set(index);
+        } else {
+            clear(index);
+        }
+    }
+
+    void set(int fromIndex, int toIndex, boolean value) {
+        if (value) {
+            set(fromIndex, toIndex);
+        } else {
+            clear(fromIndex, toIndex);
+        }
+    }
+
+    /**
+     * Adds the indices from fromIndex (inclusive) to toIndex (exclusive).
+     */
+    void set(int fromIndex, int toIndex) {
+        checkRange(fromIndex, toIndex);
+        if (fromIndex == toIndex) return;
+
+        // the ranges overlapping or touching the new range are merged into it
+        final int first = firstRangeEndingAfter(fromIndex - 1);
+        final int last = lastRangeStartingBefore(toIndex + 1);
+
+        int start = fromIndex;
+        int end = toIndex;
+        if (first <= last) {
+            start = Math.min(start, starts[first]);
+            end = Math.max(end, ends[last]);
+            cardinality -= lengthOf(first, last + 1);
+        }
+        splice(first, last + 1, 1);
+        starts[first] = start;
+        ends[first] = end;
+        cardinality += end - start;
+    }
+
+    void clear(int index) {
+        clear(index, index + 1);
+    }
+
+    /**
+     * Removes the indices from fromIndex (inclusive) to toIndex (exclusive).
+     */
+    void clear(int fromIndex, int toIndex) {
+        checkRange(fromIndex, toIndex);
+        if (fromIndex == toIndex) return;
+
+        final int first = firstRangeEndingAfter(fromIndex);
+        final int last = lastRangeStartingBefore(toIndex);
+        if (first > last) return;
+
+        // the parts of the first and last ranges outside of the cleared range remain
+        final int leftStart = starts[first];
+        final int rightEnd = ends[last];
+        final boolean hasLeft = leftStart < fromIndex;
+        final boolean hasRight = rightEnd > toIndex;
+
+        cardinality -= lengthOf(first, last + 1);
+        splice(first, last + 1, (hasLeft ? 1 : 0) + (hasRight ? 1 : 0));
+
+        int r = first;
+        if (hasLeft) {
+            starts[r] = leftStart;
+            ends[r] = fromIndex;
+            cardinality += fromIndex - leftStart;
+            r++;
+        }
+        if (hasRight) {
+            starts[r] = toIndex;
+            ends[r] = rightEnd;
+            cardinality += rightEnd - toIndex;
+        }
+    }
+
+    void clear() {
+        count = 0;
+        cardinality = 0;
+        counts = null;
+    }
+
+    boolean isEmpty() {
+        return count == 0;
+    }
+
+    int cardinality() {
+        return cardinality;
+    }
+
+    /**
+     * Returns the highest index in this set plus one, or 0 if it is empty.
+     */
+    int length() {
+        return count == 0 ? 0 : ends[count - 1];
+    }
+
+    int nextSetBit(int fromIndex) {
+        if (fromIndex < 0) {
+            throw new IndexOutOfBoundsException("fromIndex < 0: " + fromIndex);
+        }
+        final int r = firstRangeEndingAfter(fromIndex);
+        return r == count ? -1 : Math.max(fromIndex, starts[r]);
+    }
+
+    int nextClearBit(int fromIndex) {
+        if (fromIndex < 0) {
+            throw new IndexOutOfBoundsException("fromIndex < 0: " + fromIndex);
+        }
+        final int r = lastRangeStartingBefore(fromIndex + 1);
+        return r >= 0 && fromIndex < ends[r] ? ends[r] : fromIndex;
+    }
+
+    int previousSetBit(int fromIndex) {
+        if (fromIndex < 0) {
+            if (fromIndex == -1) return -1;
+            throw new IndexOutOfBoundsException("fromIndex < -1: " + fromIndex);
+        }
+        final int r = lastRangeStartingBefore(fromIndex + 1);
+        return r < 0 ? -1 : Math.min(fromIndex, ends[r] - 1);
+    }
+
+    /**
+     * Returns the number of indices in this set that are lower than the given
+     * index, which is the position of the index in the sorted set if it is
+     * contained in it.
+     */
+    int rank(int index) {
+        final int r = lastRangeStartingBefore(index);
+        if (r < 0) return 0;
+        return getCounts()[r] + Math.min(index, ends[r]) - starts[r];
+    }
+
+    /**
+     * Returns the index at the given position in the sorted set, or -1 if the
+     * position is out of bounds.
+     */
+    int select(int position) {
+        if (position < 0 || position >= cardinality) return -1;
+
+        final int[] counts = getCounts();
+        int r = Arrays.binarySearch(counts, 0, count, position);
+        if (r < 0) r = -r - 2;
+        return starts[r] + position - counts[r];
+    }
+
+    /**
+     * Moves the indices from position upwards by the given length, leaving the
+     * indices from position to position + length clear, as when items are
+     * inserted into the model.
+     */
+    void insert(int position, int length) {
+        if (length <= 0) return;
+
+        int r = firstRangeEndingAfter(position);
+        if (r == count) return;
+
+        if (starts[r] < position) {
+            // the range containing the position is split in two
+            splice(r + 1, r + 1, 1);
+            starts[r + 1] = position;
+            ends[r + 1] = ends[r];
+            ends[r] = position;
+            r++;
+        }
+        for (int i = r; i < count; i++) {
+            starts[i] += length;
+            ends[i] += length;
+        }
+        counts = null;
+    }
+
+    /**
+     * Removes the indices from fromIndex (inclusive) to toIndex (exclusive),
+     * and moves the indices above them downwards to close the gap, as when
+     * items are removed from the model.
+     */
+    void remove(int fromIndex, int toIndex) {
+        clear(fromIndex, toIndex);
+
+        final int length = toIndex - fromIndex;
+        if (length == 0) return;
+
+        final int r = lastRangeStartingBefore(toIndex) + 1;
+        for (int i = r; i < count; i++) {
+            starts[i] -= length;
+            ends[i] -= length;
+        }
+        if (r > 0 && r < count && ends[r - 1] == starts[r]) {
+            ends[r - 1] = ends[r];
+            splice(r, r + 1, 0);
+        }
+        counts = null;
+    }
+
+    @Override public IndexRangeSet clone() {
+        try {
+            IndexRangeSet copy = (IndexRangeSet) super.clone();
+            copy.starts = Arrays.copyOf(starts, Math.max(count, 1));
+            copy.ends = Arrays.copyOf(ends, Math.max(count, 1));
+            copy.counts = null;
+            return copy;
+        } catch (CloneNotSupportedException e) {
+            throw new InternalError(e);
+        }
+    }
+
+    @Override public String toString() {
+        StringBuilder sb = new StringBuilder("[");
+        for (int i = 0; i < count; i++) {
+            if (i > 0) sb.append(", ");
+            sb.append(starts[i]).append('-').append(ends[i] - 1);
+        }
+        return sb.append(']').toString();
+    }
+
+
+
+    /***************************************************************************
+     *                                                                         *
+     * Private implementation                                                  *
+     *                                                                         *
+     **************************************************************************/
+
+    private static void checkRange(int fromIndex, int toIndex) {
+        if (fromIndex < 0) {
+            throw new IndexOutOfBoundsException("fromIndex < 0: " + fromIndex);
+        }
+        if (fromIndex > toIndex) {
+            throw new IndexOutOfBoundsException("fromIndex: " + fromIndex + " > toIndex: " + toIndex);
+        }
+    }
+
+    // the first range with ends[r] > index, or count if there is none
+    private int firstRangeEndingAfter(int index) {
+        int low = 0;
+        int high = count;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (ends[mid] > index) {
+                high = mid;
+            } else {
+                low = mid + 1;
+            }
+        }
+        return low;
+    }
+
+    // the last range with starts[r] < index, or -1 if there is none
+    private int lastRangeStartingBefore(int index) {
+        int low = 0;
+        int high = count;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (starts[mid] < index) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low - 1;
+    }
+
+    private int lengthOf(int from, int to) {
+        int length = 0;
+        for (int i = from; i < to; i++) {
+            length += ends[i] - starts[i];
+        }
+        return length;
+    }
+
+    // replaces the ranges from (inclusive) to to (exclusive) with n ranges
+    // whose bounds are set by the caller
+    private void splice(int from, int to, int n) {
+        final int newCount = count - (to - from) + n;
+        if (newCount > starts.length) {
+            final int capacity = Math.max(newCount, starts.length * 2);
+            starts = Arrays.copyOf(starts, capacity);
+            ends = Arrays.copyOf(ends, capacity);
+        }
+        System.arraycopy(starts, to, starts, from + n, count - to);
+        System.arraycopy(ends, to, ends, from + n, count - to);
+        count = newCount;
+        counts = null;
+    }
+
+    private int[] getCounts() {
+        if (counts == null) {
+            counts = new int[count];
+            int total = 0;
+            for (int i = 0; i < count; i++) {
+                counts[i] = total;
+                total += ends[i] - starts[i];
+            }
+        }
+        return counts;
+    }
+}
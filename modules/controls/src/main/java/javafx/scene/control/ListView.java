@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2010, 2015, Oracle and/or its affiliates. All rights reserved.
+ * Copyright (c) 2010, 2017, Oracle and/or its affiliates. All rights reserved.
  * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
  *
  * This code is free software; you can redistribute it and/or modify it
@@ -1397,6 +1397,11 @@ public class ListView<T> extends Control {
             ListCellBehavior.setAnchor(listView, anchor, false);
         }
 
+        /** {@inheritDoc} */
+        @Override public void selectRange(int start, int end) {
+            selectIndexRange(start, end);
+        }
+
         /** {@inheritDoc} */
         @Override public void clearAndSelect(int row) {
             ListCellBehavior.setAnchor(listView, row, false);
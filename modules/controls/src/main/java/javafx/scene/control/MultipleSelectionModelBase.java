@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2010, 2016, Oracle and/or its affiliates. All rights reserved.
+ * Copyright (c) 2010, 2017, Oracle and/or its affiliates. All rights reserved.
  * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
  *
  * This code is free software; you can redistribute it and/or modify it
@@ -31,7 +31,6 @@ import static javafx.scene.control.SelectionMode.SINGLE;
 
 import java.util.AbstractList;
 import java.util.ArrayList;
-import java.util.BitSet;
 import java.util.Collections;
 import java.util.List;
 
@@ -67,9 +66,9 @@ abstract class MultipleSelectionModelBase<T> extends MultipleSelectionModel<T> {
             setSelectedItem(getModelItem(getSelectedIndex()));
         });
 
-        selectedIndices = new BitSet();
+        selectedIndices = new IndexRangeSet();
 
-        selectedIndicesSeq = new BitSetReadOnlyUnbackedObservableList(selectedIndices);
+        selectedIndicesSeq = new IndexRangeSetReadOnlyUnbackedObservableList(selectedIndices);
 
         final MappingChange.Map<Integer,T> map = f -> getModelItem(f);
 
@@ -145,8 +144,8 @@ abstract class MultipleSelectionModelBase<T> extends MultipleSelectionModel<T> {
      */
 
 
-    final BitSet selectedIndices;
-    final BitSetReadOnlyUnbackedObservableList selectedIndicesSeq;
+    final IndexRangeSet selectedIndices;
+    final IndexRangeSetReadOnlyUnbackedObservableList selectedIndicesSeq;
     @Override public ObservableList<Integer> getSelectedIndices() {
         return selectedIndicesSeq;
     }
@@ -236,50 +235,83 @@ abstract class MultipleSelectionModelBase<T> extends MultipleSelectionModel<T> {
         if (position < 0) return;
         if (shift == 0) return;
 
-        int selectedIndicesCardinality = selectedIndices.cardinality(); // number of true bits
+        int selectedIndicesCardinality = selectedIndices.cardinality(); // number of selected indices
         if (selectedIndicesCardinality == 0) return;
 
-        int selectedIndicesSize = selectedIndices.size();   // number of bits reserved
+        ListChangeListener.Change<Integer> permutationChange;
+        boolean hasPermutated;
 
-        int[] perm = new int[selectedIndicesSize];
-        int idx = 0;
-        boolean hasPermutated = false;
+        if (callback == null) {
+            // without a callback the selected ranges are moved as a whole,
+            // in O(ranges) rather than index by index.
+            final IndexRangeSet oldIndices = selectedIndices.clone();
 
-        if (shift > 0) {
-            for (int i = selectedIndicesSize - 1; i >= position && i >= 0; i--) {
-                boolean selected = selectedIndices.get(i);
+            if (shift > 0) {
+                hasPermutated = selectedIndices.nextSetBit(position) >= 0;
+                selectedIndices.insert(position, shift);
 
-                if (callback == null) {
-                    selectedIndices.clear(i);
-                    selectedIndices.set(i + shift, selected);
-                } else {
+                // the moved indices, highest first
+                final int movedCount = selectedIndicesCardinality - oldIndices.rank(position);
+                permutationChange = new LazyPermutationChange(0, selectedIndicesCardinality, selectedIndicesSeq) {
+                    @Override int permutation(int i) {
+                        return i < movedCount ? oldIndices.select(selectedIndicesCardinality - 1 - i) + 1 : 0;
+                    }
+                };
+            } else {
+                // as with the index by index shift, index 0 is never moved
+                // over, even when the shift starts at position 0
+                final int from = Math.max(1, position);
+                final int firstMoved = from - shift;
+                hasPermutated = selectedIndices.nextSetBit(firstMoved) >= 0;
+                selectedIndices.remove(from, firstMoved);
+
+                // the moved indices, lowest first
+                final int firstMovedRank = oldIndices.rank(firstMoved);
+                permutationChange = new LazyPermutationChange(0, selectedIndicesCardinality, selectedIndicesSeq) {
+                    @Override int permutation(int i) {
+                        return i < selectedIndicesCardinality - firstMovedRank ? oldIndices.select(firstMovedRank + i) - 1 : 0;
+                    }
+                };
+            }
+        } else {
+            // the callback is called for every index that is moved, and may
+            // itself change the selected indices as it goes
+            int selectedIndicesSize = selectedIndices.length() + 1;
+
+            int[] perm = new int[selectedIndicesSize];
+            int idx = 0;
+            hasPermutated = false;
+
+            if (shift > 0) {
+                for (int i = selectedIndicesSize - 1; i >= position && i >= 0; i--) {
+                    boolean selected = selectedIndices.get(i);
                     callback.call(new ShiftParams(i, i + shift, selected));
-                }
 
-                if (selected) {
-                    perm[idx++] = i + 1;
-                    hasPermutated = true;
+                    if (selected) {
+                        perm[idx++] = i + 1;
+                        hasPermutated = true;
+                    }
                 }
-            }
-            selectedIndices.clear(position);
-        } else if (shift < 0) {
-            for (int i = position; i < selectedIndicesSize; i++) {
-                if ((i + shift) < 0) continue;
-                if ((i + 1 + shift) < position) continue;
-                boolean selected = selectedIndices.get(i + 1);
-
-                if (callback == null) {
-                    selectedIndices.clear(i + 1);
-                    selectedIndices.set(i + 1 + shift, selected);
-                } else {
+                selectedIndices.clear(position);
+            } else if (shift < 0) {
+                for (int i = position; i < selectedIndicesSize; i++) {
+                    if ((i + shift) < 0) continue;
+                    if ((i + 1 + shift) < position) continue;
+                    boolean selected = selectedIndices.get(i + 1);
                     callback.call(new ShiftParams(i + 1, i + 1 + shift, selected));
-                }
 
-                if (selected) {
-                    perm[idx++] = i;
-                    hasPermutated = true;
+                    if (selected) {
+                        perm[idx++] = i;
+                        hasPermutated = true;
+                    }
                 }
             }
+
+            permutationChange = new NonIterableChange.SimplePermutationChange<Integer>(
+                    0,
+                    selectedIndicesCardinality,
+                    perm,
+                    selectedIndicesSeq);
         }
 
         // This ensure that the selection remains accurate when a shift occurs.
@@ -308,12 +340,7 @@ abstract class MultipleSelectionModelBase<T> extends MultipleSelectionModel<T> {
         }
 
         if (hasPermutated) {
-            selectedIndicesSeq.callObservers(
-                new NonIterableChange.SimplePermutationChange<Integer>(
-                        0,
-                        selectedIndicesCardinality,
-                        perm,
-                        selectedIndicesSeq));
+            selectedIndicesSeq.callObservers(permutationChange);
         }
     }
 
@@ -338,10 +365,9 @@ abstract class MultipleSelectionModelBase<T> extends MultipleSelectionModel<T> {
         // firstly we make a copy of the selection, so that we can send out
         // the correct details in the selection change event.
         // We remove the new selection from the list seeing as it is not removed.
-        BitSet selectedIndicesCopy = new BitSet();
-        selectedIndicesCopy.or(selectedIndices);
+        IndexRangeSet selectedIndicesCopy = selectedIndices.clone();
         selectedIndicesCopy.clear(row);
-        List<Integer> previousSelectedIndices = new BitSetReadOnlyUnbackedObservableList(selectedIndicesCopy);
+        List<Integer> previousSelectedIndices = new IndexRangeSetReadOnlyUnbackedObservableList(selectedIndicesCopy);
 
         // RT-32411 We used to call quietClearSelection() here, but this
         // resulted in the selectedItems and selectedIndices lists never
@@ -530,6 +556,46 @@ abstract class MultipleSelectionModelBase<T> extends MultipleSelectionModel<T> {
         }
     }
 
+    /**
+     * Selects the indices from start (inclusive) to end (exclusive), with the
+     * same semantics as {@link #selectRange(int, int)}. Rather than selecting
+     * the indices one by one, the range is added to the selected indices as a
+     * whole and reported as a single change.
+     */
+    void selectIndexRange(final int start, final int end) {
+        if (getSelectionMode() == SINGLE || Math.abs(end - start) < 2) {
+            super.selectRange(start, end);
+            return;
+        }
+
+        final boolean asc = start < end;
+        final int rowCount = getItemCount();
+        final int low = Math.max(0, asc ? start : end + 1);
+        final int high = Math.min(rowCount, asc ? end : start + 1);
+
+        if (low >= high) {
+            selectedIndicesSeq.callObservers(createRangeChange(selectedIndicesSeq, Collections.<Integer>emptyList(), false));
+            return;
+        }
+
+        final int firstAddedIndex = selectedIndices.nextClearBit(low);
+        final int addedCount = (high - low) - (selectedIndices.rank(high) - selectedIndices.rank(low));
+        selectedIndices.set(low, high);
+
+        // the selected index is the last one in the order the range was given
+        final int lastIndex = asc ? high - 1 : low;
+        setSelectedIndex(lastIndex);
+        focus(lastIndex);
+        setSelectedItem(getModelItem(lastIndex));
+
+        if (addedCount == 0) {
+            selectedIndicesSeq.callObservers(createRangeChange(selectedIndicesSeq, Collections.<Integer>emptyList(), false));
+        } else {
+            final int changeIndex = selectedIndices.rank(firstAddedIndex);
+            selectedIndicesSeq.callObservers(new NonIterableChange.SimpleAddChange<>(changeIndex, changeIndex + addedCount, selectedIndicesSeq));
+        }
+    }
+
     static Change<Integer> createRangeChange(final ObservableList<Integer> list, final List<Integer> addedItems, boolean splitChanges) {
         Change<Integer> change = new Change<Integer>(list) {
             private final int[] EMPTY_PERM = new int[0];
@@ -674,7 +740,7 @@ abstract class MultipleSelectionModelBase<T> extends MultipleSelectionModel<T> {
     }
 
     @Override public void clearSelection() {
-        List<Integer> removed = new BitSetReadOnlyUnbackedObservableList((BitSet) selectedIndices.clone());
+        List<Integer> removed = new IndexRangeSetReadOnlyUnbackedObservableList(selectedIndices.clone());
 
         quietClearSelection();
 
@@ -746,14 +812,45 @@ abstract class MultipleSelectionModelBase<T> extends MultipleSelectionModel<T> {
      *                                                                     *
      **********************************************************************/
 
-    class BitSetReadOnlyUnbackedObservableList extends ReadOnlyUnbackedObservableList<Integer> {
-        private final BitSet bitset;
+    // A permutation of the selected indices that is only worked out for the
+    // positions that are actually read
+    private static abstract class LazyPermutationChange extends NonIterableChange<Integer> {
+        LazyPermutationChange(int from, int to, ObservableList<Integer> list) {
+            super(from, to, list);
+        }
+
+        abstract int permutation(int i);
+
+        @Override public boolean wasPermutated() {
+            checkState();
+            return true;
+        }
+
+        @Override public int getPermutation(int i) {
+            checkState();
+            return permutation(i - getFrom());
+        }
+
+        @Override protected int[] getPermutation() {
+            checkState();
+            int[] perm = new int[getTo() - getFrom()];
+            for (int i = 0; i < perm.length; i++) {
+                perm[i] = permutation(i);
+            }
+            return perm;
+        }
+
+        @Override public List<Integer> getRemoved() {
+            checkState();
+            return Collections.emptyList();
+        }
+    }
 
-        private int lastGetIndex = -1;
-        private int lastGetValue = -1;
+    class IndexRangeSetReadOnlyUnbackedObservableList extends ReadOnlyUnbackedObservableList<Integer> {
+        private final IndexRangeSet indices;
 
-        public BitSetReadOnlyUnbackedObservableList(BitSet bitset) {
-            this.bitset = bitset;
+        public IndexRangeSetReadOnlyUnbackedObservableList(IndexRangeSet indices) {
+            this.indices = indices;
         }
 
         @Override public Integer get(int index) {
@@ -762,33 +859,13 @@ abstract class MultipleSelectionModelBase<T> extends MultipleSelectionModel<T> {
                 return -1;
             }
 
-            if (index == (lastGetIndex + 1) && lastGetValue < itemCount) {
-                // we're iterating forward in order, short circuit for
-                // performance reasons (RT-39776)
-                lastGetIndex++;
-                lastGetValue = bitset.nextSetBit(lastGetValue + 1);
-                return lastGetValue;
-            } else if (index == (lastGetIndex - 1) && lastGetValue > 0) {
-                // we're iterating backward in order, short circuit for
-                // performance reasons (RT-39776)
-                lastGetIndex--;
-                lastGetValue = bitset.previousSetBit(lastGetValue - 1);
-                return lastGetValue;
-            } else {
-                for (lastGetIndex = 0, lastGetValue = bitset.nextSetBit(0);
-                     lastGetValue >= 0 || lastGetIndex == index;
-                     lastGetIndex++, lastGetValue = bitset.nextSetBit(lastGetValue + 1)) {
-                    if (lastGetIndex == index) {
-                        return lastGetValue;
-                    }
-                }
-            }
-
-            return -1;
+            // the position is found by a binary search over the ranges, so
+            // there is no need to special-case iteration in order (RT-39776)
+            return indices.select(index);
         }
 
         @Override public int size() {
-            return bitset.cardinality();
+            return indices.cardinality();
         }
 
         @Override public boolean contains(Object o) {
@@ -796,16 +873,19 @@ abstract class MultipleSelectionModelBase<T> extends MultipleSelectionModel<T> {
                 Number n = (Number) o;
                 int index = n.intValue();
 
-                return index >= 0 && index < bitset.length() &&
-                        bitset.get(index);
+                return index >= 0 && index < indices.length() &&
+                        indices.get(index);
             }
 
             return false;
         }
 
-        public void reset() {
-            this.lastGetIndex = -1;
-            this.lastGetValue = -1;
+        @Override public int indexOf(Object o) {
+            return contains(o) ? indices.rank(((Number) o).intValue()) : -1;
+        }
+
+        @Override public int lastIndexOf(Object o) {
+            return indexOf(o);
         }
     }
 }
@@ -0,0 +1,427 @@
+/*
+ * Copyright (c) 2017, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package javafx.scene.control;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.SoftReference;
+import java.lang.ref.WeakReference;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import javafx.application.Platform;
+import javafx.beans.property.IntegerProperty;
+import javafx.beans.property.ReadOnlyBooleanProperty;
+import javafx.beans.property.ReadOnlyBooleanWrapper;
+import javafx.beans.property.SimpleIntegerProperty;
+import javafx.scene.Node;
+import javafx.scene.layout.Region;
+
+import com.sun.javafx.scene.control.Logging;
+
+/**
+ * TreeItem subclass that loads its children lazily, in pages, on a background
+ * thread. This is useful for trees that are too large to be built up front,
+ * such as file system or directory browsers.
+ *
+ * <p>The first page of children is requested from the {@link PageLoader} when
+ * the PagedTreeItem is first expanded, and further pages are requested by
+ * calling {@link #loadNextPage()} (for example when the last loaded child is
+ * scrolled into view). While a page is loading a placeholder TreeItem is shown
+ * as the last child, and each page is added to the children list as a single
+ * change once it has loaded. Because pages are only ever added to the end of
+ * the children list, the selection and focus of TreeView and TreeTableView are
+ * kept on the same tree items as pages are loaded.
+ *
+ * <p>When a PagedTreeItem is collapsed its children are kept, so that expanding
+ * it again shows them without reloading. While it is collapsed the children
+ * are only softly held: once the garbage collector clears a soft reference
+ * kept for them, the children are removed so that they can be reclaimed, and
+ * they are loaded again, starting from the first page, when the PagedTreeItem
+ * is next expanded. The virtual machine clears soft references before it runs
+ * out of memory, but may also clear them earlier, for example once they have
+ * not been used for some time, so the children of an item that stays
+ * collapsed may be reloaded even when memory is plentiful.
+ *
+ * <p>A simple example of a lazily loaded directory tree is shown below:
+ *
+ * <pre><code>
+ * PagedTreeItem.PageLoader&lt;Path&gt; loader = new PagedTreeItem.PageLoader&lt;Path&gt;() {
+ *     &#064;Override public List&lt;TreeItem&lt;Path&gt;&gt; loadPage(Path dir, int from, int count) throws Exception {
+ *         try (Stream&lt;Path&gt; files = Files.list(dir)) {
+ *             return files.sorted().skip(from).limit(count)
+ *                 .map(p -&gt; Files.isDirectory(p) ? new PagedTreeItem&lt;&gt;(p, this) : new TreeItem&lt;&gt;(p))
+ *                 .collect(Collectors.toList());
+ *         }
+ *     }
+ * };
+ * TreeView&lt;Path&gt; treeView = new TreeView&lt;&gt;(new PagedTreeItem&lt;&gt;(Paths.get("/"), loader));</code></pre>
+ *
+ * @param <T> The type of the value contained within the TreeItem.
+ * @see TreeItem
+ * @since JavaFX 8u151
+ */
+public class PagedTreeItem<T> extends TreeItem<T> {
+
+    /**
+     * Loads the children of a {@link PagedTreeItem}, one page at a time.
+     *
+     * @param <T> The type of the value contained within the TreeItem.
+     * @since JavaFX 8u151
+     */
+    @FunctionalInterface
+    public interface PageLoader<T> {
+        /**
+         * Loads up to {@code count} children of the tree item with the given
+         * value, starting with the child at index {@code from}. This method is
+         * called on a background thread, and so must not access the scene
+         * graph. Returning fewer than {@code count} children indicates that
+         * there are no more children to load.
+         *
+         * @param value The value of the PagedTreeItem whose children are loaded.
+         * @param from The index of the first child to load.
+         * @param count The maximum number of children to load.
+         * @return The loaded children, which must not be null.
+         * @throws Exception if the children could not be loaded.
+         */
+        public List<TreeItem<T>> loadPage(T value, int from, int count) throws Exception;
+    }
+
+    // package-private so that tests can load pages synchronously
+    static Executor executor = Executors.newCachedThreadPool(r -> {
+        Thread thread = new Thread(r, "JavaFX Tree Page Loader");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private static final int DEFAULT_PAGE_SIZE = 100;
+
+    // soft references that are enqueued here once the garbage collector has
+    // cleared them, each of which evicts the children of a collapsed item
+    private static final ReferenceQueue<Object> memoryPressure = new ReferenceQueue<>();
+    private static Thread evictionThread;
+
+    private static synchronized void startEvictionThread() {
+        if (evictionThread != null) return;
+        evictionThread = new Thread(() -> {
+            while (true) {
+                try {
+                    ((EvictionTrigger) memoryPressure.remove()).fire();
+                } catch (InterruptedException e) {
+                    // keep waiting
+                }
+            }
+        }, "JavaFX Tree Item Evictor");
+        evictionThread.setDaemon(true);
+        evictionThread.start();
+    }
+
+
+    /***************************************************************************
+     *                                                                         *
+     * Constructors                                                            *
+     *                                                                         *
+     **************************************************************************/
+
+    /**
+     * Creates a PagedTreeItem with the value property set to the provided
+     * object, which loads its children using the given loader.
+     *
+     * @param value The object to be stored as the value of this TreeItem.
+     * @param loader The loader used to load the children of this TreeItem.
+     */
+    public PagedTreeItem(T value, PageLoader<T> loader) {
+        this(value, null, loader);
+    }
+
+    /**
+     * Creates a PagedTreeItem with the value property set to the provided
+     * object and the graphic set to the provided Node, which loads its children
+     * using the given loader.
+     *
+     * @param value The object to be stored as the value of this TreeItem.
+     * @param graphic The Node to show in the TreeView next to this TreeItem.
+     * @param loader The loader used to load the children of this TreeItem.
+     */
+    public PagedTreeItem(T value, Node graphic, PageLoader<T> loader) {
+        super(value, graphic);
+        if (loader == null) {
+            throw new NullPointerException("loader can not be null");
+        }
+        this.loader = loader;
+
+        expandedProperty().addListener(o -> {
+            if (isExpanded()) {
+                restoreChildren();
+            } else {
+                collapsed();
+            }
+        });
+    }
+
+
+
+    /***************************************************************************
+     *                                                                         *
+     * Instance Variables                                                      *
+     *                                                                         *
+     **************************************************************************/
+
+    private final PageLoader<T> loader;
+
+    // the number of children loaded so far, not counting the placeholder
+    private int loadedCount = 0;
+    private boolean loadedAll = false;
+
+    // incremented whenever pending loads must be ignored when they complete
+    private int generation = 0;
+
+    // true if a load was abandoned because this TreeItem was collapsed, and
+    // so should be restarted when it is expanded again
+    private boolean resumeLoading = false;
+
+    private TreeItem<T> placeholder;
+
+    // armed while this TreeItem is collapsed and has children
+    private EvictionTrigger evictionTrigger;
+
+
+
+    /***************************************************************************
+     *                                                                         *
+     * Properties                                                              *
+     *                                                                         *
+     **************************************************************************/
+
+    // --- Page Size
+    private final IntegerProperty pageSize = new SimpleIntegerProperty(this, "pageSize", DEFAULT_PAGE_SIZE);
+
+    /**
+     * The maximum number of children requested from the {@link PageLoader}
+     * at a time. Defaults to 100.
+     */
+    public final IntegerProperty pageSizeProperty() { return pageSize; }
+    public final void setPageSize(int value) { pageSize.set(value); }
+    public final int getPageSize() { return pageSize.get(); }
+
+
+    // --- Loading
+    private final ReadOnlyBooleanWrapper loading = new ReadOnlyBooleanWrapper(this, "loading", false);
+
+    /**
+     * Indicates whether a page of children is currently being loaded.
+     */
+    public final ReadOnlyBooleanProperty loadingProperty() { return loading.getReadOnlyProperty(); }
+    public final boolean isLoading() { return loading.get(); }
+
+
+    /**
+     * Returns true once all children of this TreeItem have been loaded.
+     *
+     * @return true if there are no more pages of children to load.
+     */
+    public final boolean isFullyLoaded() {
+        return loadedAll;
+    }
+
+
+
+    /***************************************************************************
+     *                                                                         *
+     * Public API                                                              *
+     *                                                                         *
+     **************************************************************************/
+
+    /**
+     * A PagedTreeItem is only a leaf once all its children have been loaded
+     * and it turned out to have none.
+     */
+    @Override public boolean isLeaf() {
+        return loadedAll && loadedCount == 0;
+    }
+
+    /**
+     * Starts loading the next page of children in the background, unless a
+     * page is already being loaded or all children have been loaded.
+     */
+    public void loadNextPage() {
+        if (isLoading() || loadedAll) return;
+
+        final int gen = generation;
+        final int from = loadedCount;
+        final int count = Math.max(1, getPageSize());
+        final T value = getValue();
+
+        loading.set(true);
+        resumeLoading = false;
+        if (placeholder == null) {
+            placeholder = createPlaceholder();
+        }
+        if (placeholder != null) {
+            getChildren().add(placeholder);
+        }
+
+        executor.execute(() -> {
+            List<TreeItem<T>> page = null;
+            try {
+                page = loader.loadPage(value, from, count);
+            } catch (Exception e) {
+                Logging.getControlsLogger().warning("Failed to load tree items", e);
+            }
+            final List<TreeItem<T>> result = page;
+            Platform.runLater(() -> pageLoaded(gen, count, result));
+        });
+    }
+
+    /**
+     * Discards all loaded children. They are loaded again, starting from the
+     * first page, when this TreeItem is next expanded (or immediately if it is
+     * currently expanded).
+     */
+    public void reload() {
+        cancelLoading();
+        evictionTrigger = null;
+        loadedCount = 0;
+        loadedAll = false;
+        getChildren().clear();
+        if (isExpanded()) {
+            loadNextPage();
+        }
+    }
+
+    /**
+     * Creates the TreeItem that is shown as the last child while a page of
+     * children is loading. By default this is a TreeItem with no value, showing
+     * an indeterminate {@link ProgressIndicator}. Subclasses may return null
+     * if no placeholder should be shown.
+     *
+     * @return The placeholder TreeItem, or null.
+     */
+    protected TreeItem<T> createPlaceholder() {
+        ProgressIndicator indicator = new ProgressIndicator();
+        indicator.setMaxSize(Region.USE_PREF_SIZE, Region.USE_PREF_SIZE);
+        return new TreeItem<>(null, indicator);
+    }
+
+
+
+    /***************************************************************************
+     *                                                                         *
+     * Private Implementation                                                  *
+     *                                                                         *
+     **************************************************************************/
+
+    private void pageLoaded(int gen, int count, List<TreeItem<T>> page) {
+        if (gen != generation) return;
+
+        loading.set(false);
+        if (placeholder != null) {
+            getChildren().remove(placeholder);
+        }
+
+        // a failed page may be retried by calling loadNextPage() again
+        if (page == null) return;
+
+        if (page.size() < count) {
+            loadedAll = true;
+        }
+        loadedCount += page.size();
+        if (! page.isEmpty()) {
+            getChildren().addAll(page);
+        }
+    }
+
+    private void cancelLoading() {
+        generation++;
+        if (isLoading()) {
+            loading.set(false);
+            if (placeholder != null) {
+                getChildren().remove(placeholder);
+            }
+        }
+    }
+
+    // Called when collapsed: the children are kept, but are evicted if the
+    // eviction trigger is cleared before this TreeItem is expanded again.
+    private void collapsed() {
+        if (isLoading()) {
+            cancelLoading();
+            resumeLoading = true;
+        }
+        if (children == null || children.isEmpty()) return;
+
+        startEvictionThread();
+        evictionTrigger = new EvictionTrigger(this);
+    }
+
+    // Called when expanded: the children are still there unless they were
+    // evicted, in which case loading starts again from the first page.
+    private void restoreChildren() {
+        // once unreachable, the trigger is never enqueued
+        evictionTrigger = null;
+
+        if ((loadedCount == 0 && ! loadedAll) || resumeLoading) {
+            loadNextPage();
+        }
+    }
+
+    // package-private so that tests can simulate a cleared trigger
+    void evictChildren() {
+        if (isExpanded()) return;
+
+        evictionTrigger = null;
+        loadedCount = 0;
+        loadedAll = false;
+        if (children != null) {
+            children.clear();
+        }
+    }
+
+    /**
+     * Softly references an object that nothing else references, so that it
+     * is cleared and enqueued at the discretion of the garbage collector:
+     * always before memory runs out, and possibly earlier, as the collector
+     * also clears soft references that have not been used for a while.
+     */
+    private static final class EvictionTrigger extends SoftReference<Object> {
+        private final WeakReference<PagedTreeItem<?>> item;
+
+        EvictionTrigger(PagedTreeItem<?> item) {
+            super(new Object(), memoryPressure);
+            this.item = new WeakReference<>(item);
+        }
+
+        // called on the eviction thread
+        void fire() {
+            Platform.runLater(() -> {
+                PagedTreeItem<?> treeItem = item.get();
+                // ignore triggers that were disarmed before they fired
+                if (treeItem != null && treeItem.evictionTrigger == this) {
+                    treeItem.evictChildren();
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,132 @@
+/*
+ * Copyright (c) 2017, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package javafx.scene.control;
+
+import java.util.Arrays;
+
+/**
+ * A package protected prefix-sum index (Fenwick tree) over the expanded
+ * descendant counts of the children of a {@link TreeItem}. It lets TreeView
+ * and TreeTableView map a row to the child containing it, and a child to the
+ * row it starts at, in O(log n) rather than by walking the children, and lets
+ * a single child's count be updated in O(log n) when it is expanded or
+ * collapsed.
+ */
+final class RowCountIndex {
+
+    private int[] counts = new int[0];
+
+    // 1-based Fenwick tree over counts
+    private int[] tree = new int[1];
+
+    private int size;
+    private int total;
+
+    /**
+     * Sizes the index for the given number of children, all with a count of
+     * zero.
+     */
+    void reset(int size) {
+        this.size = size;
+        if (counts.length != size) {
+            counts = new int[size];
+            tree = new int[size + 1];
+        } else {
+            Arrays.fill(counts, 0);
+            Arrays.fill(tree, 0);
+        }
+        total = 0;
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Sets the counts of all children at once, in O(n).
+     */
+    void setAll(int[] values) {
+        reset(values.length);
+        System.arraycopy(values, 0, counts, 0, size);
+        for (int i = 1; i <= size; i++) {
+            tree[i] += values[i - 1];
+            total += values[i - 1];
+            int parent = i + (i & -i);
+            if (parent <= size) {
+                tree[parent] += tree[i];
+            }
+        }
+    }
+
+    int get(int index) {
+        return counts[index];
+    }
+
+    void set(int index, int count) {
+        int delta = count - counts[index];
+        if (delta == 0) return;
+        counts[index] = count;
+        total += delta;
+        for (int i = index + 1; i <= size; i += i & -i) {
+            tree[i] += delta;
+        }
+    }
+
+    /**
+     * Returns the sum of the counts of the children before the given index.
+     */
+    int sum(int index) {
+        int result = 0;
+        for (int i = index; i > 0; i -= i & -i) {
+            result += tree[i];
+        }
+        return result;
+    }
+
+    int total() {
+        return total;
+    }
+
+    /**
+     * Returns the index of the child whose rows contain the given offset, that
+     * is the index m for which sum(m) <= offset < sum(m + 1), or -1 if the
+     * offset is outside of the range [0, total()).
+     */
+    int find(int offset) {
+        if (offset < 0 || offset >= total) return -1;
+
+        int pos = 0;
+        int remaining = offset;
+        for (int step = Integer.highestOneBit(Math.max(1, size)); step > 0; step >>= 1) {
+            int next = pos + step;
+            if (next <= size && tree[next] <= remaining) {
+                pos = next;
+                remaining -= tree[next];
+            }
+        }
+        return pos;
+    }
+}
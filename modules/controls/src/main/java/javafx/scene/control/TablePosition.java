@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2011, 2014, Oracle and/or its affiliates. All rights reserved.
+ * Copyright (c) 2011, 2017, Oracle and/or its affiliates. All rights reserved.
  * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
  *
  * This code is free software; you can redistribute it and/or modify it
@@ -75,6 +75,16 @@ public class TablePosition<S,T> extends TablePositionBase<TableColumn<S,T>> {
                 items != null && row >= 0 && row < items.size() ? items.get(row) : null);
     }
 
+    /*
+     * Constructs a TablePosition referring to the given item, which the row
+     * had at an earlier point in time.
+     */
+    TablePosition(TableView<S> tableView, int row, TableColumn<S,T> tableColumn, S item) {
+        super(row, tableColumn);
+        this.controlRef = new WeakReference<>(tableView);
+        this.itemRef = new WeakReference<>(item);
+    }
+
 
 
     /***************************************************************************
@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2011, 2016, Oracle and/or its affiliates. All rights reserved.
+ * Copyright (c) 2011, 2017, Oracle and/or its affiliates. All rights reserved.
  * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
  *
  * This code is free software; you can redistribute it and/or modify it
@@ -69,6 +69,7 @@ import com.sun.javafx.collections.NonIterableChange;
 import com.sun.javafx.collections.annotations.ReturnsUnmodifiableCollection;
 import com.sun.javafx.css.converters.SizeConverter;
 import com.sun.javafx.scene.control.ReadOnlyUnbackedObservableList;
+import com.sun.javafx.scene.control.TableColumnComparatorBase;
 import com.sun.javafx.scene.control.TableColumnComparatorBase.TableColumnComparator;
 import com.sun.javafx.scene.control.skin.TableViewSkin;
 import com.sun.javafx.scene.control.skin.TableViewSkinBase;
@@ -487,6 +488,49 @@ public class TableView<S> extends Control {
         }
     };
 
+    /**
+     * A {@link #sortPolicyProperty() sort policy} that sorts the items list on
+     * a background thread, so that sorting large lists does not block the
+     * JavaFX application thread. The items list is copied on the application
+     * thread; the cell values of the sort columns are then read from the copy
+     * and the rows sorted by those values on a worker thread, and the new order
+     * is applied to the items list as a single permutation once the sort is
+     * complete. The cell value factories of the sort columns must therefore be
+     * safe to call from a background thread. Starting a new sort (for example
+     * because the sort order changed again) cancels a sort that is still in
+     * progress, and a sort is discarded if the items list is modified while it
+     * is running.
+     * <p>
+     * The policy falls back to the {@link #DEFAULT_SORT_POLICY} for items lists
+     * that are a {@link SortedList}, and returns true as soon as the sort has
+     * been started.
+     * @since JavaFX 8u151
+     */
+    public static final Callback<TableView, Boolean> ASYNC_SORT_POLICY = new Callback<TableView, Boolean>() {
+        @Override public Boolean call(TableView table) {
+            if (table.backgroundSort != null) {
+                table.backgroundSort.cancel();
+                table.backgroundSort = null;
+            }
+
+            ObservableList<?> itemsList = table.getItems();
+            Comparator comparator = table.getComparator();
+            if (itemsList instanceof SortedList || ! (comparator instanceof TableColumnComparatorBase)) {
+                return DEFAULT_SORT_POLICY.call(table);
+            }
+            if (itemsList == null || itemsList.isEmpty()) {
+                // sorting is not supported on null or empty lists
+                return true;
+            }
+
+            BackgroundSort sort = new BackgroundSort(null, null);
+            sort.add(itemsList, (TableColumnComparatorBase) comparator);
+            table.backgroundSort = sort;
+            sort.start();
+            return true;
+        }
+    };
+
 
 
     /***************************************************************************
@@ -568,6 +612,9 @@ public class TableView<S> extends Control {
     // columns as they are given initially by the developer.
     private final ObservableList<TableColumn<S,?>> columns = FXCollections.observableArrayList();
 
+    // the sort started by the ASYNC_SORT_POLICY that may still be running
+    private BackgroundSort backgroundSort;
+
     // Finally, as convenience, we also have an observable list that contains
     // only the leaf columns that are currently visible.
     private final ObservableList<TableColumn<S,?>> visibleLeafColumns = FXCollections.observableArrayList();
@@ -1522,7 +1569,7 @@ public class TableView<S> extends Control {
             return;
         }
 
-        final List<TablePosition> prevState = new ArrayList<>(getSelectionModel().getSelectedCells());
+        final List<TablePosition<S,?>> prevState = new ArrayList<>((ObservableList<TablePosition<S,?>>)(Object)getSelectionModel().getSelectedCells());
         final int itemCount = prevState.size();
 
         // we set makeAtomic to true here, so that we don't fire intermediate
@@ -1552,21 +1599,20 @@ public class TableView<S> extends Control {
                 final TableViewArrayListSelectionModel<S> sm = (TableViewArrayListSelectionModel<S>) getSelectionModel();
                 final ObservableList<TablePosition<S,?>> newState = (ObservableList<TablePosition<S,?>>)(Object)sm.getSelectedCells();
 
-                List<TablePosition<S, ?>> removed = new ArrayList<>();
-                for (int i = 0; i < itemCount; i++) {
+                boolean changed = false;
+                for (int i = 0; i < itemCount && !changed; i++) {
                     TablePosition<S, ?> prevItem = prevState.get(i);
-                    if (!newState.contains(prevItem)) {
-                        removed.add(prevItem);
-                    }
+                    changed = !sm.selectedCellsMap.isSelected(prevItem.getRow(), prevItem.getColumn());
                 }
 
-                if (!removed.isEmpty()) {
+                if (changed) {
                     // the sort operation effectively permutates the selectedCells list,
                     // but we cannot fire a permutation event as we are talking about
                     // TablePosition's changing (which may reside in the same list
                     // position before and after the sort). Therefore, we need to fire
-                    // a single add/remove event to cover the added and removed positions.
-                    ListChangeListener.Change<TablePosition<S, ?>> c = new NonIterableChange.GenericAddRemoveChange<>(0, itemCount, removed, newState);
+                    // a single event replacing all the previous positions with the new
+                    // ones, so that the items they refer to can be compared.
+                    ListChangeListener.Change<TablePosition<S, ?>> c = new NonIterableChange.GenericAddRemoveChange<>(0, newState.size(), prevState, newState);
                     sm.handleSelectedCellsListChangeEvent(c);
                 }
             }
@@ -2057,6 +2103,15 @@ public class TableView<S> extends Control {
                 @Override public boolean isCellSelectionEnabled() {
                     return TableViewArrayListSelectionModel.this.isCellSelectionEnabled();
                 }
+
+                @Override protected Object getRowItem(int row) {
+                    List<S> items = tableView.getItems();
+                    return items != null && row >= 0 && row < items.size() ? items.get(row) : null;
+                }
+
+                @Override protected TablePosition<S,?> createPosition(int row, TableColumnBase<?,?> column, Object rowItem) {
+                    return new TablePosition<>(tableView, row, (TableColumn<S,?>) column, (S) rowItem);
+                }
             };
 
             selectedItems = new ReadOnlyUnbackedObservableList<S>() {
@@ -2361,10 +2416,13 @@ public class TableView<S> extends Control {
             final boolean wasSelected = isSelected(row, column);
 
             // firstly we make a copy of the selection, so that we can send out
-            // the correct details in the selection change event.
-            List<TablePosition<S,?>> previousSelection = new ArrayList<>(selectedCellsMap.getSelectedCells());
+            // the correct details in the selection change event. The new
+            // selection is left out of the copy seeing as it is not removed.
+            final int retainedIndex = isCellSelectionEnabled ?
+                    selectedCellsMap.indexOf(newTablePosition) : selectedCellsMap.indexOfRow(row);
+            List<TablePosition<S,?>> previousSelection = selectedCellsMap.getSnapshot(retainedIndex);
 
-            if (wasSelected && previousSelection.size() == 1) {
+            if (wasSelected && selectedCellsMap.size() == 1) {
                 // before we return, we double-check that the selected item
                 // is equal to the item in the given index
                 TablePosition<S,?> selectedCell = getSelectedCells().get(0);
@@ -2389,19 +2447,6 @@ public class TableView<S> extends Control {
 
             stopAtomic();
 
-
-            // We remove the new selection from the list seeing as it is not removed.
-            if (isCellSelectionEnabled) {
-                previousSelection.remove(newTablePosition);
-            } else {
-                for (TablePosition<S,?> tp : previousSelection) {
-                    if (tp.getRow() == row) {
-                        previousSelection.remove(tp);
-                        break;
-                    }
-                }
-            }
-
             // fire off a single add/remove/replace notification (rather than
             // individual remove and add notifications) - see RT-33324
             ListChangeListener.Change<TablePosition<S, ?>> change;
@@ -2583,36 +2628,30 @@ public class TableView<S> extends Control {
         @Override public void selectAll() {
             if (getSelectionMode() == SelectionMode.SINGLE) return;
 
+            final int itemCount = getItemCount();
             if (isCellSelectionEnabled()) {
-                List<TablePosition<S,?>> indices = new ArrayList<>();
-                TableColumn<S,?> column;
-                TablePosition<S,?> tp = null;
-                for (int col = 0; col < getTableView().getVisibleLeafColumns().size(); col++) {
-                    column = getTableView().getVisibleLeafColumns().get(col);
-                    for (int row = 0; row < getItemCount(); row++) {
-                        tp = new TablePosition<>(getTableView(), row, column);
-                        indices.add(tp);
-                    }
+                // the whole table is a single run of rows, so no TablePositions
+                // need to be created up front
+                final List<TableColumn<S,?>> columns = getTableView().getVisibleLeafColumns();
+                final int[] columnIndices = new int[columns.size()];
+                for (int col = 0; col < columnIndices.length; col++) {
+                    columnIndices[col] = col;
                 }
-                selectedCellsMap.setAll(indices);
+                selectedCellsMap.setRange(0, itemCount, columns, columnIndices);
 
-                if (tp != null) {
-                    select(tp.getRow(), tp.getTableColumn());
-                    focus(tp.getRow(), tp.getTableColumn());
+                if (itemCount > 0 && ! columns.isEmpty()) {
+                    final TableColumn<S,?> column = columns.get(columns.size() - 1);
+                    select(itemCount - 1, column);
+                    focus(itemCount - 1, column);
                 }
             } else {
-                List<TablePosition<S,?>> indices = new ArrayList<>();
-                for (int i = 0; i < getItemCount(); i++) {
-                    indices.add(new TablePosition<>(getTableView(), i, null));
-                }
-                selectedCellsMap.setAll(indices);
+                selectedCellsMap.setRange(0, itemCount, Collections.singletonList(null), new int[] { -1 });
 
                 int focusedIndex = getFocusedIndex();
                 if (focusedIndex == -1) {
-                    final int itemCount = getItemCount();
                     if (itemCount > 0) {
                         select(itemCount - 1);
-                        focus(indices.get(indices.size() - 1));
+                        focus(itemCount - 1);
                     }
                 } else {
                     select(focusedIndex);
@@ -2642,34 +2681,28 @@ public class TableView<S> extends Control {
             final int _minRow = Math.min(minRow, maxRow);
             final int _maxRow = Math.max(minRow, maxRow);
 
-            List<TablePosition<S,?>> cellsToSelect = new ArrayList<>();
-
-            for (int _row = _minRow; _row <= _maxRow; _row++) {
-                // begin copy/paste of select(int, column) method (with some
-                // slight modifications)
-                if (_row < 0 || _row >= itemCount) continue;
-
-                if (! isCellSelectionEnabled) {
-                    cellsToSelect.add(new TablePosition<>(tableView, _row, (TableColumn<S,?>)minColumn));
-                } else {
-                    for (int _col = _minColumnIndex; _col <= _maxColumnIndex; _col++) {
-                        final TableColumn<S, ?> column = tableView.getVisibleLeafColumn(_col);
+            // the range is added as a block of rows, already selected cells are
+            // skipped by the map itself
+            final List<TableColumn<S,?>> columns = new ArrayList<>();
+            if (! isCellSelectionEnabled) {
+                columns.add((TableColumn<S,?>)minColumn);
+            } else {
+                for (int _col = _minColumnIndex; _col <= _maxColumnIndex; _col++) {
+                    final TableColumn<S, ?> column = tableView.getVisibleLeafColumn(_col);
 
-                        // if I'm in cell selection mode but the column is null, I don't want
-                        // to select the whole row instead...
-                        if (column == null && isCellSelectionEnabled) continue;
+                    // if I'm in cell selection mode but the column is null, I don't want
+                    // to select the whole row instead...
+                    if (column == null) continue;
 
-                        cellsToSelect.add(new TablePosition<>(tableView, _row, column));
-                        // end copy/paste
-                    }
+                    columns.add(column);
                 }
             }
+            final int[] columnIndices = new int[columns.size()];
+            for (int i = 0; i < columnIndices.length; i++) {
+                columnIndices[i] = tableView.getVisibleLeafIndex(columns.get(i));
+            }
 
-            // to prevent duplication we remove all currently selected cells from
-            // our list of cells to select.
-            cellsToSelect.removeAll(getSelectedCells());
-
-            selectedCellsMap.addAll(cellsToSelect);
+            selectedCellsMap.addRange(Math.max(0, _minRow), Math.min(itemCount, _maxRow + 1), columns, columnIndices);
             stopAtomic();
 
             // fire off events.
@@ -2701,20 +2734,14 @@ public class TableView<S> extends Control {
 
         private void clearSelection(TablePosition<S,?> tp) {
             final boolean csMode = isCellSelectionEnabled();
-            final int row = tp.getRow();
 
-            for (TablePosition pos : getSelectedCells()) {
-                if (! csMode) {
-                    if (pos.getRow() == row) {
-                        selectedCellsMap.remove(pos);
-                        break;
-                    }
-                } else {
-                    if (pos.equals(tp)) {
-                        selectedCellsMap.remove(tp);
-                        break;
-                    }
+            if (! csMode) {
+                final int index = selectedCellsMap.indexOfRow(tp.getRow());
+                if (index > -1) {
+                    selectedCellsMap.remove(selectedCellsMap.get(index));
                 }
+            } else if (selectedCellsMap.indexOf(tp) > -1) {
+                selectedCellsMap.remove(tp);
             }
 
             if (isEmpty() && ! isAtomic()) {
@@ -2724,7 +2751,7 @@ public class TableView<S> extends Control {
         }
 
         @Override public void clearSelection() {
-            final List<TablePosition<S,?>> removed = new ArrayList<>((Collection)getSelectedCells());
+            final List<TablePosition<S,?>> removed = selectedCellsMap.getSnapshot();
 
             quietClearSelection();
 
@@ -2987,13 +3014,12 @@ public class TableView<S> extends Control {
             final List<Integer> newlySelectedRows = new ArrayList<>();
             final List<Integer> newlyUnselectedRows = new ArrayList<>();
 
+            // The rows are read from the selectedCellsMap runs where possible,
+            // so that large selections are not expanded into TablePositions.
             while (c.next()) {
                 if (c.wasRemoved()) {
-                    List<? extends TablePosition<S,?>> removed = c.getRemoved();
-                    for (int i = 0; i < removed.size(); i++) {
-                        final TablePosition<S,?> tp = removed.get(i);
-                        final int row = tp.getRow();
-
+                    final BitSet removedRows = selectedCellsMap.getRows(c.getRemoved());
+                    for (int row = removedRows.nextSetBit(0); row >= 0; row = removedRows.nextSetBit(row + 1)) {
                         if (selectedIndices.get(row)) {
                             selectedIndices.clear(row);
                             newlyUnselectedRows.add(row);
@@ -3001,11 +3027,10 @@ public class TableView<S> extends Control {
                     }
                 }
                 if (c.wasAdded()) {
-                    List<? extends TablePosition<S,?>> added = c.getAddedSubList();
-                    for (int i = 0; i < added.size(); i++) {
-                        final TablePosition<S,?> tp = added.get(i);
-                        final int row = tp.getRow();
-
+                    final BitSet addedRows = c.getList() == selectedCellsSeq || c.getList() == selectedCellsMap.getSelectedCells() ?
+                            selectedCellsMap.getRows(c.getFrom(), c.getTo()) :
+                            selectedCellsMap.getRows(c.getAddedSubList());
+                    for (int row = addedRows.nextSetBit(0); row >= 0; row = addedRows.nextSetBit(row + 1)) {
                         if (! selectedIndices.get(row)) {
                             selectedIndices.set(row);
                             newlySelectedRows.add(row);
@@ -3015,8 +3040,6 @@ public class TableView<S> extends Control {
             }
             c.reset();
 
-            selectedIndicesSeq.reset();
-
             if (isAtomic()) {
                 return;
             }
@@ -3042,22 +3065,15 @@ public class TableView<S> extends Control {
                 if (removedSize != addedSize) {
                     fireChangeEvent = true;
                 } else {
-                    for (int i = 0; i < removedSize; i++) {
-                        TablePosition<S, ?> removed = c.getRemoved().get(i);
-                        S removedItem = removed.getItem();
-
-                        boolean matchFound = false;
-                        for (int j = 0; j < addedSize; j++) {
-                            TablePosition<S, ?> added = c.getAddedSubList().get(j);
-                            S addedItem = added.getItem();
-
-                            if (removedItem.equals(addedItem)) {
-                                matchFound = true;
-                                break;
-                            }
-                        }
+                    final List<? extends TablePosition<S, ?>> addedCells = c.getAddedSubList();
+                    final Set<S> addedItems = new HashSet<>(addedSize);
+                    for (int j = 0; j < addedSize; j++) {
+                        addedItems.add(addedCells.get(j).getItem());
+                    }
 
-                        if (!matchFound) {
+                    final List<? extends TablePosition<S, ?>> removedCells = c.getRemoved();
+                    for (int i = 0; i < removedSize; i++) {
+                        if (!addedItems.contains(removedCells.get(i).getItem())) {
                             fireChangeEvent = true;
                             break outer;
                         }
@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2010, 2015, Oracle and/or its affiliates. All rights reserved.
+ * Copyright (c) 2010, 2017, Oracle and/or its affiliates. All rights reserved.
  * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
  *
  * This code is free software; you can redistribute it and/or modify it
@@ -353,6 +353,7 @@ public class TreeItem<T> implements EventTarget { //, Comparable<TreeItem<T>> {
         new EventHandler<TreeModificationEvent<Object>>() {
             @Override public void handle(TreeModificationEvent<Object> event) {
                 expandedDescendentCountDirty = true;
+                queueInParent();
             }
     };
 
@@ -398,6 +399,20 @@ public class TreeItem<T> implements EventTarget { //, Comparable<TreeItem<T>> {
     // and a description of this field
     private int parentLinkCount = 0;
 
+    // Prefix sums of the expanded descendent counts of the children, so that
+    // TreeView and TreeTableView can map between rows and tree items without
+    // walking the children. The index is rebuilt when the children list
+    // changes, otherwise only the children queued in dirtyChildren (because
+    // their count may have changed) are updated.
+    private RowCountIndex childRowCounts;
+    private boolean childRowCountsValid = false;
+    private List<TreeItem<T>> dirtyChildren;
+
+    // the index of this TreeItem in the children of its parent as of the last
+    // childRowCounts rebuild, and whether it is queued in dirtyChildren there
+    private int indexInParent = -1;
+    private boolean queuedInParent = false;
+
 
 
     /***************************************************************************
@@ -409,6 +424,7 @@ public class TreeItem<T> implements EventTarget { //, Comparable<TreeItem<T>> {
     // called whenever the contents of the children sequence changes
     private ListChangeListener<TreeItem<T>> childrenListener = c -> {
         expandedDescendentCountDirty = true;
+        childRowCountsValid = false;
         updateChildren(c);
     };
 
@@ -817,12 +833,18 @@ public class TreeItem<T> implements EventTarget { //, Comparable<TreeItem<T>> {
         // if we're at the root node, we'll fire an event so that the control
         // can update its display
         if (getParent() == null) {
-            TreeModificationEvent<T> e = new TreeModificationEvent<T>(TreeItem.childrenModificationEvent(), this);
-            e.wasPermutated = true;
-            fireEvent(e);
+            fireSortEvent();
         }
     }
 
+    // Fires the event that tells the control that the tree has been sorted.
+    // Also used by TreeTableView when a background sort has been applied.
+    void fireSortEvent() {
+        TreeModificationEvent<T> e = new TreeModificationEvent<T>(TreeItem.childrenModificationEvent(), this);
+        e.wasPermutated = true;
+        fireEvent(e);
+    }
+
     private void checkSortState() {
         TreeItem<T> rootNode = getRoot();
 
@@ -889,12 +911,94 @@ public class TreeItem<T> implements EventTarget { //, Comparable<TreeItem<T>> {
 
         ignoreSortUpdate = true;
         if (!isLeaf() && isExpanded()) {
-            for (TreeItem<T> child : getChildren()) {
+            expandedDescendentCount += updateChildRowCounts(reset);
+        }
+        ignoreSortUpdate = false;
+    }
+
+    private int updateChildRowCounts(boolean reset) {
+        final List<TreeItem<T>> children = getChildren();
+        final int size = children.size();
+        boolean rebuild = reset || !childRowCountsValid || childRowCounts == null || childRowCounts.size() != size;
+
+        if (dirtyChildren != null) {
+            for (int i = 0, max = dirtyChildren.size(); i < max; i++) {
+                TreeItem<T> child = dirtyChildren.get(i);
+                child.queuedInParent = false;
+                if (rebuild) continue;
+
+                int index = child.indexInParent;
+                if (index < 0 || index >= size || children.get(index) != child) {
+                    rebuild = true;
+                } else {
+                    childRowCounts.set(index, getRowCount(child, false));
+                }
+            }
+            dirtyChildren.clear();
+        }
+
+        if (rebuild) {
+            int[] counts = new int[size];
+            for (int i = 0; i < size; i++) {
+                TreeItem<T> child = children.get(i);
                 if (child == null) continue;
-                expandedDescendentCount += child.isExpanded() ? child.getExpandedDescendentCount(reset) : 1;
+                child.indexInParent = i;
+                child.queuedInParent = false;
+                counts[i] = getRowCount(child, reset);
             }
+            if (childRowCounts == null) {
+                childRowCounts = new RowCountIndex();
+            }
+            childRowCounts.setAll(counts);
+            childRowCountsValid = true;
         }
-        ignoreSortUpdate = false;
+
+        return childRowCounts.total();
+    }
+
+    private static int getRowCount(TreeItem<?> child, boolean reset) {
+        return child.isExpanded() ? child.getExpandedDescendentCount(reset) : 1;
+    }
+
+    // Lets the parent know that the expanded descendent count of this TreeItem
+    // may have changed, so that it only has to update the count of this child.
+    private void queueInParent() {
+        final TreeItem<T> parent = getParent();
+        if (queuedInParent || parent == null) return;
+
+        if (parent.dirtyChildren == null) {
+            parent.dirtyChildren = new ArrayList<>();
+        }
+        parent.dirtyChildren.add(this);
+        queuedInParent = true;
+    }
+
+    // Returns true if the row lookup methods below may be used, which is the
+    // case once getExpandedDescendentCount has been called on an expanded,
+    // non-leaf TreeItem.
+    boolean hasChildRowCounts() {
+        return childRowCountsValid && !expandedDescendentCountDirty && !isLeaf() && isExpanded();
+    }
+
+    // Returns the index of the child whose rows include the given row, where
+    // row 0 is the first row after this TreeItem, or -1 if out of range.
+    int getChildIndexAtRow(int row) {
+        return childRowCounts.find(row);
+    }
+
+    // Returns the number of rows taken by the children before the given index.
+    int getChildRowOffset(int index) {
+        return childRowCounts.sum(index);
+    }
+
+    // Returns the index of the given child in the children of this TreeItem,
+    // or -1 if it is not one of them.
+    int getChildIndex(TreeItem<T> child) {
+        int index = child.indexInParent;
+        if (index >= 0 && index < children.size() && children.get(index) == child) {
+            return index;
+        }
+        return children.indexOf(child);
     }
 
     private void updateChildren(ListChangeListener.Change<? extends TreeItem<T>> c) {
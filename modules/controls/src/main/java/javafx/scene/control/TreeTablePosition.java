@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2011, 2014, Oracle and/or its affiliates. All rights reserved.
+ * Copyright (c) 2011, 2017, Oracle and/or its affiliates. All rights reserved.
  * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
  *
  * This code is free software; you can redistribute it and/or modify it
@@ -70,6 +70,16 @@ public class TreeTablePosition<S,T> extends TablePositionBase<TreeTableColumn<S,
         this.treeItemRef = new WeakReference<>(treeTableView.getTreeItem(row));
     }
 
+    /*
+     * Constructs a TreeTablePosition referring to the given TreeItem, which the
+     * row had at an earlier point in time.
+     */
+    TreeTablePosition(TreeTableView<S> treeTableView, int row, TreeTableColumn<S,T> tableColumn, TreeItem<S> treeItem) {
+        super(row, tableColumn);
+        this.controlRef = new WeakReference<>(treeTableView);
+        this.treeItemRef = new WeakReference<>(treeItem);
+    }
+
 
 
     /***************************************************************************
@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2012, 2016, Oracle and/or its affiliates. All rights reserved.
+ * Copyright (c) 2012, 2017, Oracle and/or its affiliates. All rights reserved.
  * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
  *
  * This code is free software; you can redistribute it and/or modify it
@@ -581,6 +581,72 @@ public class TreeTableView<S> extends Control {
         }
     };
 
+    /**
+     * A {@link #sortPolicyProperty() sort policy} that sorts the children of the
+     * expanded tree items on a background thread, so that sorting large trees
+     * does not block the JavaFX application thread. The children lists are
+     * copied on the application thread; the cell values of the sort columns are
+     * then read from the copies and the children sorted by those values on a
+     * worker thread, and the new order is applied to each children list as a
+     * single permutation once the sort is complete. The cell value factories of
+     * the sort columns must therefore be safe to call from a background
+     * thread. Starting
+     * a new sort cancels a sort that is still in progress, and a children list
+     * that is modified while the sort is running is left unchanged.
+     * <p>
+     * Tree items that are collapsed when the sort starts are sorted on the
+     * application thread when they are next expanded, as with the
+     * {@link #DEFAULT_SORT_POLICY}.
+     * @since JavaFX 8u151
+     */
+    public static final Callback<TreeTableView, Boolean> ASYNC_SORT_POLICY = new Callback<TreeTableView, Boolean>() {
+        @Override public Boolean call(TreeTableView table) {
+            if (table.backgroundSort != null) {
+                table.backgroundSort.cancel();
+                table.backgroundSort = null;
+            }
+
+            TreeItem rootItem = table.getRoot();
+            if (rootItem == null) return false;
+
+            TreeSortMode sortMode = table.getSortMode();
+            if (sortMode == null) return false;
+
+            Comparator comparator = table.getComparator();
+            if (! (comparator instanceof TableColumnComparatorBase)) {
+                return DEFAULT_SORT_POLICY.call(table);
+            }
+
+            // collect the tree items whose children are visible, as these are
+            // the only ones sorted immediately by TreeItem.sort()
+            List<TreeItem> sortedItems = new ArrayList<>();
+            List<TreeItem> stack = new ArrayList<>();
+            stack.add(rootItem);
+            while (! stack.isEmpty()) {
+                TreeItem item = stack.remove(stack.size() - 1);
+                if (item.isLeaf() || ! item.isExpanded()) continue;
+                sortedItems.add(item);
+                if (sortMode == TreeSortMode.ALL_DESCENDANTS) {
+                    stack.addAll(item.getChildren());
+                }
+            }
+
+            BackgroundSort sort = new BackgroundSort(() -> {
+                rootItem.lastSortMode = sortMode;
+                rootItem.lastComparator = comparator;
+                for (TreeItem item : sortedItems) {
+                    item.lastComparator = comparator;
+                }
+            }, rootItem::fireSortEvent);
+            for (TreeItem item : sortedItems) {
+                sort.add(item.getChildren(), (TableColumnComparatorBase) comparator);
+            }
+            table.backgroundSort = sort;
+            sort.start();
+            return true;
+        }
+    };
+
 
 
     /***************************************************************************
@@ -594,6 +660,9 @@ public class TreeTableView<S> extends Control {
     // be recalculated.
     private boolean expandedItemCountDirty = true;
 
+    // the sort started by the ASYNC_SORT_POLICY that may still be running
+    private BackgroundSort backgroundSort;
+
     // Used in the getTreeItem(int row) method to act as a cache.
     // See RT-26716 for the justification and performance gains.
     private Map<Integer, SoftReference<TreeItem<S>>> treeItemCacheMap = new HashMap<>();
@@ -1586,7 +1655,7 @@ public class TreeTableView<S> extends Control {
      *      collapsed).
      */
     public int getRow(TreeItem<S> item) {
-        return TreeUtil.getRow(item, getRoot(), expandedItemCountDirty, isShowRoot());
+        return TreeUtil.getRow(item, getRoot(), isShowRoot());
     }
 
     /**
@@ -1613,7 +1682,7 @@ public class TreeTableView<S> extends Control {
             }
         }
 
-        TreeItem<S> treeItem = TreeUtil.getItem(getRoot(), _row, expandedItemCountDirty);
+        TreeItem<S> treeItem = TreeUtil.getItem(getRoot(), _row);
         treeItemCacheMap.put(_row, new SoftReference<>(treeItem));
         return treeItem;
     }
@@ -1799,21 +1868,20 @@ public class TreeTableView<S> extends Control {
                 final TreeTableViewArrayListSelectionModel<S> sm = (TreeTableViewArrayListSelectionModel<S>) getSelectionModel();
                 final ObservableList<TreeTablePosition<S, ?>> newState = sm.getSelectedCells();
 
-                List<TreeTablePosition<S, ?>> removed = new ArrayList<>();
-                for (int i = 0; i < itemCount; i++) {
+                boolean changed = false;
+                for (int i = 0; i < itemCount && !changed; i++) {
                     TreeTablePosition<S, ?> prevItem = prevState.get(i);
-                    if (!newState.contains(prevItem)) {
-                        removed.add(prevItem);
-                    }
+                    changed = !sm.selectedCellsMap.isSelected(prevItem.getRow(), prevItem.getColumn());
                 }
 
-                if (!removed.isEmpty()) {
+                if (changed) {
                     // the sort operation effectively permutates the selectedCells list,
                     // but we cannot fire a permutation event as we are talking about
                     // TreeTablePosition's changing (which may reside in the same list
                     // position before and after the sort). Therefore, we need to fire
-                    // a single add/remove event to cover the added and removed positions.
-                    ListChangeListener.Change<TreeTablePosition<S, ?>> c = new NonIterableChange.GenericAddRemoveChange<>(0, itemCount, removed, newState);
+                    // a single event replacing all the previous positions with the new
+                    // ones, so that the items they refer to can be compared.
+                    ListChangeListener.Change<TreeTablePosition<S, ?>> c = new NonIterableChange.GenericAddRemoveChange<>(0, newState.size(), prevState, newState);
                     sm.handleSelectedCellsListChangeEvent(c);
                 }
             }
@@ -1858,7 +1926,7 @@ public class TreeTableView<S> extends Control {
     }
 
     private void updateExpandedItemCount(TreeItem<S> treeItem) {
-        setExpandedItemCount(TreeUtil.updateExpandedItemCount(treeItem, expandedItemCountDirty, isShowRoot()));
+        setExpandedItemCount(TreeUtil.updateExpandedItemCount(treeItem, isShowRoot()));
 
         if (expandedItemCountDirty) {
             // this is a very inefficient thing to do, but for now having a cache
@@ -2314,6 +2382,14 @@ public class TreeTableView<S> extends Control {
                 @Override public boolean isCellSelectionEnabled() {
                     return TreeTableViewArrayListSelectionModel.this.isCellSelectionEnabled();
                 }
+
+                @Override protected Object getRowItem(int row) {
+                    return treeTableView.getTreeItem(row);
+                }
+
+                @Override protected TreeTablePosition<S,?> createPosition(int row, TableColumnBase<?,?> column, Object rowItem) {
+                    return new TreeTablePosition<>(treeTableView, row, (TreeTableColumn<S,?>) column, (TreeItem<S>) rowItem);
+                }
             };
 
             selectedItems = new ReadOnlyUnbackedObservableList<TreeItem<S>>() {
@@ -2538,13 +2614,10 @@ public class TreeTableView<S> extends Control {
                         final int clearIndex = param.getClearIndex();
                         TreeTablePosition<S,?> oldTP = null;
                         if (clearIndex > -1) {
-                            for (int i = 0; i < selectedCellsMap.size(); i++) {
-                                TreeTablePosition<S,?> tp = selectedCellsMap.get(i);
-                                if (tp.getRow() == clearIndex) {
-                                    oldTP = tp;
-                                    selectedCellsMap.remove(tp);
-                                    break;
-                                }
+                            final int index = selectedCellsMap.indexOfRow(clearIndex);
+                            if (index > -1) {
+                                oldTP = selectedCellsMap.get(index);
+                                selectedCellsMap.remove(oldTP);
                             }
                         }
 
@@ -2628,10 +2701,13 @@ public class TreeTableView<S> extends Control {
             final boolean wasSelected = isSelected(row, column);
 
             // firstly we make a copy of the selection, so that we can send out
-            // the correct details in the selection change event.
-            List<TreeTablePosition<S,?>> previousSelection = new ArrayList<>(selectedCellsMap.getSelectedCells());
+            // the correct details in the selection change event. The new
+            // selection is left out of the copy seeing as it is not removed.
+            final int retainedIndex = isCellSelectionEnabled ?
+                    selectedCellsMap.indexOf(newTablePosition) : selectedCellsMap.indexOfRow(row);
+            List<TreeTablePosition<S,?>> previousSelection = selectedCellsMap.getSnapshot(retainedIndex);
 
-            if (wasSelected && previousSelection.size() == 1) {
+            if (wasSelected && selectedCellsMap.size() == 1) {
                 // before we return, we double-check that the selected item
                 // is equal to the item in the given index
                 TreeTablePosition<S,?> selectedCell = getSelectedCells().get(0);
@@ -2656,18 +2732,6 @@ public class TreeTableView<S> extends Control {
 
             stopAtomic();
 
-            // We remove the new selection from the list seeing as it is not removed.
-            if (isCellSelectionEnabled) {
-                previousSelection.remove(newTablePosition);
-            } else {
-                for (TreeTablePosition<S,?> tp : previousSelection) {
-                    if (tp.getRow() == row) {
-                        previousSelection.remove(tp);
-                        break;
-                    }
-                }
-            }
-
             // fire off a single add/remove/replace notification (rather than
             // individual remove and add notifications) - see RT-33324
             ListChangeListener.Change<TreeTablePosition<S, ?>> change;
@@ -2840,36 +2904,31 @@ public class TreeTableView<S> extends Control {
         @Override public void selectAll() {
             if (getSelectionMode() == SelectionMode.SINGLE) return;
 
+            final int rowCount = getRowCount();
             if (isCellSelectionEnabled()) {
-                List<TreeTablePosition<S,?>> indices = new ArrayList<>();
-                TreeTableColumn<S,?> column;
-                TreeTablePosition<S,?> tp = null;
-                for (int col = 0; col < getTreeTableView().getVisibleLeafColumns().size(); col++) {
-                    column = getTreeTableView().getVisibleLeafColumns().get(col);
-                    for (int row = 0; row < getRowCount(); row++) {
-                        tp = new TreeTablePosition<>(getTreeTableView(), row, column);
-                        indices.add(tp);
-                    }
+                // the whole table is a single run of rows, so no TreeTablePositions
+                // need to be created up front
+                final List<TreeTableColumn<S,?>> columns = getTreeTableView().getVisibleLeafColumns();
+                final int[] columnIndices = new int[columns.size()];
+                for (int col = 0; col < columnIndices.length; col++) {
+                    columnIndices[col] = col;
                 }
-                selectedCellsMap.setAll(indices);
+                selectedCellsMap.setRange(0, rowCount, columns, columnIndices);
 
-                if (tp != null) {
-                    select(tp.getRow(), tp.getTableColumn());
-                    focus(tp.getRow(), tp.getTableColumn());
+                if (rowCount > 0 && ! columns.isEmpty()) {
+                    final TreeTableColumn<S,?> column = columns.get(columns.size() - 1);
+                    select(rowCount - 1, column);
+                    focus(rowCount - 1, column);
                 }
             } else {
-                List<TreeTablePosition<S,?>> indices = new ArrayList<>();
-                for (int i = 0; i < getRowCount(); i++) {
-                    indices.add(new TreeTablePosition<>(getTreeTableView(), i, null));
-                }
-                selectedCellsMap.setAll(indices);
+                selectedCellsMap.setRange(0, rowCount, Collections.singletonList(null), new int[] { -1 });
 
                 int focusedIndex = getFocusedIndex();
                 if (focusedIndex == -1) {
                     final int itemCount = getItemCount();
                     if (itemCount > 0) {
                         select(itemCount - 1);
-                        focus(indices.get(indices.size() - 1));
+                        focus(rowCount - 1);
                     }
                 } else {
                     select(focusedIndex);
@@ -2899,34 +2958,28 @@ public class TreeTableView<S> extends Control {
             final int _minRow = Math.min(minRow, maxRow);
             final int _maxRow = Math.max(minRow, maxRow);
 
-            List<TreeTablePosition<S,?>> cellsToSelect = new ArrayList<>();
-
-            for (int _row = _minRow; _row <= _maxRow; _row++) {
-                // begin copy/paste of select(int, column) method (with some
-                // slight modifications)
-                if (_row < 0 || _row >= itemCount) continue;
-
-                if (! isCellSelectionEnabled) {
-                    cellsToSelect.add(new TreeTablePosition<>(treeTableView, _row, (TreeTableColumn<S,?>)minColumn));
-                } else {
-                    for (int _col = _minColumnIndex; _col <= _maxColumnIndex; _col++) {
-                        final TreeTableColumn<S, ?> column = treeTableView.getVisibleLeafColumn(_col);
+            // the range is added as a block of rows, already selected cells are
+            // skipped by the map itself
+            final List<TreeTableColumn<S,?>> columns = new ArrayList<>();
+            if (! isCellSelectionEnabled) {
+                columns.add((TreeTableColumn<S,?>)minColumn);
+            } else {
+                for (int _col = _minColumnIndex; _col <= _maxColumnIndex; _col++) {
+                    final TreeTableColumn<S, ?> column = treeTableView.getVisibleLeafColumn(_col);
 
-                        // if I'm in cell selection mode but the column is null, I don't want
-                        // to select the whole row instead...
-                        if (column == null && isCellSelectionEnabled) continue;
+                    // if I'm in cell selection mode but the column is null, I don't want
+                    // to select the whole row instead...
+                    if (column == null) continue;
 
-                        cellsToSelect.add(new TreeTablePosition<>(treeTableView, _row, column));
-                        // end copy/paste
-                    }
+                    columns.add(column);
                 }
             }
+            final int[] columnIndices = new int[columns.size()];
+            for (int i = 0; i < columnIndices.length; i++) {
+                columnIndices[i] = treeTableView.getVisibleLeafIndex(columns.get(i));
+            }
 
-            // to prevent duplication we remove all currently selected cells from
-            // our list of cells to select.
-            cellsToSelect.removeAll(getSelectedCells());
-
-            selectedCellsMap.addAll(cellsToSelect);
+            selectedCellsMap.addRange(Math.max(0, _minRow), Math.min(itemCount, _maxRow + 1), columns, columnIndices);
             stopAtomic();
 
             // fire off events
@@ -2958,20 +3011,14 @@ public class TreeTableView<S> extends Control {
 
         private void clearSelection(TreeTablePosition<S,?> tp) {
             final boolean csMode = isCellSelectionEnabled();
-            final int row = tp.getRow();
 
-            for (TreeTablePosition<S,?> pos : getSelectedCells()) {
-                if (! csMode) {
-                    if (pos.getRow() == row) {
-                        selectedCellsMap.remove(pos);
-                        break;
-                    }
-                } else {
-                    if (pos.equals(tp)) {
-                        selectedCellsMap.remove(tp);
-                        break;
-                    }
+            if (! csMode) {
+                final int index = selectedCellsMap.indexOfRow(tp.getRow());
+                if (index > -1) {
+                    selectedCellsMap.remove(selectedCellsMap.get(index));
                 }
+            } else if (selectedCellsMap.indexOf(tp) > -1) {
+                selectedCellsMap.remove(tp);
             }
 
             if (isEmpty() && ! isAtomic()) {
@@ -2981,7 +3028,7 @@ public class TreeTableView<S> extends Control {
         }
 
         @Override public void clearSelection() {
-            final List<TreeTablePosition<S,?>> removed = new ArrayList<>((Collection)getSelectedCells());
+            final List<TreeTablePosition<S,?>> removed = selectedCellsMap.getSnapshot();
 
             quietClearSelection();
 
@@ -3227,13 +3274,12 @@ public class TreeTableView<S> extends Control {
             final List<Integer> newlySelectedRows = new ArrayList<>();
             final List<Integer> newlyUnselectedRows = new ArrayList<>();
 
+            // The rows are read from the selectedCellsMap runs where possible,
+            // so that large selections are not expanded into TreeTablePositions.
             while (c.next()) {
                 if (c.wasRemoved()) {
-                    List<? extends TreeTablePosition<S,?>> removed = c.getRemoved();
-                    for (int i = 0; i < removed.size(); i++) {
-                        final TreeTablePosition<S,?> tp = removed.get(i);
-                        final int row = tp.getRow();
-
+                    final BitSet removedRows = selectedCellsMap.getRows(c.getRemoved());
+                    for (int row = removedRows.nextSetBit(0); row >= 0; row = removedRows.nextSetBit(row + 1)) {
                         if (selectedIndices.get(row)) {
                             selectedIndices.clear(row);
                             newlyUnselectedRows.add(row);
@@ -3241,11 +3287,10 @@ public class TreeTableView<S> extends Control {
                     }
                 }
                 if (c.wasAdded()) {
-                    List<? extends TreeTablePosition<S,?>> added = c.getAddedSubList();
-                    for (int i = 0; i < added.size(); i++) {
-                        final TreeTablePosition<S,?> tp = added.get(i);
-                        final int row = tp.getRow();
-
+                    final BitSet addedRows = c.getList() == selectedCellsSeq || c.getList() == selectedCellsMap.getSelectedCells() ?
+                            selectedCellsMap.getRows(c.getFrom(), c.getTo()) :
+                            selectedCellsMap.getRows(c.getAddedSubList());
+                    for (int row = addedRows.nextSetBit(0); row >= 0; row = addedRows.nextSetBit(row + 1)) {
                         if (! selectedIndices.get(row)) {
                             selectedIndices.set(row);
                             newlySelectedRows.add(row);
@@ -3255,8 +3300,6 @@ public class TreeTableView<S> extends Control {
             }
             c.reset();
 
-            selectedIndicesSeq.reset();
-
             if (isAtomic()) {
                 return;
             }
@@ -3282,22 +3325,16 @@ public class TreeTableView<S> extends Control {
                 if (removedSize != addedSize) {
                     fireChangeEvent = true;
                 } else {
-                    for (int i = 0; i < c.getRemovedSize(); i++) {
-                        TreeTablePosition<S, ?> removed = c.getRemoved().get(i);
-                        TreeItem<S> removedTreeItem = removed.getTreeItem();
-
-                        boolean matchFound = false;
-                        for (int j = 0; j < c.getAddedSize(); j++) {
-                            TreeTablePosition<S, ?> added = c.getAddedSubList().get(j);
-                            TreeItem<S> addedTreeItem = added.getTreeItem();
-
-                            if (removedTreeItem != null && removedTreeItem.equals(addedTreeItem)) {
-                                matchFound = true;
-                                break;
-                            }
-                        }
+                    final List<? extends TreeTablePosition<S, ?>> addedCells = c.getAddedSubList();
+                    final Set<TreeItem<S>> addedTreeItems = new HashSet<>(addedSize);
+                    for (int j = 0; j < addedSize; j++) {
+                        addedTreeItems.add(addedCells.get(j).getTreeItem());
+                    }
 
-                        if (!matchFound) {
+                    final List<? extends TreeTablePosition<S, ?>> removedCells = c.getRemoved();
+                    for (int i = 0; i < removedSize; i++) {
+                        TreeItem<S> removedTreeItem = removedCells.get(i).getTreeItem();
+                        if (removedTreeItem == null || !addedTreeItems.contains(removedTreeItem)) {
                             fireChangeEvent = true;
                             break outer;
                         }
@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2012, 2015, Oracle and/or its affiliates. All rights reserved.
+ * Copyright (c) 2012, 2017, Oracle and/or its affiliates. All rights reserved.
  * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
  *
  * This code is free software; you can redistribute it and/or modify it
@@ -33,67 +33,55 @@ import java.util.List;
  */
 class TreeUtil {
 
-    static <T> int getExpandedDescendantCount(TreeItem<T> node, boolean treeItemCountDirty) {
+    // The expanded descendant counts are maintained incrementally by each
+    // TreeItem as it is expanded, collapsed or has its children modified, so
+    // none of these methods need to force the counts to be recomputed.
+
+    static <T> int getExpandedDescendantCount(TreeItem<T> node) {
         if (node == null) return 0;
         if (node.isLeaf()) return 1;
 
-        return node.getExpandedDescendentCount(treeItemCountDirty);
+        return node.getExpandedDescendentCount(false);
     }
 
-    static int updateExpandedItemCount(TreeItem treeItem, boolean treeItemCountDirty, boolean isShowRoot) {
+    static int updateExpandedItemCount(TreeItem treeItem, boolean isShowRoot) {
         if (treeItem == null) {
             return 0;
         } else if (! treeItem.isExpanded()) {
             return 1;
         } else {
-            int count = getExpandedDescendantCount(treeItem, treeItemCountDirty);
+            int count = getExpandedDescendantCount(treeItem);
             if (! isShowRoot) count--;
 
             return count;
         }
     }
 
-    static <T> TreeItem<T> getItem(TreeItem<T> parent, int itemIndex, boolean treeItemCountDirty) {
-        if (parent == null) return null;
-
-        // if itemIndex is 0 then our parent is what we were looking for
-        if (itemIndex == 0) return parent;
-
-        // if itemIndex is > the total item count, then it is out of range
-        if (itemIndex >= getExpandedDescendantCount(parent, treeItemCountDirty)) return null;
+    static <T> TreeItem<T> getItem(TreeItem<T> parent, int itemIndex) {
+        TreeItem<T> item = parent;
+        int idx = itemIndex;
 
-        // if we got here, then one of our descendants is the item we're after
-        List<TreeItem<T>> children = parent.getChildren();
-        if (children == null) return null;
+        while (item != null) {
+            // if idx is 0 then the current item is what we were looking for
+            if (idx == 0) return item;
 
-        int idx = itemIndex - 1;
+            // if idx is > the total item count, then it is out of range
+            if (idx >= getExpandedDescendantCount(item)) return null;
+            if (! item.hasChildRowCounts()) return null;
 
-        TreeItem<T> child;
-        for (int i = 0, max = children.size(); i < max; i++) {
-            child = children.get(i);
-            if (idx == 0) return child;
+            // if we got here, then one of the descendants is the item we're
+            // after, so find the child whose rows contain it
+            int childIndex = item.getChildIndexAtRow(idx - 1);
+            if (childIndex < 0) return null;
 
-            if (child.isLeaf() || ! child.isExpanded()) {
-                idx--;
-                continue;
-            }
-
-            int expandedChildCount = getExpandedDescendantCount(child, treeItemCountDirty);
-            if (idx >= expandedChildCount) {
-                idx -= expandedChildCount;
-                continue;
-            }
-
-            TreeItem<T> result = getItem(child, idx, treeItemCountDirty);
-            if (result != null) return result;
-            idx--;
+            idx -= 1 + item.getChildRowOffset(childIndex);
+            item = item.getChildren().get(childIndex);
         }
 
-        // We might get here if getItem(0) is called on an empty tree
         return null;
     }
 
-    static <T> int getRow(TreeItem<T> item, TreeItem<T> root, boolean treeItemCountDirty, boolean isShowRoot) {
+    static <T> int getRow(TreeItem<T> item, TreeItem<T> root, boolean isShowRoot) {
         if (item == null) {
             return -1;
         } else if (isShowRoot && item.equals(root)) {
@@ -114,24 +102,34 @@ class TreeUtil {
                 break;
             }
 
-            siblings = p.children;
-
-            // work up each sibling, from the current item
-            int itemIndex = siblings.indexOf(i);
-            for (int pos = itemIndex - 1; pos > -1; pos--) {
-                sibling = siblings.get(pos);
-                if (sibling == null) continue;
-
-                row += getExpandedDescendantCount(sibling, treeItemCountDirty);
-
-                if (sibling.equals(root)) {
-                    if (! isShowRoot) {
-                        // special case: we've found out that our sibling is
-                        // actually the root node AND we aren't showing root nodes.
-                        // This means that the item shouldn't actually be shown.
-                        return -1;
+            // the row index is only used when it is already up to date, as
+            // bringing it up to date here may call back into getChildren()
+            // while the children are being populated
+            if (p.hasChildRowCounts() && (root == null || root.getParent() != p)) {
+                int itemIndex = p.getChildIndex(i);
+                if (itemIndex > 0) {
+                    row += p.getChildRowOffset(itemIndex);
+                }
+            } else {
+                siblings = p.children;
+
+                // work up each sibling, from the current item
+                int itemIndex = siblings.indexOf(i);
+                for (int pos = itemIndex - 1; pos > -1; pos--) {
+                    sibling = siblings.get(pos);
+                    if (sibling == null) continue;
+
+                    row += getExpandedDescendantCount(sibling);
+
+                    if (sibling.equals(root)) {
+                        if (! isShowRoot) {
+                            // special case: we've found out that our sibling is
+                            // actually the root node AND we aren't showing root nodes.
+                            // This means that the item shouldn't actually be shown.
+                            return -1;
+                        }
+                        return row;
                     }
-                    return row;
                 }
             }
 
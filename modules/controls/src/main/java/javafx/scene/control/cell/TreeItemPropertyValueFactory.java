@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2012, 2014, Oracle and/or its affiliates. All rights reserved.
+ * Copyright (c) 2012, 2017, Oracle and/or its affiliates. All rights reserved.
  * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
  *
  * This code is free software; you can redistribute it and/or modify it
@@ -33,7 +33,7 @@ import javafx.scene.control.TreeItem;
 import javafx.scene.control.TreeTableColumn;
 import javafx.scene.control.TreeTableColumn.CellDataFeatures;
 import javafx.util.Callback;
-import com.sun.javafx.property.PropertyReference;
+import com.sun.javafx.property.PropertyAccessor;
 import com.sun.javafx.scene.control.Logging;
 import sun.util.logging.PlatformLogger;
 import sun.util.logging.PlatformLogger.Level;
@@ -96,9 +96,7 @@ public class TreeItemPropertyValueFactory<S,T> implements Callback<TreeTableColu
 
     private final String property;
 
-    private Class<?> columnClass;
-    private String previousProperty;
-    private PropertyReference<T> propertyRef;
+    private PropertyAccessor accessor;
 
     /**
      * Creates a default PropertyValueFactory to extract the value from a given
@@ -126,29 +124,19 @@ public class TreeItemPropertyValueFactory<S,T> implements Callback<TreeTableColu
         if (getProperty() == null || getProperty().isEmpty() || rowData == null) return null;
 
         try {
-            // we attempt to cache the property reference here, as otherwise
+            // we attempt to cache the property accessor here, as otherwise
             // performance suffers when working in large data models. For
-            // a bit of reference, refer to RT-13937.
-            if (columnClass == null || previousProperty == null ||
-                    ! columnClass.equals(rowData.getClass()) ||
-                    ! previousProperty.equals(getProperty())) {
-
-                // create a new PropertyReference
-                this.columnClass = rowData.getClass();
-                this.previousProperty = getProperty();
-                this.propertyRef = new PropertyReference<T>(rowData.getClass(), getProperty());
+            // a bit of reference, refer to RT-13937. Accessors are also cached
+            // globally per class, so tables with rows of mixed types do not
+            // have to look them up again every time the row class changes.
+            PropertyAccessor accessor = this.accessor;
+            if (accessor == null || accessor.getContainingClass() != rowData.getClass()) {
+                accessor = PropertyAccessor.get(rowData.getClass(), getProperty());
+                this.accessor = accessor;
             }
 
-            return propertyRef.getProperty(rowData);
+            return accessor.getObservableValue(rowData);
         } catch (IllegalStateException e) {
-            try {
-                // attempt to just get the value
-                T value = propertyRef.get(rowData);
-                return new ReadOnlyObjectWrapper<T>(value);
-            } catch (IllegalStateException e2) {
-                // fall through to logged exception below
-            }
-
             // log the warning and move on
             final PlatformLogger logger = Logging.getControlsLogger();
             if (logger.isLoggable(Level.WARNING)) {
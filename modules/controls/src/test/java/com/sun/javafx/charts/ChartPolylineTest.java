@@ -0,0 +1,225 @@
+/*
+ * Copyright (c) 2017, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package com.sun.javafx.charts;
+
+import java.util.List;
+
+import javafx.scene.shape.ClosePath;
+import javafx.scene.shape.LineTo;
+import javafx.scene.shape.MoveTo;
+import javafx.scene.shape.PathElement;
+
+import com.sun.javafx.geom.PathIterator;
+import com.sun.javafx.geom.Path2D;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+public class ChartPolylineTest {
+
+    private static int countSegments(Path2D path, int type) {
+        int count = 0;
+        final float[] coords = new float[6];
+        for (PathIterator it = path.getPathIterator(null); !it.isDone(); it.next()) {
+            if (it.currentSegment(coords) == type) count++;
+        }
+        return count;
+    }
+
+    @Test
+    public void testPointsAndGeometry() {
+        ChartPolyline polyline = new ChartPolyline();
+        for (int i = 0; i < 100; i++) {
+            polyline.addPoint(i, i * 2);
+        }
+        assertEquals(100, polyline.getPointCount());
+        assertEquals(50, polyline.getX(50), 0);
+        assertEquals(100, polyline.getY(50), 0);
+
+        Path2D path = polyline.impl_configShape();
+        assertEquals(1, countSegments(path, PathIterator.SEG_MOVETO));
+        assertEquals(99, countSegments(path, PathIterator.SEG_LINETO));
+        assertEquals(99, polyline.getBoundsInLocal().getMaxX(), 2);
+        assertEquals(0, polyline.getLayoutBounds().getMinX(), 2);
+        assertEquals(99, polyline.getLayoutBounds().getMaxX(), 2);
+        assertEquals(198, polyline.getLayoutBounds().getMaxY(), 2);
+    }
+
+    @Test
+    public void testElementsFollowPoints() {
+        ChartPolyline polyline = new ChartPolyline();
+        polyline.beginPoints();
+        for (int i = 0; i < 5; i++) {
+            polyline.addPoint(i, i * 2);
+        }
+        polyline.setClosed(true);
+        polyline.endPoints();
+        List<PathElement> elements = polyline.getElements();
+        assertEquals(6, elements.size());
+        assertTrue(elements.get(0) instanceof MoveTo);
+        assertEquals(4, ((LineTo) elements.get(4)).getX(), 0);
+        assertEquals(8, ((LineTo) elements.get(4)).getY(), 0);
+        assertTrue(elements.get(5) instanceof ClosePath);
+
+        // moved and appended points reuse the existing elements
+        final PathElement second = elements.get(1);
+        polyline.beginPoints();
+        for (int i = 0; i < 7; i++) {
+            polyline.addPoint(i, i == 1 ? 10 : i * 2);
+        }
+        polyline.endPoints();
+        assertEquals(8, elements.size());
+        assertSame(second, elements.get(1));
+        assertEquals(10, ((LineTo) elements.get(1)).getY(), 0);
+        assertEquals(6, ((LineTo) elements.get(6)).getX(), 0);
+        assertTrue(elements.get(7) instanceof ClosePath);
+
+        // sorting and dropping points
+        polyline.beginPoints();
+        polyline.addPoint(3, 0);
+        polyline.addPoint(1, 0);
+        polyline.sortByX();
+        polyline.setClosed(false);
+        polyline.endPoints();
+        assertEquals(2, elements.size());
+        assertEquals(1, ((MoveTo) elements.get(0)).getX(), 0);
+        assertEquals(3, ((LineTo) elements.get(1)).getX(), 0);
+
+        polyline.clear();
+        assertTrue(elements.isEmpty());
+    }
+
+    @Test
+    public void testAppendExtendsCachedGeometry() {
+        ChartPolyline polyline = new ChartPolyline();
+        polyline.addPoint(0, 0);
+        polyline.addPoint(1, 1);
+        Path2D path = polyline.impl_configShape();
+        polyline.addPoint(2, 0);
+        assertTrue(path == polyline.impl_configShape());
+        assertEquals(2, countSegments(path, PathIterator.SEG_LINETO));
+
+        polyline.clear();
+        assertEquals(0, polyline.getPointCount());
+        polyline.addPoint(5, 5);
+        assertEquals(0, countSegments(polyline.impl_configShape(), PathIterator.SEG_LINETO));
+    }
+
+    @Test
+    public void testClosed() {
+        ChartPolyline polyline = new ChartPolyline();
+        polyline.addPoint(0, 0);
+        polyline.addPoint(10, 0);
+        polyline.addPoint(10, 10);
+        polyline.setClosed(true);
+        assertEquals(1, countSegments(polyline.impl_configShape(), PathIterator.SEG_CLOSE));
+        polyline.addPoint(0, 10);
+        Path2D path = polyline.impl_configShape();
+        assertEquals(3, countSegments(path, PathIterator.SEG_LINETO));
+        assertEquals(1, countSegments(path, PathIterator.SEG_CLOSE));
+    }
+
+    @Test
+    public void testSortIsStable() {
+        ChartPolyline polyline = new ChartPolyline();
+        polyline.addPoint(3, 0);
+        polyline.addPoint(1, 1);
+        polyline.addPoint(3, 2);
+        polyline.addPoint(2, 3);
+        polyline.sortByX();
+        assertEquals(1, polyline.getX(0), 0);
+        assertEquals(2, polyline.getX(1), 0);
+        assertEquals(0, polyline.getY(2), 0);
+        assertEquals(2, polyline.getY(3), 0);
+        polyline.sortByY();
+        assertEquals(0, polyline.getY(0), 0);
+        assertEquals(3, polyline.getY(3), 0);
+    }
+
+    @Test
+    public void testSettingSamePointsKeepsGeometry() {
+        ChartPolyline polyline = new ChartPolyline();
+        for (int i = 0; i < 10; i++) {
+            polyline.addPoint(i, i);
+        }
+        Path2D path = polyline.impl_configShape();
+
+        // the same points and one more: the cached geometry is extended
+        polyline.beginPoints();
+        for (int i = 0; i < 11; i++) {
+            polyline.addPoint(i, i);
+        }
+        polyline.endPoints();
+        assertSame(path, polyline.impl_configShape());
+        assertEquals(10, countSegments(path, PathIterator.SEG_LINETO));
+
+        // a moved point rebuilds the geometry
+        polyline.beginPoints();
+        for (int i = 0; i < 11; i++) {
+            polyline.addPoint(i, i == 5 ? 0 : i);
+        }
+        polyline.endPoints();
+        Path2D rebuilt = polyline.impl_configShape();
+        assertNotSame(path, rebuilt);
+        assertEquals(10, countSegments(rebuilt, PathIterator.SEG_LINETO));
+
+        // fewer points drop the rest
+        polyline.beginPoints();
+        for (int i = 0; i < 4; i++) {
+            polyline.addPoint(i, i);
+        }
+        polyline.endPoints();
+        assertEquals(4, polyline.getPointCount());
+        assertEquals(3, countSegments(polyline.impl_configShape(), PathIterator.SEG_LINETO));
+    }
+
+    @Test
+    public void testSortManyPointsIsStable() {
+        ChartPolyline polyline = new ChartPolyline();
+        final int n = 1000;
+        for (int i = 0; i < n; i++) {
+            // x has many duplicates, y records the original order
+            polyline.addPoint((i * 7919) % 97, i);
+        }
+        polyline.sortByX();
+        assertEquals(n, polyline.getPointCount());
+        for (int i = 1; i < n; i++) {
+            assertTrue(polyline.getX(i - 1) <= polyline.getX(i));
+            if (polyline.getX(i - 1) == polyline.getX(i)) {
+                assertTrue(polyline.getY(i - 1) < polyline.getY(i));
+            }
+        }
+
+        // appending after a sort still grows the buffers
+        for (int i = 0; i < n; i++) {
+            polyline.addPoint(200 + i, 0);
+        }
+        assertEquals(2 * n, polyline.getPointCount());
+        assertEquals(200 + n - 1, polyline.getX(2 * n - 1), 0);
+    }
+}
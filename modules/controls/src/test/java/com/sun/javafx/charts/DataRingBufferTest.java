@@ -0,0 +1,86 @@
+/*
+ * Copyright (c) 2017, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package com.sun.javafx.charts;
+
+import java.util.Random;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+public class DataRingBufferTest {
+
+    @Test
+    public void testKeepsMostRecentPoints() {
+        DataRingBuffer buffer = new DataRingBuffer(3);
+        assertEquals(0, buffer.size());
+        assertTrue(Double.isNaN(buffer.getMinY()));
+        for (int i = 0; i < 5; i++) {
+            buffer.add(i, i * 10);
+        }
+        assertEquals(3, buffer.size());
+        assertEquals(2, buffer.getX(0), 0);
+        assertEquals(40, buffer.getY(2), 0);
+        assertEquals(2, buffer.getMinX(), 0);
+        assertEquals(4, buffer.getMaxX(), 0);
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testIndexOutOfBounds() {
+        DataRingBuffer buffer = new DataRingBuffer(3);
+        buffer.add(1, 1);
+        buffer.getX(1);
+    }
+
+    @Test
+    public void testSlidingExtremesMatchScan() {
+        final int capacity = 17;
+        DataRingBuffer buffer = new DataRingBuffer(capacity);
+        Random random = new Random(42);
+        for (int i = 0; i < 1000; i++) {
+            buffer.add(i, random.nextInt(100) - 50);
+            double min = Double.POSITIVE_INFINITY;
+            double max = Double.NEGATIVE_INFINITY;
+            for (int j = 0; j < buffer.size(); j++) {
+                min = Math.min(min, buffer.getY(j));
+                max = Math.max(max, buffer.getY(j));
+            }
+            assertEquals(min, buffer.getMinY(), 0);
+            assertEquals(max, buffer.getMaxY(), 0);
+        }
+    }
+
+    @Test
+    public void testNaNIgnoredAndClear() {
+        DataRingBuffer buffer = new DataRingBuffer(4);
+        buffer.add(1, Double.NaN);
+        buffer.add(2, 5);
+        assertEquals(5, buffer.getMinY(), 0);
+        assertEquals(5, buffer.getMaxY(), 0);
+        buffer.clear();
+        assertEquals(0, buffer.size());
+        assertTrue(Double.isNaN(buffer.getMaxX()));
+    }
+}
@@ -0,0 +1,168 @@
+/*
+ * Copyright (c) 2017, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package com.sun.javafx.scene.control.skin;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class CellLengthIndexTest {
+    private CellLengthIndex index;
+
+    @Before public void setup() {
+        index = new CellLengthIndex();
+        index.reset(10);
+        index.setDefaultLength(20);
+    }
+
+    @Test public void unmeasuredRowsUseDefaultLength() {
+        assertFalse(index.isMeasured(3));
+        assertEquals(20, index.get(3), 0);
+        assertEquals(200, index.sum(10), 0);
+        assertEquals(20, index.getMinLength(), 0);
+    }
+
+    @Test public void unmeasuredRowsUseAverageMeasuredLength() {
+        index.set(0, 10);
+        index.set(1, 30);
+        assertTrue(index.isMeasured(1));
+        assertEquals(20, index.getEstimate(), 0);
+        assertEquals(10, index.getMinLength(), 0);
+        assertEquals(40, index.sum(2), 0);
+        assertEquals(40 + 8 * 20, index.sum(10), 0);
+    }
+
+    @Test public void remeasuringRowUpdatesSums() {
+        index.set(4, 10);
+        index.set(4, 50);
+        assertEquals(1, index.getMeasuredCount());
+        assertEquals(50, index.get(4), 0);
+        assertEquals(50, index.getMinLength(), 0);
+        assertEquals(4 * 50 + 50, index.sum(5), 0);
+    }
+
+    @Test public void sumIsClampedToSize() {
+        assertEquals(0, index.sum(-5), 0);
+        assertEquals(index.sum(10), index.sum(15), 0);
+    }
+
+    @Test public void findReturnsLargestIndexNotPastTarget() {
+        for (int i = 0; i < 10; i++) {
+            index.set(i, i + 1);
+        }
+        // offsets: 0, 1, 3, 6, 10, 15, 21, 28, 36, 45, 55
+        assertEquals(0, index.find(0.5, 0));
+        assertEquals(3, index.find(6, 0));
+        assertEquals(3, index.find(9.9, 0));
+        assertEquals(9, index.find(54, 0));
+        assertEquals(10, index.find(1000, 0));
+        assertEquals(0, index.find(-1, 0));
+    }
+
+    @Test public void findWithBias() {
+        for (int i = 0; i < 10; i++) {
+            index.set(i, 10);
+        }
+        assertEquals(6, index.sum(3, 8), 0);
+        assertEquals(3, index.find(7, 8));
+    }
+
+    @Test public void resetForgetsMeasurements() {
+        index.set(2, 5);
+        index.reset(5);
+        assertEquals(5, index.size());
+        assertFalse(index.isMeasured(2));
+        assertEquals(0, index.getMeasuredCount());
+        assertEquals(100, index.sum(5), 0);
+    }
+
+    @Test public void outOfRangeRowsAreIgnored() {
+        index.set(-1, 5);
+        index.set(10, 5);
+        assertEquals(0, index.getMeasuredCount());
+    }
+
+    @Test public void growingKeepsMeasurements() {
+        index.set(2, 10);
+        index.set(9, 30);
+        for (int size = 11; size <= 100; size++) {
+            index.setSize(size);
+        }
+        assertEquals(100, index.size());
+        assertEquals(10, index.get(2), 0);
+        assertEquals(30, index.get(9), 0);
+        assertFalse(index.isMeasured(50));
+        assertEquals(10 + 30 + 98 * 20, index.sum(100), 0);
+        assertEquals(100, index.find(Double.MAX_VALUE, 0));
+    }
+
+    @Test public void shrinkingForgetsRemovedRows() {
+        index.set(2, 10);
+        index.set(8, 30);
+        index.setSize(5);
+        assertEquals(1, index.getMeasuredCount());
+        index.setSize(10);
+        assertFalse(index.isMeasured(8));
+        assertEquals(10, index.get(2), 0);
+    }
+
+    @Test public void insertShiftsMeasurements() {
+        index.set(2, 10);
+        index.set(5, 30);
+        index.insert(3, 2);
+        assertEquals(12, index.size());
+        assertEquals(10, index.get(2), 0);
+        assertFalse(index.isMeasured(3));
+        assertFalse(index.isMeasured(5));
+        assertEquals(30, index.get(7), 0);
+        assertEquals(10 + 30 + 10 * 20, index.sum(12), 0);
+    }
+
+    @Test public void removeShiftsMeasurements() {
+        index.set(2, 10);
+        index.set(5, 30);
+        index.set(9, 40);
+        index.remove(3, 2);
+        assertEquals(8, index.size());
+        assertEquals(10, index.get(2), 0);
+        assertEquals(30, index.get(3), 0);
+        assertEquals(40, index.get(7), 0);
+        assertEquals(3, index.getMeasuredCount());
+        assertEquals(10 + 30 + 2 * index.getEstimate(), index.sum(4), 1e-9);
+    }
+
+    @Test public void unsetForgetsMeasurementAndMinimum() {
+        index.set(1, 10);
+        index.set(2, 30);
+        index.unset(1);
+        assertFalse(index.isMeasured(1));
+        assertEquals(1, index.getMeasuredCount());
+        assertEquals(30, index.getMinLength(), 0);
+    }
+}
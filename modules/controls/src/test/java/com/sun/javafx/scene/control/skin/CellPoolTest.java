@@ -0,0 +1,185 @@
+/*
+ * Copyright (c) 2017, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package com.sun.javafx.scene.control.skin;
+
+import javafx.scene.control.IndexedCell;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class CellPoolTest {
+    private CellPool<IndexedCell> pool;
+
+    @Before public void setup() {
+        pool = new CellPool<>();
+    }
+
+    private IndexedCell cell(int index, Object type) {
+        IndexedCell cell = new IndexedCell();
+        cell.updateIndex(index);
+        CellPool.setCellType(cell, type);
+        return cell;
+    }
+
+    @Test public void takeReturnsCellWithSameIndex() {
+        IndexedCell a = cell(3, null);
+        IndexedCell b = cell(4, null);
+        pool.add(a);
+        pool.add(b);
+        assertSame(b, pool.take(4, null));
+        assertEquals(1, pool.size());
+        assertEquals(1, pool.getIndexHits());
+    }
+
+    @Test public void takePrefersSameParity() {
+        IndexedCell odd = cell(3, null);
+        IndexedCell even = cell(8, null);
+        pool.add(odd);
+        pool.add(even);
+        assertSame(even, pool.take(10, null));
+        assertSame(odd, pool.take(10, null));
+        assertEquals(2, pool.getTypeHits());
+        assertTrue(pool.isEmpty());
+    }
+
+    @Test public void takeOnlyReturnsCellsOfTheRequestedType() {
+        IndexedCell header = cell(5, "header");
+        pool.add(header);
+        assertNull(pool.take(5, null));
+        assertNull(pool.take(6, "row"));
+        assertEquals(2, pool.getMisses());
+        assertSame(header, pool.take(6, "header"));
+    }
+
+    @Test public void getDoesNotRemove() {
+        IndexedCell a = cell(7, null);
+        pool.add(a);
+        assertSame(a, pool.get(7));
+        assertEquals(1, pool.size());
+        assertNull(pool.get(8));
+    }
+
+    @Test public void getIgnoresCellsWhoseIndexChanged() {
+        IndexedCell a = cell(7, null);
+        pool.add(a);
+        a.updateIndex(9);
+        assertNull(pool.get(7));
+        pool.remove(a);
+        assertTrue(pool.isEmpty());
+    }
+
+    @Test public void getIgnoresCellsNoLongerPooled() {
+        IndexedCell a = cell(7, null);
+        pool.add(a);
+        a.updateIndex(1);
+        pool.remove(a);
+        a.updateIndex(7);
+        assertNull(pool.get(7));
+    }
+
+    @Test public void addRespectsTypeLimit() {
+        pool.setMaxCells("header", 1);
+        assertEquals(1, pool.getMaxCells("header"));
+        assertEquals(-1, pool.getMaxCells(null));
+        assertTrue(pool.add(cell(0, "header")));
+        assertFalse(pool.add(cell(5, "header")));
+        assertTrue(pool.add(cell(1, null)));
+        assertEquals(1, pool.getCellCount("header"));
+        assertEquals(1, pool.getRejected());
+    }
+
+    @Test public void iterationAndClear() {
+        pool.add(cell(0, null));
+        pool.add(cell(1, "a"));
+        pool.add(cell(2, "b"));
+        pool.add(cell(3, "b"));
+        int count = 0;
+        for (IndexedCell c : pool) count++;
+        assertEquals(4, count);
+        pool.clear();
+        assertTrue(pool.isEmpty());
+        assertNull(pool.getFirst());
+        assertNull(pool.get(0));
+    }
+
+    @Test public void setTypeFilesPiledCellUnderTheNewType() {
+        IndexedCell a = cell(4, "a");
+        IndexedCell b = cell(5, "a");
+        pool.add(a);
+        pool.setType(a, "b");
+        pool.setType(b, "b");
+        assertEquals("b", CellPool.getCellType(a));
+        assertEquals(0, pool.getCellCount("a"));
+        assertEquals(1, pool.getCellCount("b"));
+        assertNull(pool.take(4, "a"));
+        assertSame(a, pool.take(4, "b"));
+        assertFalse(pool.contains(b));
+    }
+
+    @Test public void cellsWhoseIndexChangedAreFiledUnderTheNewIndex() {
+        IndexedCell a = cell(7, null);
+        pool.add(a);
+        a.updateIndex(10);
+        pool.indexChanged(a);
+        assertNull(pool.get(7));
+        assertSame(a, pool.get(10));
+
+        // the cell is now in the even bucket
+        IndexedCell odd = cell(3, null);
+        pool.add(odd);
+        assertSame(a, pool.take(12, null));
+        assertNull(pool.get(10));
+    }
+
+    @Test public void peekDoesNotRemoveAndRespectsType() {
+        IndexedCell header = cell(5, "header");
+        IndexedCell row = cell(6, null);
+        pool.add(header);
+        pool.add(row);
+        assertSame(row, pool.peek(5, null));
+        assertSame(header, pool.peek(8, "header"));
+        assertNull(pool.peek(5, "footer"));
+        assertEquals(2, pool.size());
+    }
+
+    @Test public void takeOutsideSkipsCellsInRange() {
+        IndexedCell a = cell(4, null);
+        IndexedCell b = cell(20, null);
+        IndexedCell c = cell(30, "header");
+        pool.add(a);
+        pool.add(b);
+        pool.add(c);
+        assertSame(b, pool.takeOutside(null, 0, 10));
+        assertNull(pool.takeOutside(null, 0, 10));
+        assertNull(pool.takeOutside("footer", 0, 10));
+        assertEquals(2, pool.size());
+    }
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2010, 2014, Oracle and/or its affiliates. All rights reserved.
+ * Copyright (c) 2010, 2017, Oracle and/or its affiliates. All rights reserved.
  * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
  *
  * This code is free software; you can redistribute it and/or modify it
@@ -1049,6 +1049,151 @@ public class VirtualFlowTest {
         assertMinimalNumberOfCellsAreUsed(flow);
     }
 
+    private int variableLengthUpdateCount;
+    @Test
+    public void adjustPixelsAcrossManyVariableLengthCells() {
+        flow = new VirtualFlow();
+        flow.setVertical(true);
+        flow.setCreateCell(p -> new CellStub(flow) {
+            @Override public void updateIndex(int i) {
+                super.updateIndex(i);
+                variableLengthUpdateCount++;
+            }
+            @Override protected double computeMinHeight(double width) { return computePrefHeight(width); }
+            @Override protected double computeMaxHeight(double width) { return computePrefHeight(width); }
+            @Override protected double computePrefHeight(double width) {
+                return getIndex() % 3 == 0 ? 50 : 20;
+            }
+        });
+        flow.setCellCount(100000);
+        flow.resize(300, 300);
+        pulse();
+
+        variableLengthUpdateCount = 0;
+        flow.adjustPixels(1000000);
+        pulse();
+        assertTrue(variableLengthUpdateCount < 1000);
+        assertTrue(flow.getPosition() > 0 && flow.getPosition() < 1);
+        assertMinimalNumberOfCellsAreUsed(flow);
+
+        variableLengthUpdateCount = 0;
+        flow.adjustPixels(-500000);
+        pulse();
+        assertTrue(variableLengthUpdateCount < 1000);
+        assertTrue(flow.getPosition() > 0 && flow.getPosition() < 1);
+        assertMinimalNumberOfCellsAreUsed(flow);
+    }
+
+    @Test
+    public void prefetchPreparesOverscanCells() {
+        flow.setOverscan(3);
+        flow.prefetchCells();
+
+        int last = flow.getCellIndex(flow.cells.getLast());
+        IndexedCell prefetched = null;
+        for (int i = 1; i <= 3; i++) {
+            IndexedCell cell = flow.pile.get(last + i);
+            assertNotNull("No cell was prepared for index " + (last + i), cell);
+            assertFalse(cell.isVisible());
+            assertFalse(cell.isNeedsLayout());
+            if (i == 1) prefetched = cell;
+        }
+
+        // prefetching again does not prepare the same indices twice
+        int pileSize = flow.pile.size();
+        flow.prefetchCells();
+        assertEquals(pileSize, flow.pile.size());
+
+        // scrolling the prepared cell into view reuses it
+        flow.adjustPixels(25);
+        pulse();
+        assertSame(prefetched, flow.getVisibleCell(last + 1));
+        assertTrue(prefetched.isVisible());
+    }
+
+    @Test
+    public void noPrefetchWithoutOverscan() {
+        int pileSize = flow.pile.size();
+        flow.prefetchCells();
+        assertEquals(pileSize, flow.pile.size());
+    }
+
+    @Test
+    public void cellsAreOnlyReusedForTheirType() {
+        flow.setCellTypeFactory(index -> index % 5 == 0 ? "header" : null);
+        pulse();
+        for (int i = 0; i < flow.cells.size(); i++) {
+            IndexedCell cell = flow.cells.get(i);
+            assertEquals(cell.getIndex() % 5 == 0 ? "header" : null, CellPool.getCellType(cell));
+        }
+
+        flow.resetCellPoolStatistics();
+        for (int i = 0; i < 20; i++) {
+            flow.adjustPixels(25);
+            pulse();
+            for (int j = 0; j < flow.cells.size(); j++) {
+                IndexedCell cell = flow.cells.get(j);
+                if (cell.getIndex() < flow.getCellCount()) {
+                    assertEquals(cell.getIndex() % 5 == 0 ? "header" : null, CellPool.getCellType(cell));
+                }
+            }
+        }
+        assertTrue(flow.getReusedCellCount() > 0);
+    }
+
+    @Test
+    public void cellsTakeTheTypeOfTheirNewIndex() {
+        final Object[] headerType = { "header" };
+        flow.setCellTypeFactory(index -> index % 5 == 0 ? headerType[0] : null);
+        pulse();
+
+        // the rows change kind while their cells are showing them
+        headerType[0] = "title";
+        for (int i = 0; i < flow.cells.size(); i++) {
+            IndexedCell cell = flow.cells.get(i);
+            flow.setCellIndex(cell, cell.getIndex());
+            assertEquals(cell.getIndex() % 5 == 0 ? "title" : null, CellPool.getCellType(cell));
+        }
+
+        flow.reconfigureCells();
+        pulse();
+        for (int i = 0; i < flow.cells.size(); i++) {
+            IndexedCell cell = flow.cells.get(i);
+            assertEquals(cell.getIndex() % 5 == 0 ? "title" : null, CellPool.getCellType(cell));
+        }
+        assertEquals(0, flow.pile.getCellCount("header"));
+    }
+
+    @Test
+    public void getCellReturnsCellOfTheIndexType() {
+        flow.setCellTypeFactory(index -> index % 5 == 0 ? "header" : null);
+        pulse();
+        flow.adjustPixels(10000);
+        pulse();
+        assertFalse(flow.pile.isEmpty());
+
+        for (int index : new int[] { 0, 1, 5, 6, 10 }) {
+            IndexedCell cell = flow.getCell(index);
+            assertEquals(index % 5 == 0 ? "header" : null, CellPool.getCellType(cell));
+        }
+        flow.pile.clear();
+        for (int index : new int[] { 0, 1, 5, 6, 10 }) {
+            IndexedCell cell = flow.getCell(index);
+            assertEquals(index % 5 == 0 ? "header" : null, CellPool.getCellType(cell));
+            assertEquals(index, cell.getIndex());
+        }
+    }
+
+    @Test
+    public void pooledCellsAreLimitedPerType() {
+        flow.setMaxPooledCells(null, 2);
+        flow.adjustPixels(10000);
+        pulse();
+        assertTrue(flow.pile.size() <= 2);
+        assertTrue(flow.getDiscardedCellCount() > 0);
+        assertMinimalNumberOfCellsAreUsed(flow);
+    }
+
     @Test
     public void test_RT39568() {
         flow.getHbar().setPrefHeight(16);
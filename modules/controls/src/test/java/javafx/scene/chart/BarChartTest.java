@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2012, 2015, Oracle and/or its affiliates. All rights reserved.
+ * Copyright (c) 2012, 2017, Oracle and/or its affiliates. All rights reserved.
  * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
  *
  * This code is free software; you can redistribute it and/or modify it
@@ -91,6 +91,20 @@ public class BarChartTest extends XYChartTestBase {
         assertEquals("my-style", bar.getStyleClass().get(0));
     }
 
+    @Test
+    public void testStreamDataDoesNotAffectAxes() {
+        startApp();
+        xAxis.setAutoRanging(true);
+        pulse();
+        final double upperBound = yAxis.getUpperBound();
+        final XYChart.Series<String,Number> series = bc.getData().get(0);
+        series.setStreamCapacity(10);
+        series.appendStreamData(5, 100000);
+        pulse();
+        assertEquals(upperBound, yAxis.getUpperBound(), 0);
+        assertEquals(Arrays.asList(years), xAxis.getCategories());
+    }
+
     @Test
     public void testCategoryAxisCategoriesOnAddDataAtIndex() {
         startApp();
@@ -0,0 +1,105 @@
+/*
+ * Copyright (c) 2017, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package javafx.scene.chart;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+public class DownsamplerTest {
+
+    private static int[] downsample(Downsampler sampler, double[] x, double[] y, double plotWidth) {
+        final int[] selected = new int[x.length];
+        final int count = sampler.downsample(x, y, x.length, plotWidth, selected);
+        final int[] result = new int[count];
+        System.arraycopy(selected, 0, result, 0, count);
+        return result;
+    }
+
+    private static void assertIncreasing(int[] indices) {
+        for (int i = 1; i < indices.length; i++) {
+            assertTrue(indices[i - 1] < indices[i]);
+        }
+    }
+
+    @Test
+    public void testMinMaxKeepsFirstMinMaxLastPerColumn() {
+        final double[] x = { 0.1, 0.2, 0.3, 0.4, 0.5, 1.2 };
+        final double[] y = { 5, 9, 1, 4, 6, 3 };
+        final int[] result = downsample(Downsampler.MIN_MAX, x, y, 2);
+        assertEquals(5, result.length);
+        assertEquals(0, result[0]);
+        assertEquals(1, result[1]);
+        assertEquals(2, result[2]);
+        assertEquals(4, result[3]);
+        assertEquals(5, result[4]);
+    }
+
+    @Test
+    public void testMinMaxBoundsPointsPerColumn() {
+        final int count = 100000;
+        final double[] x = new double[count];
+        final double[] y = new double[count];
+        for (int i = 0; i < count; i++) {
+            x[i] = i * 500.0 / count;
+            y[i] = Math.sin(i / 10.0) * 100;
+        }
+        final int[] result = downsample(Downsampler.MIN_MAX, x, y, 500);
+        assertTrue(result.length <= 4 * 500);
+        assertIncreasing(result);
+        assertEquals(0, result[0]);
+        assertEquals(count - 1, result[result.length - 1]);
+    }
+
+    @Test
+    public void testLargestTriangleKeepsEndsAndSpike() {
+        final int count = 10000;
+        final double[] x = new double[count];
+        final double[] y = new double[count];
+        for (int i = 0; i < count; i++) {
+            x[i] = i / 100.0;
+            y[i] = i == 4321 ? -500 : 0;
+        }
+        final int[] result = downsample(Downsampler.LARGEST_TRIANGLE_THREE_BUCKETS, x, y, 100);
+        assertEquals(200, result.length);
+        assertIncreasing(result);
+        assertEquals(0, result[0]);
+        assertEquals(count - 1, result[result.length - 1]);
+        boolean spikeFound = false;
+        for (int index : result) {
+            if (index == 4321) spikeFound = true;
+        }
+        assertTrue(spikeFound);
+    }
+
+    @Test
+    public void testLargestTriangleKeepsSmallSeries() {
+        final double[] x = { 0, 1, 2, 3 };
+        final double[] y = { 1, 2, 3, 4 };
+        final int[] result = downsample(Downsampler.LARGEST_TRIANGLE_THREE_BUCKETS, x, y, 100);
+        assertEquals(4, result.length);
+    }
+}
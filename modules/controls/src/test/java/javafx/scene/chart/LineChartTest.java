@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2012, 2015, Oracle and/or its affiliates. All rights reserved.
+ * Copyright (c) 2012, 2017, Oracle and/or its affiliates. All rights reserved.
  * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
  *
  * This code is free software; you can redistribute it and/or modify it
@@ -25,11 +25,16 @@
 
 package javafx.scene.chart;
 
+import com.sun.javafx.charts.ChartPolyline;
+import com.sun.javafx.geom.Path2D;
 import com.sun.javafx.scene.control.infrastructure.ControlTestUtils;
 import javafx.collections.ObservableList;
 import javafx.scene.Node;
 import javafx.scene.shape.Path;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
 import org.junit.Ignore;
 import org.junit.Test;
 
@@ -136,4 +141,117 @@ public class LineChartTest extends XYChartTestBase {
         pulse();
         assertEquals(true, lineChart.getAnimated());
     }
+
+    @Test
+    public void testDownsamplingLimitsPathElementsAndKeepsExtremes() {
+        startApp();
+        lineChart.setCreateSymbols(false);
+        final XYChart.Series<Number, Number> series = new XYChart.Series<Number, Number>();
+        for (int i = 0; i < 20000; i++) {
+            series.getData().add(new XYChart.Data<Number, Number>(i, i == 12345 ? 100 : 10));
+        }
+        lineChart.getData().add(series);
+        pulse();
+        final ChartPolyline line = (ChartPolyline) series.getNode();
+        assertEquals(20000, line.getPointCount());
+
+        lineChart.setDownsampler(Downsampler.MIN_MAX);
+        pulse();
+        final int columns = (int) Math.ceil(lineChart.getXAxis().getWidth()) + 1;
+        assertTrue(line.getPointCount() <= 4 * columns);
+        final double spike = (float) lineChart.getYAxis().getDisplayPosition(100);
+        boolean spikeFound = false;
+        for (int i = 0; i < line.getPointCount(); i++) {
+            if (line.getY(i) == spike) {
+                spikeFound = true;
+            }
+        }
+        assertTrue(spikeFound);
+
+        lineChart.setDownsampler(null);
+        pulse();
+        assertEquals(20000, line.getPointCount());
+    }
+
+    @Test
+    public void testDownsamplingFollowsCurrentValues() {
+        startApp();
+        lineChart.setCreateSymbols(false);
+        final NumberAxis yAxis = (NumberAxis) lineChart.getYAxis();
+        yAxis.setAutoRanging(false);
+        yAxis.setLowerBound(0);
+        yAxis.setUpperBound(200);
+        final XYChart.Series<Number, Number> series = new XYChart.Series<Number, Number>();
+        for (int i = 0; i < 20000; i++) {
+            series.getData().add(new XYChart.Data<Number, Number>(i, 10));
+        }
+        lineChart.getData().add(series);
+        lineChart.setDownsampler(Downsampler.MIN_MAX);
+        pulse();
+        final ChartPolyline line = (ChartPolyline) series.getNode();
+        final double spike = (float) yAxis.getDisplayPosition(100);
+        assertFalse(containsY(line, spike));
+
+        // an animation moves the displayed value without changing the data
+        series.getData().get(5000).setCurrentY(100);
+        lineChart.requestChartLayout();
+        pulse();
+        assertTrue(containsY(line, spike));
+    }
+
+    private static boolean containsY(ChartPolyline line, double y) {
+        for (int i = 0; i < line.getPointCount(); i++) {
+            if (line.getY(i) == y) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Test
+    public void testAppendedDataExtendsSeriesGeometry() {
+        startApp();
+        lineChart.setCreateSymbols(false);
+        final NumberAxis xAxis = (NumberAxis) lineChart.getXAxis();
+        xAxis.setAutoRanging(false);
+        xAxis.setUpperBound(100);
+        final NumberAxis yAxis = (NumberAxis) lineChart.getYAxis();
+        yAxis.setAutoRanging(false);
+        yAxis.setUpperBound(100);
+        lineChart.getData().add(series1);
+        pulse();
+        final ChartPolyline line = (ChartPolyline) series1.getNode();
+        final Path2D path = line.impl_configShape();
+
+        series1.getData().add(new XYChart.Data<Number, Number>(90d, 20d));
+        pulse();
+        assertEquals(6, line.getPointCount());
+        assertSame(path, line.impl_configShape());
+    }
+
+    @Test
+    public void testStreamingSeries() {
+        startApp();
+        ((NumberAxis) lineChart.getXAxis()).setForceZeroInRange(false);
+        final XYChart.Series<Number, Number> series = new XYChart.Series<Number, Number>();
+        series.setStreamCapacity(1000);
+        lineChart.getData().add(series);
+        for (int i = 0; i < 1500; i++) {
+            series.appendStreamData(i, i % 100);
+        }
+        pulse();
+        assertEquals(1000, series.getStreamSize());
+        assertTrue(series.getData().isEmpty());
+        assertEquals(1, lineChart.getPlotChildren().size());
+        final ChartPolyline line = (ChartPolyline) series.getNode();
+        assertEquals(1000, line.getPointCount());
+        final NumberAxis xAxis = (NumberAxis) lineChart.getXAxis();
+        assertTrue(xAxis.getLowerBound() >= 400 && xAxis.getLowerBound() <= 500);
+        assertTrue(xAxis.getUpperBound() >= 1499);
+        assertEquals((float) xAxis.getDisplayPosition(500), line.getX(0), 0);
+
+        series.clearStreamData();
+        pulse();
+        assertEquals(0, line.getPointCount());
+    }
 }
@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2012, 2014, Oracle and/or its affiliates. All rights reserved.
+ * Copyright (c) 2012, 2017, Oracle and/or its affiliates. All rights reserved.
  * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
  *
  * This code is free software; you can redistribute it and/or modify it
@@ -32,7 +32,9 @@ import javafx.scene.chart.Axis.TickMark;
 import javafx.css.ParsedValue;
 import javafx.css.CssMetaData;
 import javafx.css.StyleableProperty;
+import com.sun.javafx.charts.ChartPolyline;
 import com.sun.javafx.css.parser.CSSParser;
+import javafx.scene.Group;
 import javafx.scene.Node;
 import javafx.scene.Scene;
 import javafx.scene.layout.StackPane;
@@ -70,6 +72,18 @@ public class XYChartTest extends ChartTestBase {
         System.out.println(" --- "+yaxis.getTickMarks().toString());
     }
 
+    @Test public void testStreamDataIgnoredOnCategoryAxis() {
+        startApp();
+        final XYChart.Series<String, Number> series = new XYChart.Series<String, Number>();
+        series.getData().add(new XYChart.Data<String, Number>("A", 10));
+        series.setStreamCapacity(10);
+        series.appendStreamData(1, 1000);
+        ((AreaChart<String, Number>) areachart).getData().add(series);
+        pulse();
+        assertEquals(1, cataxis.getCategories().size());
+        assertEquals(1, ((ChartPolyline) ((Group) series.getNode()).getChildren().get(1)).getPointCount());
+    }
+
     // RT-22166
     @Test public void testTickLabelFont() {
         startApp();
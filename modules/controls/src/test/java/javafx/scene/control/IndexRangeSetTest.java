@@ -0,0 +1,164 @@
+/*
+ * Copyright (c) 2017, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package javafx.scene.control;
+
+import java.util.BitSet;
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class IndexRangeSetTest {
+    private IndexRangeSet set;
+
+    @Before public void setup() {
+        set = new IndexRangeSet();
+        set.set(2, 5);
+        set.set(10);
+        set.set(20, 30);
+    }
+
+    private void assertSameAs(BitSet expected, IndexRangeSet actual) {
+        assertEquals(expected.cardinality(), actual.cardinality());
+        assertEquals(expected.length(), actual.length());
+        assertEquals(expected.isEmpty(), actual.isEmpty());
+        int position = 0;
+        for (int i = 0; i <= expected.length() + 1; i++) {
+            assertEquals("index " + i, expected.get(i), actual.get(i));
+            assertEquals("index " + i, expected.nextSetBit(i), actual.nextSetBit(i));
+            assertEquals("index " + i, expected.nextClearBit(i), actual.nextClearBit(i));
+            assertEquals("index " + i, expected.previousSetBit(i), actual.previousSetBit(i));
+            assertEquals("index " + i, position, actual.rank(i));
+            if (expected.get(i)) {
+                assertEquals(i, actual.select(position++));
+            }
+        }
+        assertEquals(-1, actual.select(position));
+    }
+
+    @Test public void adjacentAndOverlappingRangesAreMerged() {
+        assertEquals(3, set.getRangeCount());
+        set.set(5, 10);
+        assertEquals(2, set.getRangeCount());
+        set.set(11, 25);
+        assertEquals(1, set.getRangeCount());
+        assertEquals(28, set.cardinality());
+    }
+
+    @Test public void clearSplitsRange() {
+        set.clear(24);
+        assertEquals(4, set.getRangeCount());
+        assertEquals(13, set.cardinality());
+        assertFalse(set.get(24));
+        assertTrue(set.get(23));
+        assertTrue(set.get(25));
+        set.clear(0, 100);
+        assertTrue(set.isEmpty());
+    }
+
+    @Test public void rankAndSelect() {
+        assertEquals(0, set.rank(2));
+        assertEquals(3, set.rank(10));
+        assertEquals(4, set.rank(20));
+        assertEquals(14, set.rank(100));
+        assertEquals(2, set.select(0));
+        assertEquals(10, set.select(3));
+        assertEquals(29, set.select(13));
+        assertEquals(-1, set.select(14));
+    }
+
+    @Test public void insertMovesRangesUp() {
+        set.insert(22, 5);
+        assertEquals(14, set.cardinality());
+        assertTrue(set.get(21));
+        assertFalse(set.get(22));
+        assertFalse(set.get(26));
+        assertTrue(set.get(27));
+        assertEquals(35, set.length());
+        set.insert(0, 1);
+        assertTrue(set.get(3));
+        assertFalse(set.get(2));
+    }
+
+    @Test public void removeMovesRangesDownAndMerges() {
+        set.remove(5, 10);
+        assertEquals(2, set.getRangeCount());
+        assertTrue(set.get(5));
+        set.remove(8, 15);
+        assertEquals(2, set.getRangeCount());
+        assertEquals(14, set.rank(100));
+        set.remove(6, 13);
+        assertEquals(1, set.getRangeCount());
+        assertEquals(9, set.cardinality());
+    }
+
+    @Test public void matchesBitSet() {
+        Random random = new Random(42);
+        BitSet expected = new BitSet();
+        IndexRangeSet actual = new IndexRangeSet();
+        for (int n = 0; n < 500; n++) {
+            int from = random.nextInt(100);
+            int to = from + random.nextInt(20);
+            switch (random.nextInt(5)) {
+                case 0:
+                    expected.set(from, to);
+                    actual.set(from, to);
+                    break;
+                case 1:
+                    expected.clear(from, to);
+                    actual.clear(from, to);
+                    break;
+                case 2:
+                    expected.set(from, ! expected.get(from));
+                    actual.set(from, ! actual.get(from));
+                    break;
+                case 3: {
+                    // move everything from 'from' upwards
+                    BitSet moved = expected.get(from, Math.max(from, expected.length()));
+                    expected.clear(from, Math.max(from, expected.length()));
+                    for (int i = moved.nextSetBit(0); i >= 0; i = moved.nextSetBit(i + 1)) {
+                        expected.set(from + (to - from) + i);
+                    }
+                    actual.insert(from, to - from);
+                    break;
+                }
+                default: {
+                    BitSet moved = expected.get(to, Math.max(to, expected.length()));
+                    expected.clear(from, Math.max(to, expected.length()));
+                    for (int i = moved.nextSetBit(0); i >= 0; i = moved.nextSetBit(i + 1)) {
+                        expected.set(from + i);
+                    }
+                    actual.remove(from, to);
+                    break;
+                }
+            }
+            assertSameAs(expected, actual);
+            assertSameAs(expected, actual.clone());
+        }
+    }
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2011, 2015, Oracle and/or its affiliates. All rights reserved.
+ * Copyright (c) 2011, 2017, Oracle and/or its affiliates. All rights reserved.
  * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
  *
  * This code is free software; you can redistribute it and/or modify it
@@ -1795,4 +1795,59 @@ public class ListViewTest {
         sm.getSelectedIndices().addListener(l);
         sm.selectIndices(indices[0], indices);
     }
+
+    @Test public void testSelectRangeIsASingleChange() {
+        final ListView<Integer> lv = new ListView<>();
+        for (int i = 0; i < 100; i++) {
+            lv.getItems().add(i);
+        }
+
+        MultipleSelectionModel<Integer> sm = lv.getSelectionModel();
+        sm.setSelectionMode(SelectionMode.MULTIPLE);
+        sm.select(50);
+
+        List<ListChangeListener.Change<? extends Integer>> changes = new ArrayList<>();
+        sm.getSelectedIndices().addListener((ListChangeListener<Integer>) changes::add);
+        sm.selectRange(80, 39);
+
+        assertEquals(1, changes.size());
+        ListChangeListener.Change<? extends Integer> c = changes.get(0);
+        assertTrue(c.next());
+        assertEquals(0, c.getFrom());
+        assertEquals(40, c.getAddedSize());
+        assertEquals(41, sm.getSelectedIndices().size());
+        assertEquals(40, (int) sm.getSelectedIndices().get(0));
+        assertEquals(80, (int) sm.getSelectedIndices().get(40));
+        assertEquals(40, sm.getSelectedIndex());
+        assertEquals(40, lv.getFocusModel().getFocusedIndex());
+        assertEquals(10, sm.getSelectedIndices().indexOf(50));
+    }
+
+    @Test public void testInsertAboveLargeSelectedRange() {
+        final ListView<Integer> lv = new ListView<>();
+        Integer[] items = new Integer[500_000];
+        for (int i = 0; i < items.length; i++) {
+            items[i] = i;
+        }
+        lv.getItems().setAll(items);
+
+        MultipleSelectionModel<Integer> sm = lv.getSelectionModel();
+        sm.setSelectionMode(SelectionMode.MULTIPLE);
+        sm.selectRange(0, items.length);
+        assertEquals(items.length, sm.getSelectedIndices().size());
+
+        lv.getItems().add(0, -1);
+        assertEquals(items.length, sm.getSelectedIndices().size());
+        assertFalse(sm.isSelected(0));
+        assertTrue(sm.isSelected(1));
+        assertTrue(sm.isSelected(items.length));
+        assertEquals(items.length, (int) sm.getSelectedIndices().get(items.length - 1));
+
+        lv.getItems().remove(1, 3);
+        assertEquals(items.length - 2, sm.getSelectedIndices().size());
+        assertFalse(sm.isSelected(0));
+        assertTrue(sm.isSelected(1));
+        assertTrue(sm.isSelected(items.length - 2));
+        assertFalse(sm.isSelected(items.length - 1));
+    }
 }
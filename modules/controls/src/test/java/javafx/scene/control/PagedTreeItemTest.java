@@ -0,0 +1,205 @@
+/*
+ * Copyright (c) 2017, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package javafx.scene.control;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class PagedTreeItemTest {
+    private List<Runnable> pendingLoads;
+    private Executor oldExecutor;
+    private int loadCount;
+
+    private PagedTreeItem<String> root;
+
+    @Before public void setup() {
+        pendingLoads = new ArrayList<>();
+        oldExecutor = PagedTreeItem.executor;
+        PagedTreeItem.executor = pendingLoads::add;
+
+        root = new PagedTreeItem<>("root", createLoader(25));
+        root.setPageSize(10);
+    }
+
+    @After public void cleanup() {
+        PagedTreeItem.executor = oldExecutor;
+    }
+
+    private PagedTreeItem.PageLoader<String> createLoader(int childCount) {
+        return (value, from, count) -> {
+            loadCount++;
+            List<TreeItem<String>> page = new ArrayList<>();
+            for (int i = from; i < Math.min(childCount, from + count); i++) {
+                page.add(new TreeItem<>(value + "/" + i));
+            }
+            return page;
+        };
+    }
+
+    private void runPendingLoads() {
+        List<Runnable> loads = new ArrayList<>(pendingLoads);
+        pendingLoads.clear();
+        loads.forEach(Runnable::run);
+    }
+
+    @Test public void childrenAreNotLoadedUntilExpanded() {
+        assertFalse(root.isLeaf());
+        assertTrue(root.getChildren().isEmpty());
+        assertTrue(pendingLoads.isEmpty());
+        assertFalse(root.isLoading());
+    }
+
+    @Test public void expandingLoadsFirstPageWithPlaceholder() {
+        root.setExpanded(true);
+        assertTrue(root.isLoading());
+        assertEquals(1, root.getChildren().size());
+        assertNull(root.getChildren().get(0).getValue());
+
+        runPendingLoads();
+        assertFalse(root.isLoading());
+        assertEquals(10, root.getChildren().size());
+        assertEquals("root/0", root.getChildren().get(0).getValue());
+        assertEquals("root/9", root.getChildren().get(9).getValue());
+        assertFalse(root.isFullyLoaded());
+    }
+
+    @Test public void loadNextPageAppendsChildren() {
+        root.setExpanded(true);
+        runPendingLoads();
+        root.loadNextPage();
+        runPendingLoads();
+        root.loadNextPage();
+        runPendingLoads();
+
+        assertEquals(25, root.getChildren().size());
+        assertEquals("root/24", root.getChildren().get(24).getValue());
+        assertTrue(root.isFullyLoaded());
+
+        root.loadNextPage();
+        assertTrue(pendingLoads.isEmpty());
+        assertEquals(3, loadCount);
+    }
+
+    @Test public void itemWithNoChildrenBecomesLeaf() {
+        PagedTreeItem<String> item = new PagedTreeItem<>("empty", createLoader(0));
+        item.setExpanded(true);
+        runPendingLoads();
+        assertTrue(item.isFullyLoaded());
+        assertTrue(item.isLeaf());
+        assertTrue(item.getChildren().isEmpty());
+    }
+
+    @Test public void collapsingKeepsChildren() {
+        root.setExpanded(true);
+        runPendingLoads();
+        List<TreeItem<String>> loaded = new ArrayList<>(root.getChildren());
+
+        root.setExpanded(false);
+        assertEquals(loaded, root.getChildren());
+        assertFalse(root.isLeaf());
+
+        root.setExpanded(true);
+        assertEquals(loaded, root.getChildren());
+        assertTrue(pendingLoads.isEmpty());
+        assertEquals(1, loadCount);
+    }
+
+    @Test public void lowMemoryEvictsCollapsedChildrenAndExpandingReloads() {
+        root.setExpanded(true);
+        runPendingLoads();
+        root.loadNextPage();
+        runPendingLoads();
+
+        root.setExpanded(false);
+        root.evictChildren();
+        assertTrue(root.getChildren().isEmpty());
+        assertFalse(root.isLeaf());
+        assertFalse(root.isFullyLoaded());
+
+        root.setExpanded(true);
+        assertTrue(root.isLoading());
+        runPendingLoads();
+        assertEquals(10, root.getChildren().size());
+        assertEquals("root/0", root.getChildren().get(0).getValue());
+        assertEquals(3, loadCount);
+    }
+
+    @Test public void lowMemoryDoesNotEvictExpandedChildren() {
+        root.setExpanded(true);
+        runPendingLoads();
+
+        root.evictChildren();
+        assertEquals(10, root.getChildren().size());
+    }
+
+    @Test public void collapsingWhileLoadingDiscardsPageAndResumesOnExpand() {
+        root.setExpanded(true);
+        root.setExpanded(false);
+        assertFalse(root.isLoading());
+
+        runPendingLoads();
+        assertTrue(root.getChildren().isEmpty());
+
+        root.setExpanded(true);
+        runPendingLoads();
+        assertEquals(10, root.getChildren().size());
+    }
+
+    @Test public void reloadDiscardsLoadedChildren() {
+        root.setExpanded(true);
+        runPendingLoads();
+        root.reload();
+        assertTrue(root.isLoading());
+        runPendingLoads();
+        assertEquals(10, root.getChildren().size());
+        assertEquals(2, loadCount);
+    }
+
+    @Test public void selectionIsKeptWhenPagesAreLoaded() {
+        TreeView<String> treeView = new TreeView<>(root);
+        root.setExpanded(true);
+        runPendingLoads();
+
+        TreeItem<String> selected = root.getChildren().get(4);
+        treeView.getSelectionModel().select(selected);
+        treeView.getFocusModel().focus(5);
+
+        root.loadNextPage();
+        runPendingLoads();
+
+        assertEquals(20, root.getChildren().size());
+        assertEquals(selected, treeView.getSelectionModel().getSelectedItem());
+        assertEquals(5, treeView.getSelectionModel().getSelectedIndex());
+        assertEquals(selected, treeView.getFocusModel().getFocusedItem());
+    }
+}
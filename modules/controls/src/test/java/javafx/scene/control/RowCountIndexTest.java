@@ -0,0 +1,95 @@
+/*
+ * Copyright (c) 2017, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package javafx.scene.control;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class RowCountIndexTest {
+    private RowCountIndex index;
+
+    @Before public void setup() {
+        index = new RowCountIndex();
+        index.setAll(new int[] { 1, 3, 1, 0, 5, 1 });
+    }
+
+    @Test public void sumsAreOffsetsOfEachChild() {
+        assertEquals(0, index.sum(0));
+        assertEquals(1, index.sum(1));
+        assertEquals(4, index.sum(2));
+        assertEquals(5, index.sum(3));
+        assertEquals(5, index.sum(4));
+        assertEquals(10, index.sum(5));
+        assertEquals(11, index.sum(6));
+        assertEquals(11, index.total());
+    }
+
+    @Test public void findReturnsChildContainingRow() {
+        assertEquals(0, index.find(0));
+        assertEquals(1, index.find(1));
+        assertEquals(1, index.find(3));
+        assertEquals(2, index.find(4));
+        // the child at index 3 takes no rows, so it is never found
+        assertEquals(4, index.find(5));
+        assertEquals(4, index.find(9));
+        assertEquals(5, index.find(10));
+    }
+
+    @Test public void findOutOfRange() {
+        assertEquals(-1, index.find(-1));
+        assertEquals(-1, index.find(11));
+        index.reset(0);
+        assertEquals(-1, index.find(0));
+    }
+
+    @Test public void setUpdatesSumsAndTotal() {
+        index.set(1, 10);
+        assertEquals(10, index.get(1));
+        assertEquals(11, index.sum(2));
+        assertEquals(18, index.total());
+        assertEquals(1, index.find(10));
+        assertEquals(2, index.find(11));
+    }
+
+    @Test public void setAllMatchesIndividualSets() {
+        int[] counts = new int[37];
+        RowCountIndex other = new RowCountIndex();
+        other.reset(counts.length);
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = (i * 7) % 5;
+            other.set(i, counts[i]);
+        }
+        index.setAll(counts);
+        for (int i = 0; i <= counts.length; i++) {
+            assertEquals(other.sum(i), index.sum(i));
+        }
+        for (int row = 0; row < index.total(); row++) {
+            assertEquals(other.find(row), index.find(row));
+        }
+    }
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2010, 2016, Oracle and/or its affiliates. All rights reserved.
+ * Copyright (c) 2010, 2017, Oracle and/or its affiliates. All rights reserved.
  * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
  *
  * This code is free software; you can redistribute it and/or modify it
@@ -33,6 +33,7 @@ import static org.junit.Assert.*;
 
 import java.util.*;
 import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Supplier;
 
@@ -694,6 +695,118 @@ public class TableViewTest {
         assertNull(oldComparator);
     }
 
+    @Test public void testAsyncSortPolicyUpdatesItemsListWhenSortCompletes() {
+        List<Runnable> pendingSorts = new ArrayList<>();
+        Executor oldExecutor = BackgroundSort.executor;
+        BackgroundSort.executor = pendingSorts::add;
+        try {
+            TableColumn<String, String> col = initSortTestStructure();
+            col.setSortType(DESCENDING);
+            table.setSortPolicy((Callback) TableView.ASYNC_SORT_POLICY);
+            table.getSortOrder().add(col);
+
+            VirtualFlowTestUtils.assertListContainsItemsInOrder(table.getItems(), "Apple", "Orange", "Banana");
+            assertEquals(1, pendingSorts.size());
+
+            pendingSorts.get(0).run();
+            VirtualFlowTestUtils.assertListContainsItemsInOrder(table.getItems(), "Orange", "Banana", "Apple");
+        } finally {
+            BackgroundSort.executor = oldExecutor;
+        }
+    }
+
+    @Test public void testAsyncSortPolicyCancelsPendingSort() {
+        List<Runnable> pendingSorts = new ArrayList<>();
+        Executor oldExecutor = BackgroundSort.executor;
+        BackgroundSort.executor = pendingSorts::add;
+        try {
+            TableColumn<String, String> col = initSortTestStructure();
+            col.setSortType(DESCENDING);
+            table.setSortPolicy((Callback) TableView.ASYNC_SORT_POLICY);
+            table.getSortOrder().add(col);
+            col.setSortType(ASCENDING);
+            assertEquals(2, pendingSorts.size());
+
+            // the first sort was cancelled, so running it must not change the list
+            pendingSorts.get(0).run();
+            VirtualFlowTestUtils.assertListContainsItemsInOrder(table.getItems(), "Apple", "Orange", "Banana");
+
+            pendingSorts.get(1).run();
+            VirtualFlowTestUtils.assertListContainsItemsInOrder(table.getItems(), "Apple", "Banana", "Orange");
+        } finally {
+            BackgroundSort.executor = oldExecutor;
+        }
+    }
+
+    @Test public void testAsyncSortPolicyIgnoresItemsListModifiedDuringSort() {
+        List<Runnable> pendingSorts = new ArrayList<>();
+        Executor oldExecutor = BackgroundSort.executor;
+        BackgroundSort.executor = pendingSorts::add;
+        try {
+            TableColumn<String, String> col = initSortTestStructure();
+            table.setSortPolicy((Callback) TableView.ASYNC_SORT_POLICY);
+            table.getSortOrder().add(col);
+            table.getItems().add("Cherry");
+
+            pendingSorts.get(0).run();
+            VirtualFlowTestUtils.assertListContainsItemsInOrder(table.getItems(), "Apple", "Orange", "Banana", "Cherry");
+        } finally {
+            BackgroundSort.executor = oldExecutor;
+        }
+    }
+
+    @Test public void testAsyncSortPolicyIgnoresItemsReplacedDuringSort() {
+        List<Runnable> pendingSorts = new ArrayList<>();
+        Executor oldExecutor = BackgroundSort.executor;
+        BackgroundSort.executor = pendingSorts::add;
+        try {
+            TableColumn<String, String> col = initSortTestStructure();
+            table.setSortPolicy((Callback) TableView.ASYNC_SORT_POLICY);
+            table.getSortOrder().add(col);
+            table.getItems().set(0, "Cherry");
+
+            pendingSorts.get(0).run();
+            VirtualFlowTestUtils.assertListContainsItemsInOrder(table.getItems(), "Cherry", "Orange", "Banana");
+        } finally {
+            BackgroundSort.executor = oldExecutor;
+        }
+    }
+
+    @Test public void testAsyncSortPolicyMatchesDefaultSortPolicyOnNumbers() {
+        List<Runnable> pendingSorts = new ArrayList<>();
+        Executor oldExecutor = BackgroundSort.executor;
+        BackgroundSort.executor = pendingSorts::add;
+        try {
+            // enough rows for the sort to fork, with duplicates and nulls
+            final int rows = 20000;
+            final Integer[] values = new Integer[rows];
+            final Random random = new Random(12345);
+            final List<Integer> items = new ArrayList<>();
+            for (int i = 0; i < rows; i++) {
+                values[i] = i % 7 == 0 ? null : random.nextInt(100);
+                items.add(i);
+            }
+
+            TableView<Integer> numberTable = new TableView<>(FXCollections.observableArrayList(items));
+            TableColumn<Integer, Integer> col = new TableColumn<>("column");
+            col.setCellValueFactory(param -> new ReadOnlyObjectWrapper<>(values[param.getValue()]));
+            col.setSortType(DESCENDING);
+            numberTable.getColumns().add(col);
+            numberTable.setSortPolicy((Callback) TableView.ASYNC_SORT_POLICY);
+            numberTable.getSortOrder().add(col);
+
+            final Comparator<Integer> byValue = TableColumnBase.DEFAULT_COMPARATOR;
+            List<Integer> expected = new ArrayList<>(items);
+            Collections.sort(expected, (i1, i2) -> byValue.compare(values[i2], values[i1]));
+
+            assertEquals(1, pendingSorts.size());
+            pendingSorts.get(0).run();
+            assertEquals(expected, numberTable.getItems());
+        } finally {
+            BackgroundSort.executor = oldExecutor;
+        }
+    }
+
     @Test public void testComparatorIsNullWhenSortOrderListIsEmpty() {
         TableColumn<String, String> col = initSortTestStructure();
 
@@ -2700,6 +2813,14 @@ public class TableViewTest {
             @Override public boolean isCellSelectionEnabled() {
                 return false;
             }
+
+            @Override protected Object getRowItem(int row) {
+                return null;
+            }
+
+            @Override protected TablePosition createPosition(int row, TableColumnBase<?,?> column, Object rowItem) {
+                return null;
+            }
         };
         ReadOnlyUnbackedObservableList<TablePosition<Object, ?>> selectedCellsSeq = new ReadOnlyUnbackedObservableList<TablePosition<Object, ?>>() {
             @Override public TablePosition<Object, ?> get(int i) {
@@ -3632,6 +3753,77 @@ public class TableViewTest {
         sl.dispose();
     }
 
+    @Test public void test_sortAfterSelectRangeDoesNotChangeSelectedItems() {
+        test_sortAfterRangeSelection(false);
+    }
+
+    @Test public void test_sortAfterSelectAllDoesNotChangeSelectedItems() {
+        test_sortAfterRangeSelection(true);
+    }
+
+    private void test_sortAfterRangeSelection(boolean selectAll) {
+        TableColumn<String, String> nameColumn = new TableColumn<>("name");
+        nameColumn.setCellValueFactory(param -> new ReadOnlyObjectWrapper(param.getValue()));
+
+        TableView<String> table = new TableView<>(FXCollections.observableArrayList("e", "c", "a", "d", "b"));
+        table.getColumns().add(nameColumn);
+        TableView.TableViewSelectionModel<String> sm = table.getSelectionModel();
+        sm.setSelectionMode(SelectionMode.MULTIPLE);
+
+        StageLoader sl = new StageLoader(table);
+
+        if (selectAll) {
+            sm.selectAll();
+        } else {
+            sm.selectRange(0, 3);
+        }
+        final List<String> selected = new ArrayList<>(sm.getSelectedItems());
+
+        final List<String> removedItems = new ArrayList<>();
+        final List<String> addedItems = new ArrayList<>();
+        final List<List<? extends TablePosition<String, ?>>> removedCells = new ArrayList<>();
+        sm.getSelectedItems().addListener((ListChangeListener<String>) c -> {
+            while (c.next()) {
+                removedItems.addAll(c.getRemoved());
+                addedItems.addAll(c.getAddedSubList());
+            }
+        });
+        sm.getSelectedCells().addListener((ListChangeListener<TablePosition>) c -> {
+            while (c.next()) {
+                removedCells.add((List) c.getRemoved());
+            }
+        });
+
+        // the same items stay selected, so no selected items event is fired
+        table.getSortOrder().add(nameColumn);
+        assertTrue(removedItems.isEmpty());
+        assertTrue(addedItems.isEmpty());
+        assertEquals(selected.size(), sm.getSelectedItems().size());
+        assertTrue(sm.getSelectedItems().containsAll(selected));
+
+        nameColumn.setSortType(TableColumn.SortType.DESCENDING);
+        assertTrue(removedItems.isEmpty());
+        assertTrue(addedItems.isEmpty());
+        assertTrue(sm.getSelectedItems().containsAll(selected));
+
+        // cells removed from a range selection keep the items they had when
+        // they were removed, even once the items are sorted again
+        sm.clearSelection();
+        sm.selectAll();
+        final List<String> rangeItems = new ArrayList<>(sm.getSelectedItems());
+        removedCells.clear();
+        sm.clearSelection();
+        assertEquals(1, removedCells.size());
+        nameColumn.setSortType(TableColumn.SortType.ASCENDING);
+        final List<String> removedAfterSort = new ArrayList<>();
+        for (TablePosition<String, ?> pos : removedCells.get(0)) {
+            removedAfterSort.add(pos.getItem());
+        }
+        assertEquals(rangeItems, removedAfterSort);
+
+        sl.dispose();
+    }
+
     private int rt_37538_count = 0;
     @Test public void test_rt_37538_noCNextCall() {
         test_rt_37538(false, false);
@@ -5240,4 +5432,144 @@ public class TableViewTest {
         assertEquals("Header should shrink to initial size.", initialHeight, row.getHeight(), 0.01);
         sl.dispose();
     }
+
+    private TableView<String> createCellSelectionTable(int rowCount, int columnCount) {
+        TableView<String> table = new TableView<>();
+        for (int i = 0; i < rowCount; i++) {
+            table.getItems().add("Row " + i);
+        }
+        for (int i = 0; i < columnCount; i++) {
+            table.getColumns().add(new TableColumn<>("Column " + i));
+        }
+        table.getSelectionModel().setSelectionMode(SelectionMode.MULTIPLE);
+        table.getSelectionModel().setCellSelectionEnabled(true);
+        return table;
+    }
+
+    @Test public void testSelectAllInCellSelectionModeSelectsEveryCell() {
+        TableView<String> table = createCellSelectionTable(1000, 3);
+        TableView.TableViewSelectionModel<String> sm = table.getSelectionModel();
+        TableColumn<String, ?> col1 = table.getColumns().get(1);
+        TableColumn<String, ?> col2 = table.getColumns().get(2);
+
+        List<ListChangeListener.Change<? extends TablePosition>> changes = new ArrayList<>();
+        sm.getSelectedCells().addListener((ListChangeListener<TablePosition>) changes::add);
+
+        sm.selectAll();
+        assertEquals(3000, sm.getSelectedCells().size());
+        assertEquals(1000, sm.getSelectedIndices().size());
+        assertEquals(1, changes.size());
+        assertTrue(sm.isSelected(500, col1));
+
+        // cells are ordered by row and then by column
+        TablePosition<String, ?> pos = sm.getSelectedCells().get(1501);
+        assertEquals(500, pos.getRow());
+        assertEquals(col1, pos.getTableColumn());
+        pos = sm.getSelectedCells().get(2999);
+        assertEquals(999, pos.getRow());
+        assertEquals(col2, pos.getTableColumn());
+        assertEquals(1501, sm.getSelectedCells().indexOf(new TablePosition<>(table, 500, col1)));
+    }
+
+    @Test public void testClearSelectionOfOneCellInsideSelectAll() {
+        TableView<String> table = createCellSelectionTable(100, 3);
+        TableView.TableViewSelectionModel<String> sm = table.getSelectionModel();
+        TableColumn<String, ?> col0 = table.getColumns().get(0);
+        TableColumn<String, ?> col1 = table.getColumns().get(1);
+
+        sm.selectAll();
+        sm.clearSelection(50, col1);
+        assertEquals(299, sm.getSelectedCells().size());
+        assertFalse(sm.isSelected(50, col1));
+        assertTrue(sm.isSelected(50, col0));
+        assertTrue(sm.isSelected(51, col1));
+
+        TablePosition<String, ?> pos = sm.getSelectedCells().get(151);
+        assertEquals(50, pos.getRow());
+        assertEquals(table.getColumns().get(2), pos.getTableColumn());
+        pos = sm.getSelectedCells().get(152);
+        assertEquals(51, pos.getRow());
+        assertEquals(col0, pos.getTableColumn());
+    }
+
+    @Test public void testClearSelectionAfterSelectAllReportsAllRemovedCells() {
+        TableView<String> table = createCellSelectionTable(100, 3);
+        TableView.TableViewSelectionModel<String> sm = table.getSelectionModel();
+        sm.selectAll();
+
+        List<TablePosition> removed = new ArrayList<>();
+        sm.getSelectedCells().addListener((ListChangeListener<TablePosition>) c -> {
+            while (c.next()) {
+                removed.addAll(c.getRemoved());
+            }
+        });
+
+        sm.clearSelection();
+        assertTrue(sm.getSelectedCells().isEmpty());
+        assertTrue(sm.getSelectedIndices().isEmpty());
+        assertEquals(300, removed.size());
+        assertEquals(99, removed.get(299).getRow());
+    }
+
+    @Test public void testSelectRangeInCellSelectionModeSkipsSelectedCells() {
+        TableView<String> table = createCellSelectionTable(100, 4);
+        TableView.TableViewSelectionModel<String> sm = table.getSelectionModel();
+        TableColumn<String, ?> col1 = table.getColumns().get(1);
+        TableColumn<String, ?> col2 = table.getColumns().get(2);
+
+        sm.select(20, col1);
+        sm.selectRange(10, col1, 29, col2);
+        assertEquals(40, sm.getSelectedCells().size());
+        assertEquals(20, sm.getSelectedIndices().size());
+        assertEquals(10, (int) sm.getSelectedIndices().get(0));
+        assertTrue(sm.isSelected(29, col2));
+        assertFalse(sm.isSelected(29, table.getColumns().get(3)));
+        assertFalse(sm.isSelected(30, col1));
+    }
+
+    @Test public void test_cellLengthsFollowRowsWhenRowsAreRemoved() {
+        TableView<String> view = new TableView<>();
+        for (int i = 0; i < 20; i++) {
+            view.getItems().add("small " + i);
+        }
+        for (int i = 0; i < 40; i++) {
+            view.getItems().add("big " + i);
+        }
+        TableColumn<String, String> col = new TableColumn<>("column");
+        col.setCellValueFactory(param -> new ReadOnlyObjectWrapper<>(param.getValue()));
+        view.getColumns().add(col);
+        view.setRowFactory(param -> new TableRow<String>() {
+            @Override protected void updateItem(String item, boolean empty) {
+                super.updateItem(item, empty);
+                double height = item != null && item.startsWith("big") ? 60 : 20;
+                setMinHeight(height);
+                setPrefHeight(height);
+                setMaxHeight(height);
+            }
+        });
+        StageLoader sl = new StageLoader(view);
+
+        // measure every row, so that scrolling relies on the measured lengths
+        for (int i = 0; i < view.getItems().size(); i += 5) {
+            view.scrollTo(i);
+            Toolkit.getToolkit().firePulse();
+        }
+
+        view.getItems().remove(2, 20);
+        Toolkit.getToolkit().firePulse();
+        view.scrollTo(0);
+        Toolkit.getToolkit().firePulse();
+
+        // two small rows take 40 pixels, then 16 rows of 60 pixels, so row
+        // 18 is at the top. Scrolling by pixels is only approximate, but
+        // lengths left at the indices of the removed rows would scroll much
+        // further.
+        VirtualFlow<?> flow = VirtualFlowTestUtils.getVirtualFlow(view);
+        flow.adjustPixels(1010);
+        Toolkit.getToolkit().firePulse();
+        int index = flow.getFirstVisibleCell().getIndex();
+        assertTrue("first visible row " + index, index >= 17 && index <= 20);
+
+        sl.dispose();
+    }
 }
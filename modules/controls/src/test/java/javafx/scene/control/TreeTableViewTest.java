@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2011, 2015, Oracle and/or its affiliates. All rights reserved.
+ * Copyright (c) 2011, 2017, Oracle and/or its affiliates. All rights reserved.
  * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
  *
  * This code is free software; you can redistribute it and/or modify it
@@ -35,6 +35,7 @@ import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.List;
 import java.util.Random;
+import java.util.concurrent.Executor;
 import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
@@ -346,6 +347,58 @@ public class TreeTableViewTest {
         return col;
     }
 
+    @Test public void testAsyncSortPolicyUpdatesChildrenWhenSortCompletes() {
+        List<Runnable> pendingSorts = new ArrayList<>();
+        Executor oldExecutor = BackgroundSort.executor;
+        BackgroundSort.executor = pendingSorts::add;
+        try {
+            TreeTableColumn<String, String> col = initSortTestStructure();
+            col.setSortType(DESCENDING);
+            apple.getChildren().addAll(new TreeItem<>("Granny Smith"), new TreeItem<>("Braeburn"));
+            apple.setExpanded(true);
+            treeTableView.setSortPolicy((Callback) TreeTableView.ASYNC_SORT_POLICY);
+
+            final int[] permutationEvents = new int[1];
+            treeTableView.getRoot().addEventHandler(TreeItem.childrenModificationEvent(), e -> {
+                if (e.wasPermutated()) permutationEvents[0]++;
+            });
+            treeTableView.getSortOrder().add(col);
+
+            VirtualFlowTestUtils.assertListContainsItemsInOrder(treeTableView.getRoot().getChildren(), apple, orange, banana);
+            assertEquals(1, pendingSorts.size());
+
+            pendingSorts.get(0).run();
+            VirtualFlowTestUtils.assertListContainsItemsInOrder(treeTableView.getRoot().getChildren(), orange, banana, apple);
+            assertEquals("Granny Smith", apple.getChildren().get(0).getValue());
+            assertEquals("Braeburn", apple.getChildren().get(1).getValue());
+            assertTrue(permutationEvents[0] > 0);
+        } finally {
+            BackgroundSort.executor = oldExecutor;
+        }
+    }
+
+    @Test public void testAsyncSortPolicyCancelsPendingSort() {
+        List<Runnable> pendingSorts = new ArrayList<>();
+        Executor oldExecutor = BackgroundSort.executor;
+        BackgroundSort.executor = pendingSorts::add;
+        try {
+            TreeTableColumn<String, String> col = initSortTestStructure();
+            col.setSortType(DESCENDING);
+            treeTableView.setSortPolicy((Callback) TreeTableView.ASYNC_SORT_POLICY);
+            treeTableView.getSortOrder().add(col);
+            col.setSortType(ASCENDING);
+            assertEquals(2, pendingSorts.size());
+
+            pendingSorts.get(0).run();
+            VirtualFlowTestUtils.assertListContainsItemsInOrder(treeTableView.getRoot().getChildren(), apple, orange, banana);
+
+            pendingSorts.get(1).run();
+            VirtualFlowTestUtils.assertListContainsItemsInOrder(treeTableView.getRoot().getChildren(), apple, banana, orange);
+        } finally {
+            BackgroundSort.executor = oldExecutor;
+        }
+    }
+
     @Ignore("This test is only valid if sort event consumption should revert changes")
     @Test public void testSortEventCanBeConsumedToStopSortOccurring_changeSortOrderList() {
         TreeTableColumn<String, String> col = initSortTestStructure();
@@ -3720,6 +3773,46 @@ public class TreeTableViewTest {
         sl.dispose();
     }
 
+    @Test public void test_removedCellsKeepTreeItemsAfterSort() {
+        TreeItem<String> root = new TreeItem<>();
+        root.getChildren().addAll(new TreeItem<>("e"), new TreeItem<>("c"), new TreeItem<>("a"),
+                new TreeItem<>("d"), new TreeItem<>("b"));
+
+        TreeTableColumn<String, String> nameColumn = new TreeTableColumn<>("name");
+        nameColumn.setCellValueFactory(param -> new ReadOnlyObjectWrapper(param.getValue().getValue()));
+
+        TreeTableView<String> table = new TreeTableView<>(root);
+        table.setShowRoot(false);
+        table.getColumns().add(nameColumn);
+        TreeTableView.TreeTableViewSelectionModel<String> sm = table.getSelectionModel();
+        sm.setSelectionMode(SelectionMode.MULTIPLE);
+
+        StageLoader sl = new StageLoader(table);
+
+        final List<List<? extends TreeTablePosition<String, ?>>> removedCells = new ArrayList<>();
+        sm.getSelectedCells().addListener((ListChangeListener<TreeTablePosition<String, ?>>) c -> {
+            while (c.next()) {
+                removedCells.add(c.getRemoved());
+            }
+        });
+
+        // cells removed from a range selection keep the tree items they had
+        // when they were removed, even once the items are sorted
+        sm.selectAll();
+        final List<TreeItem<String>> rangeItems = new ArrayList<>(sm.getSelectedItems());
+        removedCells.clear();
+        sm.clearSelection();
+        assertEquals(1, removedCells.size());
+        table.getSortOrder().add(nameColumn);
+        final List<TreeItem<String>> removedAfterSort = new ArrayList<>();
+        for (TreeTablePosition<String, ?> pos : removedCells.get(0)) {
+            removedAfterSort.add(pos.getTreeItem());
+        }
+        assertEquals(rangeItems, removedAfterSort);
+
+        sl.dispose();
+    }
+
     private int rt_37538_count = 0;
     @Test public void test_rt_37538_noCNextCall() {
         test_rt_37538(false, false);
@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2011, 2015, Oracle and/or its affiliates. All rights reserved.
+ * Copyright (c) 2011, 2017, Oracle and/or its affiliates. All rights reserved.
  * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
  *
  * This code is free software; you can redistribute it and/or modify it
@@ -33,6 +33,7 @@ import com.sun.javafx.scene.control.infrastructure.StageLoader;
 import com.sun.javafx.scene.control.infrastructure.VirtualFlowTestUtils;
 import com.sun.javafx.scene.control.skin.TextFieldSkin;
 import com.sun.javafx.scene.control.skin.VirtualScrollBar;
+import com.sun.javafx.scene.control.skin.VirtualFlow;
 import com.sun.javafx.scene.control.test.Employee;
 import com.sun.javafx.scene.control.test.Person;
 import com.sun.javafx.scene.control.test.RT_22463_Person;
@@ -3373,4 +3374,108 @@ public class TreeViewTest {
         sm.getSelectedIndices().addListener(l);
         sm.selectIndices(indices[0], indices);
     }
+
+    @Test public void testRowLookupAfterIncrementalExpandedCountChanges() {
+        TreeItem<String> root = new TreeItem<>("root");
+        root.setExpanded(true);
+        for (int i = 0; i < 50; i++) {
+            TreeItem<String> child = new TreeItem<>("child " + i);
+            for (int j = 0; j < 5; j++) {
+                TreeItem<String> grandChild = new TreeItem<>("grandchild " + i + "-" + j);
+                grandChild.getChildren().add(new TreeItem<>("leaf " + i + "-" + j));
+                child.getChildren().add(grandChild);
+            }
+            root.getChildren().add(child);
+        }
+        treeView.setRoot(root);
+        assertRowsMatchTree(root);
+
+        root.getChildren().get(3).setExpanded(true);
+        root.getChildren().get(3).getChildren().get(2).setExpanded(true);
+        root.getChildren().get(40).setExpanded(true);
+        assertRowsMatchTree(root);
+
+        root.getChildren().get(40).getChildren().get(0).setExpanded(true);
+        root.getChildren().get(3).setExpanded(false);
+        root.getChildren().remove(10);
+        root.getChildren().get(20).setExpanded(true);
+        assertRowsMatchTree(root);
+
+        root.getChildren().get(40).getChildren().get(0).getChildren().add(new TreeItem<>("new leaf"));
+        root.getChildren().get(3).setExpanded(true);
+        treeView.setShowRoot(false);
+        assertRowsMatchTree(root);
+    }
+
+    private void assertRowsMatchTree(TreeItem<String> root) {
+        List<TreeItem<String>> rows = new ArrayList<>();
+        collectVisibleItems(root, rows);
+        if (! treeView.isShowRoot()) rows.remove(0);
+
+        assertEquals(rows.size(), treeView.getExpandedItemCount());
+        for (int i = 0; i < rows.size(); i++) {
+            assertEquals(rows.get(i), treeView.getTreeItem(i));
+            assertEquals(i, treeView.getRow(rows.get(i)));
+        }
+        assertNull(treeView.getTreeItem(rows.size()));
+    }
+
+    private void collectVisibleItems(TreeItem<String> item, List<TreeItem<String>> rows) {
+        rows.add(item);
+        if (item.isExpanded()) {
+            for (TreeItem<String> child : item.getChildren()) {
+                collectVisibleItems(child, rows);
+            }
+        }
+    }
+
+    @Test public void test_cellLengthsFollowRowsWhenItemIsCollapsed() {
+        TreeItem<String> root = new TreeItem<>("root");
+        root.setExpanded(true);
+        TreeItem<String> group = new TreeItem<>("group");
+        group.setExpanded(true);
+        for (int i = 0; i < 20; i++) {
+            group.getChildren().add(new TreeItem<>("small " + i));
+        }
+        root.getChildren().add(group);
+        for (int i = 0; i < 40; i++) {
+            root.getChildren().add(new TreeItem<>("big " + i));
+        }
+
+        TreeView<String> view = new TreeView<>(root);
+        view.setCellFactory(param -> new TreeCell<String>() {
+            @Override protected void updateItem(String item, boolean empty) {
+                super.updateItem(item, empty);
+                setText(empty ? null : item);
+                double height = item != null && item.startsWith("big") ? 60 : 20;
+                setMinHeight(height);
+                setPrefHeight(height);
+                setMaxHeight(height);
+            }
+        });
+        StageLoader sl = new StageLoader(view);
+
+        // measure every row, so that scrolling relies on the measured lengths
+        for (int i = 0; i < view.getExpandedItemCount(); i += 5) {
+            view.scrollTo(i);
+            Toolkit.getToolkit().firePulse();
+        }
+
+        group.setExpanded(false);
+        Toolkit.getToolkit().firePulse();
+        view.scrollTo(0);
+        Toolkit.getToolkit().firePulse();
+
+        // 'root' and 'group' take 40 pixels, then 16 rows of 60 pixels, so
+        // row 18 is at the top. Scrolling by pixels is only approximate, but
+        // lengths left at the indices of the collapsed rows would scroll much
+        // further.
+        VirtualFlow<?> flow = VirtualFlowTestUtils.getVirtualFlow(view);
+        flow.adjustPixels(1010);
+        Toolkit.getToolkit().firePulse();
+        int index = flow.getFirstVisibleCell().getIndex();
+        assertTrue("first visible row " + index, index >= 17 && index <= 20);
+
+        sl.dispose();
+    }
 }
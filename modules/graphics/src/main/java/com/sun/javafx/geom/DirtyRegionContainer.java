@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2011, 2013, Oracle and/or its affiliates. All rights reserved.
+ * Copyright (c) 2011, 2017, Oracle and/or its affiliates. All rights reserved.
  * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
  *
  * This code is free software; you can redistribute it and/or modify it
@@ -32,6 +32,12 @@ import java.util.Arrays;
  * pointer to the first empty dirty region in the array and index of last
  * modified dirty region. It also introduces convenient methods to modify
  * the array of dirty regions.
+ *
+ * If a region cost is set, the container weighs the pixels that would be
+ * painted needlessly by merging two regions against the cost of painting
+ * one more region: regions which are cheaper to paint together are merged
+ * even though they do not intersect, and when the container is full the
+ * regions whose union adds the fewest needless pixels are merged first.
  */
 public final class DirtyRegionContainer {
 
@@ -40,11 +46,48 @@ public final class DirtyRegionContainer {
 
     private RectBounds[] dirtyRegions;
     private int emptyIndex;
+    private int regionCost;
+    private long dirtyArea;
 
     public DirtyRegionContainer(int count) {
         initDirtyRegions(count);
     }
 
+    public DirtyRegionContainer(int count, int regionCost) {
+        initDirtyRegions(count);
+        this.regionCost = regionCost;
+    }
+
+    /**
+     * Gets the estimated cost of painting one more dirty region, expressed
+     * as a number of pixels. Zero disables merging of disjoint regions
+     * while there is space left.
+     */
+    public int getRegionCost() {
+        return regionCost;
+    }
+
+    /**
+     * Gets the sum of the areas of the dirty regions added since the last
+     * reset, before they were merged. Regions which overlap are counted
+     * more than once.
+     */
+    public long getDirtyArea() {
+        return dirtyArea;
+    }
+
+    /**
+     * Gets the sum of the areas of the dirty regions in this container,
+     * which is the area that will be painted.
+     */
+    public long getArea() {
+        long area = 0;
+        for (int i = 0; i < emptyIndex; i++) {
+            area += area(dirtyRegions[i]);
+        }
+        return area;
+    }
+
     @Override
     public boolean equals(Object obj) {
         if (obj instanceof DirtyRegionContainer) {
@@ -103,6 +146,7 @@ public final class DirtyRegionContainer {
 
         regioncopy(other.dirtyRegions, 0, dirtyRegions, 0, other.emptyIndex);
         emptyIndex = other.emptyIndex;
+        dirtyArea = other.dirtyArea;
         return this;
     }
 
@@ -115,9 +159,10 @@ public final class DirtyRegionContainer {
     }
 
     public DirtyRegionContainer copy() {
-        DirtyRegionContainer drc = new DirtyRegionContainer(maxSpace());
+        DirtyRegionContainer drc = new DirtyRegionContainer(maxSpace(), regionCost);
         regioncopy(dirtyRegions, 0, drc.dirtyRegions, 0, emptyIndex);
         drc.emptyIndex = emptyIndex;
+        drc.dirtyArea = dirtyArea;
         return drc;
     }
 
@@ -146,6 +191,11 @@ public final class DirtyRegionContainer {
             if (region.isEmpty())
                 return;
 
+            dirtyArea += area(region);
+            addRegion(region);
+    }
+
+    private void addRegion(final RectBounds region) {
             RectBounds dr, tmp;
             int tempIndex = 0;
             int regionCount = emptyIndex;
@@ -153,7 +203,7 @@ public final class DirtyRegionContainer {
             for(int i = 0; i < regionCount; i++) {
                 //can't have overlapping regions
                 dr = dirtyRegions[tempIndex];
-                if (region.intersects(dr)) {
+                if (region.intersects(dr) || isCheaperMerged(region, dr)) {
                     region.unionWith(dr);
                     tmp = dirtyRegions[tempIndex];
                     dirtyRegions[tempIndex] = dirtyRegions[emptyIndex - 1];
@@ -179,8 +229,12 @@ public final class DirtyRegionContainer {
     public void merge(DirtyRegionContainer other) {
         int otherSize = other.size();
         for(int i = 0; i < otherSize; i++) {
-            addDirtyRegion(other.getDirtyRegion(i));
+            RectBounds region = other.getDirtyRegion(i);
+            if (!region.isEmpty()) {
+                addRegion(region);
+            }
         }
+        dirtyArea += other.dirtyArea;
     }
 
     public int size() {
@@ -189,14 +243,37 @@ public final class DirtyRegionContainer {
 
     public void reset() {
         emptyIndex = 0;
+        dirtyArea = 0;
     }
 
     private RectBounds compress(final RectBounds region) {
         compress_heap();
-        addDirtyRegion(region);
+        addRegion(region);
         return region;
     }
 
+    /**
+     * Returns true if painting the union of two disjoint regions is
+     * estimated to be cheaper than painting them separately.
+     */
+    private boolean isCheaperMerged(RectBounds r0, RectBounds r1) {
+        return regionCost > 0 &&
+               unifiedArea(r0, r1) - area(r0) - area(r1) < regionCost;
+    }
+
+    private static long area(RectBounds r) {
+        return (long) ((double) r.getWidth() * r.getHeight());
+    }
+
+    private static long unifiedArea(RectBounds r0, RectBounds r1) {
+        float minX, minY, maxX, maxY;
+        minX = r0.getMinX() < r1.getMinX() ? r0.getMinX() : r1.getMinX();
+        minY = r0.getMinY() < r1.getMinY() ? r0.getMinY() : r1.getMinY();
+        maxX = r0.getMaxX() > r1.getMaxX() ? r0.getMaxX() : r1.getMaxX();
+        maxY = r0.getMaxY() > r1.getMaxY() ? r0.getMaxY() : r1.getMaxY();
+        return (long) ((double) (maxX - minX) * (maxY - minY));
+    }
+
     /**
      * If there are empty regions in the dirty regions array.
      * @return true if there is empty region in the array; false otherwise
@@ -324,8 +401,9 @@ public final class DirtyRegionContainer {
         int[] temp = heap[0];
 
         // Check if the minimum element wasn't computed with some already merged region
-        // If so, we can recompute it and push it down (as the new merged region can be
-        // only greater than the original region)
+        // If so, we can recompute it and push it down. Keys deeper in the heap are
+        // only recomputed once they reach the top, so the order of the merges is
+        // approximate.
         while (((1 << temp[1] | 1 << temp[2]) & invalidMask) > 0) {
             temp[0] = unifiedRegionArea(resolveMap(map, temp[1]), resolveMap(map, temp[2]));
             siftDown(0);
@@ -355,16 +433,16 @@ public final class DirtyRegionContainer {
         return idx;
     }
 
+    /**
+     * Gets the number of pixels that would be painted needlessly if the
+     * two regions were merged, which is what the compressing algorithm
+     * minimizes.
+     */
     private int unifiedRegionArea(int i0, int i1) {
         RectBounds r0 = dirtyRegions[i0];
         RectBounds r1 = dirtyRegions[i1];
-        float minX, minY, maxX, maxY;
-        minX = r0.getMinX() < r1.getMinX() ? r0.getMinX() : r1.getMinX();
-        minY = r0.getMinY() < r1.getMinY() ? r0.getMinY() : r1.getMinY();
-        maxX = r0.getMaxX() > r1.getMaxX() ? r0.getMaxX() : r1.getMaxX();
-        maxY = r0.getMaxY() > r1.getMaxY() ? r0.getMaxY() : r1.getMaxY();
-
-        return (int) ((maxX - minX) * (maxY - minY));
+        long waste = unifiedArea(r0, r1) - area(r0) - area(r1);
+        return (int) Math.max(Math.min(waste, Integer.MAX_VALUE), Integer.MIN_VALUE);
     }
     /***************************************************************************
      * Heap-based compressing algorithm
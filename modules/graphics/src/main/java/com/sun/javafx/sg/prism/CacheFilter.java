@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2011, 2015, Oracle and/or its affiliates. All rights reserved.
+ * Copyright (c) 2011, 2017, Oracle and/or its affiliates. All rights reserved.
  * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
  *
  * This code is free software; you can redistribute it and/or modify it
@@ -43,6 +43,8 @@ import com.sun.scenario.effect.Effect;
 import com.sun.scenario.effect.FilterContext;
 import com.sun.scenario.effect.Filterable;
 import com.sun.scenario.effect.ImageData;
+import com.sun.scenario.effect.impl.ImagePool;
+import com.sun.scenario.effect.impl.PoolFilterable;
 import com.sun.scenario.effect.impl.prism.PrDrawable;
 import com.sun.scenario.effect.impl.prism.PrFilterContext;
 import javafx.geometry.Insets;
@@ -124,6 +126,13 @@ public class CacheFilter {
     // regenerate the cache next time.
     private boolean wasUnsupported = false;
 
+    // Set for caches created by the automatic caching of NGNode. The image
+    // of such a cache is retained in its image pool, which evicts it when
+    // the retained images exceed their budget. An evicted cache is given up
+    // by the node on its next rendering.
+    private boolean automatic;
+    private boolean rendering;
+    private boolean evicted;
     /**
      * Compute the dirty region that must be re-rendered after scrolling
      */
@@ -160,6 +169,32 @@ public class CacheFilter {
                            cacheHint == CacheHint.SCALE_AND_ROTATE);
     }
 
+    /**
+     * Creates a cache for a node which the application did not ask to be
+     * cached, see {@link NGNode#isAutoCached}.
+     */
+    static CacheFilter createAutomatic(NGNode node) {
+        CacheFilter filter = new CacheFilter(node, CacheHint.DEFAULT);
+        filter.automatic = true;
+        return filter;
+    }
+
+    final boolean isAutomatic() { return automatic; }
+
+    /**
+     * Returns true if the cached image of an automatic cache has been
+     * evicted, or could not be kept in the first place.
+     */
+    final boolean isEvicted() { return evicted; }
+
+    private void evict() {
+        evicted = true;
+        // the image is released once the current rendering is done with it
+        if (!rendering) {
+            imageDataUnref();
+        }
+    }
+
     // These two methods exist only for the sake of testing.
     final boolean isScaleHint() { return scaleHint; }
     final boolean isRotateHint() { return rotateHint; }
@@ -521,6 +556,7 @@ public class CacheFilter {
 
         lastXDelta = lastXDelta * xformInfo[0];
         lastYDelta = lastYDelta * xformInfo[1];
+        rendering = true;
 
         if (cachedImageData != null) {
             Filterable implImage = cachedImageData.getUntransformedImage();
@@ -583,6 +619,9 @@ public class CacheFilter {
             cachedX = cachedBounds.x;
             cachedY = cachedBounds.y;
 
+            if (automatic) {
+                retainImage();
+            }
         } else {
             if (scrollCacheState == ScrollCacheState.ENABLED &&
                     (lastXDelta != 0 || lastYDelta != 0) ) {
@@ -618,7 +657,32 @@ public class CacheFilter {
             double myt = xform.getMyt();
             impl_renderCacheToScreen(g, implImage, mxt, myt);
             implImage.unlock();
+            if (automatic && !evicted) {
+                PoolFilterable img = (PoolFilterable) implImage;
+                img.getImagePool().touch(img);
+            }
+        }
+        rendering = false;
+        if (evicted) {
+            imageDataUnref();
+        }
+    }
+
+    /**
+     * Hands the freshly rendered image of an automatic cache over to its
+     * image pool. The image is only retained once the subtree has been
+     * rendered into it, so that caches created while rendering the
+     * subtree cannot evict it before it is used.
+     */
+    private void retainImage() {
+        Filterable implImage = cachedImageData.getUntransformedImage();
+        if (implImage instanceof PoolFilterable) {
+            ImagePool pool = ((PoolFilterable) implImage).getImagePool();
+            if (pool != null && pool.retain((PoolFilterable) implImage, this::evict)) {
+                return;
+            }
         }
+        evicted = true;
     }
 
     /**
@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2011, 2013, Oracle and/or its affiliates. All rights reserved.
+ * Copyright (c) 2011, 2017, Oracle and/or its affiliates. All rights reserved.
  * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
  *
  * This code is free software; you can redistribute it and/or modify it
@@ -26,17 +26,56 @@
 package com.sun.javafx.sg.prism;
 
 import com.sun.javafx.geom.BaseBounds;
+import com.sun.javafx.geom.Rectangle;
 import com.sun.javafx.geom.transform.BaseTransform;
 import com.sun.prism.Graphics;
+import com.sun.prism.Texture;
+import com.sun.prism.impl.PrismSettings;
 import com.sun.scenario.effect.Effect;
+import com.sun.scenario.effect.FilterContext;
+import com.sun.scenario.effect.Filterable;
+import com.sun.scenario.effect.ImageData;
+import com.sun.scenario.effect.impl.ImagePool;
+import com.sun.scenario.effect.impl.PoolFilterable;
 import com.sun.scenario.effect.impl.prism.PrEffectHelper;
+import com.sun.scenario.effect.impl.prism.PrTexture;
 
 /**
+ * Renders a node through its effect. If the node, its effect and the
+ * transform it is rendered with do not change between renderings in two
+ * different pulses, the complete output of the effect is kept in an image
+ * retained from the {@link ImagePool} and is drawn on later pulses instead
+ * of running the effect again. A change in translation by a whole number of pixels does
+ * not require the effect to run again. The owning node calls
+ * {@link #invalidate} whenever its content or the effect changes.
  */
 public class EffectFilter {
+    // The number of the pulse being painted, only accessed on the render thread
+    private static long pulse;
+
+    /**
+     * Called on the render thread before a scene is painted, so that
+     * renderings in the same pulse (e.g. of several dirty regions) can be
+     * told apart from renderings in later pulses.
+     */
+    public static void nextPulse() {
+        pulse++;
+    }
+
     private Effect effect;
     private NodeEffectInput nodeInput;
 
+    // The transform and context of the last rendering since the cache was
+    // invalidated, which the cached result was computed with if there is one
+    private BaseTransform cachedTransform;
+    private FilterContext cachedContext;
+    private ImageData cachedResult;
+    // The pulse in which the node was rendered with cachedTransform first
+    private long cachedPulse;
+    // Set when the result could not be cached, to avoid retrying until
+    // the content changes
+    private boolean cacheRejected;
+
     EffectFilter(Effect effect, NGNode node) {
         this.effect = effect;
         this.nodeInput = new NodeEffectInput(node);
@@ -46,6 +85,7 @@ public class EffectFilter {
     NodeEffectInput getNodeInput() { return nodeInput; }
 
     void dispose() {
+        invalidate();
         effect = null;
         nodeInput.setNode(null);
         nodeInput = null;
@@ -56,9 +96,135 @@ public class EffectFilter {
         return bounds.deriveWithNewBounds(r);
     }
 
+    /**
+     * Discards the cached result. Called when the content of the node
+     * or the parameters of the effect change.
+     */
+    void invalidate() {
+        flushCachedResult();
+        cachedTransform = null;
+        cachedContext = null;
+        cacheRejected = false;
+    }
+
+    private void flushCachedResult() {
+        if (cachedResult != null) {
+            ImageData res = cachedResult;
+            cachedResult = null;
+            res.unref();
+        }
+    }
+
     void render(Graphics g) {
         NodeEffectInput nodeInput = getNodeInput();
-        PrEffectHelper.render(getEffect(), g, 0, 0, nodeInput);
+        if (!renderCached(g)) {
+            PrEffectHelper.render(getEffect(), g, 0, 0, nodeInput);
+        }
         nodeInput.flush();
     }
+
+    private boolean renderCached(Graphics g) {
+        BaseTransform xform = g.getTransformNoClone();
+        if (!PrismSettings.effectCache || !xform.is2D() ||
+            (g.isDepthBuffer() && g.isDepthTest()) ||
+            g.getAssociatedScreen() == null)
+        {
+            invalidate();
+            return false;
+        }
+        FilterContext fctx = NGNode.getFilterContext(g);
+        if (!isUnchanged(xform, fctx)) {
+            return false;
+        }
+        if (cachedResult == null) {
+            if (cacheRejected) {
+                return false;
+            }
+            cachedTransform = xform.copy();
+            cachedResult = filterUnclipped(fctx, cachedTransform);
+            if (cachedResult == null) {
+                cacheRejected = true;
+                return false;
+            }
+        } else if (!cachedResult.validate(fctx)) {
+            flushCachedResult();
+            return false;
+        } else {
+            PoolFilterable img = (PoolFilterable) cachedResult.getUntransformedImage();
+            img.getImagePool().touch(img);
+        }
+
+        BaseTransform savetx = xform.copy();
+        double dx = xform.getMxt() - cachedTransform.getMxt();
+        double dy = xform.getMyt() - cachedTransform.getMyt();
+        Rectangle r = cachedResult.getUntransformedBounds();
+        Texture tex = ((PrTexture) cachedResult.getUntransformedImage()).getTextureObject();
+        g.setTransform(BaseTransform.getTranslateInstance(dx, dy));
+        g.transform(cachedResult.getTransform());
+        g.drawTexture(tex, r.x, r.y, r.width, r.height);
+        g.setTransform(savetx);
+        return true;
+    }
+
+    /**
+     * Records a rendering with the given transform and context, and returns
+     * true if the node was rendered in an earlier pulse with the same context
+     * and a transform that differs only by a whole-pixel translation. The
+     * result is only cached then, so that animated content does not pay for
+     * running the effect unclipped on every pulse.
+     */
+    boolean isUnchanged(BaseTransform xform, FilterContext fctx) {
+        if (cachedTransform == null || cachedContext != fctx ||
+            !isIntegerTranslation(cachedTransform, xform))
+        {
+            flushCachedResult();
+            cachedTransform = xform.copy();
+            cachedContext = fctx;
+            cachedPulse = pulse;
+            return false;
+        }
+        return cachedResult != null || pulse != cachedPulse;
+    }
+
+    /**
+     * Runs the effect over its whole output area and retains the result
+     * in its image pool, or returns null if it cannot be kept.
+     */
+    private ImageData filterUnclipped(FilterContext fctx, BaseTransform xform) {
+        Rectangle bounds = new Rectangle(getEffect().getBounds(xform, nodeInput));
+        if (bounds.isEmpty()) {
+            return null;
+        }
+        ImagePool.numEffects++;
+        ImageData res = getEffect().filter(fctx, xform, null, null, nodeInput);
+        if (res == null) {
+            return null;
+        }
+        Filterable img = res.getUntransformedImage();
+        if (res.validate(fctx) && img instanceof PoolFilterable &&
+            img instanceof PrTexture)
+        {
+            ImagePool pool = ((PoolFilterable) img).getImagePool();
+            if (pool != null && pool.retain((PoolFilterable) img, this::flushCachedResult)) {
+                return res;
+            }
+        }
+        res.unref();
+        return null;
+    }
+
+    /**
+     * Returns true if the two 2D transforms differ only by a translation
+     * of a whole number of pixels.
+     */
+    static boolean isIntegerTranslation(BaseTransform tx1, BaseTransform tx2) {
+        if (tx1.getMxx() != tx2.getMxx() || tx1.getMxy() != tx2.getMxy() ||
+            tx1.getMyx() != tx2.getMyx() || tx1.getMyy() != tx2.getMyy())
+        {
+            return false;
+        }
+        double dx = tx2.getMxt() - tx1.getMxt();
+        double dy = tx2.getMyt() - tx1.getMyt();
+        return dx == Math.rint(dx) && dy == Math.rint(dy);
+    }
 }
@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2011, 2014, Oracle and/or its affiliates. All rights reserved.
+ * Copyright (c) 2011, 2017, Oracle and/or its affiliates. All rights reserved.
  * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
  *
  * This code is free software; you can redistribute it and/or modify it
@@ -26,14 +26,19 @@
 package com.sun.javafx.sg.prism;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import com.sun.javafx.geom.BaseBounds;
+import com.sun.javafx.geom.BoxBounds;
 import com.sun.javafx.geom.DirtyRegionContainer;
 import com.sun.javafx.geom.RectBounds;
 import com.sun.javafx.geom.Rectangle;
 import com.sun.javafx.geom.transform.BaseTransform;
 import com.sun.javafx.geom.transform.GeneralTransform3D;
+import com.sun.javafx.logging.PulseLogger;
 import com.sun.prism.Graphics;
+import com.sun.prism.impl.PrismSettings;
 import com.sun.scenario.effect.Blend;
 import com.sun.scenario.effect.Blend.Mode;
 import com.sun.scenario.effect.FilterContext;
@@ -223,6 +228,7 @@ public class NGGroup extends NGNode {
         if (blendMode == Blend.Mode.SRC_OVER ||
                 children.size() < 2) {  // Blend modes only work "between" siblings
 
+            int numCulled = computeOcclusion(g, startPos);
             for (int i = startPos; i < children.size(); i++) {
                 NGNode child;
                 try {
@@ -232,7 +238,11 @@ public class NGGroup extends NGNode {
                 }
                 // minimal protection against concurrent update of the list.
                 if (child != null) {
-                    child.render(g);
+                    if (i < numCulled && occlusion[i] != VISIBLE) {
+                        renderOccluded(g, child, occlusion[i] == OCCLUDED ? null : visibleParts[i]);
+                    } else {
+                        child.render(g);
+                    }
                 }
             }
             return;
@@ -310,6 +320,179 @@ public class NGGroup extends NGNode {
         return (mode != null);
     }
 
+    /***************************************************************************
+     *                                                                         *
+     *                     Occlusion Culling                                   *
+     *                                                                         *
+     **************************************************************************/
+
+    private static final byte VISIBLE = 0;
+    private static final byte OCCLUDED = 1;
+    private static final byte PARTIALLY_OCCLUDED = 2;
+
+    /**
+     * The maximum number of opaque regions of children that are used to
+     * find the children they cover. The top-most children are used.
+     */
+    private static final int MAX_OCCLUDERS = 4;
+    private static final RectBounds[] TEMP_OCCLUDERS = new RectBounds[MAX_OCCLUDERS];
+    private static final RectBounds TEMP_VISIBLE_PART = new RectBounds();
+    private static final BoxBounds TEMP_BOUNDS = new BoxBounds();
+    static {
+        for (int i = 0; i < MAX_OCCLUDERS; i++) {
+            TEMP_OCCLUDERS[i] = new RectBounds();
+        }
+    }
+
+    /**
+     * Whether each child is covered by the opaque regions of the children
+     * after it, as found by {@link #computeOcclusion}. These are allocated
+     * the first time a child of this group turns out to be covered.
+     */
+    private byte[] occlusion;
+    /**
+     * The part of each partially covered child which is not covered, in
+     * the coordinates of this group.
+     */
+    private RectBounds[] visibleParts;
+
+    /**
+     * Finds the children which do not need to be rendered, or only need
+     * to be rendered in part, because children rendered after them have
+     * opaque regions covering them. Only rectangles that stay rectangles
+     * in the coordinates of this group are considered.
+     *
+     * @return the number of children for which {@link #occlusion} is
+     *         valid, or 0 if none of the children is covered
+     */
+    private int computeOcclusion(Graphics g, int startPos) {
+        final int size = children.size();
+        if (!PrismSettings.occlusionCullingEnabled || size - startPos < 2 ||
+                (g.isDepthTest() && g.isDepthBuffer())) {
+            return 0;
+        }
+        int numOccluders = 0;
+        boolean found = false;
+        for (int i = size - 1; i >= startPos; i--) {
+            final NGNode child = children.get(i);
+            byte state = VISIBLE;
+            if (numOccluders > 0 && child.transformedBounds.getBoundsType() == BaseBounds.BoundsType.RECTANGLE) {
+                state = occlude((RectBounds) child.transformedBounds, numOccluders);
+            }
+            if (state != VISIBLE && !found) {
+                found = true;
+                if (occlusion == null || occlusion.length < size) {
+                    occlusion = new byte[size];
+                    visibleParts = new RectBounds[size];
+                }
+                // the children above this one are not covered
+                Arrays.fill(occlusion, i + 1, size, VISIBLE);
+            }
+            if (found) {
+                occlusion[i] = state;
+                if (state == PARTIALLY_OCCLUDED) {
+                    if (visibleParts[i] == null) {
+                        visibleParts[i] = new RectBounds();
+                    }
+                    visibleParts[i].setBounds(TEMP_VISIBLE_PART);
+                }
+            }
+            if (state != OCCLUDED && numOccluders < MAX_OCCLUDERS && child.isVisible()) {
+                final RectBounds opaqueRegion = child.getOpaqueRegion();
+                final BaseTransform tx = child.getTransform();
+                if (opaqueRegion != null && !opaqueRegion.isEmpty() &&
+                        (tx.getType() & ~(BaseTransform.TYPE_TRANSLATION |
+                                          BaseTransform.TYPE_QUADRANT_ROTATION |
+                                          BaseTransform.TYPE_MASK_SCALE)) == 0) {
+                    tx.transform(opaqueRegion, TEMP_BOUNDS);
+                    TEMP_BOUNDS.flattenInto(TEMP_OCCLUDERS[numOccluders++]);
+                }
+            }
+        }
+        return found ? size : 0;
+    }
+
+    /**
+     * Computes how much of the given child bounds are covered by the
+     * occluders. For a partially covered child the uncovered part is
+     * stored in {@link #TEMP_VISIBLE_PART}.
+     */
+    private static byte occlude(RectBounds bounds, int numOccluders) {
+        float minX = bounds.getMinX(), minY = bounds.getMinY();
+        float maxX = bounds.getMaxX(), maxY = bounds.getMaxY();
+        if (minX >= maxX || minY >= maxY) {
+            return VISIBLE;
+        }
+        boolean clipped = false;
+        for (int j = 0; j < numOccluders; j++) {
+            final RectBounds o = TEMP_OCCLUDERS[j];
+            if (o.getMinX() >= maxX || o.getMaxX() <= minX ||
+                o.getMinY() >= maxY || o.getMaxY() <= minY) {
+                continue;
+            }
+            final boolean coversX = o.getMinX() <= minX && o.getMaxX() >= maxX;
+            final boolean coversY = o.getMinY() <= minY && o.getMaxY() >= maxY;
+            if (coversX && coversY) {
+                return OCCLUDED;
+            }
+            // Only an occluder spanning the whole width or height of what is
+            // left leaves a rectangle uncovered
+            if (coversX) {
+                if (o.getMinY() <= minY) {
+                    minY = o.getMaxY();
+                    clipped = true;
+                } else if (o.getMaxY() >= maxY) {
+                    maxY = o.getMinY();
+                    clipped = true;
+                }
+            } else if (coversY) {
+                if (o.getMinX() <= minX) {
+                    minX = o.getMaxX();
+                    clipped = true;
+                } else if (o.getMaxX() >= maxX) {
+                    maxX = o.getMinX();
+                    clipped = true;
+                }
+            }
+        }
+        if (!clipped) {
+            return VISIBLE;
+        }
+        TEMP_VISIBLE_PART.setBounds(minX, minY, maxX, maxY);
+        return PARTIALLY_OCCLUDED;
+    }
+
+    /**
+     * Renders a child which is covered, either entirely when visiblePart is
+     * null, or except for the given visible part. A partially covered child
+     * is rendered with its visible part as the clip, if that part is a
+     * rectangle on the screen.
+     */
+    private void renderOccluded(Graphics g, NGNode child, RectBounds visiblePart) {
+        if (visiblePart != null) {
+            final BaseTransform curXform = g.getTransformNoClone();
+            if ((curXform.getType() & ~(BaseTransform.TYPE_TRANSLATION |
+                                        BaseTransform.TYPE_QUADRANT_ROTATION |
+                                        BaseTransform.TYPE_MASK_SCALE)) != 0) {
+                child.render(g);
+                return;
+            }
+            BaseBounds newClip = curXform.transform(visiblePart, TEMP_BOUNDS);
+            newClip.intersectWith(PrEffectHelper.getGraphicsClipNoClone(g));
+            if (!newClip.isEmpty() && newClip.getWidth() > 0 && newClip.getHeight() > 0) {
+                final Rectangle curClip = g.getClipRectNoClone();
+                g.setClipRect(new Rectangle(newClip));
+                child.render(g);
+                g.setClipRect(curClip);
+                return;
+            }
+        }
+        if (PulseLogger.PULSE_LOGGING_ENABLED) {
+            PulseLogger.incrementCounter("Nodes skipped as occluded");
+        }
+        child.clearDirtyTree();
+    }
+
     /***************************************************************************
      *                                                                         *
      *                     Culling Related Methods                             *
@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2011, 2015, Oracle and/or its affiliates. All rights reserved.
+ * Copyright (c) 2011, 2017, Oracle and/or its affiliates. All rights reserved.
  * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
  *
  * This code is free software; you can redistribute it and/or modify it
@@ -202,12 +202,19 @@ public abstract class NGNode {
 
     /**
      * A filter used when the node is cached. If null, then the node is not
-     * being cached. While in theory this could be created automatically by
-     * the implementation due to some form of heuristic, currently we
-     * only set this if the application has requested that the node be cached.
+     * being cached. This is set if the application has requested that the
+     * node be cached, or by the automatic caching heuristic for groups whose
+     * content does not change (see {@link #isAutoCached}).
      */
     private CacheFilter cacheFilter;
 
+    /**
+     * Tracks the renderings of this node for the automatic caching heuristic.
+     * This remains null unless automatic caching is enabled and the node is
+     * a group.
+     */
+    private AutoCache autoCache;
+
     /**
      * A filter used whenever an effect is placed on the node. Of course
      * effects can form a kind of tree, such that this one effect might be
@@ -493,6 +500,10 @@ public abstract class NGNode {
             throw new IllegalArgumentException("Internal Error: cacheHint must not be null");
         }
 
+        if (isAutoCached()) {
+            // the application takes over the caching of this node
+            disposeAutoCache();
+        }
         if (cached) {
             if (cacheFilter == null) {
                 cacheFilter = new CacheFilter(this, cacheHint);
@@ -920,11 +931,23 @@ public abstract class NGNode {
      * Invalidates the cache, if it is in use. There are several operations
      * which need to cause the cached raster to become invalid so that a
      * subsequent render operation will result in the cached image being
-     * reconstructed.
+     * reconstructed. The result of the effect, which the effect filter
+     * keeps across pulses while the content is unchanged, is discarded
+     * as well.
      */
     protected final void invalidateCache() {
         if (cacheFilter != null) {
-            cacheFilter.invalidate();
+            if (cacheFilter.isAutomatic()) {
+                disposeAutoCache();
+            } else {
+                cacheFilter.invalidate();
+            }
+        }
+        if (autoCache != null) {
+            autoCache.reset();
+        }
+        if (effectFilter != null) {
+            effectFilter.invalidate();
         }
     }
 
@@ -2029,6 +2052,9 @@ public abstract class NGNode {
         // The clip must be below the cache filter, as this is expected in the
         // CacheFilter in order to apply scrolling optimization
         g.transform(getTransform());
+        if (PrismSettings.autoCache && this instanceof NGGroup) {
+            updateAutoCache(g);
+        }
         // Try to keep track of whether this node was *really* painted. Still an
         // approximation, but somewhat more accurate (at least it doesn't include
         // groups which don't paint anything themselves).
@@ -2361,6 +2387,84 @@ public abstract class NGNode {
         }
     }
 
+    /**
+     * Returns true if this node is rendered through a cache which was not
+     * requested by the application. When {@link PrismSettings#autoCache} is
+     * enabled, a group that has been rendered
+     * {@link PrismSettings#autoCacheFrames} times in a row without its
+     * content changing, and without its scale, rotation or shear changing,
+     * is cached like a node with the {@code DEFAULT} cache hint. Its cached
+     * image is retained in the effect image pool, which evicts the least
+     * recently used retained images when they exceed their budget. The
+     * cache is given up as soon as the content of the group changes, the
+     * group is rendered with a different scale, rotation or shear, or its
+     * image is evicted.
+     */
+    final boolean isAutoCached() {
+        return cacheFilter != null && cacheFilter.isAutomatic();
+    }
+
+    void updateAutoCache(Graphics g) {
+        BaseTransform xform = g.getTransformNoClone();
+        if (autoCache == null) {
+            autoCache = new AutoCache();
+        }
+        int renders = autoCache.count(xform);
+        if (cacheFilter != null) {
+            if (cacheFilter.isAutomatic() && (renders == 1 || cacheFilter.isEvicted())) {
+                disposeAutoCache();
+            }
+        } else if (renders >= PrismSettings.autoCacheFrames &&
+                   isContentBounds2D() && xform.is2D() &&
+                   !(g instanceof com.sun.prism.PrinterGraphics) &&
+                   !hasCachedAncestor())
+        {
+            cacheFilter = CacheFilter.createAutomatic(this);
+        }
+    }
+
+    private boolean hasCachedAncestor() {
+        for (NGNode p = parent; p != null; p = p.parent) {
+            if (p.cacheFilter != null) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void disposeAutoCache() {
+        cacheFilter.dispose();
+        cacheFilter = null;
+        autoCache.reset();
+    }
+
+    /**
+     * Counts the consecutive renderings of a node which used the same
+     * scale, rotation and shear, regardless of translation.
+     */
+    private static final class AutoCache {
+        private int renders;
+        private double mxx, mxy, myx, myy;
+
+        void reset() {
+            renders = 0;
+        }
+
+        int count(BaseTransform xform) {
+            if (renders == 0 ||
+                xform.getMxx() != mxx || xform.getMxy() != mxy ||
+                xform.getMyx() != myx || xform.getMyy() != myy)
+            {
+                mxx = xform.getMxx();
+                mxy = xform.getMxy();
+                myx = xform.getMyx();
+                myy = xform.getMyy();
+                renders = 0;
+            }
+            return ++renders;
+        }
+    }
+
     protected void renderEffect(Graphics g) {
         getEffectFilter().render(g);
     }
@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2009, 2014, Oracle and/or its affiliates. All rights reserved.
+ * Copyright (c) 2009, 2017, Oracle and/or its affiliates. All rights reserved.
  * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
  *
  * This code is free software; you can redistribute it and/or modify it
@@ -43,6 +43,13 @@ public interface TKScene {
 
     public void waitForRenderingToComplete();
 
+    /**
+     * Returns whether the rendering of the previously synchronized frame
+     * has finished, that is, whether {@link #waitForRenderingToComplete()}
+     * would return without blocking.
+     */
+    public boolean isRenderingComplete();
+
     /**
      * Waits until the render thread is available for synchronization
      * from the scene graph. Once this method returns, the caller has
@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2010, 2014, Oracle and/or its affiliates. All rights reserved.
+ * Copyright (c) 2010, 2017, Oracle and/or its affiliates. All rights reserved.
  * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
  *
  * This code is free software; you can redistribute it and/or modify it
@@ -127,6 +127,11 @@ abstract class GlassScene implements TKScene {
         PaintCollector.getInstance().waitForRenderingToComplete();
     }
 
+    @Override
+    public boolean isRenderingComplete() {
+        return PaintCollector.getInstance().isRenderingComplete();
+    }
+
     @Override
     public void waitForSynchronization() {
         ViewPainter.renderLock.lock();
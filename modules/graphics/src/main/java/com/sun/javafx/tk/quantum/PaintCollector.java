@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2010, 2015, Oracle and/or its affiliates. All rights reserved.
+ * Copyright (c) 2010, 2017, Oracle and/or its affiliates. All rights reserved.
  * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
  *
  * This code is free software; you can redistribute it and/or modify it
@@ -168,6 +168,16 @@ final class PaintCollector implements CompletionListener {
         }
     }
 
+    /**
+     * Gets whether all the scenes passed to the render thread by the last
+     * renderAll call have been rendered.
+     *
+     * @return Whether waitForRenderingToComplete would return immediately.
+     */
+    boolean isRenderingComplete() {
+        return allWorkCompletedLatch.getCount() == 0;
+    }
+
     /**
      * Gets whether there are any dirty scenes that need to be rendered. If
      * true, then a subsequent pulse event and renderAll call is required.
@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2010, 2015, Oracle and/or its affiliates. All rights reserved.
+ * Copyright (c) 2010, 2017, Oracle and/or its affiliates. All rights reserved.
  * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
  *
  * This code is free software; you can redistribute it and/or modify it
@@ -454,7 +454,8 @@ public final class QuantumToolkit extends Toolkit {
 
     void postPulse() {
         if (toolkitRunning.get() &&
-            (animationRunning.get() || nextPulseRequested.get() || collector.hasDirty()) &&
+            ((animationRunning.get() && getMasterTimer().isAnimationPulseDue())
+                    || nextPulseRequested.get() || collector.hasDirty()) &&
             !setPulseRunning()) {
 
             Application.invokeLater(pulseRunnable);
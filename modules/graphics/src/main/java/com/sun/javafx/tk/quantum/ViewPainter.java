@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2011, 2015, Oracle and/or its affiliates. All rights reserved.
+ * Copyright (c) 2011, 2017, Oracle and/or its affiliates. All rights reserved.
  * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
  *
  * This code is free software; you can redistribute it and/or modify it
@@ -35,6 +35,7 @@ import com.sun.javafx.geom.Rectangle;
 import com.sun.javafx.geom.transform.Affine3D;
 import com.sun.javafx.geom.transform.BaseTransform;
 import com.sun.javafx.geom.transform.GeneralTransform3D;
+import com.sun.javafx.sg.prism.EffectFilter;
 import com.sun.javafx.sg.prism.NGCamera;
 import com.sun.javafx.sg.prism.NGNode;
 import com.sun.javafx.sg.prism.NGPerspectiveCamera;
@@ -51,6 +52,7 @@ import com.sun.prism.paint.Color;
 import com.sun.prism.paint.Paint;
 import com.sun.javafx.logging.PulseLogger;
 import static com.sun.javafx.logging.PulseLogger.PULSE_LOGGING_ENABLED;
+import static com.sun.javafx.logging.PulseLogger.PULSE_MESSAGES_ENABLED;
 
 /**
  * Responsible for "painting" a scene. It invokes as appropriate API on the root NGNode
@@ -137,7 +139,8 @@ abstract class ViewPainter implements Runnable {
             clip = new RectBounds();
             dirtyRect = new Rectangle();
             dirtyRegionTemp = new RectBounds();
-            dirtyRegionPool = new DirtyRegionPool(PrismSettings.dirtyRegionCount);
+            dirtyRegionPool = new DirtyRegionPool(PrismSettings.dirtyRegionCount,
+                                                  PrismSettings.dirtyRegionCost);
             dirtyRegionContainer = dirtyRegionPool.checkOut();
         }
     }
@@ -163,6 +166,8 @@ abstract class ViewPainter implements Runnable {
     }
 
     protected void paintImpl(final Graphics backBufferGraphics) {
+        EffectFilter.nextPulse();
+
         // We should not be painting anything with a width / height
         // that is <= 0, so we might as well bail right off.
         if (width <= 0 || height <= 0 || backBufferGraphics == null) {
@@ -249,6 +254,11 @@ abstract class ViewPainter implements Runnable {
             dirtyRegionContainer.roundOut();
             if (status == DirtyRegionContainer.DTR_OK) {
                 root.doPreCulling(dirtyRegionContainer, tx, projTx);
+                if (PULSE_LOGGING_ENABLED) {
+                    PulseLogger.incrementCounter("Dirty regions", dirtyRegionContainer.size());
+                    PulseLogger.incrementCounter("Dirty region pixels painted", dirtyRegionContainer.getArea());
+                    PulseLogger.incrementCounter("Dirty pixels", dirtyRegionContainer.getDirtyArea());
+                }
             }
         }
 
@@ -274,7 +284,7 @@ abstract class ViewPainter implements Runnable {
 
             // For debug purposes, write out to the pulse logger the number and size of the dirty
             // regions that are being used to render this pulse.
-            if (PULSE_LOGGING_ENABLED) {
+            if (PULSE_MESSAGES_ENABLED) {
                 PulseLogger.addMessage(dirtyRegionSize + " different dirty regions to render");
                 for (int i=0; i<dirtyRegionSize; i++) {
                     PulseLogger.addMessage("Dirty Region " + i + ": " + dirtyRegionContainer.getDirtyRegion(i));
@@ -284,7 +294,7 @@ abstract class ViewPainter implements Runnable {
 
             // If -Dprism.printrendergraph=true then we want to print out the render graph to the
             // pulse logger, annotated with all the dirty opts. Invisible nodes are skipped.
-            if (PULSE_LOGGING_ENABLED && PrismSettings.printRenderGraph) {
+            if (PULSE_MESSAGES_ENABLED && PrismSettings.printRenderGraph) {
                 StringBuilder s = new StringBuilder();
                 List<NGNode> roots = new ArrayList<>();
                 for (int i = 0; i < dirtyRegionSize; i++) {
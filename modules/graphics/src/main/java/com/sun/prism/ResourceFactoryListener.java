@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2010, 2013, Oracle and/or its affiliates. All rights reserved.
+ * Copyright (c) 2010, 2017, Oracle and/or its affiliates. All rights reserved.
  * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
  *
  * This code is free software; you can redistribute it and/or modify it
@@ -43,4 +43,12 @@ public interface ResourceFactoryListener {
      * from this factory.
      */
     public void factoryReleased();
+
+    /**
+     * Called when the factory is short of space for a new resource and is
+     * about to discard resources which are still useful. The listeners
+     * should let go of the resources they only keep around for reuse.
+     */
+    public default void factoryLowMemory() {
+    }
 }
@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2009, 2015, Oracle and/or its affiliates. All rights reserved.
+ * Copyright (c) 2009, 2017, Oracle and/or its affiliates. All rights reserved.
  * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
  *
  * This code is free software; you can redistribute it and/or modify it
@@ -68,6 +68,10 @@ public abstract class BaseResourceFactory implements ResourceFactory {
 
     @Override public void addFactoryListener(ResourceFactoryListener l) {
         listenerMap.put(l, Boolean.TRUE);
+        TextureResourcePool pool = getTextureResourcePool();
+        if (pool instanceof BaseResourcePool) {
+            ((BaseResourcePool) pool).addFactory(this);
+        }
     }
 
     @Override public void removeFactoryListener(ResourceFactoryListener l) {
@@ -117,6 +121,21 @@ public abstract class BaseResourceFactory implements ResourceFactory {
         }
     }
 
+    /**
+     * Called by the texture pool of the factory when it is short of space
+     * and is about to discard resources which are still useful.
+     */
+    protected void notifyLowMemory() {
+        // Iterate over a *copy* of the key set because listeners may remove
+        // themselves during the callback
+        ResourceFactoryListener[] notifyList = getFactoryListeners();
+        for (ResourceFactoryListener listener : notifyList) {
+            if (null != listener) {
+                listener.factoryLowMemory();
+            }
+        }
+    }
+
     /**
      * Called when the factory's data is released
      */
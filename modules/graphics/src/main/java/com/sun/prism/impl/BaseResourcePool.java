@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2013, 2014, Oracle and/or its affiliates. All rights reserved.
+ * Copyright (c) 2013, 2017, Oracle and/or its affiliates. All rights reserved.
  * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
  *
  * This code is free software; you can redistribute it and/or modify it
@@ -26,6 +26,8 @@
 package com.sun.prism.impl;
 
 import java.lang.ref.WeakReference;
+import java.util.Map;
+import java.util.WeakHashMap;
 
 /**
  * The base implementation of the {@link ResourcePool} interface, providing
@@ -49,6 +51,8 @@ public abstract class BaseResourcePool<T> implements ResourcePool<T> {
 
     private static final Predicate stageTesters[];
     private static final String    stageReasons[];
+    // The first stage which prunes resources that are still useful
+    private static final int FIRST_USEFUL_STAGE = 3;
     static {
         stageTesters = new Predicate[6];
         stageReasons = new String[6];
@@ -73,6 +77,9 @@ public abstract class BaseResourcePool<T> implements ResourcePool<T> {
     final ResourcePool<T> sharedParent;
     private final Thread managerThread;
     private WeakLinkedList<T> resourceHead;
+    // The factories whose listeners are told when this pool runs low
+    private final Map<BaseResourceFactory, Boolean> factories =
+        new WeakHashMap<BaseResourceFactory, Boolean>();
 
     protected BaseResourcePool(long target, long max) {
         this(null, target, max);
@@ -104,6 +111,8 @@ public abstract class BaseResourcePool<T> implements ResourcePool<T> {
      * <li> Go through a few passes cleaning out any non-interesting resources
      *      that have not been used in a long time with decreasing cutoff
      *      limits for the maximum age of the resource.
+     * <li> Ask the listeners of the factories using this pool to release
+     *      the resources they only keep for reuse.
      * <li> Go through more passes cleaning out even interesting resources that
      *      have not been used in a fairly long time with decreasing age limits.
      * <li> Attempt to grow the target to accommodate the new request.
@@ -139,6 +148,13 @@ public abstract class BaseResourcePool<T> implements ResourcePool<T> {
             // Multiple stages of pruning useful and unuseful resources of
             // various ages as determined by the static initializer above.
             for (int stage = 0; stage < stageTesters.length; stage++) {
+                if (stage == FIRST_USEFUL_STAGE) {
+                    if (PrismSettings.poolDebug) {
+                        System.err.println("Notifying factories of low memory in pool: "+this);
+                    }
+                    notifyLowMemory();
+                    if (used() + wanted <= target()) return true;
+                }
                 if (PrismSettings.poolDebug) {
                     System.err.println(stageReasons[stage]+" in pool: "+this);
                 }
@@ -195,6 +211,28 @@ public abstract class BaseResourcePool<T> implements ResourcePool<T> {
         }
     }
 
+    /**
+     * Registers a factory whose listeners are to be notified when this
+     * pool is about to discard resources which are still useful.
+     */
+    void addFactory(BaseResourceFactory factory) {
+        synchronized (factories) {
+            factories.put(factory, Boolean.TRUE);
+        }
+    }
+
+    private void notifyLowMemory() {
+        BaseResourceFactory[] notifyList;
+        synchronized (factories) {
+            notifyList = factories.keySet().toArray(new BaseResourceFactory[0]);
+        }
+        for (BaseResourceFactory factory : notifyList) {
+            if (factory != null) {
+                factory.notifyLowMemory();
+            }
+        }
+    }
+
     private void pruneLastChance(boolean desperate) {
         System.gc();
         if (desperate) {
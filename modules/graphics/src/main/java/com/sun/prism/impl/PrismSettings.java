@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2010, 2015, Oracle and/or its affiliates. All rights reserved.
+ * Copyright (c) 2010, 2017, Oracle and/or its affiliates. All rights reserved.
  * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
  *
  * This code is free software; you can redistribute it and/or modify it
@@ -48,6 +48,8 @@ public final class PrismSettings {
     public static final boolean dirtyOptsEnabled;
     public static final boolean occlusionCullingEnabled;
     public static final boolean scrollCacheOpt;
+    public static final boolean autoCache;
+    public static final int autoCacheFrames;
     public static final boolean threadCheck;
     public static final boolean cacheSimpleShapes;
     public static final boolean cacheComplexShapes;
@@ -63,6 +65,7 @@ public final class PrismSettings {
     public static final boolean printRenderGraph;
     public static final int minRTTSize;
     public static final int dirtyRegionCount;
+    public static final int dirtyRegionCost;
     public static final boolean disableBadDriverWarning;
     public static final boolean forceGPU;
     public static final int maxTextureSize;
@@ -77,6 +80,7 @@ public final class PrismSettings {
     public static final boolean poolStats;
     public static final boolean poolDebug;
     public static final boolean disableEffects;
+    public static final boolean effectCache;
     public static final int glyphCacheWidth;
     public static final int glyphCacheHeight;
     public static final String perfLog;
@@ -126,10 +130,19 @@ public final class PrismSettings {
         // support at present is 15.
         dirtyRegionCount = Utils.clamp(0, getInt(systemProperties, "prism.dirtyregioncount", 6, null), 15);
 
+        // The estimated cost of painting one more dirty region, in pixels.
+        // Dirty regions are merged when that paints fewer needless pixels.
+        dirtyRegionCost = Math.max(0, getInt(systemProperties, "prism.dirtyregioncost", 128 * 128, null));
+
         // Scrolling cache optimization
         // Disabled as a workaround for RT-39755.
         scrollCacheOpt = getBoolean(systemProperties, "prism.scrollcacheopt", false);
 
+        // Automatically cache groups whose content has not changed for
+        // a number of consecutive renderings
+        autoCache = getBoolean(systemProperties, "prism.autocache", false);
+        autoCacheFrames = Math.max(1, getInt(systemProperties, "prism.autocache.frames", 10, null));
+
         /* Dirty region optimizations */
         threadCheck = getBoolean(systemProperties, "prism.threadcheck", false);
 
@@ -309,6 +322,9 @@ public final class PrismSettings {
 
         disableEffects = getBoolean(systemProperties, "prism.disableEffects", false);
 
+        // Reuse the output of an effect across pulses while its node is unchanged
+        effectCache = getBoolean(systemProperties, "prism.effectcache", true);
+
         glyphCacheWidth = getInt(systemProperties, "prism.glyphCacheWidth", 1024,
                 "Try -Dprism.glyphCacheWidth=<number>");
         glyphCacheHeight = getInt(systemProperties, "prism.glyphCacheHeight", 1024,
@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2007, 2014, Oracle and/or its affiliates. All rights reserved.
+ * Copyright (c) 2007, 2017, Oracle and/or its affiliates. All rights reserved.
  * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
  *
  * This code is free software; you can redistribute it and/or modify it
@@ -43,6 +43,12 @@ public abstract class AbstractMasterTimer {
     protected final static String ADAPTIVE_PULSE_PROP = "com.sun.scenario.animation.adaptivepulse";
     private static boolean useAdaptivePulse = Settings.getBoolean(ADAPTIVE_PULSE_PROP);
 
+    // enables lowering the pulse rate below the display refresh rate when
+    // all running animations declare a lower target framerate and there are
+    // no AnimationTimers; pulses in between are skipped
+    protected final static String ADAPTIVE_RATE_PROP = "com.sun.scenario.animation.adaptiverate";
+    private static boolean useAdaptiveRate = Settings.getBoolean(ADAPTIVE_RATE_PROP);
+
     // another property which is controlling whether vsync is enabled:
     // "com.sun.scenario.animation.vsync". if true, JSGPanel will enable vsync
     // for the toplevel it's in. See JSGPanel.
@@ -60,6 +66,7 @@ public abstract class AbstractMasterTimer {
 
     private final int PULSE_DURATION_NS = getPulseDuration(1000000000);
     private final int PULSE_DURATION_TICKS = getPulseDuration((int)TickCalculation.fromMillis(1000));
+    private static final long PULSE_JITTER_NS = 1000000L;
 
     // This PropertyChangeListener is added to Settings to listen for changes
     // to the nogap and fullspeed properties.
@@ -71,6 +78,9 @@ public abstract class AbstractMasterTimer {
             case ADAPTIVE_PULSE_PROP:
                 useAdaptivePulse = Settings.getBoolean(ADAPTIVE_PULSE_PROP);
                 break;
+            case ADAPTIVE_RATE_PROP:
+                useAdaptiveRate = Settings.getBoolean(ADAPTIVE_RATE_PROP);
+                break;
             case ANIMATION_MBEAN_ENABLED:
                 AnimationPulse.getDefaultBean()
                               .setEnabled(Settings.getBoolean(ANIMATION_MBEAN_ENABLED));
@@ -92,6 +102,10 @@ public abstract class AbstractMasterTimer {
     private int receiversLength;
     private boolean receiversLocked;
 
+    // the smallest resolution (in ticks) requested by the pulse receivers
+    // during the last pulse, only maintained when the adaptive rate is used
+    private int minReceiverResolution = 1;
+
     // synchronize to update frameJobList and frameJobs
     private TimerReceiver animationTimers[] = new TimerReceiver[2]; // frameJobList
                                                                      // snapshot
@@ -148,6 +162,20 @@ public abstract class AbstractMasterTimer {
         return fullspeed;
     }
 
+    public boolean isAdaptiveRate() {
+        return useAdaptiveRate;
+    }
+
+    /**
+     * Returns whether the animations driven by this timer need to be pulsed
+     * now. Unless the adaptive rate is enabled, this is always the case,
+     * otherwise pulses which fall between the periods requested by the
+     * running animations are reported as not due.
+     */
+    public boolean isAnimationPulseDue() {
+        return !useAdaptiveRate || theMaster.isPulseDue();
+    }
+
     /** Prevent external instantiation of MasterTimer. */
     protected AbstractMasterTimer() {
     }
@@ -175,6 +203,11 @@ public abstract class AbstractMasterTimer {
         if (receiversLength == 1) {
             theMaster.updateAnimationRunnable();
         }
+        if (useAdaptiveRate) {
+            // the new receiver may need a higher rate than the others, so do
+            // not wait for the lowered pulse scheduled for them
+            theMaster.resetAdaptiveRate();
+        }
     }
 
     public void removePulseReceiver(PulseReceiver target) {
@@ -209,6 +242,10 @@ public abstract class AbstractMasterTimer {
         if (animationTimersLength == 1) {
             theMaster.updateAnimationRunnable();
         }
+        if (useAdaptiveRate) {
+            // AnimationTimers are pulsed at the full rate
+            theMaster.resetAdaptiveRate();
+        }
     }
 
     public void removeAnimationTimer(TimerReceiver timer) {
@@ -278,10 +315,31 @@ public abstract class AbstractMasterTimer {
             return Math.max(0, timeUntilPulse);
         }
 
+        // the timer used to post pulses may fire slightly before the
+        // requested time, consider the pulse due if it is this close
+        private boolean isPulseDue() {
+            return nextPulseTime - nanos() <= PULSE_JITTER_NS;
+        }
+
+        // Drops a pulse time that was pushed back for the receivers of the
+        // last pulse, so that the next tick of the pulse timer pulses again
+        private void resetAdaptiveRate() {
+            if (minReceiverResolution > 1) {
+                minReceiverResolution = 1;
+                nextPulseTime = Math.min(nextPulseTime, nanos());
+            }
+        }
+
         private void updateNextPulseTime(long pulseStarted) {
             final long now = nanos();
             if (fullspeed) {
                 nextPulseTime = now;
+            } else if (useAdaptiveRate && animationTimersLength == 0
+                    && minReceiverResolution > PULSE_DURATION_TICKS) {
+                // All running animations asked for a framerate lower than
+                // the pulse rate, so do not pulse them more often than that
+                nextPulseTime = pulseStarted
+                        + (long) (TickCalculation.toMillis(minReceiverResolution) * 1000000);
             } else {
                 if (useAdaptivePulse) {
                     // Estimate the next pulse time such that we wake up just
@@ -346,6 +404,15 @@ public abstract class AbstractMasterTimer {
         } finally {
             receiversLocked = false;
         }
+        if (useAdaptiveRate) {
+            // look at the receivers left after the pulse, which include
+            // those that were added while it ran
+            int minResolution = Integer.MAX_VALUE;
+            for (int i = 0; i < receiversLength; i++) {
+                minResolution = Math.min(minResolution, receivers[i].getResolution());
+            }
+            minReceiverResolution = receiversLength > 0 ? minResolution : 1;
+        }
         recordAnimationEnd();
 
         final TimerReceiver animationTimersSnapshot[] = animationTimers;
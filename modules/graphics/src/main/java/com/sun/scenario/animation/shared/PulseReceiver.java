@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2008, 2013, Oracle and/or its affiliates. All rights reserved.
+ * Copyright (c) 2008, 2017, Oracle and/or its affiliates. All rights reserved.
  * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
  *
  * This code is free software; you can redistribute it and/or modify it
@@ -42,4 +42,16 @@ public interface PulseReceiver {
      * @return true if PulseReceiver should be removed from the MasterTimer.
      */
     void timePulse(long now);
+
+    /**
+     * Returns the minimal interval between two pulses, in ticks, this
+     * PulseReceiver needs. A value of 1 means it wants to receive every
+     * pulse. The MasterTimer may use this value to lower the pulse rate
+     * when all receivers need fewer pulses.
+     *
+     * @return the minimal interval between two pulses in ticks
+     */
+    default int getResolution() {
+        return 1;
+    }
 }
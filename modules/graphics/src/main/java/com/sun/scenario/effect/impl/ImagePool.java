@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2008, 2014, Oracle and/or its affiliates. All rights reserved.
+ * Copyright (c) 2008, 2017, Oracle and/or its affiliates. All rights reserved.
  * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
  *
  * This code is free software; you can redistribute it and/or modify it
@@ -28,9 +28,15 @@ package com.sun.scenario.effect.impl;
 import java.lang.ref.SoftReference;
 import java.security.AccessController;
 import java.security.PrivilegedAction;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import com.sun.javafx.logging.PulseLogger;
 import com.sun.scenario.effect.Filterable;
 
 /**
@@ -38,6 +44,13 @@ import com.sun.scenario.effect.Filterable;
  * various {@code EffectPeer} implementations.  Image allocation can be
  * a fairly expensive operation (in terms of footprint and performance),
  * especially for the GPU backends, so image reuse is critical.
+ * <p>
+ * Requested sizes are rounded up to size classes so that images can be
+ * found by size instead of by searching all of them, and so that similar
+ * requests share images instead of fragmenting memory. Images which are
+ * not checked out are flushed, least recently used first, when they hold
+ * more than {@code decora.pool.pixels} pixels or when the graphics
+ * resources run low (see {@link #releaseIdleImages}).
  */
 public class ImagePool {
 
@@ -46,8 +59,33 @@ public class ImagePool {
     static long pixelsCreated;
     static long numAccessed;
     static long pixelsAccessed;
+    static long numHits;
+    static long numFits;
+    static long numMisses;
+    static long pixelsWasted;
+    static long numTrimmed;
+    static long numRetained;
+    static long numEvicted;
+
+    /**
+     * The maximum number of pixels that may be held by the images of a
+     * pool which are not checked out.
+     */
+    static final long IDLE_PIXELS_LIMIT;
+
+    /**
+     * The maximum number of pixels that may be held by the retained
+     * images of a pool (see {@link #retain}).
+     */
+    static final long RETAINED_PIXELS_LIMIT;
 
     static {
+        RETAINED_PIXELS_LIMIT = AccessController.doPrivileged(
+            (PrivilegedAction<Long>) () ->
+                Long.getLong("decora.retained.pixels", 4L * 1024 * 1024));
+        IDLE_PIXELS_LIMIT = AccessController.doPrivileged(
+            (PrivilegedAction<Long>) () ->
+                Long.getLong("decora.pool.pixels", 16L * 1024 * 1024));
         AccessController.doPrivileged((PrivilegedAction) () -> {
             if (System.getProperty("decora.showstats") != null) {
                 Runtime.getRuntime().addShutdownHook(new Thread() {
@@ -66,6 +104,13 @@ public class ImagePool {
         System.out.println("pixels created:    " + pixelsCreated);
         System.out.println("images accessed:   " + numAccessed);
         System.out.println("pixels accessed:   " + pixelsAccessed);
+        System.out.println("exact reuses:      " + numHits);
+        System.out.println("larger reuses:     " + numFits);
+        System.out.println("misses:            " + numMisses);
+        System.out.println("pixels wasted:     " + pixelsWasted);
+        System.out.println("images trimmed:    " + numTrimmed);
+        System.out.println("images retained:   " + numRetained);
+        System.out.println("images evicted:    " + numEvicted);
         if (numEffects != 0) {
             double avgImgs = ((double) numAccessed) / numEffects;
             double avgPxls = ((double) pixelsAccessed) / numEffects;
@@ -76,10 +121,57 @@ public class ImagePool {
 
     static final int QUANT = 32;
 
-    private final List<SoftReference<PoolFilterable>> unlocked =
-        new ArrayList<SoftReference<PoolFilterable>>();
-    private final List<SoftReference<PoolFilterable>> locked =
-        new ArrayList<SoftReference<PoolFilterable>>();
+    // All pooled images use 4 bytes per pixel
+    private static final int BYTES_PER_PIXEL = 4;
+
+    /**
+     * Rounds a requested dimension up to its size class: a multiple of
+     * {@code QUANT} up to {@code 8 * QUANT}, and a multiple of a quarter
+     * of the next lower power of two above that, so that no more than a
+     * quarter of each dimension is wasted.
+     */
+    static int getSizeClass(int size) {
+        int step = QUANT;
+        if (size > 8 * QUANT) {
+            step = Integer.highestOneBit(size - 1) / 4;
+        }
+        return ((size + step - 1) / step) * step;
+    }
+
+    /**
+     * A reference to a pooled image which remembers the size the image
+     * was created with, even after the image has been collected.
+     */
+    private static final class Entry extends SoftReference<PoolFilterable> {
+        final int w, h;
+
+        Entry(PoolFilterable img) {
+            super(img);
+            this.w = img.getMaxContentWidth();
+            this.h = img.getMaxContentHeight();
+        }
+
+        long getKey() {
+            return getKey(w, h);
+        }
+
+        static long getKey(int w, int h) {
+            return (((long) w) << 32) | h;
+        }
+    }
+
+    // The images that are not checked out, by size, the most recently
+    // checked in last, and all of them in the order they were checked in
+    private final Map<Long, ArrayDeque<Entry>> unlocked =
+        new HashMap<Long, ArrayDeque<Entry>>();
+    private final LinkedHashSet<Entry> unlockedOrder = new LinkedHashSet<Entry>();
+    private long pixelsUnlocked;
+    private final List<Entry> locked = new ArrayList<Entry>();
+    // Checked out images which are kept across pulses, in least recently
+    // used order, mapped to the action which makes their holder give them up
+    private final Map<PoolFilterable, Runnable> retained =
+        new LinkedHashMap<PoolFilterable, Runnable>(16, 0.75f, true);
+    private long pixelsRetained;
 
     // On Canmore with the PowerVR SGX chip, there is a driver issue
     // that causes incorrect rendering if one tries to reuse an FBO
@@ -97,8 +189,7 @@ public class ImagePool {
     // (where there would normally be reuse).
     private final boolean usePurgatory = Boolean.getBoolean("decora.purgatory");
     private final List<Filterable> hardPurgatory = new ArrayList<Filterable>();
-    private final List<SoftReference<PoolFilterable>> softPurgatory =
-        new ArrayList<SoftReference<PoolFilterable>>();
+    private final List<Entry> softPurgatory = new ArrayList<Entry>();
 
     /**
      * Package-private constructor.
@@ -111,9 +202,10 @@ public class ImagePool {
             // if image is empty in any way, return a small non-empty image.
             w = h = 1;
         }
-        // Allocate images rounded up to the nearest quantum size threshold.
-        w = ((w + QUANT - 1) / QUANT) * QUANT;
-        h = ((h + QUANT - 1) / QUANT) * QUANT;
+        long requested = ((long) w) * h;
+        // Allocate images rounded up to the nearest size class.
+        w = getSizeClass(w);
+        h = getSizeClass(h);
 
         // Adjust allocation sizes for platform requirements (pow2 etc.)
         w = renderer.getCompatibleWidth(w);
@@ -121,62 +213,53 @@ public class ImagePool {
 
         numAccessed++;
         pixelsAccessed += ((long) w) * h;
-        // first look for an already cached image of sufficient size,
-        // choosing the one that is closest in size to the requested dimensions
-        SoftReference<PoolFilterable> chosenEntry = null;
-        PoolFilterable chosenImage = null;
-        int mindiff = Integer.MAX_VALUE;
-        Iterator<SoftReference<PoolFilterable>> entries = unlocked.iterator();
-        while (entries.hasNext()) {
-            SoftReference<PoolFilterable> entry = entries.next();
-            PoolFilterable eimg = entry.get();
-            if (eimg == null) {
-                entries.remove();
-                continue;
+        // first look for an already cached image of the same size, then
+        // for the one that is closest in size to the requested dimensions
+        PoolFilterable chosenImage = checkOutUnlocked(w, h);
+        if (chosenImage != null) {
+            numHits++;
+            if (PulseLogger.PULSE_LOGGING_ENABLED) {
+                PulseLogger.incrementCounter("Effect image pool hits");
             }
-            int ew = eimg.getMaxContentWidth();
-            int eh = eimg.getMaxContentHeight();
-            if (ew >= w && eh >= h && ew * eh / 2 <= w * h) {
-                int diff = (ew-w) * (eh-h);
-                if (chosenEntry == null || diff < mindiff) {
-                    eimg.lock();
-                    if (eimg.isLost()) {
-                        entries.remove();
-                        continue;
-                    }
-                    if (chosenImage != null) {
-                        chosenImage.unlock();
-                    }
-                    chosenEntry = entry;
-                    // The following calls to setContentWidth / setContentHeight
-                    // should be uncommented only after the rest of the imagepool
-                    // is fixed to handle a change in content size, and when both the
-                    // SW pipeline and J2D pipeline are able to handle the change.
-//                    eimg.setContentWidth(w);
-//                    eimg.setContentHeight(h);
-                    chosenImage = eimg;
-                    mindiff = diff;
+        } else {
+            long chosenKey;
+            while (chosenImage == null && (chosenKey = findLargerUnlocked(w, h)) != 0) {
+                chosenImage = checkOutUnlocked((int) (chosenKey >>> 32), (int) chosenKey);
+            }
+            if (chosenImage != null) {
+                numFits++;
+                if (PulseLogger.PULSE_LOGGING_ENABLED) {
+                    PulseLogger.incrementCounter("Effect image pool larger image reused");
                 }
             }
         }
 
-        if (chosenEntry != null) {
-            unlocked.remove(chosenEntry);
-            locked.add(chosenEntry);
+        if (chosenImage != null) {
+            // The following calls to setContentWidth / setContentHeight
+            // should be uncommented only after the rest of the imagepool
+            // is fixed to handle a change in content size, and when both the
+            // SW pipeline and J2D pipeline are able to handle the change.
+//            chosenImage.setContentWidth(w);
+//            chosenImage.setContentHeight(h);
             renderer.clearImage(chosenImage);
+            recordWaste(getPixels(chosenImage) - requested);
             return chosenImage;
         }
 
         // get rid of expired entries from locked list
-        entries = locked.iterator();
+        Iterator<Entry> entries = locked.iterator();
         while (entries.hasNext()) {
-            SoftReference<PoolFilterable> entry = entries.next();
+            Entry entry = entries.next();
             Filterable eimg = entry.get();
             if (eimg == null) {
                 entries.remove();
             }
         }
 
+        numMisses++;
+        if (PulseLogger.PULSE_LOGGING_ENABLED) {
+            PulseLogger.incrementCounter("Effect image pool misses");
+        }
         // if all else fails, just create a new one...
         PoolFilterable img = null;
         try {
@@ -192,19 +275,132 @@ public class ImagePool {
         }
         if (img != null) {
             img.setImagePool(this);
-            locked.add(new SoftReference<PoolFilterable>(img));
+            locked.add(new Entry(img));
             numCreated++;
             pixelsCreated += ((long) w) * h;
+            recordWaste(getPixels(img) - requested);
         }
         return img;
     }
 
+    private static void recordWaste(long pixels) {
+        pixelsWasted += pixels;
+        if (PulseLogger.PULSE_LOGGING_ENABLED) {
+            PulseLogger.incrementCounter("Effect image pool bytes wasted",
+                                         pixels * BYTES_PER_PIXEL);
+        }
+    }
+
+    /**
+     * Takes the most recently checked in usable image of exactly the
+     * given size out of the unlocked images and locks it.
+     */
+    private PoolFilterable checkOutUnlocked(int w, int h) {
+        Long key = Entry.getKey(w, h);
+        ArrayDeque<Entry> bucket = unlocked.get(key);
+        PoolFilterable img = null;
+        while (img == null && bucket != null && !bucket.isEmpty()) {
+            Entry entry = bucket.pollLast();
+            unlockedOrder.remove(entry);
+            pixelsUnlocked -= ((long) entry.w) * entry.h;
+            img = entry.get();
+            if (img != null) {
+                img.lock();
+                if (img.isLost()) {
+                    img = null;
+                } else {
+                    locked.add(entry);
+                }
+            }
+        }
+        if (bucket != null && bucket.isEmpty()) {
+            unlocked.remove(key);
+        }
+        return img;
+    }
+
+    /**
+     * Returns the key of the smallest size of unlocked images which can
+     * hold the given size without wasting more than half of the area,
+     * or 0 if there is none.
+     */
+    private long findLargerUnlocked(int w, int h) {
+        long chosenKey = 0;
+        long mindiff = Long.MAX_VALUE;
+        long area = ((long) w) * h;
+        for (Long key : unlocked.keySet()) {
+            int ew = (int) (key >>> 32);
+            int eh = (int) (long) key;
+            long earea = ((long) ew) * eh;
+            if (ew >= w && eh >= h && earea / 2 <= area && earea - area < mindiff) {
+                chosenKey = key;
+                mindiff = earea - area;
+            }
+        }
+        return chosenKey;
+    }
+
+    private void addUnlocked(Entry entry) {
+        Long key = entry.getKey();
+        ArrayDeque<Entry> bucket = unlocked.get(key);
+        if (bucket == null) {
+            bucket = new ArrayDeque<Entry>();
+            unlocked.put(key, bucket);
+        }
+        bucket.addLast(entry);
+        unlockedOrder.add(entry);
+        pixelsUnlocked += ((long) entry.w) * entry.h;
+        trimUnlocked(IDLE_PIXELS_LIMIT);
+    }
+
+    /**
+     * Flushes the least recently checked in unlocked images until they
+     * hold no more than the given number of pixels.
+     */
+    private void trimUnlocked(long limit) {
+        while (pixelsUnlocked > limit && !unlockedOrder.isEmpty()) {
+            Entry entry = unlockedOrder.iterator().next();
+            unlockedOrder.remove(entry);
+            pixelsUnlocked -= ((long) entry.w) * entry.h;
+            Long key = entry.getKey();
+            ArrayDeque<Entry> bucket = unlocked.get(key);
+            bucket.remove(entry);
+            if (bucket.isEmpty()) {
+                unlocked.remove(key);
+            }
+            Filterable image = entry.get();
+            if (image != null) {
+                image.flush();
+                numTrimmed++;
+                if (PulseLogger.PULSE_LOGGING_ENABLED) {
+                    PulseLogger.incrementCounter("Effect image pool images trimmed");
+                }
+            }
+        }
+    }
+
+    /**
+     * Flushes all of the images of this pool which are not checked out.
+     * This is used when the graphics resources are running low, since the
+     * images can simply be recreated when they are needed again.
+     */
+    public synchronized void releaseIdleImages() {
+        trimUnlocked(0);
+    }
+
+    synchronized long getPixelsUnlocked() {
+        return pixelsUnlocked;
+    }
+
     public synchronized void checkIn(PoolFilterable img) {
-        SoftReference<PoolFilterable> chosenEntry = null;
+        if (retained.remove(img) != null) {
+            pixelsRetained -= getPixels(img);
+        }
+        Entry chosenEntry = null;
         Filterable chosenImage = null;
-        Iterator<SoftReference<PoolFilterable>> entries = locked.iterator();
+        Iterator<Entry> entries = locked.iterator();
         while (entries.hasNext()) {
-            SoftReference<PoolFilterable> entry = entries.next();
+            Entry entry = entries.next();
             Filterable eimg = entry.get();
             if (eimg == null) {
                 entries.remove();
@@ -228,30 +424,93 @@ public class ImagePool {
                 hardPurgatory.add(chosenImage);
                 softPurgatory.add(chosenEntry);
             } else {
-                unlocked.add(chosenEntry);
+                addUnlocked(chosenEntry);
             }
         }
     }
 
+    /**
+     * Marks an image which is checked out of this pool as being kept by
+     * its holder across pulses, for example to reuse the result of an
+     * effect while its input does not change. The retained images of a
+     * pool share a budget of {@code decora.retained.pixels} pixels. When
+     * the budget is exceeded, or when the pool runs out of memory, the
+     * least recently used retained images are evicted by running their
+     * {@code evictor}, which must check the image back in. Checking in a
+     * retained image ends its retention.
+     *
+     * @param img an image checked out of this pool
+     * @param evictor the action which releases the image
+     * @return false if the image is larger than the whole budget, in which
+     *         case it should not be kept
+     */
+    public synchronized boolean retain(PoolFilterable img, Runnable evictor) {
+        long pixels = getPixels(img);
+        if (pixels > RETAINED_PIXELS_LIMIT) {
+            return false;
+        }
+        if (retained.put(img, evictor) == null) {
+            pixelsRetained += pixels;
+            numRetained++;
+        }
+        // img is now the most recently used entry, so it is never evicted here
+        while (pixelsRetained > RETAINED_PIXELS_LIMIT) {
+            evictEldest();
+        }
+        return true;
+    }
+
+    /**
+     * Marks a retained image as recently used so that it is evicted
+     * after the ones that have not been used for longer.
+     */
+    public synchronized void touch(PoolFilterable img) {
+        retained.get(img);
+    }
+
+    private boolean evictEldest() {
+        if (retained.isEmpty()) {
+            return false;
+        }
+        Map.Entry<PoolFilterable, Runnable> eldest =
+            retained.entrySet().iterator().next();
+        retained.remove(eldest.getKey());
+        pixelsRetained -= getPixels(eldest.getKey());
+        numEvicted++;
+        eldest.getValue().run();
+        return true;
+    }
+
+    private void evictAll() {
+        while (evictEldest()) {
+        }
+    }
+
+    private static long getPixels(Filterable img) {
+        return ((long) img.getMaxContentWidth()) * img.getMaxContentHeight();
+    }
+
+    synchronized long getPixelsRetained() {
+        return pixelsRetained;
+    }
+
     public synchronized void releasePurgatory() {
         if (usePurgatory && !softPurgatory.isEmpty()) {
 //            System.err.println("==> Releasing " + softPurgatory.size() + " entries from purgatory!");
             // release images kept in purgatory back into the unlocked pool
-            unlocked.addAll(softPurgatory);
+            for (Entry entry : softPurgatory) {
+                addUnlocked(entry);
+            }
             softPurgatory.clear();
             hardPurgatory.clear();
         }
     }
 
     private void pruneCache() {
+        // give up the retained images first so that they get flushed too
+        evictAll();
         // flush all unlocked images
-        for (SoftReference<PoolFilterable> r : unlocked) {
-            Filterable image = r.get();
-            if (image != null) {
-                image.flush();
-            }
-        }
-        unlocked.clear();
+        trimUnlocked(0);
         // this is to help to free up space held by those images that we no
         // longer have references to
         System.gc();
@@ -261,13 +520,8 @@ public class ImagePool {
     }
 
     public synchronized void dispose() {
-        for (SoftReference<PoolFilterable> r : unlocked) {
-            Filterable image = r.get();
-            if (image != null) {
-                image.flush();
-            }
-        }
-        unlocked.clear();
+        evictAll();
+        trimUnlocked(0);
         // not flushing the locked ones, just clearing references to them
         locked.clear();
     }
@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2008, 2014, Oracle and/or its affiliates. All rights reserved.
+ * Copyright (c) 2008, 2017, Oracle and/or its affiliates. All rights reserved.
  * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
  *
  * This code is free software; you can redistribute it and/or modify it
@@ -137,6 +137,14 @@ public abstract class Renderer {
         imagePool.releasePurgatory();
     }
 
+    /**
+     * Flushes the images which the image pool of this renderer keeps for
+     * reuse, for example when the graphics resources are running low.
+     */
+    public void releaseIdleImages() {
+        imagePool.releaseIdleImages();
+    }
+
     /**
      * Mainly used by {@code ImagePool} for the purpose of clearing
      * an image before handing it back to the user.
@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2009, 2014, Oracle and/or its affiliates. All rights reserved.
+ * Copyright (c) 2009, 2017, Oracle and/or its affiliates. All rights reserved.
  * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
  *
  * This code is free software; you can redistribute it and/or modify it
@@ -81,6 +81,10 @@ public class PPSRenderer extends PrRenderer {
         public void factoryReleased() {
             dispose();
         }
+
+        public void factoryLowMemory() {
+            releaseIdleImages();
+        }
     };
 
     private PPSRenderer(Screen screen, ShaderSource shaderSource) {
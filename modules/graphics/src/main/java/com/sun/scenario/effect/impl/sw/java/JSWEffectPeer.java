@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2009, 2014, Oracle and/or its affiliates. All rights reserved.
+ * Copyright (c) 2009, 2017, Oracle and/or its affiliates. All rights reserved.
  * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
  *
  * This code is free software; you can redistribute it and/or modify it
@@ -25,6 +25,11 @@
 
 package com.sun.scenario.effect.impl.sw.java;
 
+import java.security.AccessController;
+import java.security.PrivilegedAction;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveAction;
 import com.sun.scenario.effect.FilterContext;
 import com.sun.scenario.effect.impl.EffectPeer;
 import com.sun.scenario.effect.impl.Renderer;
@@ -32,10 +37,98 @@ import com.sun.scenario.effect.impl.state.RenderState;
 
 public abstract class JSWEffectPeer<T extends RenderState> extends EffectPeer<T> {
 
+    /**
+     * The number of threads used to filter an image, which defaults to the
+     * number of available processors. Setting decora.sw.threads to 1 filters
+     * all images on the calling thread. Package-private so that tests can
+     * compare the results of different thread counts.
+     */
+    static int threadCount = AccessController.doPrivileged(
+            (PrivilegedAction<Integer>) () -> Integer.getInteger(
+                    "decora.sw.threads", Runtime.getRuntime().availableProcessors()));
+
+    // Images with fewer pixels than this are filtered on the calling thread,
+    // and images are not split into bands with fewer pixels than this
+    private static final int MIN_PARALLEL_PIXELS = 128 * 128;
+    private static final int MIN_BAND_PIXELS = 32 * 128;
+
+    // Shared by all peers, and created when first needed
+    private static ForkJoinPool pool;
+
+    private static synchronized ForkJoinPool getPool() {
+        if (pool == null) {
+            pool = AccessController.doPrivileged((PrivilegedAction<ForkJoinPool>) () ->
+                    new ForkJoinPool(threadCount, p -> {
+                        ForkJoinWorkerThread thread =
+                                ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(p);
+                        thread.setName("Decora Software Filter-" + thread.getPoolIndex());
+                        thread.setDaemon(true);
+                        return thread;
+                    }, null, false));
+        }
+        return pool;
+    }
+
     protected JSWEffectPeer(FilterContext fctx, Renderer r, String uniqueName) {
         super(fctx, r, uniqueName);
     }
 
+    /**
+     * Filters a range of rows (or columns) of the destination image. Ranges
+     * may be filtered concurrently, so any scratch arrays must be allocated
+     * for each range.
+     */
+    @FunctionalInterface
+    protected interface BandFilter {
+        public void filter(int from, int to);
+    }
+
+    /**
+     * Filters the rows (or columns) from 0 to count, each of which covers
+     * the given number of pixels. Large images are split into bands that are
+     * filtered in parallel by a pool shared by all peers, and this method
+     * returns when all of the bands have been filtered.
+     */
+    protected static void filterBands(int count, int pixelsPerRow, BandFilter filter) {
+        long pixels = (long) count * pixelsPerRow;
+        if (threadCount <= 1 || count < 2 || pixels < MIN_PARALLEL_PIXELS) {
+            filter.filter(0, count);
+            return;
+        }
+
+        // a few bands per thread, so that threads that finish early can
+        // take over the work of the others
+        int bands = (int) Math.min(Math.min(count, threadCount * 4L), pixels / MIN_BAND_PIXELS);
+        int bandSize = (count + bands - 1) / bands;
+        getPool().invoke(new BandAction(filter, 0, count, bandSize));
+    }
+
+    private static final class BandAction extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final BandFilter filter;
+        private final int from, to, bandSize;
+
+        BandAction(BandFilter filter, int from, int to, int bandSize) {
+            this.filter = filter;
+            this.from = from;
+            this.to = to;
+            this.bandSize = bandSize;
+        }
+
+        @Override protected void compute() {
+            if (to - from <= bandSize) {
+                filter.filter(from, to);
+                return;
+            }
+            // split on a band boundary, so that bands are all the same size
+            int mid = from + ((to - from) / bandSize / 2) * bandSize;
+            if (mid == from) mid += bandSize;
+            invokeAll(new BandAction(filter, from, mid, bandSize),
+                      new BandAction(filter, mid, to, bandSize));
+        }
+    }
+
     protected final static int FVALS_A = 3;
     protected final static int FVALS_R = 0;
     protected final static int FVALS_G = 1;
@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2009, 2014, Oracle and/or its affiliates. All rights reserved.
+ * Copyright (c) 2009, 2017, Oracle and/or its affiliates. All rights reserved.
  * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
  *
  * This code is free software; you can redistribute it and/or modify it
@@ -177,37 +177,87 @@ public class JSWLinearConvolvePeer extends JSWEffectPeer<LinearConvolveRenderSta
                                 float deltax, float deltay,
                                 float dxcol, float dycol, float dxrow, float dyrow)
     {
-        int dstrow = 0;
-        float fvals[] = new float[4];
         // srcxy0 point at UL corner, shift them to center of 1st dest pixel:
-        srcx0 += (dxrow + dxcol) * 0.5f;
-        srcy0 += (dyrow + dycol) * 0.5f;
-        for (int dy = 0; dy < dsth; dy++) {
-            float srcx = srcx0;
-            float srcy = srcy0;
-            for (int dx = 0; dx < dstw; dx++) {
-                fvals[0] = fvals[1] = fvals[2] = fvals[3] = 0.0f;
-                float sampx = srcx + offsetx;
-                float sampy = srcy + offsety;
-                for (int i = 0; i < count; ++i) {
-                    laccumsample(srcPixels, sampx, sampy,
-                                 srcw, srch, srcscan,
-                                 weights[i], fvals);
-                    sampx += deltax;
-                    sampy += deltay;
+        float startx = srcx0 + (dxrow + dxcol) * 0.5f;
+        float starty = srcy0 + (dyrow + dycol) * 0.5f;
+        filterBands(dsth, dstw * count, (y0, y1) -> {
+            int dstrow = y0 * dstscan;
+            for (int dy = y0; dy < y1; dy++) {
+                // the start of each row is computed from its index, so that
+                // it does not depend on how the rows are split into bands
+                float srcx = startx + dy * dxrow;
+                float srcy = starty + dy * dyrow;
+                for (int dx = 0; dx < dstw; dx++) {
+                    float suma = 0f;
+                    float sumr = 0f;
+                    float sumg = 0f;
+                    float sumb = 0f;
+                    float sampx = srcx + offsetx;
+                    float sampy = srcy + offsety;
+                    for (int i = 0; i < count; ++i) {
+                        // the bilinear sample of laccumsample(), written out
+                        // so that the loop makes no calls
+                        float factor = weights[i] * 255f;
+                        float fpix_x = sampx + 0.5f;
+                        float fpix_y = sampy + 0.5f;
+                        int ipix_x = (int) fpix_x;
+                        int ipix_y = (int) fpix_y;
+                        if (fpix_x > 0 && fpix_y > 0 && ipix_x <= srcw && ipix_y <= srch) {
+                            fpix_x -= ipix_x;
+                            fpix_y -= ipix_y;
+                            int offset = ipix_y * srcscan + ipix_x;
+                            float fract = fpix_x * fpix_y;
+                            if (ipix_y < srch) {
+                                if (ipix_x < srcw) {
+                                    int pixel = srcPixels[offset];
+                                    float mul = (fract * factor) / 255f;
+                                    sumr += ((pixel >>  16) & 0xff) * mul;
+                                    sumg += ((pixel >>   8) & 0xff) * mul;
+                                    sumb += ((pixel       ) & 0xff) * mul;
+                                    suma += ((pixel >>> 24)       ) * mul;
+                                }
+                                if (ipix_x > 0) {
+                                    int pixel = srcPixels[offset-1];
+                                    float mul = ((fpix_y - fract) * factor) / 255f;
+                                    sumr += ((pixel >>  16) & 0xff) * mul;
+                                    sumg += ((pixel >>   8) & 0xff) * mul;
+                                    sumb += ((pixel       ) & 0xff) * mul;
+                                    suma += ((pixel >>> 24)       ) * mul;
+                                }
+                            }
+                            if (ipix_y > 0) {
+                                if (ipix_x < srcw) {
+                                    int pixel = srcPixels[offset-srcscan];
+                                    float mul = ((fpix_x - fract) * factor) / 255f;
+                                    sumr += ((pixel >>  16) & 0xff) * mul;
+                                    sumg += ((pixel >>   8) & 0xff) * mul;
+                                    sumb += ((pixel       ) & 0xff) * mul;
+                                    suma += ((pixel >>> 24)       ) * mul;
+                                }
+                                if (ipix_x > 0) {
+                                    int pixel = srcPixels[offset-srcscan-1];
+                                    float mul = ((1f - fpix_x - fpix_y + fract) * factor) / 255f;
+                                    sumr += ((pixel >>  16) & 0xff) * mul;
+                                    sumg += ((pixel >>   8) & 0xff) * mul;
+                                    sumb += ((pixel       ) & 0xff) * mul;
+                                    suma += ((pixel >>> 24)       ) * mul;
+                                }
+                            }
+                        }
+                        sampx += deltax;
+                        sampy += deltay;
+                    }
+                    dstPixels[dstrow + dx] =
+                        (((suma < cmin) ? 0 : ((suma > cmax) ? 255 : ((int) suma))) << 24) +
+                        (((sumr < cmin) ? 0 : ((sumr > cmax) ? 255 : ((int) sumr))) << 16) +
+                        (((sumg < cmin) ? 0 : ((sumg > cmax) ? 255 : ((int) sumg))) <<  8) +
+                        (((sumb < cmin) ? 0 : ((sumb > cmax) ? 255 : ((int) sumb)))      );
+                    srcx += dxcol;
+                    srcy += dycol;
                 }
-                dstPixels[dstrow + dx] =
-                    (((fvals[FVALS_A] < cmin) ? 0 : ((fvals[FVALS_A] > cmax) ? 255 : ((int) fvals[FVALS_A]))) << 24) +
-                    (((fvals[FVALS_R] < cmin) ? 0 : ((fvals[FVALS_R] > cmax) ? 255 : ((int) fvals[FVALS_R]))) << 16) +
-                    (((fvals[FVALS_G] < cmin) ? 0 : ((fvals[FVALS_G] > cmax) ? 255 : ((int) fvals[FVALS_G]))) <<  8) +
-                    (((fvals[FVALS_B] < cmin) ? 0 : ((fvals[FVALS_B] > cmax) ? 255 : ((int) fvals[FVALS_B])))      );
-                srcx += dxcol;
-                srcy += dycol;
+                dstrow += dstscan;
             }
-            srcx0 += dxrow;
-            srcy0 += dyrow;
-            dstrow += dstscan;
-        }
+        });
     }
 
     /*
@@ -222,55 +272,64 @@ public class JSWLinearConvolvePeer extends JSWEffectPeer<LinearConvolveRenderSta
                             int srcPixels[], int srccols, int srcrows, int scolinc, int srowinc,
                             float weights[])
     {
-        // cvals stores the component values from the surrounding K pixels
-        // from x-r to x+r
+        // the c[argb]vals store the component values from the surrounding K
+        // pixels from x-r to x+r, one array per component so that the inner
+        // loop reads each of them with a unit stride
         int kernelSize = weights.length / 2;
-        float cvals[] = new float[kernelSize * 4];
-        int dstrow = 0;
-        int srcrow = 0;
-        for (int r = 0; r < dstrows; r++) {
-            int dstoff = dstrow;
-            int srcoff = srcrow;
-            // Must clear out the array at the start of every line
-            // Might be able to rely on the fact that the previous line must
-            // have run out of data towards the end of the scan line, though.
-            for (int i = 0; i < cvals.length; i++) {
-                cvals[i] = 0f;
-            }
-            int koff = kernelSize;
-            for (int c = 0; c < dstcols; c++) {
-                // Load the data for this x location into the array.
-                int i = (kernelSize - koff) * 4;
-                int rgb = (c < srccols) ? srcPixels[srcoff] : 0;
-                cvals[i+0] = (rgb >>> 24);
-                cvals[i+1] = (rgb >>  16) & 0xff;
-                cvals[i+2] = (rgb >>   8) & 0xff;
-                cvals[i+3] = (rgb       ) & 0xff;
-                // Bump the koff to the next spot to align the coefficients.
-                if (--koff <= 0) {
-                    koff += kernelSize;
+        filterBands(dstrows, dstcols * kernelSize, (r0, r1) -> {
+            float cavals[] = new float[kernelSize];
+            float crvals[] = new float[kernelSize];
+            float cgvals[] = new float[kernelSize];
+            float cbvals[] = new float[kernelSize];
+            int dstrow = r0 * drowinc;
+            int srcrow = r0 * srowinc;
+            for (int r = r0; r < r1; r++) {
+                int dstoff = dstrow;
+                int srcoff = srcrow;
+                // Must clear out the array at the start of every line
+                // Might be able to rely on the fact that the previous line must
+                // have run out of data towards the end of the scan line, though.
+                for (int i = 0; i < kernelSize; i++) {
+                    cavals[i] = 0f;
+                    crvals[i] = 0f;
+                    cgvals[i] = 0f;
+                    cbvals[i] = 0f;
                 }
-                float suma = 0;
-                float sumr = 0;
-                float sumg = 0;
-                float sumb = 0;
-                for (i = 0; i < cvals.length; i += 4) {
-                    float factor = weights[koff + (i>>2)];
-                    suma += cvals[i+0] * factor;
-                    sumr += cvals[i+1] * factor;
-                    sumg += cvals[i+2] * factor;
-                    sumb += cvals[i+3] * factor;
+                int koff = kernelSize;
+                for (int c = 0; c < dstcols; c++) {
+                    // Load the data for this x location into the arrays.
+                    int i = kernelSize - koff;
+                    int rgb = (c < srccols) ? srcPixels[srcoff] : 0;
+                    cavals[i] = (rgb >>> 24);
+                    crvals[i] = (rgb >>  16) & 0xff;
+                    cgvals[i] = (rgb >>   8) & 0xff;
+                    cbvals[i] = (rgb       ) & 0xff;
+                    // Bump the koff to the next spot to align the coefficients.
+                    if (--koff <= 0) {
+                        koff += kernelSize;
+                    }
+                    float suma = 0;
+                    float sumr = 0;
+                    float sumg = 0;
+                    float sumb = 0;
+                    for (i = 0; i < kernelSize; i++) {
+                        float factor = weights[koff + i];
+                        suma += cavals[i] * factor;
+                        sumr += crvals[i] * factor;
+                        sumg += cgvals[i] * factor;
+                        sumb += cbvals[i] * factor;
+                    }
+                    dstPixels[dstoff] =
+                        (((suma < cmin) ? 0 : ((suma > cmax) ? 255 : ((int) suma))) << 24) +
+                        (((sumr < cmin) ? 0 : ((sumr > cmax) ? 255 : ((int) sumr))) << 16) +
+                        (((sumg < cmin) ? 0 : ((sumg > cmax) ? 255 : ((int) sumg))) <<  8) +
+                        (((sumb < cmin) ? 0 : ((sumb > cmax) ? 255 : ((int) sumb)))      );
+                    dstoff += dcolinc;
+                    srcoff += scolinc;
                 }
-                dstPixels[dstoff] =
-                    (((suma < cmin) ? 0 : ((suma > cmax) ? 255 : ((int) suma))) << 24) +
-                    (((sumr < cmin) ? 0 : ((sumr > cmax) ? 255 : ((int) sumr))) << 16) +
-                    (((sumg < cmin) ? 0 : ((sumg > cmax) ? 255 : ((int) sumg))) <<  8) +
-                    (((sumb < cmin) ? 0 : ((sumb > cmax) ? 255 : ((int) sumb)))      );
-                dstoff += dcolinc;
-                srcoff += scolinc;
+                dstrow += drowinc;
+                srcrow += srowinc;
             }
-            dstrow += drowinc;
-            srcrow += srowinc;
-        }
+        });
     }
 }
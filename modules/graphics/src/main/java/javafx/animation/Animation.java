@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2010, 2014, Oracle and/or its affiliates. All rights reserved.
+ * Copyright (c) 2010, 2017, Oracle and/or its affiliates. All rights reserved.
  * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
  *
  * This code is free software; you can redistribute it and/or modify it
@@ -171,6 +171,14 @@ public abstract class Animation {
         }
     }
 
+    // The elapsed time of the current pulse and the action run with it.
+    // The action is reused to avoid allocating a new one for every pulse.
+    private long pulseElapsedTime;
+    private final PrivilegedAction<Void> timePulseAction = () -> {
+        impl_timePulse(pulseElapsedTime);
+        return null;
+    };
+
     // package private only for the sake of testing
     final PulseReceiver pulseReceiver = new PulseReceiver() {
         @Override public void timePulse(long now) {
@@ -182,10 +190,12 @@ public abstract class Animation {
                 throw new IllegalStateException("Error: AccessControlContext not captured");
             }
 
-            AccessController.doPrivileged((PrivilegedAction<Void>) () -> {
-                impl_timePulse(elapsedTime);
-                return null;
-            }, accessCtrlCtx);
+            pulseElapsedTime = elapsedTime;
+            AccessController.doPrivileged(timePulseAction, accessCtrlCtx);
+        }
+
+        @Override public int getResolution() {
+            return resolution;
         }
     };
 
@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2010, 2016, Oracle and/or its affiliates. All rights reserved.
+ * Copyright (c) 2010, 2017, Oracle and/or its affiliates. All rights reserved.
  * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
  *
  * This code is free software; you can redistribute it and/or modify it
@@ -141,6 +141,7 @@ import com.sun.javafx.geom.transform.GeneralTransform3D;
 import com.sun.javafx.geom.transform.NoninvertibleTransformException;
 import com.sun.javafx.jmx.MXNodeAlgorithm;
 import com.sun.javafx.jmx.MXNodeAlgorithmContext;
+import com.sun.javafx.logging.PulseLogger;
 import com.sun.javafx.perf.PerformanceTracker;
 import com.sun.javafx.scene.BoundsAccessor;
 import com.sun.javafx.scene.CameraHelper;
@@ -163,6 +164,8 @@ import javafx.scene.shape.Shape3D;
 import sun.util.logging.PlatformLogger;
 import sun.util.logging.PlatformLogger.Level;
 
+import static com.sun.javafx.logging.PulseLogger.PULSE_LOGGING_ENABLED;
+
 /**
  * Base class for scene graph nodes. A scene graph is a set of tree data structures
  * where every item has zero or one parent, and each item is either
@@ -9186,6 +9189,10 @@ public abstract class Node implements EventTarget, Styleable {
         // other than clean by downstream processing.
         cssFlag = CssFlags.CLEAN;
 
+        if (PULSE_LOGGING_ENABLED) {
+            PulseLogger.incrementCounter("Nodes processed by CSS");
+        }
+
         // Transition to the new state and apply styles
         if (styleHelper != null && getScene() != null) {
             styleHelper.transitionToState(this);
@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2010, 2016, Oracle and/or its affiliates. All rights reserved.
+ * Copyright (c) 2010, 2017, Oracle and/or its affiliates. All rights reserved.
  * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
  *
  * This code is free software; you can redistribute it and/or modify it
@@ -432,6 +432,19 @@ public class Scene implements EventTarget {
         // Reserve space for 30 nodes in the dirtyNodes set.
         private static final int MIN_DIRTY_CAPACITY = 30;
 
+        /**
+         * The number of pulses for which the synchronization of a scene may be
+         * deferred while the render thread is still busy with the previous
+         * frame. With the default of zero the FX thread waits for the
+         * renderer on every pulse that has something to synchronize; with a
+         * positive value it keeps processing events, animations, CSS and
+         * layout, and accumulates the changes until either the renderer is
+         * idle or the limit is reached, at which point it waits as usual.
+         * Package-private for testing.
+         */
+        static int frameLookahead = Math.max(0,
+                PropertyHelper.getIntegerProperty("javafx.sg.frameLookahead", 0));
+
         // For debugging
         private static boolean inSynchronizer = false;
         private static boolean inMousePick = false;
@@ -2262,6 +2275,30 @@ public class Scene implements EventTarget {
 
         private boolean firstPulse = true;
 
+        /**
+         * The number of consecutive pulses for which the synchronization
+         * was deferred because the renderer was busy.
+         */
+        private int deferredPulses = 0;
+
+        /**
+         * Returns whether the synchronization of this pulse should be
+         * deferred rather than waiting for the previous frame to render.
+         */
+        private boolean deferSynchronization() {
+            if (deferredPulses < frameLookahead && !impl_peer.isRenderingComplete()) {
+                deferredPulses++;
+                if (PULSE_LOGGING_ENABLED) {
+                    PulseLogger.incrementCounter("Deferred synchronizations");
+                }
+                // make sure the accumulated changes get synchronized
+                Toolkit.getToolkit().requestNextPulse();
+                return true;
+            }
+            deferredPulses = 0;
+            return false;
+        }
+
         /**
          * PG synchronizer. Called once per frame from the pulse listener.
          * This function calls the synchronizePGNode method on each node in
@@ -2287,9 +2324,12 @@ public class Scene implements EventTarget {
                     Node node = dirtyNodes[i];
                     dirtyNodes[i] = null;
                     if (node.getScene() == Scene.this) {
-                            node.impl_syncPeer();
+                        if (PULSE_LOGGING_ENABLED) {
+                            PulseLogger.incrementCounter("Dirty nodes synchronized");
                         }
+                        node.impl_syncPeer();
                     }
+                }
                 dirtyNodesSize = 0;
             }
 
@@ -2375,6 +2415,9 @@ public class Scene implements EventTarget {
 
         @Override
         public void pulse() {
+            if (PULSE_LOGGING_ENABLED) {
+                PulseLogger.newScene(Scene.this);
+            }
             if (Scene.this.tracker != null) {
                 Scene.this.tracker.pulse();
             }
@@ -2403,25 +2446,27 @@ public class Scene implements EventTarget {
                 }
                 getRoot().updateBounds();
                 if (impl_peer != null) {
-                    try {
-                        if (PULSE_LOGGING_ENABLED) {
-                            PulseLogger.newPhase("Waiting for previous rendering");
-                        }
-                        impl_peer.waitForRenderingToComplete();
-                        impl_peer.waitForSynchronization();
-                        // synchronize scene properties
-                        if (PULSE_LOGGING_ENABLED) {
-                            PulseLogger.newPhase("Copy state to render graph");
+                    if (!deferSynchronization()) {
+                        try {
+                            if (PULSE_LOGGING_ENABLED) {
+                                PulseLogger.newPhase("Waiting for previous rendering");
+                            }
+                            impl_peer.waitForRenderingToComplete();
+                            impl_peer.waitForSynchronization();
+                            // synchronize scene properties
+                            if (PULSE_LOGGING_ENABLED) {
+                                PulseLogger.newPhase("Copy state to render graph");
+                            }
+                            syncLights();
+                            synchronizeSceneProperties();
+                            // Run the synchronizer
+                            synchronizeSceneNodes();
+                            Scene.this.mouseHandler.pulse();
+                            // Tell the scene peer that it needs to repaint
+                            impl_peer.markDirty();
+                        } finally {
+                            impl_peer.releaseSynchronization(true);
                         }
-                        syncLights();
-                        synchronizeSceneProperties();
-                        // Run the synchronizer
-                        synchronizeSceneNodes();
-                        Scene.this.mouseHandler.pulse();
-                        // Tell the scene peer that it needs to repaint
-                        impl_peer.markDirty();
-                    } finally {
-                        impl_peer.releaseSynchronization(true);
                     }
                 } else {
                     if (PULSE_LOGGING_ENABLED) {
@@ -2455,6 +2500,10 @@ public class Scene implements EventTarget {
             if (testPulseListener != null) {
                 testPulseListener.run();
             }
+
+            if (PULSE_LOGGING_ENABLED) {
+                PulseLogger.newScene(null);
+            }
         }
     }
 
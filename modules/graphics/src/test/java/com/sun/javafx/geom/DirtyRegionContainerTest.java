@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2011, 2013, Oracle and/or its affiliates. All rights reserved.
+ * Copyright (c) 2011, 2017, Oracle and/or its affiliates. All rights reserved.
  * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
  *
  * This code is free software; you can redistribute it and/or modify it
@@ -189,6 +189,65 @@ public class DirtyRegionContainerTest {
         Assert.assertEquals(new RectBounds(0, 0, 50, 50), drc.getDirtyRegion(2));
     }
 
+    @Test
+    public void test_addDirtyRegion_close_regions_merged_by_cost() {
+        DirtyRegionContainer drc = new DirtyRegionContainer(6, 100);
+        drc.addDirtyRegion(new RectBounds(0, 0, 10, 10));
+        drc.addDirtyRegion(new RectBounds(12, 0, 22, 10));
+
+        Assert.assertEquals(1, drc.size());
+        Assert.assertEquals(new RectBounds(0, 0, 22, 10), drc.getDirtyRegion(0));
+    }
+
+    @Test
+    public void test_addDirtyRegion_distant_regions_kept_by_cost() {
+        DirtyRegionContainer drc = new DirtyRegionContainer(6, 100);
+        drc.addDirtyRegion(new RectBounds(0, 0, 10, 10));
+        drc.addDirtyRegion(new RectBounds(990, 990, 1000, 1000));
+
+        Assert.assertEquals(2, drc.size());
+        Assert.assertEquals(new RectBounds(0, 0, 10, 10), drc.getDirtyRegion(0));
+        Assert.assertEquals(new RectBounds(990, 990, 1000, 1000), drc.getDirtyRegion(1));
+    }
+
+    @Test
+    public void test_addDirtyRegion_no_space_merges_least_wasteful() {
+        DirtyRegionContainer drc = new DirtyRegionContainer(3);
+        drc.addDirtyRegion(new RectBounds(0, 0, 100, 100));
+        drc.addDirtyRegion(new RectBounds(101, 0, 201, 100));
+        drc.addDirtyRegion(new RectBounds(300, 0, 301, 1));
+
+        drc.addDirtyRegion(new RectBounds(0, 500, 1, 501));
+
+        // The two large regions are merged rather than the small region
+        // with the closer large one, although the union would be smaller
+        Assert.assertEquals(3, drc.size());
+        Assert.assertEquals(new RectBounds(0, 0, 201, 100), drc.getDirtyRegion(0));
+        Assert.assertEquals(new RectBounds(300, 0, 301, 1), drc.getDirtyRegion(1));
+        Assert.assertEquals(new RectBounds(0, 500, 1, 501), drc.getDirtyRegion(2));
+    }
+
+    @Test
+    public void test_area_statistics() {
+        DirtyRegionContainer drc = new DirtyRegionContainer(6, 100);
+        drc.addDirtyRegion(new RectBounds(0, 0, 10, 10));
+        drc.addDirtyRegion(new RectBounds(12, 0, 22, 10));
+        drc.addDirtyRegion(new RectBounds(500, 500, 510, 510));
+
+        Assert.assertEquals(300, drc.getDirtyArea());
+        Assert.assertEquals(320, drc.getArea());
+
+        DirtyRegionContainer other = new DirtyRegionContainer(6, 100);
+        other.addDirtyRegion(new RectBounds(600, 600, 610, 610));
+        drc.merge(other);
+        Assert.assertEquals(400, drc.getDirtyArea());
+        Assert.assertEquals(420, drc.getArea());
+
+        drc.reset();
+        Assert.assertEquals(0, drc.getDirtyArea());
+        Assert.assertEquals(0, drc.getArea());
+    }
+
     private DirtyRegionContainer getDRC_initialized() {
         DirtyRegionContainer drc = new DirtyRegionContainer(4);
         return drc.deriveWithNewRegions(nonIntersecting_3_Regions);
@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2011, 2014, Oracle and/or its affiliates. All rights reserved.
+ * Copyright (c) 2011, 2017, Oracle and/or its affiliates. All rights reserved.
  * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
  *
  * This code is free software; you can redistribute it and/or modify it
@@ -42,6 +42,8 @@ public class StubScene implements TKScene {
     private Object cursor;
     private NGCamera camera;
     Runnable inputMethodCompistionFinishedDelegate;
+    private boolean renderingComplete = true;
+    private int markDirtyCount;
 
     @Override
     public void dispose() {
@@ -52,6 +54,15 @@ public class StubScene implements TKScene {
         // ignore
     }
 
+    @Override
+    public boolean isRenderingComplete() {
+        return renderingComplete;
+    }
+
+    public void setRenderingComplete(boolean renderingComplete) {
+        this.renderingComplete = renderingComplete;
+    }
+
     public void waitForSynchronization() {
         //ignore
     }
@@ -69,7 +80,11 @@ public class StubScene implements TKScene {
     }
 
     public void markDirty() {
-        // ignore
+        markDirtyCount++;
+    }
+
+    public int getMarkDirtyCount() {
+        return markDirtyCount;
     }
 
     public void setCamera(NGCamera ci) {
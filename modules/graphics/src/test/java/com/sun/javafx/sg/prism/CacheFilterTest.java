@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2013, 2014, Oracle and/or its affiliates. All rights reserved.
+ * Copyright (c) 2013, 2017, Oracle and/or its affiliates. All rights reserved.
  * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
  *
  * This code is free software; you can redistribute it and/or modify it
@@ -29,6 +29,8 @@ import com.sun.javafx.geom.RectBounds;
 import com.sun.javafx.geom.transform.BaseTransform;
 import com.sun.javafx.geom.transform.GeneralTransform3D;
 import com.sun.javafx.geom.transform.Translate2D;
+import com.sun.prism.Graphics;
+import com.sun.prism.impl.PrismSettings;
 import javafx.scene.CacheHint;
 import org.junit.Test;
 
@@ -154,4 +156,104 @@ public class CacheFilterTest {
         cf.computeDirtyBounds(result, BaseTransform.IDENTITY_TRANSFORM, new GeneralTransform3D());
         assertEquals(new RectBounds(0, 0, 111, 131), result);
     }
+
+    /******************************************************************
+     *                                                                *
+     *  Tests for the automatic caching of groups whose content       *
+     *  does not change.                                              *
+     *                                                                *
+     *****************************************************************/
+
+    private static NGGroup createGroup() {
+        NGGroup group = new NGGroup();
+        NGRectangle r = new NGRectangle();
+        r.updateRectangle(0, 0, 100, 100, 0, 0);
+        group.add(-1, r);
+        return group;
+    }
+
+    private static void render(NGNode node, Graphics g, int times) {
+        for (int i = 0; i < times; i++) {
+            node.updateAutoCache(g);
+        }
+    }
+
+    @Test public void groupIsCachedAfterEnoughCleanRenderings() {
+        NGGroup group = createGroup();
+        Graphics g = new TestGraphics();
+        render(group, g, PrismSettings.autoCacheFrames - 1);
+        assertFalse(group.isAutoCached());
+        render(group, g, 1);
+        assertTrue(group.isAutoCached());
+        assertTrue(group.getCacheFilter().isAutomatic());
+        assertTrue(group.getCacheFilter().matchesHint(CacheHint.DEFAULT));
+    }
+
+    @Test public void translationDoesNotPreventAutomaticCaching() {
+        NGGroup group = createGroup();
+        Graphics g = new TestGraphics();
+        for (int i = 0; i < PrismSettings.autoCacheFrames; i++) {
+            g.setTransform(BaseTransform.getTranslateInstance(i * 3, i * 7));
+            render(group, g, 1);
+        }
+        assertTrue(group.isAutoCached());
+        g.setTransform(BaseTransform.getTranslateInstance(-5, 5));
+        render(group, g, 1);
+        assertTrue(group.isAutoCached());
+    }
+
+    @Test public void scalingPreventsAutomaticCaching() {
+        NGGroup group = createGroup();
+        Graphics g = new TestGraphics();
+        for (int i = 0; i < PrismSettings.autoCacheFrames; i++) {
+            g.setTransform(BaseTransform.getScaleInstance(1 + i, 1 + i));
+            render(group, g, 1);
+        }
+        assertFalse(group.isAutoCached());
+    }
+
+    @Test public void scalingDropsAutomaticCache() {
+        NGGroup group = createGroup();
+        Graphics g = new TestGraphics();
+        render(group, g, PrismSettings.autoCacheFrames);
+        assertTrue(group.isAutoCached());
+        g.setTransform(BaseTransform.getScaleInstance(2, 2));
+        render(group, g, 1);
+        assertFalse(group.isAutoCached());
+        assertNull(group.getCacheFilter());
+    }
+
+    @Test public void changedContentDropsAutomaticCache() {
+        NGGroup group = createGroup();
+        Graphics g = new TestGraphics();
+        render(group, g, PrismSettings.autoCacheFrames);
+        assertTrue(group.isAutoCached());
+        group.clearDirtyTree();
+        ((NGRectangle) group.getChildren().get(0)).updateRectangle(0, 0, 50, 50, 0, 0);
+        assertFalse(group.isAutoCached());
+        // the group has to stay unchanged for as long again
+        render(group, g, PrismSettings.autoCacheFrames - 1);
+        assertFalse(group.isAutoCached());
+        render(group, g, 1);
+        assertTrue(group.isAutoCached());
+    }
+
+    @Test public void groupInsideCachedGroupIsNotCached() {
+        NGGroup outer = new NGGroup();
+        NGGroup inner = createGroup();
+        outer.add(-1, inner);
+        outer.setCachedAsBitmap(true, CacheHint.DEFAULT);
+        render(inner, new TestGraphics(), PrismSettings.autoCacheFrames);
+        assertFalse(inner.isAutoCached());
+    }
+
+    @Test public void applicationCacheReplacesAutomaticCache() {
+        NGGroup group = createGroup();
+        render(group, new TestGraphics(), PrismSettings.autoCacheFrames);
+        assertTrue(group.isAutoCached());
+        group.setCachedAsBitmap(true, CacheHint.SPEED);
+        assertFalse(group.isAutoCached());
+        assertNotNull(group.getCacheFilter());
+        assertTrue(group.getCacheFilter().matchesHint(CacheHint.SPEED));
+    }
 }
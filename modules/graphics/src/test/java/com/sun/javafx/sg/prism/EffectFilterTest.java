@@ -0,0 +1,113 @@
+/*
+ * Copyright (c) 2017, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package com.sun.javafx.sg.prism;
+
+import com.sun.javafx.geom.transform.Affine2D;
+import com.sun.javafx.geom.transform.BaseTransform;
+import com.sun.scenario.effect.FilterContext;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class EffectFilterTest {
+
+    private final FilterContext fctx = new FilterContext(new Object()) {};
+
+    @Test public void identityIsIntegerTranslationOfItself() {
+        assertTrue(EffectFilter.isIntegerTranslation(
+                BaseTransform.IDENTITY_TRANSFORM, BaseTransform.IDENTITY_TRANSFORM));
+    }
+
+    @Test public void wholePixelTranslationIsIntegerTranslation() {
+        Affine2D tx1 = new Affine2D();
+        tx1.scale(2, 2);
+        tx1.translate(10.25, 4);
+        Affine2D tx2 = new Affine2D(tx1);
+        tx2.preConcatenate(BaseTransform.getTranslateInstance(-3, 17));
+        assertTrue(EffectFilter.isIntegerTranslation(tx1, tx2));
+    }
+
+    @Test public void fractionalTranslationIsNotIntegerTranslation() {
+        Affine2D tx1 = new Affine2D();
+        tx1.translate(10, 4);
+        Affine2D tx2 = new Affine2D(tx1);
+        tx2.preConcatenate(BaseTransform.getTranslateInstance(0.5, 0));
+        assertFalse(EffectFilter.isIntegerTranslation(tx1, tx2));
+    }
+
+    @Test public void scaleIsNotIntegerTranslation() {
+        Affine2D tx1 = new Affine2D();
+        Affine2D tx2 = new Affine2D();
+        tx2.scale(2, 2);
+        assertFalse(EffectFilter.isIntegerTranslation(tx1, tx2));
+    }
+
+    @Test public void rotationIsNotIntegerTranslation() {
+        Affine2D tx1 = new Affine2D();
+        Affine2D tx2 = new Affine2D();
+        tx2.rotate(Math.PI / 2);
+        assertFalse(EffectFilter.isIntegerTranslation(tx1, tx2));
+    }
+
+    @Test public void renderingInLaterPulseIsUnchanged() {
+        EffectFilter filter = new EffectFilter(null, null);
+        EffectFilter.nextPulse();
+        assertFalse(filter.isUnchanged(BaseTransform.IDENTITY_TRANSFORM, fctx));
+        EffectFilter.nextPulse();
+        assertTrue(filter.isUnchanged(BaseTransform.IDENTITY_TRANSFORM, fctx));
+    }
+
+    @Test public void renderingsInSamePulseAreNotUnchanged() {
+        // e.g. a node rendered once for each of several dirty regions
+        EffectFilter filter = new EffectFilter(null, null);
+        EffectFilter.nextPulse();
+        assertFalse(filter.isUnchanged(BaseTransform.IDENTITY_TRANSFORM, fctx));
+        assertFalse(filter.isUnchanged(BaseTransform.IDENTITY_TRANSFORM, fctx));
+        assertFalse(filter.isUnchanged(BaseTransform.IDENTITY_TRANSFORM, fctx));
+        EffectFilter.nextPulse();
+        assertTrue(filter.isUnchanged(BaseTransform.IDENTITY_TRANSFORM, fctx));
+    }
+
+    @Test public void changedTransformIsNotUnchanged() {
+        EffectFilter filter = new EffectFilter(null, null);
+        EffectFilter.nextPulse();
+        assertFalse(filter.isUnchanged(BaseTransform.IDENTITY_TRANSFORM, fctx));
+        EffectFilter.nextPulse();
+        assertFalse(filter.isUnchanged(BaseTransform.getScaleInstance(2, 2), fctx));
+        assertFalse(filter.isUnchanged(BaseTransform.getScaleInstance(2, 2), fctx));
+        EffectFilter.nextPulse();
+        assertTrue(filter.isUnchanged(BaseTransform.getScaleInstance(2, 2).deriveWithTranslation(3, 0), fctx));
+    }
+
+    @Test public void invalidatedFilterIsNotUnchanged() {
+        EffectFilter filter = new EffectFilter(null, null);
+        EffectFilter.nextPulse();
+        filter.isUnchanged(BaseTransform.IDENTITY_TRANSFORM, fctx);
+        filter.invalidate();
+        EffectFilter.nextPulse();
+        assertFalse(filter.isUnchanged(BaseTransform.IDENTITY_TRANSFORM, fctx));
+    }
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2013, 2014, Oracle and/or its affiliates. All rights reserved.
+ * Copyright (c) 2013, 2017, Oracle and/or its affiliates. All rights reserved.
  * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
  *
  * This code is free software; you can redistribute it and/or modify it
@@ -35,6 +35,7 @@ import com.sun.javafx.geom.BoxBounds;
 import com.sun.javafx.geom.DirtyRegionContainer;
 import com.sun.javafx.geom.DirtyRegionPool;
 import com.sun.javafx.geom.RectBounds;
+import com.sun.javafx.geom.Rectangle;
 import com.sun.javafx.geom.transform.BaseTransform;
 import com.sun.javafx.geom.transform.GeneralTransform3D;
 import com.sun.prism.Graphics;
@@ -245,10 +246,12 @@ public class NGTestBase {
         private boolean askedToAccumulateDirtyRegion;
         private boolean computedDirtyRegion;
         private boolean rendered;
+        private Rectangle renderClip;
 
         @Override
         protected void renderContent(Graphics g) {
             rendered = true;
+            renderClip = g.getClipRect();
         }
 
         @Override public int accumulateDirtyRegions(final RectBounds clip,
@@ -265,6 +268,7 @@ public class NGTestBase {
         @Override public boolean askedToAccumulateDirtyRegion() { return askedToAccumulateDirtyRegion; }
         @Override public boolean computedDirtyRegion() { return computedDirtyRegion; }
         @Override public boolean rendered() { return rendered; }
+        public Rectangle renderClip() { return renderClip; }
     }
 
     public  static final class TestNGCircle extends NGCircle implements TestNGNode {
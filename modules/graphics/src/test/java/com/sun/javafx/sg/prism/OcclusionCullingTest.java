@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2012, 2013, Oracle and/or its affiliates. All rights reserved.
+ * Copyright (c) 2012, 2017, Oracle and/or its affiliates. All rights reserved.
  * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
  *
  * This code is free software; you can redistribute it and/or modify it
@@ -26,10 +26,12 @@
 package com.sun.javafx.sg.prism;
 
 import com.sun.javafx.geom.RectBounds;
+import com.sun.javafx.geom.Rectangle;
 import com.sun.javafx.geom.transform.BaseTransform;
 import com.sun.javafx.geom.transform.GeneralTransform3D;
 import org.junit.Test;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
@@ -181,6 +183,68 @@ public class OcclusionCullingTest extends NGTestBase {
         assertRoot(rootPath, root);
     }
 
+    @Test
+    public void testCoveredSiblingIsNotRendered() {
+        final TestNGRectangle covered = createRectangle(10, 10, 50, 50);
+        final TestNGRectangle cover = createRectangle(0, 0, 100, 100);
+        TestNGGroup group = createGroup(covered, cover);
+        group.render(new TestGraphics());
+        assertFalse(covered.rendered());
+        assertTrue(cover.rendered());
+    }
+
+    @Test
+    public void testSiblingCoveredByTranslatedRegionIsNotRendered() {
+        final TestNGRectangle covered = createRectangle(20, 20, 50, 50);
+        final TestNGRegion cover = createOpaqueRegion(10, 10, 100, 100);
+        TestNGGroup group = createGroup(covered, cover);
+        group.render(new TestGraphics());
+        assertFalse(covered.rendered());
+        assertTrue(cover.rendered());
+    }
+
+    @Test
+    public void testPartiallyCoveredSiblingIsClipped() {
+        final TestNGRectangle partiallyCovered = createRectangle(0, 0, 100, 100);
+        final TestNGRectangle cover = createRectangle(0, 0, 100, 60);
+        TestNGGroup group = createGroup(partiallyCovered, cover);
+        TestGraphics g = new TestGraphics();
+        g.setClipRect(new Rectangle(0, 0, 200, 200));
+        group.render(g);
+        assertTrue(partiallyCovered.rendered());
+        assertEquals(new Rectangle(0, 60, 100, 40), partiallyCovered.renderClip());
+        assertTrue(cover.rendered());
+    }
+
+    @Test
+    public void testSiblingCoveredByTwoSiblingsIsNotRendered() {
+        final TestNGRectangle covered = createRectangle(0, 0, 100, 100);
+        TestNGGroup group = createGroup(covered,
+                createRectangle(0, 0, 100, 60), createRectangle(0, 50, 100, 50));
+        group.render(new TestGraphics());
+        assertFalse(covered.rendered());
+    }
+
+    @Test
+    public void testSiblingOverlappedOnACornerIsRendered() {
+        final TestNGRectangle overlapped = createRectangle(0, 0, 100, 100);
+        final TestNGRectangle cover = createRectangle(50, 50, 100, 100);
+        TestNGGroup group = createGroup(overlapped, cover);
+        group.render(new TestGraphics());
+        assertTrue(overlapped.rendered());
+        assertEquals(null, overlapped.renderClip());
+    }
+
+    @Test
+    public void testSiblingUnderTranslucentNodeIsRendered() {
+        final TestNGRectangle covered = createRectangle(10, 10, 50, 50);
+        final TestNGRectangle cover = createRectangle(0, 0, 100, 100);
+        cover.setOpacity(0.5f);
+        TestNGGroup group = createGroup(covered, cover);
+        group.render(new TestGraphics());
+        assertTrue(covered.rendered());
+    }
+
     private void checkRootRendering(TestNGNode node, NodePath root) {
         assertTrue(node.rendered());
         if (node instanceof TestNGGroup) {
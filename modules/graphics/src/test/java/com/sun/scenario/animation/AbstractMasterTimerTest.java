@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2011, 2014, Oracle and/or its affiliates. All rights reserved.
+ * Copyright (c) 2011, 2017, Oracle and/or its affiliates. All rights reserved.
  * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
  *
  * This code is free software; you can redistribute it and/or modify it
@@ -27,8 +27,10 @@ package com.sun.scenario.animation;
 
 import javafx.animation.AnimationTimer;
 import com.sun.scenario.DelayedRunnable;
+import com.sun.scenario.Settings;
 import com.sun.scenario.animation.shared.PulseReceiver;
 import com.sun.scenario.animation.shared.TimerReceiver;
+import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 
@@ -44,6 +46,11 @@ public class AbstractMasterTimerTest {
         timer = new AbstractMasterTimerStub();
     }
 
+    @After
+    public void tearDown() {
+        Settings.set(AbstractMasterTimer.ADAPTIVE_RATE_PROP, "false");
+    }
+
     @Test
     public void testPauseResume() {
         // pause timer
@@ -134,6 +141,129 @@ public class AbstractMasterTimerTest {
         assertFalse(flag.isFlagged());
     }
 
+    @Test
+    public void testAdaptiveRateFollowsReceiverResolution() {
+        Settings.set(AbstractMasterTimer.ADAPTIVE_RATE_PROP, "true");
+        // 600 ticks is 100ms, i.e. a target framerate of 10 fps
+        final PulseReceiver pulseReceiver = new SlowPulseReceiver(600);
+
+        timer.setNanos(1000000000L);
+        timer.addPulseReceiver(pulseReceiver);
+        timer.simulatePulse();
+
+        timer.setNanos(1016000000L);
+        assertFalse(timer.isAnimationPulseDue());
+        timer.setNanos(1050000000L);
+        assertFalse(timer.isAnimationPulseDue());
+        timer.setNanos(1099500000L);
+        assertTrue(timer.isAnimationPulseDue());
+        timer.setNanos(1100000000L);
+        assertTrue(timer.isAnimationPulseDue());
+
+        timer.simulatePulse();
+        timer.setNanos(1116000000L);
+        assertFalse(timer.isAnimationPulseDue());
+    }
+
+    @Test
+    public void testAdaptiveRateWithAnimationTimer() {
+        Settings.set(AbstractMasterTimer.ADAPTIVE_RATE_PROP, "true");
+        final PulseReceiver pulseReceiver = new SlowPulseReceiver(600);
+        final TimerReceiver timerReceiver = now -> {};
+
+        timer.setNanos(1000000000L);
+        timer.addPulseReceiver(pulseReceiver);
+        timer.addAnimationTimer(timerReceiver);
+        timer.simulatePulse();
+
+        // AnimationTimers need every pulse
+        timer.setNanos(1017000000L);
+        assertTrue(timer.isAnimationPulseDue());
+    }
+
+    @Test
+    public void testAdaptiveRateResetWhenPulseReceiverAdded() {
+        Settings.set(AbstractMasterTimer.ADAPTIVE_RATE_PROP, "true");
+        timer.setNanos(1000000000L);
+        timer.addPulseReceiver(new SlowPulseReceiver(600));
+        timer.simulatePulse();
+
+        timer.setNanos(1010000000L);
+        assertFalse(timer.isAnimationPulseDue());
+
+        // a receiver running at the full rate needs the next regular pulse
+        timer.addPulseReceiver(new SlowPulseReceiver(1));
+        timer.setNanos(1017000000L);
+        assertTrue(timer.isAnimationPulseDue());
+        timer.simulatePulse();
+        timer.setNanos(1034000000L);
+        assertTrue(timer.isAnimationPulseDue());
+    }
+
+    @Test
+    public void testAdaptiveRateResetWhenAnimationTimerAdded() {
+        Settings.set(AbstractMasterTimer.ADAPTIVE_RATE_PROP, "true");
+        timer.setNanos(1000000000L);
+        timer.addPulseReceiver(new SlowPulseReceiver(600));
+        timer.simulatePulse();
+
+        timer.setNanos(1010000000L);
+        assertFalse(timer.isAnimationPulseDue());
+
+        timer.addAnimationTimer(now -> {});
+        timer.setNanos(1017000000L);
+        assertTrue(timer.isAnimationPulseDue());
+    }
+
+    @Test
+    public void testAdaptiveRateCountsReceiverAddedDuringPulse() {
+        Settings.set(AbstractMasterTimer.ADAPTIVE_RATE_PROP, "true");
+        final PulseReceiver fastReceiver = new SlowPulseReceiver(1);
+        final PulseReceiver slowReceiver = new SlowPulseReceiver(600) {
+            @Override
+            public void timePulse(long now) {
+                timer.addPulseReceiver(fastReceiver);
+            }
+        };
+
+        timer.setNanos(1000000000L);
+        timer.addPulseReceiver(slowReceiver);
+        timer.simulatePulse();
+
+        timer.setNanos(1017000000L);
+        assertTrue(timer.isAnimationPulseDue());
+    }
+
+    @Test
+    public void testAnimationPulseAlwaysDueWithoutAdaptiveRate() {
+        final PulseReceiver pulseReceiver = new SlowPulseReceiver(600);
+
+        timer.setNanos(1000000000L);
+        timer.addPulseReceiver(pulseReceiver);
+        timer.simulatePulse();
+
+        timer.setNanos(1001000000L);
+        assertTrue(timer.isAnimationPulseDue());
+    }
+
+    private static class SlowPulseReceiver implements PulseReceiver {
+
+        private final int resolution;
+
+        public SlowPulseReceiver(int resolution) {
+            this.resolution = resolution;
+        }
+
+        @Override
+        public void timePulse(long now) {
+        }
+
+        @Override
+        public int getResolution() {
+            return resolution;
+        }
+    }
+
     private static class Flag {
 
         private boolean flagged;
@@ -0,0 +1,237 @@
+/*
+ * Copyright (c) 2017, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package com.sun.scenario.effect.impl;
+
+import java.util.ArrayList;
+import java.util.List;
+import com.sun.javafx.geom.Rectangle;
+import com.sun.javafx.geom.transform.BaseTransform;
+import com.sun.scenario.effect.Effect.AccelType;
+import com.sun.scenario.effect.FilterContext;
+import com.sun.scenario.effect.Filterable;
+import com.sun.scenario.effect.ImageData;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class ImagePoolTest {
+
+    private ImagePool pool;
+    private List<PoolFilterable> evicted;
+    private TestRenderer renderer;
+
+    @Before public void setup() {
+        pool = new ImagePool();
+        evicted = new ArrayList<>();
+        renderer = new TestRenderer();
+    }
+
+    @Test public void sizeClasses() {
+        assertEquals(32, ImagePool.getSizeClass(1));
+        assertEquals(32, ImagePool.getSizeClass(32));
+        assertEquals(64, ImagePool.getSizeClass(33));
+        assertEquals(256, ImagePool.getSizeClass(256));
+        assertEquals(320, ImagePool.getSizeClass(257));
+        assertEquals(320, ImagePool.getSizeClass(300));
+        assertEquals(1024, ImagePool.getSizeClass(1000));
+        assertEquals(1280, ImagePool.getSizeClass(1025));
+    }
+
+    @Test public void checkOutReusesImageOfSameSizeClass() {
+        PoolFilterable img = pool.checkOut(renderer, 40, 40);
+        assertEquals(64, img.getMaxContentWidth());
+        assertEquals(64, img.getMaxContentHeight());
+        pool.checkIn(img);
+        assertSame(img, pool.checkOut(renderer, 60, 50));
+        assertEquals(1, renderer.created);
+        assertEquals(1, renderer.cleared);
+    }
+
+    @Test public void checkOutReusesLargerImage() {
+        PoolFilterable img = pool.checkOut(renderer, 100, 100);
+        pool.checkIn(img);
+        assertSame(img, pool.checkOut(renderer, 90, 120));
+        assertEquals(1, renderer.created);
+    }
+
+    @Test public void checkOutDoesNotReuseMuchLargerImage() {
+        PoolFilterable img = pool.checkOut(renderer, 200, 200);
+        pool.checkIn(img);
+        assertNotSame(img, pool.checkOut(renderer, 20, 20));
+        assertEquals(2, renderer.created);
+    }
+
+    @Test public void checkOutDoesNotReuseImageThatIsCheckedOut() {
+        PoolFilterable img = pool.checkOut(renderer, 40, 40);
+        assertNotSame(img, pool.checkOut(renderer, 40, 40));
+    }
+
+    @Test public void leastRecentlyCheckedInImagesAreTrimmed() {
+        // two of these fit in the default budget of 16M pixels, three do not
+        int w = 2560;
+        TestImage first = (TestImage) pool.checkOut(renderer, w, w);
+        TestImage second = (TestImage) pool.checkOut(renderer, w, w);
+        TestImage third = (TestImage) pool.checkOut(renderer, w, w);
+        pool.checkIn(first);
+        pool.checkIn(second);
+        assertFalse(first.flushed);
+        pool.checkIn(third);
+        assertTrue(first.flushed);
+        assertFalse(second.flushed);
+        assertFalse(third.flushed);
+        assertTrue(pool.getPixelsUnlocked() <= ImagePool.IDLE_PIXELS_LIMIT);
+        assertSame(third, pool.checkOut(renderer, w, w));
+        assertSame(second, pool.checkOut(renderer, w, w));
+    }
+
+    @Test public void releaseIdleImagesFlushesUnlockedImages() {
+        TestImage idle = (TestImage) pool.checkOut(renderer, 40, 40);
+        TestImage busy = (TestImage) pool.checkOut(renderer, 40, 40);
+        pool.checkIn(idle);
+        pool.releaseIdleImages();
+        assertTrue(idle.flushed);
+        assertFalse(busy.flushed);
+        assertEquals(0, pool.getPixelsUnlocked());
+        assertNotSame(idle, pool.checkOut(renderer, 40, 40));
+    }
+
+    private PoolFilterable retain(int w, int h) {
+        PoolFilterable img = new TestImage(w, h);
+        img.setImagePool(pool);
+        assertTrue(pool.retain(img, () -> {
+            evicted.add(img);
+            pool.checkIn(img);
+        }));
+        return img;
+    }
+
+    @Test public void retainCountsPixels() {
+        retain(100, 100);
+        retain(50, 20);
+        assertEquals(100 * 100 + 50 * 20, pool.getPixelsRetained());
+        assertTrue(evicted.isEmpty());
+    }
+
+    @Test public void checkInEndsRetention() {
+        PoolFilterable img = retain(100, 100);
+        pool.checkIn(img);
+        assertEquals(0, pool.getPixelsRetained());
+        assertTrue(evicted.isEmpty());
+    }
+
+    @Test public void imageLargerThanBudgetIsNotRetained() {
+        int w = 1 + (int) Math.sqrt(ImagePool.RETAINED_PIXELS_LIMIT);
+        assertFalse(pool.retain(new TestImage(w, w), () -> fail()));
+        assertEquals(0, pool.getPixelsRetained());
+    }
+
+    @Test public void leastRecentlyUsedImageIsEvicted() {
+        int w = (int) Math.sqrt(ImagePool.RETAINED_PIXELS_LIMIT / 3);
+        PoolFilterable first = retain(w, w);
+        PoolFilterable second = retain(w, w);
+        retain(w, w);
+        pool.touch(first);
+        retain(w, w);
+        assertEquals(1, evicted.size());
+        assertSame(second, evicted.get(0));
+        assertEquals(3L * w * w, pool.getPixelsRetained());
+    }
+
+    @Test public void disposeEvictsRetainedImages() {
+        PoolFilterable first = retain(10, 10);
+        PoolFilterable second = retain(10, 10);
+        pool.dispose();
+        assertEquals(2, evicted.size());
+        assertSame(first, evicted.get(0));
+        assertSame(second, evicted.get(1));
+        assertEquals(0, pool.getPixelsRetained());
+    }
+
+    private static class TestImage implements PoolFilterable {
+        private final int w, h;
+        private ImagePool pool;
+        boolean flushed;
+
+        TestImage(int w, int h) {
+            this.w = w;
+            this.h = h;
+        }
+
+        @Override public void setImagePool(ImagePool pool) { this.pool = pool; }
+        @Override public ImagePool getImagePool() { return pool; }
+        @Override public Object getData() { return null; }
+        @Override public int getContentWidth() { return w; }
+        @Override public int getContentHeight() { return h; }
+        @Override public void setContentWidth(int contentW) { }
+        @Override public void setContentHeight(int contentH) { }
+        @Override public int getMaxContentWidth() { return w; }
+        @Override public int getMaxContentHeight() { return h; }
+        @Override public int getPhysicalWidth() { return w; }
+        @Override public int getPhysicalHeight() { return h; }
+        @Override public float getPixelScale() { return 1f; }
+        @Override public void flush() { flushed = true; }
+        @Override public void lock() { }
+        @Override public void unlock() { }
+        @Override public boolean isLost() { return false; }
+    }
+
+    private static class TestRenderer extends Renderer {
+        int created;
+        int cleared;
+
+        @Override public AccelType getAccelType() { return AccelType.NONE; }
+        @Override public int getCompatibleWidth(int w) { return w; }
+        @Override public int getCompatibleHeight(int h) { return h; }
+        @Override public PoolFilterable createCompatibleImage(int w, int h) {
+            created++;
+            return new TestImage(w, h);
+        }
+        @Override public void clearImage(Filterable image) { cleared++; }
+        @Override public ImageData createImageData(FilterContext fctx, Filterable src) {
+            return null;
+        }
+        @Override public Filterable transform(FilterContext fctx, Filterable original,
+                                              BaseTransform transform,
+                                              Rectangle origBounds,
+                                              Rectangle xformBounds) {
+            return null;
+        }
+        @Override public ImageData transform(FilterContext fctx, ImageData original,
+                                             BaseTransform transform,
+                                             Rectangle origBounds,
+                                             Rectangle xformBounds) {
+            return null;
+        }
+        @Override public RendererState getRendererState() { return RendererState.OK; }
+        @Override protected EffectPeer createPeer(FilterContext fctx, String name,
+                                                  int unrollCount) {
+            return null;
+        }
+        @Override protected Renderer getBackupRenderer() { return this; }
+        @Override public boolean isImageDataCompatible(ImageData id) { return false; }
+    }
+}
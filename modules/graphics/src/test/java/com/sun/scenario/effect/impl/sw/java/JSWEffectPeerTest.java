@@ -0,0 +1,104 @@
+/*
+ * Copyright (c) 2017, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package com.sun.scenario.effect.impl.sw.java;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class JSWEffectPeerTest {
+
+    private int oldThreadCount;
+
+    @Before public void setup() {
+        oldThreadCount = JSWEffectPeer.threadCount;
+        JSWEffectPeer.threadCount = 4;
+    }
+
+    @After public void cleanup() {
+        JSWEffectPeer.threadCount = oldThreadCount;
+    }
+
+    private static void assertEachRowFilteredOnce(int count, int pixelsPerRow) {
+        AtomicIntegerArray hits = new AtomicIntegerArray(count);
+        JSWEffectPeer.filterBands(count, pixelsPerRow, (from, to) -> {
+            assertTrue(0 <= from && from < to && to <= count);
+            for (int i = from; i < to; i++) {
+                hits.incrementAndGet(i);
+            }
+        });
+        for (int i = 0; i < count; i++) {
+            assertEquals("row " + i + " of " + count, 1, hits.get(i));
+        }
+    }
+
+    @Test public void evenSplitCoversEachRowOnce() {
+        assertEachRowFilteredOnce(1024, 1024);
+    }
+
+    @Test public void unevenSplitCoversEachRowOnce() {
+        assertEachRowFilteredOnce(997, 333);
+        assertEachRowFilteredOnce(129, 129);
+        assertEachRowFilteredOnce(2, 1 << 16);
+    }
+
+    @Test public void moreBandsThanRowsCoversEachRowOnce() {
+        assertEachRowFilteredOnce(3, 1 << 20);
+    }
+
+    @Test public void largeImageIsSplitIntoBands() {
+        AtomicInteger bands = new AtomicInteger();
+        JSWEffectPeer.filterBands(1024, 1024, (from, to) -> bands.incrementAndGet());
+        assertTrue(bands.get() > 1);
+    }
+
+    @Test public void smallImageIsFilteredOnCallingThread() {
+        Thread caller = Thread.currentThread();
+        AtomicInteger bands = new AtomicInteger();
+        JSWEffectPeer.filterBands(100, 100, (from, to) -> {
+            assertSame(caller, Thread.currentThread());
+            assertEquals(0, from);
+            assertEquals(100, to);
+            bands.incrementAndGet();
+        });
+        assertEquals(1, bands.get());
+    }
+
+    @Test public void singleThreadFiltersOnCallingThread() {
+        JSWEffectPeer.threadCount = 1;
+        Thread caller = Thread.currentThread();
+        AtomicInteger bands = new AtomicInteger();
+        JSWEffectPeer.filterBands(1024, 1024, (from, to) -> {
+            assertSame(caller, Thread.currentThread());
+            bands.incrementAndGet();
+        });
+        assertEquals(1, bands.get());
+    }
+}
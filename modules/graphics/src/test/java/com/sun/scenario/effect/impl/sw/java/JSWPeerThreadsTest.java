@@ -0,0 +1,153 @@
+/*
+ * Copyright (c) 2017, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package com.sun.scenario.effect.impl.sw.java;
+
+import java.util.Arrays;
+import java.util.Random;
+import com.sun.scenario.effect.FilterContext;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks that the hand-written software peers produce the same pixels when
+ * their passes are filtered on one thread and when they are split into bands
+ * that are filtered on several threads.
+ */
+public class JSWPeerThreadsTest {
+
+    // large enough for filterBands to split the passes
+    private static final int SRCW = 301;
+    private static final int SRCH = 257;
+    private static final int GROW = 8;
+
+    private final FilterContext fctx = new FilterContext(new Object()) {};
+    private int oldThreadCount;
+    private int[] srcPixels;
+
+    @Before public void setup() {
+        oldThreadCount = JSWEffectPeer.threadCount;
+        Random random = new Random(42);
+        srcPixels = new int[SRCW * SRCH];
+        for (int i = 0; i < srcPixels.length; i++) {
+            // premultiplied, so that no component exceeds alpha
+            int a = random.nextInt(256);
+            int r = random.nextInt(a + 1);
+            int g = random.nextInt(a + 1);
+            int b = random.nextInt(a + 1);
+            srcPixels[i] = (a << 24) | (r << 16) | (g << 8) | b;
+        }
+    }
+
+    @After public void cleanup() {
+        JSWEffectPeer.threadCount = oldThreadCount;
+    }
+
+    private interface Pass {
+        void filter(int[] dstPixels);
+    }
+
+    private static void assertSameOnAllThreadCounts(int dstLength, Pass pass) {
+        JSWEffectPeer.threadCount = 1;
+        int[] expected = new int[dstLength];
+        pass.filter(expected);
+
+        for (int threads : new int[] {2, 3, 8}) {
+            JSWEffectPeer.threadCount = threads;
+            int[] actual = new int[dstLength];
+            pass.filter(actual);
+            assertTrue("pixels differ with " + threads + " threads",
+                       Arrays.equals(expected, actual));
+        }
+    }
+
+    @Test public void boxBlurHorizontal() {
+        JSWBoxBlurPeer peer = new JSWBoxBlurPeer(fctx, null, "BoxBlur");
+        int dstw = SRCW + GROW;
+        assertSameOnAllThreadCounts(dstw * SRCH, dst ->
+                peer.filterHorizontal(dst, dstw, SRCH, dstw,
+                                      srcPixels, SRCW, SRCH, SRCW));
+    }
+
+    @Test public void boxBlurVertical() {
+        JSWBoxBlurPeer peer = new JSWBoxBlurPeer(fctx, null, "BoxBlur");
+        int dsth = SRCH + GROW;
+        assertSameOnAllThreadCounts(SRCW * dsth, dst ->
+                peer.filterVertical(dst, SRCW, dsth, SRCW,
+                                    srcPixels, SRCW, SRCH, SRCW));
+    }
+
+    @Test public void boxShadowHorizontal() {
+        JSWBoxShadowPeer peer = new JSWBoxShadowPeer(fctx, null, "BoxShadow");
+        int dstw = SRCW + GROW;
+        assertSameOnAllThreadCounts(dstw * SRCH, dst ->
+                peer.filterHorizontalBlack(dst, dstw, SRCH, dstw,
+                                           srcPixels, SRCW, SRCH, SRCW, 0.25f));
+    }
+
+    @Test public void boxShadowVertical() {
+        JSWBoxShadowPeer peer = new JSWBoxShadowPeer(fctx, null, "BoxShadow");
+        int dsth = SRCH + GROW;
+        assertSameOnAllThreadCounts(SRCW * dsth, dst ->
+                peer.filterVerticalBlack(dst, SRCW, dsth, SRCW,
+                                         srcPixels, SRCW, SRCH, SRCW, 0.25f));
+        float[] shadowColor = {0.2f, 0.4f, 0.6f, 0.8f};
+        assertSameOnAllThreadCounts(SRCW * dsth, dst ->
+                peer.filterVertical(dst, SRCW, dsth, SRCW,
+                                    srcPixels, SRCW, SRCH, SRCW, 0.25f, shadowColor));
+    }
+
+    @Test public void linearConvolveVector() {
+        JSWLinearConvolvePeer peer = new JSWLinearConvolvePeer(fctx, null, "LinearConvolve");
+        float[] weights = {0.1f, 0.2f, 0.4f, 0.2f, 0.1f};
+        int dstw = SRCW + 4;
+        assertSameOnAllThreadCounts(dstw * SRCH, dst ->
+                peer.filterVector(dst, dstw, SRCH, dstw,
+                                  srcPixels, SRCW, SRCH, SRCW,
+                                  weights, weights.length,
+                                  -2f, 0f, -2f, 0f, 1f, 0f,
+                                  1f, 0f, 0f, 1f));
+    }
+
+    @Test public void linearConvolveHV() {
+        JSWLinearConvolvePeer peer = new JSWLinearConvolvePeer(fctx, null, "LinearConvolve");
+        // the kernel is repeated, as the peer passes it to filterHV
+        float[] weights = {0.1f, 0.2f, 0.4f, 0.2f, 0.1f,
+                           0.1f, 0.2f, 0.4f, 0.2f, 0.1f};
+        int dstw = SRCW + 4;
+        assertSameOnAllThreadCounts(dstw * SRCH, dst ->
+                peer.filterHV(dst, dstw, SRCH, 1, dstw,
+                              srcPixels, SRCW, SRCH, 1, SRCW,
+                              weights));
+        int dsth = SRCH + 4;
+        assertSameOnAllThreadCounts(SRCW * dsth, dst ->
+                peer.filterHV(dst, dsth, SRCW, SRCW, 1,
+                              srcPixels, SRCH, SRCW, SRCW, 1,
+                              weights));
+    }
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2011, 2014, Oracle and/or its affiliates. All rights reserved.
+ * Copyright (c) 2011, 2017, Oracle and/or its affiliates. All rights reserved.
  * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
  *
  * This code is free software; you can redistribute it and/or modify it
@@ -845,4 +845,63 @@ public class SceneTest {
          */
         assertEquals("MyValue", properties2.get("MyKey"));
     }
+
+    @Test
+    public void testSynchronizationDeferredWhileRenderingUpToLookahead() {
+        final StubToolkit toolkit = (StubToolkit) Toolkit.getToolkit();
+        final int oldLookahead = Scene.frameLookahead;
+        Scene.frameLookahead = 2;
+        try {
+            final Rectangle rect = new Rectangle(100, 100);
+            final Scene scene = new Scene(new Group(rect), 300, 200);
+            stage.setScene(scene);
+            toolkit.firePulse();
+
+            final StubScene peer = (StubScene) scene.impl_getPeer();
+            final int syncCount = peer.getMarkDirtyCount();
+            peer.setRenderingComplete(false);
+
+            rect.setWidth(50);
+            toolkit.firePulse();
+            assertEquals(syncCount, peer.getMarkDirtyCount());
+            assertTrue(toolkit.isPulseRequested());
+
+            rect.setWidth(60);
+            toolkit.firePulse();
+            assertEquals(syncCount, peer.getMarkDirtyCount());
+
+            // the lookahead is exhausted, the scene waits for the renderer
+            toolkit.firePulse();
+            assertEquals(syncCount + 1, peer.getMarkDirtyCount());
+        } finally {
+            Scene.frameLookahead = oldLookahead;
+        }
+    }
+
+    @Test
+    public void testDeferredSynchronizationHappensOnceRenderingCompletes() {
+        final StubToolkit toolkit = (StubToolkit) Toolkit.getToolkit();
+        final int oldLookahead = Scene.frameLookahead;
+        Scene.frameLookahead = 2;
+        try {
+            final Rectangle rect = new Rectangle(100, 100);
+            final Scene scene = new Scene(new Group(rect), 300, 200);
+            stage.setScene(scene);
+            toolkit.firePulse();
+
+            final StubScene peer = (StubScene) scene.impl_getPeer();
+            final int syncCount = peer.getMarkDirtyCount();
+            peer.setRenderingComplete(false);
+
+            rect.setWidth(50);
+            toolkit.firePulse();
+            assertEquals(syncCount, peer.getMarkDirtyCount());
+
+            peer.setRenderingComplete(true);
+            toolkit.firePulse();
+            assertEquals(syncCount + 1, peer.getMarkDirtyCount());
+        } finally {
+            Scene.frameLookahead = oldLookahead;
+        }
+    }
 }
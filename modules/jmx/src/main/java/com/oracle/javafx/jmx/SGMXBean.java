@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2010, 2013, Oracle and/or its affiliates. All rights reserved.
+ * Copyright (c) 2010, 2017, Oracle and/or its affiliates. All rights reserved.
  * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
  *
  * This code is free software; you can redistribute it and/or modify it
@@ -196,4 +196,28 @@ public interface SGMXBean {
     String makeScreenShot(int windowId, double x, double y, double w, double h)
         throws IllegalStateException;
 
+    /**
+     * Returns the pulse statistics collected by the pulse profiler. The
+     * profiler is enabled by the <code>javafx.pulseProfiler</code> system
+     * property; when it is disabled the result contains only the
+     * <code>"enabled": false</code> entry.
+     *
+     * For every pulse phase the number of samples and the mean, 50th, 90th,
+     * 99th percentile and maximum duration in microseconds are reported,
+     * together with the counters collected during the pulses of every
+     * scene.
+     *
+     * The result is in the format of JSON string.
+     *
+     * @return the pulse statistics in JSON format
+     */
+    String getPulseStatistics();
+
+    /**
+     * Clears the pulse statistics collected so far by the pulse profiler.
+     *
+     * If the pulse profiler is not enabled then this method has no effect.
+     */
+    void resetPulseStatistics();
+
 }
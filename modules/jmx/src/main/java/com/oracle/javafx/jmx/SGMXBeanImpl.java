@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2010, 2013, Oracle and/or its affiliates. All rights reserved.
+ * Copyright (c) 2010, 2017, Oracle and/or its affiliates. All rights reserved.
  * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
  *
  * This code is free software; you can redistribute it and/or modify it
@@ -51,6 +51,8 @@ import javafx.css.StyleableProperty;
 import com.sun.javafx.jmx.HighlightRegion;
 import com.sun.javafx.jmx.MXNodeAlgorithm;
 import com.sun.javafx.jmx.MXNodeAlgorithmContext;
+import com.sun.javafx.logging.LatencyHistogram;
+import com.sun.javafx.logging.ProfilingLogger;
 import com.sun.javafx.tk.TKPulseListener;
 import com.sun.javafx.tk.TKScene;
 import com.sun.javafx.tk.Toolkit;
@@ -443,6 +445,71 @@ public class SGMXBeanImpl implements SGMXBean, MXNodeAlgorithm {
         return s.substring(0, 1).toUpperCase() + s.substring(1);
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getPulseStatistics() {
+        JSONDocument d = JSONDocument.createObject();
+        ProfilingLogger profiler = ProfilingLogger.getInstance();
+        d.setBoolean("enabled", profiler != null);
+        if (profiler == null) {
+            return d.toJSON();
+        }
+
+        JSONDocument jphases = JSONDocument.createObject();
+        for (Map.Entry<String, LatencyHistogram> entry : profiler.getHistograms().entrySet()) {
+            LatencyHistogram histogram = entry.getValue();
+            JSONDocument jphase = JSONDocument.createObject();
+            jphase.setNumber("count", histogram.getCount());
+            jphase.setNumber("mean", histogram.getMean());
+            jphase.setNumber("p50", histogram.getValueAtPercentile(50));
+            jphase.setNumber("p90", histogram.getValueAtPercentile(90));
+            jphase.setNumber("p99", histogram.getValueAtPercentile(99));
+            jphase.setNumber("max", histogram.getMax());
+            jphases.set(entry.getKey(), jphase);
+        }
+        d.set("phases", jphases);
+
+        JSONDocument jcounters = JSONDocument.createObject();
+        for (Map.Entry<String, Long> entry : profiler.getCounters().entrySet()) {
+            jcounters.setNumber(entry.getKey(), entry.getValue());
+        }
+        d.set("counters", jcounters);
+
+        Map<String, Long> scenePulses = profiler.getScenePulses();
+        JSONDocument jscenes = JSONDocument.createArray();
+        for (Map.Entry<String, Map<String, long[]>> entry : profiler.getSceneCounters().entrySet()) {
+            JSONDocument jscene = JSONDocument.createObject();
+            jscene.setString("name", entry.getKey());
+            Long pulses = scenePulses.get(entry.getKey());
+            jscene.setNumber("pulses", pulses == null ? 0L : pulses);
+            JSONDocument jsceneCounters = JSONDocument.createObject();
+            for (Map.Entry<String, long[]> counter : entry.getValue().entrySet()) {
+                JSONDocument jcounter = JSONDocument.createObject();
+                jcounter.setNumber("total", counter.getValue()[0]);
+                jcounter.setNumber("maxPerPulse", counter.getValue()[1]);
+                jsceneCounters.set(counter.getKey(), jcounter);
+            }
+            jscene.set("counters", jsceneCounters);
+            jscenes.array().add(jscene);
+        }
+        d.set("scenes", jscenes);
+
+        return d.toJSON();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void resetPulseStatistics() {
+        ProfilingLogger profiler = ProfilingLogger.getInstance();
+        if (profiler != null) {
+            profiler.reset();
+        }
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2011, 2014, Oracle and/or its affiliates. All rights reserved.
+ * Copyright (c) 2011, 2017, Oracle and/or its affiliates. All rights reserved.
  * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
  *
  * This code is free software; you can redistribute it and/or modify it
@@ -29,38 +29,56 @@ import java.nio.ByteBuffer;
 import java.util.Queue;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
- * A pool of byte buffers that can be shared by multiple concurrent
+ * A pool of direct byte buffers that can be shared by multiple concurrent
  * clients.
+ * <p>
+ * Buffers are kept in a number of size classes, each class being twice
+ * as large as the previous one. Clients pick a size class by supplying
+ * the expected number of bytes they are going to transfer, so small
+ * resources do not pin large buffers and large downloads are delivered
+ * to the native code in fewer, bigger chunks. The number of idle buffers
+ * retained by each size class is bounded; buffers released beyond that
+ * bound are dropped and left to the garbage collector.
  */
 final class ByteBufferPool {
 
     /**
-     * The shared collection of byte buffers.
+     * The number of size classes.
      */
-    private final Queue<ByteBuffer> byteBuffers =
-            new ConcurrentLinkedQueue<ByteBuffer>();
+    private static final int SIZE_CLASS_COUNT = 3;
 
     /**
-     * The size of each byte buffer.
+     * The size classes, smallest first.
      */
-    private final int bufferSize;
+    private final SizeClass[] sizeClasses;
 
 
     /**
      * Creates a new pool.
      */
-    private ByteBufferPool(int bufferSize) {
-        this.bufferSize = bufferSize;
+    private ByteBufferPool(int minBufferSize, int maxPooledBytes) {
+        sizeClasses = new SizeClass[SIZE_CLASS_COUNT];
+        int bufferSize = minBufferSize;
+        for (int i = 0; i < SIZE_CLASS_COUNT; i++) {
+            int maxPooledCount =
+                    Math.max(1, maxPooledBytes / SIZE_CLASS_COUNT / bufferSize);
+            sizeClasses[i] = new SizeClass(bufferSize, maxPooledCount);
+            bufferSize <<= 1;
+        }
     }
 
 
     /**
-     * Creates a new pool.
+     * Creates a new pool whose smallest buffers are {@code minBufferSize}
+     * bytes long and which retains up to approximately
+     * {@code maxPooledBytes} bytes in idle buffers.
      */
-    static ByteBufferPool newInstance(int bufferSize) {
-        return new ByteBufferPool(bufferSize);
+    static ByteBufferPool newInstance(int minBufferSize, int maxPooledBytes) {
+        return new ByteBufferPool(minBufferSize, maxPooledBytes);
     }
 
     /**
@@ -69,15 +87,228 @@ final class ByteBufferPool {
      * buffers and will ensure that there are no more than
      * {@code maxBufferCount} buffers allocated through this allocator
      * at any given time moment.
+     * The allocator hands out buffers of the smallest size class
+     * that can hold {@code expectedLength} bytes, or of the largest
+     * size class if there is no such class. A negative
+     * {@code expectedLength} means the length is unknown.
+     */
+    ByteBufferAllocator newAllocator(int maxBufferCount, long expectedLength) {
+        return new ByteBufferAllocatorImpl(
+                sizeClassFor(expectedLength), maxBufferCount);
+    }
+
+    /**
+     * Returns the size class to be used for a transfer of
+     * {@code expectedLength} bytes.
+     */
+    private SizeClass sizeClassFor(long expectedLength) {
+        if (expectedLength < 0) {
+            // Unknown length, use the medium size class
+            return sizeClasses[SIZE_CLASS_COUNT / 2];
+        }
+        for (SizeClass sizeClass : sizeClasses) {
+            if (expectedLength <= sizeClass.bufferSize) {
+                return sizeClass;
+            }
+        }
+        return sizeClasses[SIZE_CLASS_COUNT - 1];
+    }
+
+    /**
+     * Returns the usage statistics of this pool.
+     */
+    Statistics getStatistics() {
+        Statistics statistics = new Statistics();
+        for (SizeClass sizeClass : sizeClasses) {
+            statistics.add(sizeClass);
+        }
+        return statistics;
+    }
+
+    /**
+     * A collection of equally sized byte buffers.
+     */
+    private static final class SizeClass {
+
+        /**
+         * The size of each byte buffer.
+         */
+        private final int bufferSize;
+
+        /**
+         * The maximum number of idle buffers retained by this class.
+         */
+        private final int maxPooledCount;
+
+        /**
+         * The idle byte buffers.
+         */
+        private final Queue<ByteBuffer> byteBuffers =
+                new ConcurrentLinkedQueue<ByteBuffer>();
+
+        /**
+         * The number of idle byte buffers, tracked separately as
+         * {@code ConcurrentLinkedQueue.size()} is a linear operation.
+         */
+        private final AtomicInteger pooledCount = new AtomicInteger();
+
+        /**
+         * The number of buffers currently handed out to clients.
+         */
+        private final AtomicInteger inUseCount = new AtomicInteger();
+
+        /**
+         * The number of requests satisfied with an idle buffer.
+         */
+        private final AtomicLong hitCount = new AtomicLong();
+
+        /**
+         * The number of buffers allocated because no idle buffer
+         * was available.
+         */
+        private final AtomicLong allocationCount = new AtomicLong();
+
+        /**
+         * The number of released buffers dropped because the class
+         * already retained the maximum number of idle buffers.
+         */
+        private final AtomicLong discardCount = new AtomicLong();
+
+
+        private SizeClass(int bufferSize, int maxPooledCount) {
+            this.bufferSize = bufferSize;
+            this.maxPooledCount = maxPooledCount;
+        }
+
+
+        private ByteBuffer allocate() {
+            inUseCount.incrementAndGet();
+            ByteBuffer byteBuffer = byteBuffers.poll();
+            if (byteBuffer != null) {
+                pooledCount.decrementAndGet();
+                hitCount.incrementAndGet();
+                return byteBuffer;
+            }
+            allocationCount.incrementAndGet();
+            return ByteBuffer.allocateDirect(bufferSize);
+        }
+
+        private void release(ByteBuffer byteBuffer) {
+            inUseCount.decrementAndGet();
+            if (pooledCount.incrementAndGet() <= maxPooledCount) {
+                byteBuffer.clear();
+                byteBuffers.add(byteBuffer);
+            } else {
+                pooledCount.decrementAndGet();
+                discardCount.incrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * A snapshot of the pool usage statistics.
      */
-    ByteBufferAllocator newAllocator(int maxBufferCount) {
-        return new ByteBufferAllocatorImpl(maxBufferCount);
+    static final class Statistics {
+
+        private int pooledCount;
+        private long pooledBytes;
+        private int inUseCount;
+        private long inUseBytes;
+        private long hitCount;
+        private long allocationCount;
+        private long discardCount;
+
+
+        private Statistics() {
+        }
+
+
+        private void add(SizeClass sizeClass) {
+            int pooled = sizeClass.pooledCount.get();
+            int inUse = sizeClass.inUseCount.get();
+            pooledCount += pooled;
+            pooledBytes += (long) pooled * sizeClass.bufferSize;
+            inUseCount += inUse;
+            inUseBytes += (long) inUse * sizeClass.bufferSize;
+            hitCount += sizeClass.hitCount.get();
+            allocationCount += sizeClass.allocationCount.get();
+            discardCount += sizeClass.discardCount.get();
+        }
+
+        /**
+         * Returns the number of idle buffers retained by the pool.
+         */
+        int getPooledCount() {
+            return pooledCount;
+        }
+
+        /**
+         * Returns the total size of the idle buffers retained by the pool.
+         */
+        long getPooledBytes() {
+            return pooledBytes;
+        }
+
+        /**
+         * Returns the number of buffers currently handed out to clients.
+         */
+        int getInUseCount() {
+            return inUseCount;
+        }
+
+        /**
+         * Returns the total size of the buffers currently handed out
+         * to clients.
+         */
+        long getInUseBytes() {
+            return inUseBytes;
+        }
+
+        /**
+         * Returns the number of requests satisfied with an idle buffer.
+         */
+        long getHitCount() {
+            return hitCount;
+        }
+
+        /**
+         * Returns the number of buffers allocated by the pool.
+         */
+        long getAllocationCount() {
+            return allocationCount;
+        }
+
+        /**
+         * Returns the number of released buffers that were dropped
+         * rather than retained by the pool.
+         */
+        long getDiscardCount() {
+            return discardCount;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public String toString() {
+            return String.format("pooled: [%d, %d bytes], "
+                    + "in use: [%d, %d bytes], "
+                    + "hits: [%d], allocations: [%d], discards: [%d]",
+                    pooledCount, pooledBytes, inUseCount, inUseBytes,
+                    hitCount, allocationCount, discardCount);
+        }
     }
 
     /**
      * The allocator implementation.
      */
-    private final class ByteBufferAllocatorImpl implements ByteBufferAllocator {
+    private static final class ByteBufferAllocatorImpl
+            implements ByteBufferAllocator
+    {
+        /**
+         * The size class this allocator takes its buffers from.
+         */
+        private final SizeClass sizeClass;
 
         /**
          * The semaphore used to limit the number of buffers
@@ -89,7 +320,10 @@ final class ByteBufferPool {
         /**
          * Creates a new allocator.
          */
-        private ByteBufferAllocatorImpl(int maxBufferCount) {
+        private ByteBufferAllocatorImpl(SizeClass sizeClass,
+                                        int maxBufferCount)
+        {
+            this.sizeClass = sizeClass;
             semaphore = new Semaphore(maxBufferCount);
         }
 
@@ -100,11 +334,7 @@ final class ByteBufferPool {
         @Override
         public ByteBuffer allocate() throws InterruptedException {
             semaphore.acquire();
-            ByteBuffer byteBuffer = byteBuffers.poll();
-            if (byteBuffer == null) {
-                byteBuffer = ByteBuffer.allocateDirect(bufferSize);
-            }
-            return byteBuffer;
+            return sizeClass.allocate();
         }
 
         /**
@@ -112,7 +342,7 @@ final class ByteBufferPool {
          */
         @Override
         public void release(ByteBuffer byteBuffer) {
-            byteBuffers.add(byteBuffer);
+            sizeClass.release(byteBuffer);
             semaphore.release();
         }
     }
@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2011, 2014, Oracle and/or its affiliates. All rights reserved.
+ * Copyright (c) 2011, 2017, Oracle and/or its affiliates. All rights reserved.
  * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
  *
  * This code is free software; you can redistribute it and/or modify it
@@ -63,9 +63,16 @@ final class NetworkContext {
     private static final int DEFAULT_HTTP_MAX_CONNECTIONS = 5;
 
     /**
-     * The buffer size for the shared pool of byte buffers.
+     * The size of the smallest buffers in the shared pool of byte buffers.
+     * The pool also provides buffers twice and four times as large.
      */
-    private static final int BYTE_BUFFER_SIZE = 1024 * 40;
+    private static final int MIN_BYTE_BUFFER_SIZE = 1024 * 20;
+
+    /**
+     * The maximum number of bytes retained in idle buffers by the shared
+     * pool of byte buffers.
+     */
+    private static final int MAX_POOLED_BYTES = 1024 * 1024 * 2;
 
     /**
      * The thread pool used to execute asynchronous loaders.
@@ -86,7 +93,7 @@ final class NetworkContext {
      * The shared pool of byte buffers.
      */
     private static final ByteBufferPool byteBufferPool =
-            ByteBufferPool.newInstance(BYTE_BUFFER_SIZE);
+            ByteBufferPool.newInstance(MIN_BYTE_BUFFER_SIZE, MAX_POOLED_BYTES);
 
 
     /**
@@ -167,6 +174,8 @@ final class NetworkContext {
                                 threadPool.getMaximumPoolSize(),
                                 threadPool.getTaskCount(),
                                 threadPool.getCompletedTaskCount()});
+                logger.log(Level.FINEST, "byte buffer pool: {0}",
+                        byteBufferPool.getStatistics());
             }
             return loader;
         } else {
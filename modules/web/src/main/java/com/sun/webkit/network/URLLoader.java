@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2011, 2016, Oracle and/or its affiliates. All rights reserved.
+ * Copyright (c) 2011, 2017, Oracle and/or its affiliates. All rights reserved.
  * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
  *
  * This code is free software; you can redistribute it and/or modify it
@@ -43,11 +43,15 @@ import java.net.MalformedURLException;
 import java.net.NoRouteToHostException;
 import java.net.SocketException;
 import java.net.SocketTimeoutException;
+import java.net.URISyntaxException;
 import java.net.URL;
 import java.net.URLConnection;
 import java.net.URLDecoder;
 import java.net.UnknownHostException;
 import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.FileSystemNotFoundException;
+import java.nio.file.Paths;
 import java.security.AccessControlException;
 import java.security.AccessController;
 import java.security.PrivilegedAction;
@@ -534,19 +538,36 @@ final class URLLoader implements Runnable {
             }
         }
 
-        ByteBufferAllocator allocator =
-                byteBufferPool.newAllocator(MAX_BUF_COUNT);
+        ByteBufferAllocator allocator = byteBufferPool.newAllocator(
+                MAX_BUF_COUNT, extractContentLength(c));
         ByteBuffer byteBuffer = null;
+        // The content of a file is read straight into the direct buffers
+        // passed to the native code, everything else goes through an
+        // intermediate array
+        FileChannel channel = inputStream != null && errorStream == null
+                && encoding == null ? openFileChannel(c) : null;
         try {
             if (inputStream != null) {
                 // 8192 is the default size of a BufferedInputStream used in
                 // most URLConnections, by using the same size, we avoid quite
                 // a few System.arrayCopy() calls
-                byte[] buffer = new byte[8192];
+                byte[] buffer = channel == null ? new byte[8192] : null;
                 while (!canceled) {
+                    if (byteBuffer == null) {
+                        byteBuffer = allocator.allocate();
+                    }
+
                     int count;
                     try {
-                        count = inputStream.read(buffer);
+                        if (channel != null) {
+                            count = channel.read(byteBuffer);
+                        } else {
+                            count = inputStream.read(buffer, 0, Math.min(
+                                    buffer.length, byteBuffer.remaining()));
+                            if (count > 0) {
+                                byteBuffer.put(buffer, 0, count);
+                            }
+                        }
                     } catch (EOFException ex) {
                         // can be thrown by GZIPInputStream signaling
                         // the end of the stream
@@ -557,25 +578,10 @@ final class URLLoader implements Runnable {
                         break;
                     }
 
-                    if (byteBuffer == null) {
-                        byteBuffer = allocator.allocate();
-                    }
-
-                    int remaining = byteBuffer.remaining();
-                    if (count < remaining) {
-                        byteBuffer.put(buffer, 0, count);
-                    } else {
-                        byteBuffer.put(buffer, 0, remaining);
-
+                    if (!byteBuffer.hasRemaining()) {
                         byteBuffer.flip();
                         didReceiveData(byteBuffer, allocator);
                         byteBuffer = null;
-
-                        int outstanding = count - remaining;
-                        if (outstanding > 0) {
-                            byteBuffer = allocator.allocate();
-                            byteBuffer.put(buffer, remaining, outstanding);
-                        }
                     }
                 }
             }
@@ -589,13 +595,44 @@ final class URLLoader implements Runnable {
             }
         } finally {
             if (byteBuffer != null) {
-                byteBuffer.clear();
                 allocator.release(byteBuffer);
             }
+            if (channel != null) {
+                try {
+                    channel.close();
+                } catch (IOException ignore) {}
+            }
         }
         return null;
     }
 
+    /**
+     * Opens a channel on the file that a connection to a file: URL reads,
+     * or returns null if it is not such a connection or the file cannot be
+     * opened that way. The stream of the connection stays open, and is
+     * closed with the connection.
+     */
+    private static FileChannel openFileChannel(URLConnection c) {
+        if (c instanceof DirectoryURLConnection
+                || !"file".equalsIgnoreCase(c.getURL().getProtocol()))
+        {
+            return null;
+        }
+        try {
+            return FileChannel.open(Paths.get(c.getURL().toURI()));
+        } catch (URISyntaxException | IllegalArgumentException
+                | FileSystemNotFoundException | SecurityException
+                | IOException e)
+        {
+            if (logger.isLoggable(Level.FINE)) {
+                logger.log(Level.FINE, String.format("Exception caught: [%s], %s",
+                    e.getClass().getSimpleName(),
+                    e.getMessage()));
+            }
+            return null;
+        }
+    }
+
     /**
      * Releases the resources that may be associated with a connection.
      */
@@ -821,7 +858,6 @@ final class URLLoader implements Runnable {
                         byteBuffer.position(),
                         byteBuffer.remaining());
             }
-            byteBuffer.clear();
             allocator.release(byteBuffer);
         });
     }
@@ -0,0 +1,109 @@
+/*
+ * Copyright (c) 2017, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package com.sun.webkit.network;
+
+import java.nio.ByteBuffer;
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class ByteBufferPoolTest {
+
+    private final ByteBufferPool pool = ByteBufferPool.newInstance(1024, 6144);
+
+    @Test
+    public void testSizeClassSelection() throws Exception {
+        assertEquals(1024, allocateCapacity(0));
+        assertEquals(1024, allocateCapacity(1024));
+        assertEquals(2048, allocateCapacity(1025));
+        assertEquals(4096, allocateCapacity(4096));
+        assertEquals(4096, allocateCapacity(1 << 20));
+    }
+
+    @Test
+    public void testUnknownLengthUsesMediumSizeClass() throws Exception {
+        assertEquals(2048, allocateCapacity(-1));
+    }
+
+    @Test
+    public void testAllocatedBuffersAreDirect() throws Exception {
+        ByteBufferAllocator allocator = pool.newAllocator(1, -1);
+        ByteBuffer byteBuffer = allocator.allocate();
+        assertTrue(byteBuffer.isDirect());
+        allocator.release(byteBuffer);
+    }
+
+    @Test
+    public void testReleasedBufferIsReused() throws Exception {
+        ByteBufferAllocator allocator = pool.newAllocator(1, 100);
+        ByteBuffer byteBuffer = allocator.allocate();
+        byteBuffer.put((byte) 1);
+        allocator.release(byteBuffer);
+
+        ByteBuffer reused = allocator.allocate();
+        assertSame(byteBuffer, reused);
+        assertEquals(0, reused.position());
+        assertEquals(reused.capacity(), reused.limit());
+        allocator.release(reused);
+
+        ByteBufferPool.Statistics statistics = pool.getStatistics();
+        assertEquals(1, statistics.getAllocationCount());
+        assertEquals(1, statistics.getHitCount());
+        assertEquals(1, statistics.getPooledCount());
+        assertEquals(1024, statistics.getPooledBytes());
+        assertEquals(0, statistics.getInUseCount());
+    }
+
+    @Test
+    public void testPooledBuffersAreBounded() throws Exception {
+        // 6144 bytes spread over three size classes leave room
+        // for two idle 1024 byte buffers
+        ByteBufferAllocator allocator = pool.newAllocator(3, 100);
+        ByteBuffer b1 = allocator.allocate();
+        ByteBuffer b2 = allocator.allocate();
+        ByteBuffer b3 = allocator.allocate();
+        assertEquals(3, pool.getStatistics().getInUseCount());
+        assertEquals(3072, pool.getStatistics().getInUseBytes());
+
+        allocator.release(b1);
+        allocator.release(b2);
+        allocator.release(b3);
+
+        ByteBufferPool.Statistics statistics = pool.getStatistics();
+        assertEquals(3, statistics.getAllocationCount());
+        assertEquals(2, statistics.getPooledCount());
+        assertEquals(1, statistics.getDiscardCount());
+        assertEquals(0, statistics.getInUseCount());
+    }
+
+    private int allocateCapacity(long expectedLength) throws Exception {
+        ByteBufferAllocator allocator = pool.newAllocator(1, expectedLength);
+        ByteBuffer byteBuffer = allocator.allocate();
+        allocator.release(byteBuffer);
+        return byteBuffer.capacity();
+    }
+}